@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.benchmarks;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.FakeVault;
+import com.deciphernow.maven.plugins.vault.Plan;
+import com.deciphernow.maven.plugins.vault.PushResult;
+import com.deciphernow.maven.plugins.vault.Vaults;
+import com.deciphernow.maven.plugins.vault.cache.FingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures pulling and pushing secrets through the whole request pipeline against a {@link FakeVault}.
+ *
+ * <p>Each operation pulls or pushes every path of a single server.  The sweep covers the number of paths, the number of
+ * mappings per path, the size of each value and the latency added to each request.  Run with {@code -prof gc} to
+ * measure allocation per operation.  The forked JVM disables Nagle's algorithm in the fake, which would otherwise
+ * hold every response back until the delayed acknowledgement of its headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class PipelineBenchmark {
+
+  @Param({"1", "16", "128"})
+  public int paths;
+
+  @Param({"1", "16"})
+  public int mappings;
+
+  @Param({"32", "1024"})
+  public int payload;
+
+  @Param({"0", "2"})
+  public int latency;
+
+  private FakeVault vault;
+
+  private Plan pullPlan;
+
+  private Plan pushPlan;
+
+  private Properties[] properties;
+
+  private int pushes;
+
+  /**
+   * Starts the fake, puts the secrets of every path and plans the pull and push.
+   *
+   * @throws IOException if the fake cannot be started
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.vault = new FakeVault(1, "token");
+    this.vault.setLatency(this.latency);
+    this.properties = new Properties[] { new Properties(), new Properties() };
+    char[] filler = new char[this.payload];
+    List<Path> declared = new ArrayList<>(this.paths);
+    for (int pathIndex = 0; pathIndex < this.paths; pathIndex++) {
+      String name = String.format("secret/benchmark/%d", pathIndex);
+      Map<String, String> secrets = new HashMap<>();
+      List<Mapping> pathMappings = new ArrayList<>(this.mappings);
+      for (int keyIndex = 0; keyIndex < this.mappings; keyIndex++) {
+        String key = String.format("key%d", keyIndex);
+        String property = String.format("benchmark.%d.%d", pathIndex, keyIndex);
+        Arrays.fill(filler, 'a');
+        secrets.put(key, new String(filler));
+        Arrays.fill(filler, 'b');
+        this.properties[0].setProperty(property, new String(filler));
+        Arrays.fill(filler, 'c');
+        this.properties[1].setProperty(property, new String(filler));
+        pathMappings.add(new Mapping(key, property));
+      }
+      this.vault.put(name, secrets);
+      declared.add(new Path(name, pathMappings));
+    }
+    List<Server> servers = Collections.singletonList(new Server(this.vault.getUrl(), "token", true, null, declared,
+        false));
+    this.pullPlan = Plan.pull(servers);
+    this.pushPlan = Plan.push(servers);
+  }
+
+  /**
+   * Forgets the requests the fake has logged, which would otherwise be retained for the whole trial.
+   */
+  @TearDown(Level.Iteration)
+  public void clearLog() {
+    this.vault.clearLog();
+  }
+
+  /**
+   * Stops the fake.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.vault.close();
+  }
+
+  /**
+   * Pulls every mapping into new properties.
+   *
+   * @return the properties
+   * @throws VaultException if the pull fails
+   */
+  @Benchmark
+  public Properties pull() throws VaultException {
+    Properties pulled = new Properties();
+    Vaults.pull(this.pullPlan, pulled, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+    return pulled;
+  }
+
+  /**
+   * Pushes every mapping, which reads and then writes every path because each push alternates between two sets of
+   * values, so neither matches what the previous push wrote.
+   *
+   * @return the outcome of the push
+   * @throws VaultException if the push fails
+   */
+  @Benchmark
+  public PushResult push() throws VaultException {
+    return Vaults.push(this.pushPlan, this.properties[this.pushes++ % 2], SecretCache.NONE, FingerprintStore.NONE, Deadline.NONE,
+        Metrics.NONE);
+  }
+
+}
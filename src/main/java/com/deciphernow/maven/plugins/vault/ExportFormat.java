@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Defines the file formats secrets can be exported to.
+ */
+public enum ExportFormat {
+
+  /**
+   * Defines the Java properties format, written in ISO 8859-1 with other characters escaped as {@link
+   * java.util.Properties#store(Writer, String)} does.
+   */
+  PROPERTIES(StandardCharsets.ISO_8859_1) {
+    @Override
+    public void write(Writer writer, String name, String value) throws IOException {
+      escape(writer, name, true);
+      writer.write('=');
+      escape(writer, value, false);
+      writer.write('\n');
+    }
+  },
+
+  /**
+   * Defines the environment file format, written in UTF-8 with values unquoted so that {@code docker --env-file} and
+   * every version of Docker Compose read them alike.
+   *
+   * <p>Docker and Compose v1 take everything after the {@code =} literally, while Compose v2 strips quotes, comments
+   * and surrounding whitespace and expands variables, so a value those readers would disagree on cannot be written and
+   * is rejected rather than quoted.
+   */
+  ENV(StandardCharsets.UTF_8) {
+    @Override
+    public void write(Writer writer, String name, String value) throws IOException {
+      checkName(name);
+      if (!isLiteral(value)) {
+        throw new IOException(String.format("The value of %s contains a line break or $, starts with a quote or #, has "
+            + "surrounding whitespace or a # after whitespace, so Docker and Docker Compose would read it differently; "
+            + "export it in the dotenv or properties format instead", name));
+      }
+      writer.write(name);
+      writer.write('=');
+      writer.write(value);
+      writer.write('\n');
+    }
+  },
+
+  /**
+   * Defines the dotenv format read by Docker Compose v2, written in UTF-8 with every value double quoted so that values
+   * spanning lines, such as PEM certificates and keys, can be exported.
+   *
+   * <p>Line breaks, backslashes, double quotes and {@code $} are escaped as {@code \n}, {@code \r}, {@code \\},
+   * {@code \"} and {@code \$}, which Compose v2 reads back unchanged.  {@code docker --env-file} and Compose v1 keep
+   * the quotes and escapes, and other dotenv libraries differ in the escapes they decode but agree on values whose only
+   * escaped characters are line breaks.
+   */
+  DOTENV(StandardCharsets.UTF_8) {
+    @Override
+    public void write(Writer writer, String name, String value) throws IOException {
+      checkName(name);
+      if (value.indexOf('\0') >= 0) {
+        throw new IOException(String.format("The value of %s contains a null character, which an environment variable "
+            + "cannot hold", name));
+      }
+      writer.write(name);
+      writer.write("=\"");
+      for (int index = 0; index < value.length(); index++) {
+        char character = value.charAt(index);
+        switch (character) {
+          case '\n':
+            writer.write("\\n");
+            break;
+          case '\r':
+            writer.write("\\r");
+            break;
+          case '\\':
+          case '"':
+          case '$':
+            writer.write('\\');
+            writer.write(character);
+            break;
+          default:
+            writer.write(character);
+        }
+      }
+      writer.write("\"\n");
+    }
+  };
+
+  private final Charset charset;
+
+  /**
+   * Initializes a new instance of the {@link ExportFormat} enumeration.
+   *
+   * @param charset the character set of files in the format
+   */
+  ExportFormat(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Gets the character set of files in this format.
+   *
+   * @return the character set
+   */
+  public Charset getCharset() {
+    return this.charset;
+  }
+
+  /**
+   * Writes a single name and value.
+   *
+   * @param writer the writer
+   * @param name the name
+   * @param value the value
+   * @throws IOException if an exception is thrown writing the value or the name is not valid in this format
+   */
+  public abstract void write(Writer writer, String name, String value) throws IOException;
+
+  /**
+   * Gets a format by name, ignoring case.
+   *
+   * @param name the name
+   * @return the format
+   * @throws IllegalArgumentException if there is no format with the name
+   */
+  public static ExportFormat of(String name) {
+    return valueOf(name.toUpperCase(Locale.ROOT));
+  }
+
+  /**
+   * Returns a value indicating whether a character is an ASCII letter or digit or one of a set of symbols.
+   *
+   * @param character the character
+   * @param symbols the symbols
+   * @return {@code true} if the character is plain; otherwise, {@code false}
+   */
+  private static boolean isPlain(int character, String symbols) {
+    return character < 0x80 && (Character.isLetterOrDigit(character) || symbols.indexOf(character) >= 0);
+  }
+
+  /**
+   * Checks that a name is a valid environment variable name.
+   *
+   * @param name the name
+   * @throws IOException if the name is not valid
+   */
+  private static void checkName(String name) throws IOException {
+    if (name.isEmpty() || !name.chars().allMatch(character -> isPlain(character, "_.-"))) {
+      throw new IOException(String.format("%s is not a valid environment variable name", name));
+    }
+  }
+
+  /**
+   * Returns a value indicating whether a value is read unchanged from an unquoted environment file entry by Docker and
+   * by every version of Docker Compose.
+   *
+   * @param value the value
+   * @return {@code true} if the value is read unchanged; otherwise, {@code false}
+   */
+  private static boolean isLiteral(String value) {
+    if (value.isEmpty()) {
+      return true;
+    }
+    char first = value.charAt(0);
+    if (first == '\'' || first == '"' || first == '#' || Character.isWhitespace(first)
+        || Character.isWhitespace(value.charAt(value.length() - 1))) {
+      return false;
+    }
+    for (int index = 0; index < value.length(); index++) {
+      char character = value.charAt(index);
+      if (character == '\n' || character == '\r' || character == '\0' || character == '$'
+          || character == '#' && Character.isWhitespace(value.charAt(index - 1))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a string escaped for the properties format.
+   *
+   * @param writer the writer
+   * @param text the string
+   * @param key {@code true} if the string is a key, in which every space is escaped
+   * @throws IOException if an exception is thrown writing the string
+   */
+  private static void escape(Writer writer, String text, boolean key) throws IOException {
+    for (int index = 0; index < text.length(); index++) {
+      char character = text.charAt(index);
+      switch (character) {
+        case ' ':
+          if (key || index == 0) {
+            writer.write('\\');
+          }
+          writer.write(' ');
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\f':
+          writer.write("\\f");
+          break;
+        case '\\':
+        case '=':
+        case ':':
+        case '#':
+        case '!':
+          writer.write('\\');
+          writer.write(character);
+          break;
+        default:
+          if (character < 0x20 || character > 0x7e) {
+            writer.write(String.format("\\u%04X", (int) character));
+          } else {
+            writer.write(character);
+          }
+      }
+    }
+  }
+
+}
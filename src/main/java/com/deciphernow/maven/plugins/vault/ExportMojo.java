@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Provides a Mojo that pulls values from Vault and streams them to a properties or environment file.
+ */
+@Mojo(name = "export", defaultPhase = LifecyclePhase.INITIALIZE, threadSafe = true)
+public class ExportMojo extends VaultMojo {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Parameter(property = "vault.exportFile", defaultValue = "${project.build.directory}/vault.properties")
+  protected File exportFile;
+
+  @Parameter(property = "vault.exportFormat")
+  protected String exportFormat;
+
+  /**
+   * Executes this Mojo which writes the mapped values of every path to the export file.
+   *
+   * <p>The values are written to a temporary file, readable only by its owner where the file system supports it, that
+   * replaces the export file once every value has been written.  The session cache is not used so that exported
+   * secrets are not kept in memory for the rest of the build.
+   *
+   * @throws MojoExecutionException if an exception is thrown based upon the project configuration
+   */
+  public void execute() throws MojoExecutionException {
+    if (this.skipExecution) {
+      return;
+    }
+    ExportFormat format = format();
+    Deadline deadline = deadline();
+    DiskCache diskCache = diskCache();
+    SecretCache cache = diskCache == null ? SecretCache.NONE : diskCache;
+    Metrics metrics = metrics();
+    Path file = this.exportFile.getAbsoluteFile().toPath();
+    Path temporary = null;
+    try {
+      Files.createDirectories(file.getParent());
+      temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      Path output = temporary;
+      int count = authenticated(deadline, metrics, servers -> {
+        Plan plan = Plan.pull(renew(servers));
+        getLog().debug(plan.toString());
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output),
+            format.getCharset()), BUFFER_SIZE)) {
+          return Vaults.export(plan, cache, deadline, metrics, format, writer);
+        } catch (IOException exception) {
+          throw new MojoExecutionException(String.format("Unable to write %s.", file), exception);
+        }
+      });
+      try {
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException exception) {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      getLog().info(String.format("Exported %d values from Vault to %s", count, file));
+    } catch (VaultException exception) {
+      throw new MojoExecutionException("Exception thrown pulling secrets.", exception);
+    } catch (IOException exception) {
+      throw new MojoExecutionException(String.format("Unable to write %s.", file), exception);
+    } finally {
+      deleteQuietly(temporary);
+      report(metrics);
+    }
+    if (diskCache != null) {
+      diskCache.report();
+    }
+  }
+
+  /**
+   * Gets the format of the export file, which by default is the environment format for files named with an
+   * {@code .env} extension and the properties format otherwise.
+   *
+   * @return the format
+   * @throws MojoExecutionException if the format is not known
+   */
+  private ExportFormat format() throws MojoExecutionException {
+    if (this.exportFormat == null || this.exportFormat.isEmpty()) {
+      return this.exportFile.getName().endsWith(".env") ? ExportFormat.ENV : ExportFormat.PROPERTIES;
+    }
+    try {
+      return ExportFormat.of(this.exportFormat);
+    } catch (IllegalArgumentException exception) {
+      throw new MojoExecutionException(String.format("Unknown export format %s.", this.exportFormat), exception);
+    }
+  }
+
+  /**
+   * Deletes a temporary file if it still exists.
+   *
+   * @param file the file or {@code null}
+   */
+  private void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException exception) {
+      getLog().warn(String.format("Unable to delete %s: %s", file, exception));
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Applies an asynchronous stage to each of a list of inputs with no more than a limited number of stages in flight.
+ *
+ * <p>No thread waits while stages are in flight.  Instead, each stage that completes starts the stage of the next
+ * input, so hundreds of inputs cost no more threads than one.  The results are returned in the same order as the
+ * inputs.  Once a stage fails no further stages are started.  When the stages already started have completed, the
+ * exception raised for the earliest failed input is returned.
+ *
+ * @param <T> the type of the inputs
+ * @param <R> the type of the results
+ */
+final class Pipeline<T, R> {
+
+  private final List<T> inputs;
+
+  private final Stage<T, R> stage;
+
+  private final AtomicReferenceArray<R> results;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  private final AtomicInteger lanes;
+
+  private final CompletableFuture<List<R>> result = new CompletableFuture<>();
+
+  private int failedIndex = Integer.MAX_VALUE;
+
+  private Throwable failure;
+
+  /**
+   * Initializes a new instance of the {@link Pipeline} class.
+   *
+   * @param inputs the inputs
+   * @param stage the stage
+   * @param lanes the number of stages in flight at once
+   */
+  private Pipeline(List<T> inputs, Stage<T, R> stage, int lanes) {
+    this.inputs = inputs;
+    this.stage = stage;
+    this.results = new AtomicReferenceArray<>(inputs.size());
+    this.lanes = new AtomicInteger(lanes);
+  }
+
+  /**
+   * Applies a stage to each of a list of inputs.
+   *
+   * @param inputs the inputs
+   * @param limit the maximum number of stages in flight at once
+   * @param stage the stage
+   * @param <T> the type of the inputs
+   * @param <R> the type of the results
+   * @return the results in the order of the inputs, or the exception raised for the earliest failed input
+   */
+  static <T, R> CompletableFuture<List<R>> map(List<T> inputs, int limit, Stage<T, R> stage) {
+    if (inputs.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    int lanes = Math.max(1, Math.min(limit, inputs.size()));
+    Pipeline<T, R> pipeline = new Pipeline<>(inputs, stage, lanes);
+    for (int lane = 0; lane < lanes; lane++) {
+      pipeline.run();
+    }
+    return pipeline.result;
+  }
+
+  /**
+   * Starts the stages of one lane until a stage is in flight or there are no more inputs.
+   */
+  private void run() {
+    while (true) {
+      int index = isFailed() ? this.inputs.size() : this.next.getAndIncrement();
+      if (index >= this.inputs.size()) {
+        finish();
+        return;
+      }
+      CompletableFuture<R> future;
+      try {
+        future = this.stage.apply(this.inputs.get(index));
+      } catch (VaultException | RuntimeException exception) {
+        future = Futures.failed(exception);
+      }
+      if (future.isDone()) {
+        future.whenComplete((value, exception) -> record(index, value, exception));
+      } else {
+        future.whenComplete((value, exception) -> {
+          record(index, value, exception);
+          run();
+        });
+        return;
+      }
+    }
+  }
+
+  /**
+   * Records the outcome of the stage of an input.
+   *
+   * @param index the index of the input
+   * @param value the result or {@code null} if the stage failed
+   * @param exception the exception raised by the stage or {@code null} if it succeeded
+   */
+  private void record(int index, R value, Throwable exception) {
+    if (exception == null) {
+      this.results.set(index, value);
+      return;
+    }
+    synchronized (this) {
+      if (index < this.failedIndex) {
+        this.failedIndex = index;
+        this.failure = Futures.unwrap(exception);
+      }
+    }
+  }
+
+  /**
+   * Gets a value indicating whether any stage has failed.
+   *
+   * @return {@code true} if a stage has failed; otherwise, {@code false}
+   */
+  private synchronized boolean isFailed() {
+    return this.failure != null;
+  }
+
+  /**
+   * Finishes a lane, completing the result once every lane has finished.
+   */
+  private void finish() {
+    if (this.lanes.decrementAndGet() > 0) {
+      return;
+    }
+    synchronized (this) {
+      if (this.failure != null) {
+        this.result.completeExceptionally(this.failure);
+        return;
+      }
+    }
+    List<R> values = new ArrayList<>(this.inputs.size());
+    for (int index = 0; index < this.inputs.size(); index++) {
+      values.add(this.results.get(index));
+    }
+    this.result.complete(values);
+  }
+
+  /**
+   * Represents an asynchronous stage applied to one input.
+   *
+   * @param <T> the type of the input
+   * @param <R> the type of the result
+   */
+  @FunctionalInterface
+  interface Stage<T, R> {
+
+    /**
+     * Starts the stage.
+     *
+     * @param input the input
+     * @return the result
+     * @throws VaultException if the stage cannot be started
+     */
+    CompletableFuture<R> apply(T input) throws VaultException;
+
+  }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Describes the requests needed to pull or push the secrets of a list of servers.
+ *
+ * <p>Servers that differ only in their paths are combined into a single server, and a path that is declared more than
+ * once is combined into a single path carrying the mappings of every declaration, so that each distinct path is read
+ * or written exactly once.  Servers that are skipped are left out of the plan.
+ */
+public final class Plan {
+
+  private final String operation;
+
+  private final List<Server> declared;
+
+  private final List<Server> servers;
+
+  /**
+   * Initializes a new instance of the {@link Plan} class.
+   *
+   * @param operation the name of the operation performed on each path
+   * @param declared the servers as they were declared
+   * @param servers the combined servers
+   */
+  private Plan(String operation, List<Server> declared, List<Server> servers) {
+    this.operation = operation;
+    this.declared = declared;
+    this.servers = servers;
+  }
+
+  /**
+   * Plans pulling the secrets of a list of servers, reading each distinct version of a path once.
+   *
+   * <p>Declarations of a path that walk its subtree differently are planned separately.  Declarations that differ only
+   * in the prefix or patterns by which they map its keys share a single read, and each is resolved with its own
+   * settings from the declared servers.
+   *
+   * @param servers the servers
+   * @return the plan
+   */
+  public static Plan pull(List<Server> servers) {
+    return of("read", servers, path -> Arrays.asList(path.getName(), path.getVersion(), path.isRecursive(),
+        path.getDepth(), path.getLeaves()), mapping -> mapping);
+  }
+
+  /**
+   * Plans pushing the secrets of a list of servers, writing each distinct path once.
+   *
+   * <p>When a key of a path is mapped from more than one property the last declared mapping is pushed, as it would
+   * have been had the path been written once for each declaration.
+   *
+   * @param servers the servers
+   * @return the plan
+   */
+  public static Plan push(List<Server> servers) {
+    return of("write", servers, Path::getName, Mapping::getKey);
+  }
+
+  /**
+   * Creates a plan, combining servers by their settings and paths and mappings by their identities.
+   *
+   * @param operation the name of the operation performed on each path
+   * @param servers the servers
+   * @param pathIdentity the function returning the identity of a path
+   * @param mappingIdentity the function returning the identity of a mapping
+   * @return the plan
+   */
+  private static Plan of(String operation, List<Server> servers, Function<Path, Object> pathIdentity,
+                         Function<Mapping, Object> mappingIdentity) {
+    List<Server> declared = servers.stream().filter(server -> !server.isSkipExecution()).collect(Collectors.toList());
+    Map<Server, Map<Object, List<Path>>> grouped = new LinkedHashMap<>();
+    for (Server server : declared) {
+      Map<Object, List<Path>> paths = grouped.computeIfAbsent(key(server), key -> new LinkedHashMap<>());
+      for (Path path : server.getPaths()) {
+        paths.computeIfAbsent(pathIdentity.apply(path), key -> new ArrayList<>()).add(path);
+      }
+    }
+    List<Server> combined = new ArrayList<>(grouped.size());
+    grouped.forEach((server, paths) -> combined.add(server.withPaths(paths.values().stream()
+        .map(declarations -> combine(declarations, mappingIdentity))
+        .collect(Collectors.toList()))));
+    return new Plan(operation, Collections.unmodifiableList(declared), Collections.unmodifiableList(combined));
+  }
+
+  /**
+   * Combines the declarations of a path, keeping the last of the mappings that share an identity in the position the
+   * first of them was declared.
+   *
+   * @param paths the declarations
+   * @param identity the function returning the identity of a mapping
+   * @return the combined path
+   */
+  private static Path combine(List<Path> paths, Function<Mapping, Object> identity) {
+    Path first = paths.get(0);
+    if (paths.size() == 1) {
+      return first;
+    }
+    Map<Object, Mapping> mappings = new LinkedHashMap<>();
+    paths.forEach(path -> path.getMappings().forEach(mapping -> mappings.put(identity.apply(mapping), mapping)));
+    return new Path(first.getName(), new ArrayList<>(mappings.values()), first.getVersion(), first.getPrefix(),
+        first.getIncludes(), first.getExcludes(), first.isRecursive(), first.getDepth(), first.getLeaves());
+  }
+
+  /**
+   * Gets the key by which servers are combined, which is the server without its paths.
+   *
+   * @param server the server
+   * @return the key
+   */
+  static Server key(Server server) {
+    return server.withPaths(Collections.emptyList());
+  }
+
+  /**
+   * Gets the servers as they were declared, excluding any that are skipped.
+   *
+   * @return the servers
+   */
+  public List<Server> getDeclared() {
+    return this.declared;
+  }
+
+  /**
+   * Gets the combined servers.
+   *
+   * @return the servers
+   */
+  public List<Server> getServers() {
+    return this.servers;
+  }
+
+  /**
+   * Gets the number of requests this plan makes, excluding any that are served from a cache.
+   *
+   * @return the number of requests
+   */
+  public int getRequests() {
+    return this.servers.stream().mapToInt(server -> server.getPaths().size()).sum();
+  }
+
+  /**
+   * Returns a description of this plan with one line for each request.
+   *
+   * @return the description
+   */
+  public String toString() {
+    int declaredPaths = this.declared.stream().mapToInt(server -> server.getPaths().size()).sum();
+    StringBuilder builder = new StringBuilder(String.format("Vault plan: %d %s requests to %d servers for %d declared "
+        + "paths", getRequests(), this.operation, this.servers.size(), declaredPaths));
+    for (Server server : this.servers) {
+      for (Path path : server.getPaths()) {
+        builder.append(String.format("%n  %s %s", this.operation, path.getName()));
+        if (path.isRecursive()) {
+          builder.append(String.format(" recursively to depth %d", path.getDepth()));
+        }
+        if (path.getVersion() > 0) {
+          builder.append(String.format(" version %d", path.getVersion()));
+        }
+        builder.append(String.format(" on %s (%d mappings", server.getUrl(), path.getMappings().size()));
+        if (path.getPrefix() != null) {
+          builder.append(String.format(", keys prefixed with '%s'", path.getPrefix()));
+        }
+        builder.append(')');
+      }
+    }
+    return builder.toString();
+  }
+
+}
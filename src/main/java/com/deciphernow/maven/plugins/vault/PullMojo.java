@@ -17,16 +17,27 @@
 package com.deciphernow.maven.plugins.vault;
 
 import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.Snapshot;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
 
 /**
  * Provides a Mojo that pulls values from Vault and sets Maven properties.
  */
-@Mojo(name = "pull", defaultPhase = LifecyclePhase.INITIALIZE)
+@Mojo(name = "pull", defaultPhase = LifecyclePhase.INITIALIZE, threadSafe = true)
 public class PullMojo extends VaultMojo {
 
+  @Parameter(property = "vault.offline", defaultValue = "false")
+  protected boolean offline;
+
   /**
    * Executes this Mojo which pulls project property values from Vault.
    *
@@ -36,8 +47,45 @@ public class PullMojo extends VaultMojo {
     if (this.skipExecution) {
       return;
     }
+    if (this.offline) {
+      pullOffline();
+      return;
+    }
+    Deadline deadline = deadline();
+    Metrics metrics = metrics();
+    DiskCache diskCache = diskCache();
+    SecretCache cache = sessionCache(diskCache == null ? SecretCache.NONE : diskCache);
     try {
-      Vaults.pull(this.servers, this.project.getProperties());
+      authenticated(deadline, metrics, servers -> {
+        Plan plan = Plan.pull(renew(servers));
+        getLog().debug(plan.toString());
+        Vaults.pull(plan, this.project.getProperties(), cache, deadline, metrics);
+        return null;
+      });
+    } catch (VaultException exception) {
+      throw new MojoExecutionException("Exception thrown pulling secrets.", exception);
+    } finally {
+      report(metrics);
+    }
+    if (diskCache != null) {
+      diskCache.report();
+    }
+  }
+
+  /**
+   * Pulls project property values from the snapshot file without contacting Vault.
+   *
+   * @throws MojoExecutionException if the snapshot cannot be read or does not hold a mapped value
+   */
+  private void pullOffline() throws MojoExecutionException {
+    Plan plan = Plan.pull(this.servers);
+    try (Snapshot snapshot = Snapshot.open(this.snapshotFile, snapshotKey())) {
+      getLog().debug(String.format("Pulling secrets from Vault snapshot %s with %d values", this.snapshotFile,
+          snapshot.size()));
+      Vaults.pull(plan, this.project.getProperties(), snapshot);
+    } catch (IOException exception) {
+      throw new MojoExecutionException(String.format("Unable to read Vault snapshot %s.", this.snapshotFile),
+          exception);
     } catch (VaultException exception) {
       throw new MojoExecutionException("Exception thrown pulling secrets.", exception);
     }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+
+import java.util.stream.Collectors;
+
+/**
+ * Signals that some paths could not be written by a push, which still wrote every other path.
+ */
+public class PushException extends VaultException {
+
+  private final transient PushResult result;
+
+  /**
+   * Initializes a new instance of the {@link PushException} class.
+   *
+   * @param result the outcome of the push, including the paths that failed
+   */
+  public PushException(PushResult result) {
+    super(String.format("Failed to push %d paths: %s", result.getFailed().size(),
+        result.getFailed().entrySet().stream()
+            .map(entry -> String.format("%s (%s)", entry.getKey(), entry.getValue()))
+            .collect(Collectors.joining(", "))));
+    this.result = result;
+  }
+
+  /**
+   * Gets the outcome of the push.
+   *
+   * @return the outcome
+   */
+  public PushResult getResult() {
+    return this.result;
+  }
+
+}
@@ -17,16 +17,34 @@
 package com.deciphernow.maven.plugins.vault;
 
 import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.DiskFingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.FingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
 
 /**
  * Provides a Mojo that pulls values from Vault and sets Maven properties.
  */
-@Mojo(name = "push", defaultPhase = LifecyclePhase.VERIFY)
+@Mojo(name = "push", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
 public class PushMojo extends VaultMojo {
 
+  @Parameter(property = "vault.fingerprintDirectory", defaultValue = "${user.home}/.m2/vault-fingerprints")
+  protected File fingerprintDirectory;
+
+  @Parameter(property = "vault.fingerprintTtl", defaultValue = "3600")
+  protected long fingerprintTtl;
+
+  @Parameter(property = "vault.forcePush", defaultValue = "false")
+  protected boolean forcePush;
+
   /**
    * Executes this Mojo which pushes a project property values to Vault.
    *
@@ -36,11 +54,41 @@ public class PushMojo extends VaultMojo {
     if (this.skipExecution) {
       return;
     }
+    Deadline deadline = deadline();
+    DiskCache diskCache = diskCache();
+    SecretCache cache = sessionCache(diskCache == null ? SecretCache.NONE : diskCache);
+    Metrics metrics = metrics();
     try {
-      Vaults.push(this.servers, this.project.getProperties());
+      PushResult result = authenticated(deadline, metrics, servers -> {
+        Plan plan = Plan.push(renew(servers));
+        getLog().debug(plan.toString());
+        return Vaults.push(plan, this.project.getProperties(), cache, fingerprints(), deadline, metrics);
+      });
+      result.getUnchanged().forEach(path -> getLog().debug(String.format("Skipped unchanged path %s", path)));
+      result.getSkipped().forEach(path -> getLog().debug(String.format("Skipped previously pushed path %s", path)));
+      getLog().info(String.format("Pushed secrets to Vault: %s", result));
+    } catch (PushException exception) {
+      exception.getResult().getFailed().forEach((path, message) ->
+          getLog().error(String.format("Failed to push path %s: %s", path, message)));
+      getLog().info(String.format("Pushed secrets to Vault: %s", exception.getResult()));
+      throw new MojoExecutionException("Exception thrown pushing secrets.", exception);
     } catch (VaultException exception) {
       throw new MojoExecutionException("Exception thrown pushing secrets.", exception);
+    } finally {
+      report(metrics);
+    }
+  }
+
+  /**
+   * Returns the store of fingerprints used to skip unchanged paths when pushing.
+   *
+   * @return the store or a store that remembers nothing if a full push is forced or no directory is configured
+   */
+  private FingerprintStore fingerprints() {
+    if (this.forcePush || this.fingerprintDirectory == null) {
+      return FingerprintStore.NONE;
     }
+    return new DiskFingerprintStore(this.fingerprintDirectory, this.fingerprintTtl, getLog());
   }
 
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the outcome of pushing secrets to Vault.
+ */
+public final class PushResult {
+
+  private final List<String> written = new ArrayList<>();
+
+  private final List<String> unchanged = new ArrayList<>();
+
+  private final List<String> skipped = new ArrayList<>();
+
+  private final Map<String, String> failed = new LinkedHashMap<>();
+
+  private boolean denied;
+
+  /**
+   * Records a path that was written.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   */
+  synchronized void written(String url, String path) {
+    this.written.add(describe(url, path));
+  }
+
+  /**
+   * Records a path that was not written because Vault already held the pushed values.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   */
+  synchronized void unchanged(String url, String path) {
+    this.unchanged.add(describe(url, path));
+  }
+
+  /**
+   * Records a path that was not contacted because the values last pushed to it have not changed.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   */
+  synchronized void skipped(String url, String path) {
+    this.skipped.add(describe(url, path));
+  }
+
+  /**
+   * Records a path that could not be written.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   * @param exception the exception thrown writing the path
+   */
+  synchronized void failed(String url, String path, Exception exception) {
+    String message = exception.getMessage() == null ? exception.toString() : exception.getMessage();
+    this.failed.put(describe(url, path), message);
+    if (exception instanceof VaultException && ((VaultException) exception).getHttpStatusCode() == 403) {
+      this.denied = true;
+    }
+  }
+
+  /**
+   * Adds the outcomes recorded by another result to this result.
+   *
+   * @param result the other result
+   */
+  synchronized void add(PushResult result) {
+    this.written.addAll(result.getWritten());
+    this.unchanged.addAll(result.getUnchanged());
+    this.skipped.addAll(result.getSkipped());
+    this.failed.putAll(result.getFailed());
+    this.denied |= result.isDenied();
+  }
+
+  /**
+   * Gets a value indicating whether any path could not be written because Vault denied the token.
+   *
+   * @return {@code true} if Vault denied the token for any path
+   */
+  synchronized boolean isDenied() {
+    return this.denied;
+  }
+
+  /**
+   * Gets the paths that were written.
+   *
+   * @return the paths
+   */
+  public synchronized List<String> getWritten() {
+    return Collections.unmodifiableList(new ArrayList<>(this.written));
+  }
+
+  /**
+   * Gets the paths that were not written because Vault already held the pushed values.
+   *
+   * @return the paths
+   */
+  public synchronized List<String> getUnchanged() {
+    return Collections.unmodifiableList(new ArrayList<>(this.unchanged));
+  }
+
+  /**
+   * Gets the paths that were not contacted because the values last pushed to them have not changed.
+   *
+   * @return the paths
+   */
+  public synchronized List<String> getSkipped() {
+    return Collections.unmodifiableList(new ArrayList<>(this.skipped));
+  }
+
+  /**
+   * Gets the paths that could not be written.
+   *
+   * @return the message of the exception thrown writing each path by path
+   */
+  public synchronized Map<String, String> getFailed() {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(this.failed));
+  }
+
+  /**
+   * Returns a one line summary of this result.
+   *
+   * @return the summary
+   */
+  public synchronized String toString() {
+    String summary = String.format("%d paths written, %d paths unchanged, %d paths skipped", this.written.size(),
+        this.unchanged.size(), this.skipped.size());
+    return this.failed.isEmpty() ? summary : String.format("%s, %d paths failed", summary, this.failed.size());
+  }
+
+  /**
+   * Describes a path on a server.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   * @return the description
+   */
+  private static String describe(String url, String path) {
+    return String.format("%s on %s", path, url);
+  }
+
+}
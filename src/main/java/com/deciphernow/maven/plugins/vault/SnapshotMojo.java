@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.Snapshot;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides a Mojo that pulls values from Vault and writes them to an encrypted snapshot for offline builds.
+ */
+@Mojo(name = "snapshot", threadSafe = true)
+public class SnapshotMojo extends VaultMojo {
+
+  /**
+   * Executes this Mojo which writes the mapped values of every path to the snapshot file.
+   *
+   * @throws MojoExecutionException if an exception is thrown based upon the project configuration
+   */
+  public void execute() throws MojoExecutionException {
+    if (this.skipExecution) {
+      return;
+    }
+    String passphrase = snapshotKey();
+    Deadline deadline = deadline();
+    DiskCache diskCache = diskCache();
+    SecretCache cache = sessionCache(diskCache == null ? SecretCache.NONE : diskCache);
+    Metrics metrics = metrics();
+    Map<List<String>, String> values;
+    try {
+      values = authenticated(deadline, metrics, servers -> {
+        Plan plan = Plan.pull(renew(servers));
+        getLog().debug(plan.toString());
+        return Vaults.snapshot(plan, cache, deadline, metrics);
+      });
+    } catch (VaultException exception) {
+      throw new MojoExecutionException("Exception thrown pulling secrets.", exception);
+    } finally {
+      report(metrics);
+    }
+    try {
+      Snapshot.write(this.snapshotFile, passphrase, values);
+    } catch (IOException | GeneralSecurityException exception) {
+      throw new MojoExecutionException(String.format("Unable to write Vault snapshot %s.", this.snapshotFile),
+          exception);
+    }
+    getLog().info(String.format("Wrote %d values to Vault snapshot %s", values.size(), this.snapshotFile));
+  }
+
+}
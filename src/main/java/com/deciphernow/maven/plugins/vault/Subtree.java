@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads every secret in the subtree beneath a recursive path.
+ *
+ * <p>The subtree is walked breadth first.  Every folder found at one level is listed, and every secret found at that
+ * level is read, up to the parallelism of the server at a time before the next level is walked, so a wide tree is read
+ * in as many rounds as it has levels rather than one request at a time.  Folders below the depth of the path are not
+ * listed, and the walk fails as soon as it finds more secrets than the path allows.  The requests are made
+ * asynchronously, so no thread waits while they are in flight.
+ */
+final class Subtree {
+
+  /**
+   * Prevents instantiation of the {@link Subtree} class.
+   */
+  private Subtree() { }
+
+  /**
+   * Reads every secret in the subtree beneath a path.
+   *
+   * @param server the server
+   * @param path the path
+   * @param client the client
+   * @param cache the cache used for each secret in the subtree
+   * @return the secrets keyed by the path of each secret relative to the path followed by the key, or an exception if
+   *     one is thrown connecting to vault, the path is pinned to a version, the subtree holds no secrets or it holds
+   *     more secrets than the path allows
+   */
+  static CompletableFuture<Map<String, String>> read(Server server, Path path, VaultClient client,
+                                                     SecretCache cache) {
+    String root = path.getName().endsWith("/")
+        ? path.getName().substring(0, path.getName().length() - 1)
+        : path.getName();
+    if (path.getVersion() > 0) {
+      return Futures.failed(new VaultException(String.format("Recursive path %s cannot be pinned to a version",
+          root)));
+    }
+    return level(new Walk(server, path, root, client, cache), Collections.singletonList(""), 1, 0);
+  }
+
+  /**
+   * Lists the folders of one level of a subtree, reads the secrets found at that level and then walks the next level.
+   *
+   * @param walk the walk
+   * @param folders the folders of the level relative to the root, each ending with a slash
+   * @param level the level, starting at one
+   * @param count the number of secrets found above the level
+   * @return the secrets of the subtree
+   */
+  private static CompletableFuture<Map<String, String>> level(Walk walk, List<String> folders, int level,
+                                                              int count) {
+    if (folders.isEmpty()) {
+      return count == 0
+          ? Futures.failed(new VaultException(String.format("No secrets found beneath path %s", walk.root)))
+          : CompletableFuture.completedFuture(walk.secrets);
+    }
+    int parallelism = walk.server.getParallelism();
+    return Pipeline.map(folders, parallelism, folder -> walk.client.listAsync(walk.root + "/" + folder))
+        .thenCompose(listings -> {
+          List<String> next = new ArrayList<>();
+          List<String> leaves = new ArrayList<>();
+          for (int index = 0; index < folders.size(); index++) {
+            for (String key : listings.get(index)) {
+              String relative = folders.get(index) + key;
+              if (!key.endsWith("/")) {
+                leaves.add(relative);
+              } else if (level < walk.path.getDepth()) {
+                next.add(relative);
+              }
+            }
+          }
+          int total = count + leaves.size();
+          if (total > walk.path.getLeaves()) {
+            return Futures.failed(new VaultException(String.format("More than %d secrets found beneath path %s",
+                walk.path.getLeaves(), walk.root)));
+          }
+          return Pipeline.map(leaves, parallelism, leaf -> walk.cache.getAsync(walk.server, walk.root + "/" + leaf,
+              0, () -> walk.client.readAsync(walk.root + "/" + leaf, 0)))
+              .thenCompose(values -> {
+                for (int index = 0; index < leaves.size(); index++) {
+                  String leaf = leaves.get(index);
+                  values.get(index).forEach((key, value) -> walk.secrets.put(leaf + "/" + key, value));
+                }
+                return level(walk, next, level + 1, total);
+              });
+        });
+  }
+
+  /**
+   * Holds the state of a walk through a subtree.
+   */
+  private static final class Walk {
+
+    private final Server server;
+
+    private final Path path;
+
+    private final String root;
+
+    private final VaultClient client;
+
+    private final SecretCache cache;
+
+    private final Map<String, String> secrets = new HashMap<>();
+
+    /**
+     * Initializes a new instance of the {@link Walk} class.
+     *
+     * @param server the server
+     * @param path the path
+     * @param root the path without any trailing slash
+     * @param client the client
+     * @param cache the cache
+     */
+    private Walk(Server server, Path path, String root, VaultClient client, SecretCache cache) {
+      this.server = server;
+      this.path = path;
+      this.root = root;
+      this.client = client;
+      this.cache = cache;
+    }
+
+  }
+
+}
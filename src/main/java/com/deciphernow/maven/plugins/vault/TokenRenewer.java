@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.Token;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.SessionData;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Renews the tokens used within a Maven session in the background so that they do not expire during long builds.
+ *
+ * <p>Each token is looked up once and then renewed with renew-self after half of its remaining time to live, again and
+ * again, until it cannot be renewed any further or the session ends.  Renewal runs on a single daemon thread that
+ * checks regularly whether every project of the session has been built, and stops as soon as it has, a fail-fast build
+ * has failed or the session has been discarded, so that a JVM running several builds does not keep renewing the tokens
+ * of finished ones.  Failures are logged and stop the renewal of that token only.
+ */
+final class TokenRenewer {
+
+  private static final long MINIMUM_INTERVAL = 5000;
+
+  private final BooleanSupplier ended;
+
+  private final Log log;
+
+  private final long minimumInterval;
+
+  private final Set<List<String>> tokens = ConcurrentHashMap.newKeySet();
+
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "vault-token-renewer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Initializes a new instance of the {@link TokenRenewer} class.
+   *
+   * @param ended the check of whether the session that bounds the renewal has ended, which is made every minimum
+   *     interval
+   * @param log the log
+   * @param minimumInterval the minimum number of milliseconds between renewals of a token
+   */
+  TokenRenewer(BooleanSupplier ended, Log log, long minimumInterval) {
+    this.ended = ended;
+    this.log = log;
+    this.minimumInterval = minimumInterval;
+    this.executor.scheduleWithFixedDelay(this::closeIfEnded, minimumInterval, minimumInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets the renewer of a Maven session, creating it on first use.
+   *
+   * @param session the session
+   * @param log the log used by the renewer
+   * @return the renewer
+   */
+  static TokenRenewer of(MavenSession session, Log log) {
+    SessionData data = session.getRepositorySession().getData();
+    while (true) {
+      Object existing = data.get(TokenRenewer.class);
+      if (existing instanceof TokenRenewer) {
+        return (TokenRenewer) existing;
+      }
+      WeakReference<MavenSession> owner = new WeakReference<>(session);
+      TokenRenewer created = new TokenRenewer(() -> isFinished(owner.get()), log, MINIMUM_INTERVAL);
+      if (data.set(TokenRenewer.class, existing, created)) {
+        return created;
+      }
+      created.close();
+    }
+  }
+
+  /**
+   * Starts renewing the token of a server unless it is already being renewed.
+   *
+   * @param server the server
+   */
+  void renew(Server server) {
+    if (server.getToken() == null || !this.tokens.add(Arrays.asList(server.getUrl(), server.getToken()))) {
+      return;
+    }
+    this.executor.execute(() -> {
+      try {
+        Token token = VaultClient.of(server).lookupSelf();
+        if (!token.isRenewable() || token.getLeaseDuration() <= 0) {
+          this.log.debug(String.format("Vault token for %s does not need renewal", server.getUrl()));
+          return;
+        }
+        schedule(server, token.getLeaseDuration());
+      } catch (VaultException | RuntimeException exception) {
+        this.log.warn(String.format("Unable to look up Vault token for %s: %s", server.getUrl(), exception));
+      }
+    });
+  }
+
+  /**
+   * Stops renewing every token.
+   */
+  void close() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Gets a value indicating whether this renewer has stopped.
+   *
+   * @return {@code true} if the renewer has stopped; otherwise, {@code false}
+   */
+  boolean isClosed() {
+    return this.executor.isShutdown();
+  }
+
+  /**
+   * Stops renewing every token if the session has ended.
+   */
+  private void closeIfEnded() {
+    if (this.ended.getAsBoolean()) {
+      this.log.debug("Maven session has ended; stopping Vault token renewal");
+      close();
+    }
+  }
+
+  /**
+   * Gets a value indicating whether every project of a Maven session has been built or the build has stopped.
+   *
+   * <p>A build that fails fast skips the projects left after the first failure, which may never get a build summary, so
+   * it is finished as soon as any project has failed.
+   *
+   * @param session the session or {@code null} if it has been discarded
+   * @return {@code true} if the session has been discarded, a fail-fast build has failed or every project has a build
+   *     summary; otherwise, {@code false}
+   */
+  static boolean isFinished(MavenSession session) {
+    if (session == null) {
+      return true;
+    }
+    MavenExecutionResult result = session.getResult();
+    List<MavenProject> projects = session.getProjects();
+    if (result == null) {
+      return false;
+    }
+    if (result.hasExceptions() && session.getRequest() != null
+        && MavenExecutionRequest.REACTOR_FAIL_FAST.equals(session.getRequest().getReactorFailureBehavior())) {
+      return true;
+    }
+    if (projects == null || projects.isEmpty()) {
+      return false;
+    }
+    return projects.stream().allMatch(project -> result.getBuildSummary(project) != null);
+  }
+
+  /**
+   * Schedules the next renewal of a token after half of its remaining time to live.
+   *
+   * @param server the server
+   * @param ttl the remaining time to live of the token in seconds
+   */
+  private void schedule(Server server, long ttl) {
+    long delay = Math.max(this.minimumInterval, ttl * 1000 / 2);
+    this.executor.schedule(() -> {
+      try {
+        Token token = VaultClient.of(server).renewSelf();
+        this.log.debug(String.format("Renewed Vault token for %s for %d seconds", server.getUrl(),
+            token.getLeaseDuration()));
+        if (token.getLeaseDuration() * 1000 <= this.minimumInterval) {
+          this.log.warn(String.format("Vault token for %s has reached its maximum TTL and expires in %d seconds",
+              server.getUrl(), token.getLeaseDuration()));
+          return;
+        }
+        schedule(server, token.getLeaseDuration());
+      } catch (VaultException | RuntimeException exception) {
+        this.log.warn(String.format("Unable to renew Vault token for %s: %s", server.getUrl(), exception));
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+}
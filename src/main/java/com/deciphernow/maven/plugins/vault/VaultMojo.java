@@ -16,12 +16,37 @@
 
 package com.deciphernow.maven.plugins.vault;
 
+import com.bettercloud.vault.VaultException;
+import com.bettercloud.vault.json.Json;
+import com.bettercloud.vault.json.JsonObject;
+import com.bettercloud.vault.json.ParseException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.SessionCache;
+import com.deciphernow.maven.plugins.vault.cache.Token;
+import com.deciphernow.maven.plugins.vault.cache.TokenCache;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
 import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Provides an abstract class for mojos that work with Vault.
@@ -31,9 +56,266 @@ abstract class VaultMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project}", readonly = true)
   protected MavenProject project;
 
+  @Parameter(defaultValue = "${session}", readonly = true)
+  protected MavenSession session;
+
   @Parameter(required = true)
   protected List<Server> servers;
 
   @Parameter(property = "skipExecution", defaultValue = "false")
   protected boolean skipExecution;
+
+  @Parameter(property = "vault.cache", defaultValue = "false")
+  protected boolean cache;
+
+  @Parameter(property = "vault.cacheDirectory", defaultValue = "${user.home}/.m2/vault-cache")
+  protected File cacheDirectory;
+
+  @Parameter(property = "vault.cacheTtl", defaultValue = "300")
+  protected long cacheTtl;
+
+  @Parameter(property = "vault.sessionCache", defaultValue = "true")
+  protected boolean sessionCache;
+
+  @Parameter(property = "vault.timeout", defaultValue = "0")
+  protected long timeout;
+
+  @Parameter(property = "vault.tokenCache", defaultValue = "true")
+  protected boolean tokenCache;
+
+  @Parameter(property = "vault.tokenCacheDirectory", defaultValue = "${user.home}/.m2/vault-tokens")
+  protected File tokenCacheDirectory;
+
+  @Parameter(property = "vault.renewToken", defaultValue = "false")
+  protected boolean renewToken;
+
+  @Parameter(property = "vault.snapshotFile", defaultValue = "${project.build.directory}/vault.snapshot")
+  protected File snapshotFile;
+
+  @Parameter(property = "vault.snapshotKey")
+  protected String snapshotKey;
+
+  @Parameter(property = "vault.metrics", defaultValue = "true")
+  protected boolean metrics;
+
+  @Parameter(property = "vault.metricsFile", defaultValue = "${project.build.directory}/vault-metrics.json")
+  protected File metricsFile;
+
+  @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+  protected MojoExecution mojoExecution;
+
+  /**
+   * Returns the on-disk cache for this execution.
+   *
+   * @return the cache or {@code null} if the on-disk cache is disabled
+   */
+  protected DiskCache diskCache() {
+    return this.cache ? new DiskCache(this.cacheDirectory, this.cacheTtl, getLog()) : null;
+  }
+
+  /**
+   * Returns the deadline for the requests of this execution, starting now.
+   *
+   * @return the deadline or a deadline that never expires if no timeout is configured
+   */
+  protected Deadline deadline() {
+    return Deadline.after(this.timeout);
+  }
+
+  /**
+   * Returns a cache that shares secrets with the other executions in the Maven session.
+   *
+   * @param delegate the cache used to load secrets the session has not seen
+   * @return the cache or the delegate if the session cache is disabled
+   */
+  protected SecretCache sessionCache(SecretCache delegate) {
+    if (!this.sessionCache || this.session == null) {
+      return delegate;
+    }
+    return SessionCache.of(this.session).backedBy(delegate, getLog());
+  }
+
+  /**
+   * Runs an action against the servers of this execution once those configured with an auth method are logged in.
+   *
+   * <p>A token reused from the token cache may have been revoked, or may have lost its policies, since it was cached.
+   * If Vault denies a request made by the action while such a token is in use, the reused tokens are discarded, the
+   * servers are logged in to again and the action is run once more.
+   *
+   * @param deadline the deadline for the login requests
+   * @param metrics the metrics recording the login requests
+   * @param action the action
+   * @param <T> the type of the result of the action
+   * @return the result of the action
+   * @throws MojoExecutionException if an exception is thrown logging in to a server
+   * @throws VaultException if an exception is thrown by the action
+   */
+  protected <T> T authenticated(Deadline deadline, Metrics metrics, Authenticated<T> action)
+      throws MojoExecutionException, VaultException {
+    TokenCache tokens = new TokenCache(this.tokenCache ? this.tokenCacheDirectory : null, getLog());
+    Map<Server, String> reused = new LinkedHashMap<>();
+    List<Server> servers = authenticate(this.servers, tokens, deadline, metrics, reused);
+    try {
+      return action.apply(servers);
+    } catch (VaultException exception) {
+      if (reused.isEmpty() || !denied(exception)) {
+        throw exception;
+      }
+      getLog().info("Vault denied a cached token; logging in again");
+      for (Map.Entry<Server, String> entry : reused.entrySet()) {
+        tokens.invalidate(entry.getKey(), entry.getValue());
+      }
+      return action.apply(authenticate(this.servers, tokens, deadline, metrics, new LinkedHashMap<>()));
+    }
+  }
+
+  /**
+   * Logs in to the servers that are configured with an auth method instead of a token.
+   *
+   * @param servers the servers
+   * @param tokens the token cache
+   * @param deadline the deadline for the login requests
+   * @param metrics the metrics recording the login requests
+   * @param reused the servers whose token was reused from the cache rather than obtained by logging in, which are added
+   *     with their token
+   * @return the servers, with those configured with an auth method replaced by copies holding a client token
+   * @throws MojoExecutionException if an exception is thrown logging in to a server
+   */
+  private List<Server> authenticate(List<Server> servers, TokenCache tokens, Deadline deadline, Metrics metrics,
+                                    Map<Server, String> reused) throws MojoExecutionException {
+    List<Server> result = new ArrayList<>();
+    for (Server server : servers) {
+      if (server.getAuthentication() == null || server.isSkipExecution()) {
+        result.add(server);
+        continue;
+      }
+      try {
+        AtomicBoolean loggedIn = new AtomicBoolean();
+        Token token = tokens.get(server, () -> {
+          loggedIn.set(true);
+          return VaultClient.of(server, deadline, metrics).login(server.getAuthentication());
+        });
+        if (!loggedIn.get()) {
+          reused.put(server, token.getValue());
+        }
+        result.add(server.withToken(token.getValue()));
+      } catch (VaultException exception) {
+        throw new MojoExecutionException(String.format("Exception thrown logging in to %s.", server.getUrl()),
+            exception);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets a value indicating whether an exception was raised because Vault denied a token.
+   *
+   * @param exception the exception
+   * @return {@code true} if Vault denied a token
+   */
+  private static boolean denied(VaultException exception) {
+    if (exception instanceof PushException) {
+      return ((PushException) exception).getResult().isDenied();
+    }
+    return exception.getHttpStatusCode() == 403;
+  }
+
+  /**
+   * Renews the tokens of servers in the background for the rest of the Maven session, if renewal is enabled.
+   *
+   * @param servers the servers
+   * @return the servers
+   */
+  protected List<Server> renew(List<Server> servers) {
+    if (this.renewToken && this.session != null) {
+      TokenRenewer renewer = TokenRenewer.of(this.session, getLog());
+      servers.stream().filter(server -> !server.isSkipExecution()).forEach(renewer::renew);
+    }
+    return servers;
+  }
+
+  /**
+   * Returns the passphrase of the snapshot file.
+   *
+   * @return the passphrase
+   * @throws MojoExecutionException if no passphrase is configured
+   */
+  protected String snapshotKey() throws MojoExecutionException {
+    if (this.snapshotKey == null || this.snapshotKey.isEmpty()) {
+      throw new MojoExecutionException("A snapshotKey (vault.snapshotKey) is required to use a Vault snapshot.");
+    }
+    return this.snapshotKey;
+  }
+
+  /**
+   * Returns the metrics recording the requests of this execution.
+   *
+   * @return the metrics or metrics that record nothing if metrics are disabled
+   */
+  protected Metrics metrics() {
+    return this.metrics ? new Metrics() : Metrics.NONE;
+  }
+
+  /**
+   * Logs a summary of the requests of this execution for each server, and at debug level for each path, and records
+   * the summaries in the metrics file under the goal and id of this execution.
+   *
+   * <p>Failing to write the metrics file is logged but does not fail the build.
+   *
+   * @param metrics the metrics
+   */
+  protected void report(Metrics metrics) {
+    if (metrics.isEmpty()) {
+      return;
+    }
+    for (Metrics.Summary server : metrics.getServers()) {
+      getLog().info(String.format("Vault requests to %s", server));
+      metrics.getPaths(server.getName()).forEach(path -> getLog().debug(String.format("Vault requests for %s", path)));
+    }
+    if (this.metricsFile == null) {
+      return;
+    }
+    String execution = this.mojoExecution == null
+        ? "vault"
+        : String.format("%s:%s", this.mojoExecution.getGoal(), this.mojoExecution.getExecutionId());
+    Path file = this.metricsFile.getAbsoluteFile().toPath();
+    synchronized (VaultMojo.class) {
+      try {
+        JsonObject report = new JsonObject();
+        if (Files.isRegularFile(file)) {
+          try {
+            report = Json.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).asObject();
+          } catch (ParseException | UnsupportedOperationException exception) {
+            getLog().debug(String.format("Replacing unreadable Vault metrics file %s", file));
+          }
+        }
+        report.set(execution, metrics.toJson().add("timestamp", Instant.now().toString()));
+        Files.createDirectories(file.getParent());
+        Files.write(file, report.toString().getBytes(StandardCharsets.UTF_8));
+      } catch (IOException exception) {
+        getLog().warn(String.format("Unable to write Vault metrics to %s: %s", file, exception));
+      }
+    }
+  }
+
+  /**
+   * Represents an action run against servers that are logged in.
+   *
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  protected interface Authenticated<T> {
+
+    /**
+     * Runs the action.
+     *
+     * @param servers the servers, holding a client token in place of an auth method
+     * @return the result
+     * @throws MojoExecutionException if the action fails for a reason other than Vault
+     * @throws VaultException if an exception is thrown connecting to vault
+     */
+    T apply(List<Server> servers) throws MojoExecutionException, VaultException;
+
+  }
+
 }
@@ -16,19 +16,49 @@
 
 package com.deciphernow.maven.plugins.vault;
 
-import com.bettercloud.vault.Vault;
-import com.bettercloud.vault.VaultConfig;
 import com.bettercloud.vault.VaultException;
+import com.bettercloud.vault.json.Json;
+import com.bettercloud.vault.json.JsonArray;
+import com.bettercloud.vault.json.ParseException;
+import com.deciphernow.maven.plugins.vault.cache.FingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.Snapshot;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.DeadlineExceededException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
 import com.deciphernow.maven.plugins.vault.config.Mapping;
 import com.deciphernow.maven.plugins.vault.config.Path;
 import com.deciphernow.maven.plugins.vault.config.Server;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Provides static methods for working with Vault.
@@ -36,14 +66,9 @@ import java.util.Properties;
 public final class Vaults {
 
   /**
-   * Defines the timeout when opening a connection with Vault.
+   * Defines the number of times a push reads and updates a path that is being modified concurrently.
    */
-  private static final int OPEN_TIMEOUT = 5;
-
-  /**
-   * Defines the timeout when reading data from Vault.
-   */
-  private static final int READ_TIMEOUT = 30;
+  private static final int MAXIMUM_UPDATE_ATTEMPTS = 5;
 
   /**
    * Initializes a new instance of the {@link Vaults} class.
@@ -53,117 +78,738 @@ public final class Vaults {
   /**
    * Pulls secrets from one or more Vault servers and paths and updates a {@link Properties} instance with the values.
    *
+   * <p>The servers are contacted concurrently but their values are applied in the order the servers are declared, so a
+   * property mapped by more than one server takes the value from the last of them.
+   *
    * @param servers the servers
    * @param properties the properties
    * @throws VaultException if an exception is throw pulling the secrets
    */
   public static void pull(List<Server> servers, Properties properties) throws VaultException {
-    for (Server server : servers) {
-      if (server.isSkipExecution()) {
-        continue;
+    pull(servers, properties, SecretCache.NONE);
+  }
+
+  /**
+   * Pulls secrets from one or more Vault servers and paths and updates a {@link Properties} instance with the values,
+   * serving secrets from a cache where possible.
+   *
+   * @param servers the servers
+   * @param properties the properties
+   * @param cache the cache
+   * @throws VaultException if an exception is throw pulling the secrets
+   */
+  public static void pull(List<Server> servers, Properties properties, SecretCache cache) throws VaultException {
+    pull(Plan.pull(servers), properties, cache, Deadline.NONE, Metrics.NONE);
+  }
+
+  /**
+   * Pulls secrets following a plan and updates a {@link Properties} instance with the values, serving secrets from a
+   * cache where possible.
+   *
+   * <p>Each distinct path in the plan is read once.  The values are then resolved in the order the servers, paths and
+   * mappings were declared and, once every path has been read and every mapped key found, published to the properties
+   * in a single batch under the lock of the properties.  No other batch is interleaved with it, and a copy of the
+   * properties taken under the same lock, as a push takes, holds either none or all of it.  Readers that do not take
+   * the lock, such as {@link Properties#getProperty(String)}, may see part of the batch while it is being published.
+   * When several paths fail, whether they cannot be read or lack a mapped key, the failure of the path declared first
+   * is reported, as it would be if the paths were read one after another.
+   *
+   * @param plan the plan
+   * @param properties the properties
+   * @param cache the cache
+   * @param deadline the deadline by which every path must be read
+   * @param metrics the metrics recording every request
+   * @throws VaultException if an exception is throw pulling the secrets or the deadline expires
+   */
+  public static void pull(Plan plan, Properties properties, SecretCache cache, Deadline deadline, Metrics metrics)
+      throws VaultException {
+    apply(plan, properties, readAll(plan, cache, deadline, metrics));
+  }
+
+  /**
+   * Pulls secrets following a plan from a snapshot, without contacting Vault, and updates a {@link Properties} instance
+   * with the values.
+   *
+   * <p>Only the keys mapped when the snapshot was written are available, including the keys mapped by prefix.
+   *
+   * @param plan the plan
+   * @param properties the properties
+   * @param snapshot the snapshot
+   * @throws VaultException if the snapshot cannot be read
+   */
+  public static void pull(Plan plan, Properties properties, Snapshot snapshot) throws VaultException {
+    apply(plan, properties, (server, path) -> {
+      try {
+        Map<String, String> secrets = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        if (path.getPropertyPrefix() != null) {
+          String listing = snapshot.get(Snapshot.key(server.getUrl(), path.getName(), path.getVersion()));
+          if (listing != null) {
+            Json.parse(listing).asArray().forEach(key -> keys.add(key.asString()));
+          }
+        }
+        path.getMappings().forEach(mapping -> keys.add(mapping.getKey()));
+        for (String key : keys) {
+          String value = snapshot.get(Snapshot.key(server.getUrl(), path.getName(), path.getVersion(), key));
+          if (value != null) {
+            secrets.put(key, value);
+          }
+        }
+        return secrets;
+      } catch (IOException | ParseException | UnsupportedOperationException exception) {
+        throw new VaultException(exception);
       }
-      Vault vault = vault(server.getUrl(), server.getToken(), server.getSslVerify(), server.getSslCertificate());
+    });
+  }
+
+  /**
+   * Pulls secrets following a plan and returns the value of every mapping, keyed for a {@link Snapshot}.
+   *
+   * <p>For each path with a prefix the values of the keys it includes are returned together with the list of those
+   * keys, so that the path can be resolved from the snapshot without knowing its keys in advance.
+   *
+   * @param plan the plan
+   * @param cache the cache
+   * @param deadline the deadline by which every path must be read
+   * @param metrics the metrics recording every request
+   * @return the values
+   * @throws VaultException if an exception is throw pulling the secrets or the deadline expires
+   */
+  public static Map<List<String>, String> snapshot(Plan plan, SecretCache cache, Deadline deadline, Metrics metrics)
+      throws VaultException {
+    Source secrets = readAll(plan, cache, deadline, metrics);
+    Map<List<String>, String> values = new LinkedHashMap<>();
+    Map<List<String>, Set<String>> listings = new LinkedHashMap<>();
+    for (Server server : plan.getDeclared()) {
       for (Path path : server.getPaths()) {
-        Map<String, String> secrets = get(vault, path.getName());
-        for (Mapping mapping : path.getMappings()) {
-          if (!secrets.containsKey(mapping.getKey())) {
-            String message = String.format("No value found in path %s for key %s", path.getName(), mapping.getKey());
-            throw new NoSuchElementException(message);
+        Map<String, String> pathSecrets = secrets.get(server, path);
+        List<String> keys = new ArrayList<>(included(path, pathSecrets));
+        if (path.getPropertyPrefix() != null) {
+          listings.computeIfAbsent(Snapshot.key(server.getUrl(), path.getName(), path.getVersion()),
+              key -> new TreeSet<>()).addAll(keys);
+        }
+        path.getMappings().forEach(mapping -> keys.add(mapping.getKey()));
+        for (String key : keys) {
+          String value = pathSecrets.get(key);
+          if (value == null) {
+            throw new NoSuchElementException(String.format("No value found in path %s for key %s", path.getName(),
+                key));
           }
-          properties.setProperty(mapping.getProperty(), secrets.get(mapping.getKey()));
+          values.put(Snapshot.key(server.getUrl(), path.getName(), path.getVersion(), key), value);
         }
       }
     }
+    listings.forEach((key, keys) -> {
+      JsonArray array = new JsonArray();
+      keys.forEach(array::add);
+      values.put(key, array.toString());
+    });
+    return values;
+  }
+
+  /**
+   * Pulls secrets following a plan and streams the value of every mapping to a writer, named by the property of the
+   * mapping.
+   *
+   * <p>Values are written in the order the servers, paths and mappings were declared, the order in which pull applies
+   * them, so a property mapped more than once is written once for each mapping and its last value is the one pull
+   * assigns.  Paths are read ahead of the writer, up to the parallelism of the server of the next path, and
+   * declarations of a path that are read ahead together share a single read.  Reading pauses whenever that many paths
+   * are waiting to be written, so the memory used is bounded by the size of that many paths however many are exported.
+   *
+   * @param plan the plan
+   * @param cache the cache
+   * @param deadline the deadline by which every path must be exported
+   * @param metrics the metrics recording every request
+   * @param format the format
+   * @param writer the writer
+   * @return the number of values written
+   * @throws VaultException if an exception is throw pulling the secrets or the deadline expires
+   * @throws IOException if an exception is thrown writing the values
+   */
+  public static int export(Plan plan, SecretCache cache, Deadline deadline, Metrics metrics, ExportFormat format,
+                           Writer writer) throws VaultException, IOException {
+    Set<String> pending = pending(plan);
+    Map<List<Object>, Server> servers = new HashMap<>();
+    Map<List<Object>, Path> reads = new HashMap<>();
+    for (Server server : plan.getServers()) {
+      for (Path path : server.getPaths()) {
+        servers.put(key(server, path), server);
+        reads.put(key(server, path), path);
+      }
+    }
+    List<Map.Entry<List<Object>, Path>> declarations = new ArrayList<>();
+    for (Server server : plan.getDeclared()) {
+      for (Path path : server.getPaths()) {
+        declarations.add(new AbstractMap.SimpleImmutableEntry<>(key(server, path), path));
+      }
+    }
+    Map<List<Object>, CompletableFuture<Map<String, String>>> reading = new HashMap<>();
+    Deque<Map.Entry<List<Object>, Path>> window = new ArrayDeque<>();
+    int next = 0;
+    int count = 0;
+    try {
+      while (next < declarations.size() || !window.isEmpty()) {
+        while (next < declarations.size()
+            && window.size() < Math.max(1, servers.get(declarations.get(next).getKey()).getParallelism())) {
+          List<Object> key = declarations.get(next).getKey();
+          if (!reading.containsKey(key)) {
+            Server server = servers.get(key);
+            reading.put(key, get(server, reads.get(key), VaultClient.of(server, deadline, metrics), cache, pending));
+          }
+          window.add(declarations.get(next++));
+        }
+        Map.Entry<List<Object>, Path> declaration = window.remove();
+        Map<String, String> secrets = await(reading.get(declaration.getKey()), deadline);
+        if (window.stream().noneMatch(other -> other.getKey().equals(declaration.getKey()))) {
+          reading.remove(declaration.getKey());
+        }
+        Map<String, String> values = values(declaration.getValue(), secrets);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+          format.write(writer, value.getKey(), value.getValue());
+        }
+        count += values.size();
+      }
+    } catch (DeadlineExceededException exception) {
+      throw report(exception, pending);
+    }
+    return count;
+  }
+
+  /**
+   * Reads every distinct path in a plan.
+   *
+   * <p>A path that cannot be read does not fail the read of the plan.  Instead the source returned raises the exception
+   * of the path when its secrets are asked for, and raises the first exception of the read for a path that was not
+   * read because an earlier path of its server failed.  Resolving the paths in the order they were declared therefore
+   * reports the first failure in that order, whether it is a path that could not be read or a key missing from a path
+   * declared before it, however the concurrent reads complete.
+   *
+   * @param plan the plan
+   * @param cache the cache
+   * @param deadline the deadline by which every path must be read
+   * @param metrics the metrics
+   * @return the secrets of each path
+   * @throws VaultException if the deadline expires
+   */
+  private static Source readAll(Plan plan, SecretCache cache, Deadline deadline, Metrics metrics)
+      throws VaultException {
+    Map<List<Object>, Map<String, String>> secrets = new ConcurrentHashMap<>();
+    Map<List<Object>, Throwable> failures = new ConcurrentHashMap<>();
+    Set<String> pending = pending(plan);
+    Exception failure = null;
+    try {
+      forEach(plan.getServers(), server -> read(server, cache, deadline, metrics, pending, secrets, failures),
+          results -> { }, deadline);
+    } catch (DeadlineExceededException exception) {
+      throw report(exception, pending);
+    } catch (VaultException | RuntimeException exception) {
+      failure = exception;
+    }
+    Exception first = failure;
+    return (server, path) -> {
+      List<Object> key = key(server, path);
+      Map<String, String> values = secrets.get(key);
+      if (values != null || first == null) {
+        return values;
+      }
+      throw Futures.rethrow(failures.getOrDefault(key, first));
+    };
+  }
+
+  /**
+   * Resolves the value of every mapping in the order the servers, paths and mappings were declared and publishes the
+   * values to a {@link Properties} instance in a single batch under the lock of the properties.
+   *
+   * @param plan the plan
+   * @param properties the properties
+   * @param source the source of the secrets of each path
+   * @throws VaultException if the secrets of a path cannot be read
+   */
+  private static void apply(Plan plan, Properties properties, Source source) throws VaultException {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (Server server : plan.getDeclared()) {
+      for (Path path : server.getPaths()) {
+        values.putAll(values(path, source.get(server, path)));
+      }
+    }
+    properties.putAll(values);
+  }
+
+  /**
+   * Resolves the properties of a path: every key included by its prefix, in key order, followed by its mappings.
+   *
+   * @param path the path
+   * @param secrets the secrets of the path
+   * @return the values by property
+   * @throws NoSuchElementException if a mapped key is not one of the secrets
+   */
+  private static Map<String, String> values(Path path, Map<String, String> secrets) {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (String key : included(path, secrets)) {
+      values.put(path.getProperty(key), secrets.get(key));
+    }
+    for (Mapping mapping : path.getMappings()) {
+      String value = secrets.get(mapping.getKey());
+      if (value == null) {
+        String message = String.format("No value found in path %s for key %s", path.getName(), mapping.getKey());
+        throw new NoSuchElementException(message);
+      }
+      values.put(mapping.getProperty(), value);
+    }
+    return values;
+  }
+
+  /**
+   * Gets the keys of a path that are mapped by its prefix.
+   *
+   * @param path the path
+   * @param secrets the secrets of the path
+   * @return the keys in order
+   */
+  private static Set<String> included(Path path, Map<String, String> secrets) {
+    if (path.getPropertyPrefix() == null) {
+      return Collections.emptySet();
+    }
+    return secrets.keySet().stream().filter(path::isIncluded).collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  /**
+   * Reads the paths of a single server, recording the secrets or the exception of each path as it completes.
+   *
+   * <p>Up to the parallelism of the server are read concurrently.  Once a read has failed no further reads are started.
+   *
+   * @param server the server
+   * @param cache the cache
+   * @param deadline the deadline
+   * @param metrics the metrics
+   * @param pending the paths that have not yet been read
+   * @param secrets the secrets of each path read by the key of the path
+   * @param failures the exception of each path that could not be read by the key of the path
+   * @return the secrets of every path, or the exception raised for the earliest path that could not be read
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  private static CompletableFuture<List<Map<String, String>>> read(Server server, SecretCache cache, Deadline deadline,
+                                                                   Metrics metrics, Set<String> pending,
+                                                                   Map<List<Object>, Map<String, String>> secrets,
+                                                                   Map<List<Object>, Throwable> failures)
+      throws VaultException {
+    VaultClient client = VaultClient.of(server, deadline, metrics);
+    return Pipeline.map(server.getPaths(), server.getParallelism(),
+        path -> get(server, path, client, cache, pending).whenComplete((values, exception) -> {
+          if (exception != null) {
+            failures.put(key(server, path), Futures.unwrap(exception));
+          } else if (values != null) {
+            secrets.put(key(server, path), values);
+          }
+        }));
+  }
+
+  /**
+   * Gets the key identifying the secrets read for a path, which is shared by every declaration of the path.
+   *
+   * @param server the server
+   * @param path the path
+   * @return the key
+   */
+  private static List<Object> key(Server server, Path path) {
+    return Arrays.asList(Plan.key(server), path.getName(), path.getVersion(), path.isRecursive(), path.getDepth(),
+        path.getLeaves());
   }
 
   /**
    * Pushes secrets to one or more Vault servers and paths from a {@link Properties} instance.
    *
+   * <p>The servers are updated concurrently and a failure on one server does not interrupt the others.
+   *
+   * @param servers the servers
+   * @param properties the properties
+   * @return the outcome of the push
+   * @throws VaultException if an exception is throw pushing the secrets
+   */
+  public static PushResult push(List<Server> servers, Properties properties) throws VaultException {
+    return push(servers, properties, SecretCache.NONE);
+  }
+
+  /**
+   * Pushes secrets to one or more Vault servers and paths from a {@link Properties} instance, invalidating the cached
+   * secrets of each path that is written.
+   *
+   * @param servers the servers
+   * @param properties the properties
+   * @param cache the cache
+   * @return the outcome of the push
+   * @throws VaultException if an exception is throw pushing the secrets
+   */
+  public static PushResult push(List<Server> servers, Properties properties, SecretCache cache)
+      throws VaultException {
+    return push(servers, properties, cache, FingerprintStore.NONE);
+  }
+
+  /**
+   * Pushes secrets to one or more Vault servers and paths from a {@link Properties} instance, skipping paths whose
+   * values match the fingerprint of the last successful push without contacting Vault.
+   *
    * @param servers the servers
    * @param properties the properties
+   * @param cache the cache
+   * @param fingerprints the fingerprints of previous pushes
+   * @return the outcome of the push
    * @throws VaultException if an exception is throw pushing the secrets
    */
-  public static void push(List<Server> servers, Properties properties) throws VaultException {
+  public static PushResult push(List<Server> servers, Properties properties, SecretCache cache,
+                                FingerprintStore fingerprints) throws VaultException {
+    return push(Plan.push(servers), properties, cache, fingerprints, Deadline.NONE, Metrics.NONE);
+  }
+
+  /**
+   * Pushes secrets following a plan from a {@link Properties} instance, writing each distinct path once.
+   *
+   * <p>The values are taken from a snapshot of the properties so that properties changed by other threads during the
+   * push cannot produce a mix of old and new values.
+   *
+   * <p>A path that cannot be written does not stop the others from being pushed.  Once every path has been attempted
+   * a {@link PushException} describing the failed paths is thrown, and because the fingerprints of the paths that were
+   * pushed are recorded, pushing again retries only the paths that failed.
+   *
+   * @param plan the plan
+   * @param properties the properties
+   * @param cache the cache
+   * @param fingerprints the fingerprints of previous pushes
+   * @param deadline the deadline by which every path must be pushed
+   * @param metrics the metrics recording every request
+   * @return the outcome of the push
+   * @throws VaultException if an exception is throw pushing the secrets or the deadline expires
+   * @throws PushException if any path could not be written
+   */
+  public static PushResult push(Plan plan, Properties properties, SecretCache cache, FingerprintStore fingerprints,
+                                Deadline deadline, Metrics metrics) throws VaultException {
+    Properties snapshot = (Properties) properties.clone();
+    PushResult result = new PushResult();
+    Set<String> pending = pending(plan);
+    try {
+      forEach(plan.getServers(), server -> push(server, snapshot, cache, fingerprints, deadline, metrics, pending),
+          result::add, deadline);
+    } catch (DeadlineExceededException exception) {
+      throw report(exception, pending);
+    }
+    if (!result.getFailed().isEmpty()) {
+      throw new PushException(result);
+    }
+    return result;
+  }
+
+  /**
+   * Pushes secrets to a single Vault server.
+   *
+   * <p>Every path is checked before any is written, so a missing property, a recursive path or a path mapped only by a
+   * prefix fails the push without writing anything.  The paths are then pushed asynchronously, up to the parallelism
+   * of the server at a time.  The requests made for a single path are always made one after another, and a path that
+   * fails is recorded in the result without interrupting the others.
+   *
+   * @param server the server
+   * @param properties the properties
+   * @param cache the cache
+   * @param fingerprints the fingerprints of previous pushes
+   * @param deadline the deadline
+   * @param metrics the metrics
+   * @param pending the paths that have not yet been pushed
+   * @return the outcome of the push, or an exception if the deadline expires
+   * @throws VaultException if a path cannot be pushed or the SSL configuration of the server cannot be loaded
+   */
+  private static CompletableFuture<PushResult> push(Server server, Properties properties, SecretCache cache,
+                                                    FingerprintStore fingerprints, Deadline deadline,
+                                                    Metrics metrics, Set<String> pending) throws VaultException {
+    VaultClient client = VaultClient.of(server, deadline, metrics);
+    List<Path> paths = server.getPaths();
+    List<Map<String, String>> values = new ArrayList<>(paths.size());
+    for (Path path : paths) {
+      if (path.isRecursive()) {
+        throw new VaultException(String.format("Recursive path %s cannot be pushed", path.getName()));
+      }
+      if (path.getPrefix() != null && path.getMappings().isEmpty()) {
+        throw new VaultException(String.format("Path %s maps its keys only by prefix and cannot be pushed; add "
+            + "mappings for the keys to push", path.getName()));
+      }
+      Map<String, String> pathValues = new HashMap<>();
+      for (Mapping mapping : path.getMappings()) {
+        if (!properties.containsKey(mapping.getProperty())) {
+          String message = String.format("No value found for property %s", mapping.getProperty());
+          throw new NoSuchElementException(message);
+        }
+        pathValues.put(mapping.getKey(), properties.getProperty(mapping.getProperty()));
+      }
+      values.add(pathValues);
+    }
+    List<Integer> indexes = IntStream.range(0, paths.size()).boxed().collect(Collectors.toList());
+    return Pipeline.map(indexes, server.getParallelism(), index -> push(server, paths.get(index), values.get(index),
+        client, cache, fingerprints, pending)).thenApply(results -> {
+          PushResult result = new PushResult();
+          results.forEach(result::add);
+          return result;
+        });
+  }
+
+  /**
+   * Pushes secrets to a single path, recording rather than raising any failure other than an expired deadline.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the values to push
+   * @param client the client
+   * @param cache the cache
+   * @param fingerprints the fingerprints of previous pushes
+   * @param pending the paths that have not yet been pushed
+   * @return the outcome of the push, or an exception if the deadline expires
+   */
+  private static CompletableFuture<PushResult> push(Server server, Path path, Map<String, String> values,
+                                                    VaultClient client, SecretCache cache,
+                                                    FingerprintStore fingerprints, Set<String> pending) {
+    PushResult result = new PushResult();
+    if (fingerprints.matches(server, path.getName(), values)) {
+      result.skipped(server.getUrl(), path.getName());
+      pending.remove(describe(server, path));
+      return CompletableFuture.completedFuture(result);
+    }
+    return set(client, path.getName(), values, 1).handle((written, exception) -> {
+      Throwable cause = exception == null ? null : Futures.unwrap(exception);
+      if (cause instanceof DeadlineExceededException || cause instanceof Error) {
+        throw new CompletionException(cause);
+      }
+      try {
+        if (cause != null) {
+          throw (Exception) cause;
+        }
+        if (written) {
+          cache.invalidate(server, path.getName());
+          result.written(server.getUrl(), path.getName());
+        } else {
+          result.unchanged(server.getUrl(), path.getName());
+        }
+        fingerprints.record(server, path.getName(), values);
+      } catch (Exception failure) {
+        result.failed(server.getUrl(), path.getName(), failure);
+      }
+      pending.remove(describe(server, path));
+      return result;
+    });
+  }
+
+  /**
+   * Starts a task against each server that is not skipped, so that the servers are worked on concurrently.
+   *
+   * <p>Each task runs to completion independently of the others.  Results are handed to the consumer in the order the
+   * servers are declared up to the first server that failed, after which the exception raised for that server is
+   * thrown with the exceptions of any later servers attached as suppressed exceptions.
+   *
+   * @param servers the servers
+   * @param task the task
+   * @param consumer the consumer of the results
+   * @param deadline the deadline after which tasks still running are cancelled
+   * @param <T> the type of the results
+   * @throws VaultException if the task raised a {@link VaultException} for any server or the deadline expires
+   */
+  private static <T> void forEach(List<Server> servers, ServerTask<T> task, Consumer<T> consumer, Deadline deadline)
+      throws VaultException {
+    List<CompletableFuture<T>> futures = new ArrayList<>(servers.size());
     for (Server server : servers) {
-      if (server.isSkipExecution()) {
-        continue;
+      if (!server.isSkipExecution()) {
+        try {
+          futures.add(task.apply(server));
+        } catch (VaultException | RuntimeException exception) {
+          futures.add(Futures.failed(exception));
+        }
       }
-      Vault vault = vault(server.getUrl(), server.getToken(), server.getSslVerify(), server.getSslCertificate());
-      for (Path path : server.getPaths()) {
-        Map<String, String> secrets = exists(vault, path.getName()) ? get(vault, path.getName()) : new HashMap<>();
-        for (Mapping mapping : path.getMappings()) {
-          if (!properties.containsKey(mapping.getProperty())) {
-            String message = String.format("No value found for property %s", mapping.getProperty());
-            throw new NoSuchElementException(message);
-          }
-          secrets.put(mapping.getKey(), properties.getProperty(mapping.getProperty()));
+    }
+    Exception failure = null;
+    for (CompletableFuture<T> future : futures) {
+      try {
+        T result = await(future, deadline);
+        if (failure == null) {
+          consumer.accept(result);
+        }
+      } catch (VaultException | RuntimeException exception) {
+        if (failure == null) {
+          failure = exception;
+        } else {
+          failure.addSuppressed(exception);
         }
-        set(vault, path.getName(), secrets);
       }
     }
+    if (failure instanceof VaultException) {
+      throw (VaultException) failure;
+    }
+    if (failure != null) {
+      throw (RuntimeException) failure;
+    }
   }
 
   /**
-   * Returns a value indicating whether a path exists.
+   * Gets the secrets at a single path, or beneath it when the path is recursive.
    *
-   * @param vault the vault
+   * @param server the server
    * @param path the path
-   * @return {@code true} if the path exists; otherwise, {@code false}
-   * @throws VaultException if an exception is thrown connecting to vault
+   * @param client the client
+   * @param cache the cache
+   * @param pending the paths that have not yet been read
+   * @return the secrets, or an exception if one is thrown connecting to vault or the path does not exist
    */
-  private static boolean exists(Vault vault, String path) throws VaultException {
-    return !vault.logical().list(path).isEmpty();
+  private static CompletableFuture<Map<String, String>> get(Server server, Path path, VaultClient client,
+                                                            SecretCache cache, Set<String> pending) {
+    CompletableFuture<Map<String, String>> secrets = path.isRecursive()
+        ? Subtree.read(server, path, client, cache)
+        : cache.getAsync(server, path.getName(), path.getVersion(),
+            () -> client.readAsync(path.getName(), path.getVersion()));
+    return secrets.thenApply(values -> {
+      pending.remove(describe(server, path));
+      return values;
+    });
   }
 
   /**
-   * Gets the secrets at a path.
+   * Sets the secrets at a path, preserving any other secrets already held at the path.
    *
-   * @param vault the vault
+   * <p>A write that fails check-and-set may itself have been applied by an earlier attempt that the transport retried
+   * after a server error, so once a write has been made the path is reported as written when it is found to hold the
+   * values.
+   *
+   * @param client the client
    * @param path the path
-   * @return the secrets
-   * @throws VaultException if an exception is thrown connecting to vault or the path does not exist
+   * @param values the values to set
+   * @param attempt the number of the attempt to read and update the path, starting at one
+   * @return {@code true} if the path was written or {@code false} if it held the values before any write was made, or
+   *     an exception if one is thrown connecting to vault or the path keeps changing concurrently
    */
-  private static Map<String, String> get(Vault vault, String path) throws VaultException {
-    return vault.logical().read(path).getData();
+  private static CompletableFuture<Boolean> set(VaultClient client, String path, Map<String, String> values,
+                                                int attempt) {
+    if (attempt > MAXIMUM_UPDATE_ATTEMPTS) {
+      return Futures.failed(new VaultException(String.format(
+          "Path %s was modified concurrently %d times while pushing secrets", path, MAXIMUM_UPDATE_ATTEMPTS)));
+    }
+    return client.findAsync(path, 0).thenCompose(existing -> {
+      Map<String, String> changes = new HashMap<>(values);
+      if (existing != null && !existing.isDeleted()) {
+        changes.entrySet().removeIf(entry -> entry.getValue().equals(existing.getData().get(entry.getKey())));
+        if (changes.isEmpty()) {
+          return CompletableFuture.completedFuture(attempt > 1);
+        }
+      }
+      return client.updateAsync(path, existing, changes).thenCompose(updated -> updated
+          ? CompletableFuture.completedFuture(true)
+          : set(client, path, values, attempt + 1));
+    });
   }
 
+  /**
+   * Gets the paths of a plan, described as they are reported when a deadline expires.
+   *
+   * @param plan the plan
+   * @return the paths
+   */
+  private static Set<String> pending(Plan plan) {
+    Set<String> pending = Collections.synchronizedSet(new LinkedHashSet<>());
+    plan.getServers().forEach(server -> server.getPaths().forEach(path -> pending.add(describe(server, path))));
+    return pending;
+  }
 
   /**
-   * Sets the secrets at a path.
+   * Describes a path on a server.
    *
-   * @param vault the vault
+   * @param server the server
    * @param path the path
-   * @param secrets the secrets
-   * @return the data
-   * @throws VaultException if an exception is thrown connecting to vault or the path does not exist
+   * @return the description
    */
-  private static void set(Vault vault, String path, Map<String, String> secrets) throws VaultException {
-    vault.logical().write(path, secrets);
+  private static String describe(Server server, Path path) {
+    return path.getVersion() > 0
+        ? String.format("%s version %d on %s", path.getName(), path.getVersion(), server.getUrl())
+        : String.format("%s on %s", path.getName(), server.getUrl());
   }
 
   /**
-   * Returns a configured instance of the {@link Vault} class.
+   * Creates an exception reporting the paths still pending when a deadline expired.
    *
-   * @param server the server
-   * @param token the token
-   * @param sslCertificate the certificate file or null if not needed
-   * @param sslVerify {@code true} if the connection should be verified; otherwise, {@code false}
-   * @return the vault
-   */
-  private static Vault vault(String server,
-                             String token,
-                             boolean sslVerify,
-                             File sslCertificate) throws VaultException {
-    VaultConfig vaultConfig = new VaultConfig()
-        .address(server)
-        .openTimeout(OPEN_TIMEOUT)
-        .readTimeout(READ_TIMEOUT)
-        .sslVerify(sslVerify)
-        .token(token);
-    if (sslCertificate != null) {
-      vaultConfig.sslPemFile(sslCertificate);
-    }
-    return new Vault(vaultConfig);
+   * @param exception the exception raised when the deadline expired
+   * @param pending the paths still pending
+   * @return the exception
+   */
+  private static DeadlineExceededException report(DeadlineExceededException exception, Set<String> pending) {
+    List<String> paths;
+    synchronized (pending) {
+      paths = new ArrayList<>(pending);
+    }
+    DeadlineExceededException report = new DeadlineExceededException(String.format("%s with %d paths pending: %s",
+        exception.getMessage(), paths.size(), String.join(", ", paths)));
+    for (Throwable suppressed : exception.getSuppressed()) {
+      report.addSuppressed(suppressed);
+    }
+    return report;
+  }
+
+  /**
+   * Waits for a future to complete and returns its result, rethrowing the exception raised by the task.
+   *
+   * <p>Cancelling the future only stops the wait; the requests it depends on are abandoned, and their connections
+   * closed, by their transports at the same deadline.
+   *
+   * @param future the future
+   * @param deadline the deadline after which the future is cancelled
+   * @param <T> the type of the result
+   * @return the result
+   * @throws VaultException if the task raised a {@link VaultException}, the wait was interrupted or the deadline
+   *     expired
+   */
+  private static <T> T await(Future<T> future, Deadline deadline) throws VaultException {
+    try {
+      if (!deadline.isLimited()) {
+        return future.get();
+      }
+      return future.get(deadline.remaining(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException exception) {
+      future.cancel(true);
+      throw deadline.exceeded();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new VaultException(exception);
+    } catch (ExecutionException exception) {
+      throw Futures.rethrow(exception);
+    }
+  }
+
+  /**
+   * Provides the secrets of a path.
+   */
+  @FunctionalInterface
+  private interface Source {
+
+    /**
+     * Gets the secrets of a path.
+     *
+     * @param server the server
+     * @param path the path
+     * @return the secrets
+     * @throws VaultException if the secrets cannot be read
+     */
+    Map<String, String> get(Server server, Path path) throws VaultException;
+
+  }
+
+  /**
+   * Represents a unit of work performed against a single server.
+   *
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  private interface ServerTask<T> {
+
+    /**
+     * Starts this task against a server.
+     *
+     * @param server the server
+     * @return the result
+     * @throws VaultException if the task cannot be started
+     */
+    CompletableFuture<T> apply(Server server) throws VaultException;
+
   }
 
 }
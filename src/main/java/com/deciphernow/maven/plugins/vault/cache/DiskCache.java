@@ -0,0 +1,338 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKey;
+
+/**
+ * Provides a {@link SecretCache} that persists secrets in encrypted files so that they survive between builds.
+ *
+ * <p>Each entry is stored in a file named by a digest of the server URL, the version of the key/value secrets engine,
+ * the token and the path, and is encrypted with AES-GCM under a key derived from the token.  An entry can therefore
+ * only be read by a build that could have read the secrets from Vault itself.  Entries expire after the lease duration
+ * returned by Vault, capped by a maximum lifetime.  Pinned versions of a path never change and are kept until the entry
+ * is deleted, regardless of the maximum lifetime, but like every entry they are found only by builds holding the same
+ * token.
+ */
+public class DiskCache implements SecretCache {
+
+  private static final String DERIVATION_CONTEXT = "vault-maven-plugin-cache";
+
+  private final File directory;
+
+  private final long maximumTtl;
+
+  private final Log log;
+
+  private final Clock clock;
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  private final AtomicInteger expirations = new AtomicInteger();
+
+  /**
+   * Initializes a new instance of the {@link DiskCache} class.
+   *
+   * @param directory the directory holding the cache entries
+   * @param maximumTtl the maximum number of seconds an entry is kept regardless of its lease
+   * @param log the log
+   */
+  public DiskCache(File directory, long maximumTtl, Log log) {
+    this(directory, maximumTtl, log, Clock.systemUTC());
+  }
+
+  /**
+   * Initializes a new instance of the {@link DiskCache} class.
+   *
+   * @param directory the directory holding the cache entries
+   * @param maximumTtl the maximum number of seconds an entry is kept regardless of its lease
+   * @param log the log
+   * @param clock the clock used to expire entries
+   */
+  DiskCache(File directory, long maximumTtl, Log log, Clock clock) {
+    this.directory = directory;
+    this.maximumTtl = maximumTtl;
+    this.log = log;
+    this.clock = clock;
+  }
+
+  /**
+   * Gets the secrets at a path, reading them from disk when an unexpired entry exists and otherwise loading them
+   * asynchronously and storing them once they are loaded.
+   *
+   * <p>Loaded secrets are encrypted and written by the thread that completes the load, which for a read from Vault is
+   * a callback thread of the transport rather than one of its I/O threads.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @param loader the loader used when the secrets are not cached
+   * @return the secrets, or an exception if one is thrown connecting to vault or the path does not exist
+   */
+  public CompletableFuture<Map<String, String>> getAsync(Server server, String path, int version,
+                                                         AsyncSecretLoader loader) {
+    Map<String, String> cached = lookup(server, path, version);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    return loader.load().thenApply(secret -> loaded(server, path, version, secret));
+  }
+
+  /**
+   * Deletes the entry for the latest version of a path.
+   *
+   * @param server the server
+   * @param path the path
+   */
+  public void invalidate(Server server, String path) {
+    try {
+      Files.deleteIfExists(new File(this.directory, name(server, path, 0)).toPath());
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to delete Vault cache entry for %s on %s: %s",
+          path, server.getUrl(), exception));
+    }
+  }
+
+  /**
+   * Logs the number of hits, misses and expirations seen by this cache.
+   */
+  public void report() {
+    this.log.info(String.format("Vault cache: %d hits, %d misses (%d expired)",
+        this.hits.get(), this.misses.get(), this.expirations.get()));
+  }
+
+  /**
+   * Looks up the unexpired entry for a version of a path, deleting the entry if it has expired.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @return the secrets or {@code null} if there is no unexpired entry
+   */
+  private Map<String, String> lookup(Server server, String path, int version) {
+    try {
+      String name = name(server, path, version);
+      File file = new File(this.directory, name);
+      if (file.isFile()) {
+        Entry entry = read(file, key(server), name);
+        if (entry != null && entry.expiresAt > this.clock.millis()) {
+          this.hits.incrementAndGet();
+          this.log.debug(String.format("Vault cache hit for %s on %s", path, server.getUrl()));
+          return entry.data;
+        }
+        if (entry != null) {
+          this.expirations.incrementAndGet();
+          this.log.debug(String.format("Vault cache entry expired for %s on %s", path, server.getUrl()));
+        }
+        Files.deleteIfExists(file.toPath());
+      }
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to read Vault cache entry for %s on %s: %s",
+          path, server.getUrl(), exception));
+    }
+    this.misses.incrementAndGet();
+    this.log.debug(String.format("Vault cache miss for %s on %s", path, server.getUrl()));
+    return null;
+  }
+
+  /**
+   * Stores a secret loaded from Vault for as long as its lease allows.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @param secret the secret
+   * @return the secrets
+   */
+  private Map<String, String> loaded(Server server, String path, int version, Secret secret) {
+    if (version > 0) {
+      store(server, path, version, new Entry(Long.MAX_VALUE, secret.getData()));
+      return secret.getData();
+    }
+    long ttl = ttl(secret.getLeaseDuration());
+    if (ttl > 0) {
+      store(server, path, version, new Entry(this.clock.millis() + ttl * 1000, secret.getData()));
+    }
+    return secret.getData();
+  }
+
+  /**
+   * Stores the entry for a version of a path.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @param entry the entry
+   */
+  private void store(Server server, String path, int version, Entry entry) {
+    try {
+      String name = name(server, path, version);
+      write(key(server), name, entry);
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to write Vault cache entry for %s on %s: %s",
+          path, server.getUrl(), exception));
+    }
+  }
+
+  /**
+   * Gets the number of seconds an entry with a lease duration is kept.
+   *
+   * @param leaseDuration the lease duration or zero if Vault did not return a lease
+   * @return the number of seconds
+   */
+  private long ttl(long leaseDuration) {
+    return leaseDuration > 0 ? Math.min(leaseDuration, this.maximumTtl) : this.maximumTtl;
+  }
+
+  /**
+   * Reads an entry from a file.
+   *
+   * @param file the file
+   * @param key the key used to decrypt the entry
+   * @param name the name of the entry which is authenticated with the entry
+   * @return the entry or {@code null} if the file cannot be decrypted
+   * @throws IOException if an exception is thrown reading the file
+   */
+  private Entry read(File file, SecretKey key, String name) throws IOException {
+    byte[] plaintext = Storage.open(key, name, Files.readAllBytes(file.toPath()));
+    if (plaintext == null) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(plaintext))) {
+      long expiresAt = input.readLong();
+      int count = input.readInt();
+      Map<String, String> data = new LinkedHashMap<>();
+      for (int index = 0; index < count; index++) {
+        data.put(readString(input), readString(input));
+      }
+      return new Entry(expiresAt, data);
+    }
+  }
+
+  /**
+   * Writes an entry to a file, replacing any existing file atomically.
+   *
+   * @param key the key used to encrypt the entry
+   * @param name the name of the entry which is authenticated with the entry
+   * @param entry the entry
+   * @throws IOException if an exception is thrown writing the file
+   * @throws GeneralSecurityException if an exception is thrown encrypting the entry
+   */
+  private void write(SecretKey key, String name, Entry entry) throws IOException, GeneralSecurityException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(buffer)) {
+      output.writeLong(entry.expiresAt);
+      output.writeInt(entry.data.size());
+      for (Map.Entry<String, String> secret : entry.data.entrySet()) {
+        writeString(output, secret.getKey());
+        writeString(output, secret.getValue());
+      }
+    }
+    Storage.write(this.directory, name, Storage.seal(key, name, buffer.toByteArray()));
+  }
+
+  /**
+   * Gets the name of the entry for a version of a path on a server.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @return the name
+   * @throws GeneralSecurityException if the digest algorithm is unavailable
+   */
+  private static String name(Server server, String path, int version) throws GeneralSecurityException {
+    String identity = String.join("\n", server.getUrl(), String.valueOf(server.getKvVersion()),
+        Storage.digest(server.getToken()), path);
+    if (version > 0) {
+      identity = String.join("\n", identity, String.valueOf(version));
+    }
+    return Storage.digest(identity);
+  }
+
+  /**
+   * Derives the key used to encrypt the entries of a server from its token.
+   *
+   * @param server the server
+   * @return the key
+   * @throws GeneralSecurityException if the derivation algorithm is unavailable
+   */
+  private static SecretKey key(Server server) throws GeneralSecurityException {
+    return Storage.key(server.getToken(), DERIVATION_CONTEXT);
+  }
+
+  /**
+   * Reads a length prefixed UTF-8 string.
+   *
+   * @param input the input
+   * @return the string
+   * @throws IOException if an exception is thrown reading the string
+   */
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a length prefixed UTF-8 string.
+   *
+   * @param output the output
+   * @param value the string
+   * @throws IOException if an exception is thrown writing the string
+   */
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Represents a decrypted cache entry.
+   */
+  private static final class Entry {
+
+    private final long expiresAt;
+
+    private final Map<String, String> data;
+
+    private Entry(long expiresAt, Map<String, String> data) {
+      this.expiresAt = expiresAt;
+      this.data = data;
+    }
+
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Provides a {@link FingerprintStore} that keeps one small file per server, path and set of mapped keys.
+ *
+ * <p>A fingerprint is an HMAC of the pushed values keyed by the token of the server, so the files reveal nothing about
+ * the secrets to anyone who does not already hold the token, and a build with a different token pushes again.
+ * Fingerprints expire a number of seconds after the push that recorded them, so that a path changed in Vault by
+ * others is eventually pushed again.
+ */
+public class DiskFingerprintStore implements FingerprintStore {
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final File directory;
+
+  private final long ttl;
+
+  private final Log log;
+
+  private final Clock clock;
+
+  /**
+   * Initializes a new instance of the {@link DiskFingerprintStore} class.
+   *
+   * @param directory the directory holding the fingerprints
+   * @param ttl the number of seconds a fingerprint is trusted after the push that recorded it
+   * @param log the log
+   */
+  public DiskFingerprintStore(File directory, long ttl, Log log) {
+    this(directory, ttl, log, Clock.systemUTC());
+  }
+
+  /**
+   * Initializes a new instance of the {@link DiskFingerprintStore} class.
+   *
+   * @param directory the directory holding the fingerprints
+   * @param ttl the number of seconds a fingerprint is trusted after the push that recorded it
+   * @param log the log
+   * @param clock the clock used to expire fingerprints
+   */
+  DiskFingerprintStore(File directory, long ttl, Log log, Clock clock) {
+    this.directory = directory;
+    this.ttl = ttl;
+    this.log = log;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns a value indicating whether the values were the last values successfully pushed to a path, within the time
+   * to live of fingerprints.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the keys and values mapped to the path
+   * @return {@code true} if the values were last pushed to the path; otherwise, {@code false}
+   */
+  public boolean matches(Server server, String path, Map<String, String> values) {
+    try {
+      File file = new File(this.directory, name(server, path, values));
+      return file.isFile() && file.lastModified() + this.ttl * 1000 > this.clock.millis()
+          && MessageDigest.isEqual(Files.readAllBytes(file.toPath()), fingerprint(server, values));
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to read Vault fingerprint for %s on %s: %s",
+          path, server.getUrl(), exception));
+      return false;
+    }
+  }
+
+  /**
+   * Records that values were successfully pushed to a path.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the keys and values mapped to the path
+   */
+  public void record(Server server, String path, Map<String, String> values) {
+    try {
+      Storage.write(this.directory, name(server, path, values), fingerprint(server, values));
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to write Vault fingerprint for %s on %s: %s",
+          path, server.getUrl(), exception));
+    }
+  }
+
+  /**
+   * Gets the name of the fingerprint for a set of keys pushed to a path on a server.
+   *
+   * <p>The keys form part of the name so that executions pushing different keys to the same path keep separate
+   * fingerprints.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the keys and values mapped to the path
+   * @return the name
+   * @throws GeneralSecurityException if the digest algorithm is unavailable
+   */
+  private static String name(Server server, String path, Map<String, String> values)
+      throws GeneralSecurityException {
+    StringBuilder identity = new StringBuilder();
+    identity.append(server.getUrl()).append('\n').append(path);
+    new TreeMap<>(values).keySet().forEach(key -> identity.append('\n').append(key.length()).append(':').append(key));
+    return Storage.digest(identity.toString());
+  }
+
+  /**
+   * Computes the fingerprint of the values pushed to a server.
+   *
+   * @param server the server
+   * @param values the keys and values mapped to the path
+   * @return the fingerprint
+   * @throws GeneralSecurityException if the algorithm is unavailable
+   */
+  private static byte[] fingerprint(Server server, Map<String, String> values) throws GeneralSecurityException {
+    String token = server.getToken() == null ? "" : server.getToken();
+    Mac mac = Mac.getInstance(ALGORITHM);
+    mac.init(new SecretKeySpec(token.isEmpty() ? new byte[1] : token.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+    for (Map.Entry<String, String> entry : new TreeMap<>(values).entrySet()) {
+      for (String value : new String[] { entry.getKey(), entry.getValue() }) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        mac.update(bytes);
+      }
+    }
+    return mac.doFinal();
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.config.Server;
+
+import java.util.Map;
+
+/**
+ * Remembers the values last pushed to each path so that a push can skip paths whose values have not changed.
+ */
+public interface FingerprintStore {
+
+  /**
+   * Defines a store that remembers nothing, so that every path is pushed.
+   */
+  FingerprintStore NONE = new FingerprintStore() {
+
+    @Override
+    public boolean matches(Server server, String path, Map<String, String> values) {
+      return false;
+    }
+
+    @Override
+    public void record(Server server, String path, Map<String, String> values) { }
+
+  };
+
+  /**
+   * Returns a value indicating whether the values were the last values successfully pushed to a path.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the keys and values mapped to the path
+   * @return {@code true} if the values were last pushed to the path; otherwise, {@code false}
+   */
+  boolean matches(Server server, String path, Map<String, String> values);
+
+  /**
+   * Records that values were successfully pushed to a path.
+   *
+   * @param server the server
+   * @param path the path
+   * @param values the keys and values mapped to the path
+   */
+  void record(Server server, String path, Map<String, String> values);
+
+}
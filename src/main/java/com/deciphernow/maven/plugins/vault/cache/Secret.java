@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents the secrets read from a Vault path together with the lease Vault returned for them.
+ */
+public final class Secret {
+
+  private final Map<String, String> data;
+
+  private final long leaseDuration;
+
+  private final long version;
+
+  private final boolean deleted;
+
+  /**
+   * Initializes a new instance of the {@link Secret} class.
+   *
+   * @param data the data
+   * @param leaseDuration the lease duration in seconds or zero if Vault did not return a lease
+   */
+  public Secret(Map<String, String> data, long leaseDuration) {
+    this(data, leaseDuration, 0);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Secret} class.
+   *
+   * @param data the data
+   * @param leaseDuration the lease duration in seconds or zero if Vault did not return a lease
+   * @param version the version of the secret or zero if the secret is not versioned
+   */
+  public Secret(Map<String, String> data, long leaseDuration, long version) {
+    this(data, leaseDuration, version, false);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Secret} class.
+   *
+   * @param data the data
+   * @param leaseDuration the lease duration in seconds or zero if Vault did not return a lease
+   * @param version the version of the secret or zero if the secret is not versioned
+   * @param deleted {@code true} if the version has been deleted and holds no data; otherwise, {@code false}
+   */
+  public Secret(Map<String, String> data, long leaseDuration, long version, boolean deleted) {
+    this.data = data == null ? Collections.emptyMap() : data;
+    this.leaseDuration = leaseDuration;
+    this.version = version;
+    this.deleted = deleted;
+  }
+
+  /**
+   * Gets the data of this secret.
+   *
+   * @return the data
+   */
+  public Map<String, String> getData() {
+    return this.data;
+  }
+
+  /**
+   * Gets the lease duration of this secret.
+   *
+   * @return the lease duration in seconds or zero if Vault did not return a lease
+   */
+  public long getLeaseDuration() {
+    return this.leaseDuration;
+  }
+
+  /**
+   * Gets the version of this secret.
+   *
+   * @return the version of the secret or zero if the secret is not versioned
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets a value indicating whether the version of this secret has been deleted.
+   *
+   * @return {@code true} if the version has been deleted and holds no data; otherwise, {@code false}
+   */
+  public boolean isDeleted() {
+    return this.deleted;
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.config.Server;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provides access to secrets that may be served without contacting Vault.
+ */
+@FunctionalInterface
+public interface SecretCache {
+
+  /**
+   * Defines a cache that always loads secrets from Vault.
+   */
+  SecretCache NONE = (server, path, version, loader) -> loader.load().thenApply(Secret::getData);
+
+  /**
+   * Gets the secrets at a path, loading them from Vault asynchronously if they are not cached.
+   *
+   * <p>A pinned version of a path never changes, so it is cached separately from the latest version of the path and
+   * is not affected by {@link #invalidate(Server, String)}.
+   *
+   * <p>The returned future may complete on a callback thread shared by every request to Vault, so implementations must
+   * not wait for other requests while completing it.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @param loader the loader used when the secrets are not cached
+   * @return the secrets, or an exception if one is thrown connecting to vault or the path does not exist
+   */
+  CompletableFuture<Map<String, String>> getAsync(Server server, String path, int version, AsyncSecretLoader loader);
+
+  /**
+   * Discards any cached latest version of the secrets for a path, typically because they have just been written.
+   *
+   * @param server the server
+   * @param path the path
+   */
+  default void invalidate(Server server, String path) { }
+
+}
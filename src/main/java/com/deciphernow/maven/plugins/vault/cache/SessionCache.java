@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.client.DeadlineExceededException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Provides an in-memory cache of secrets shared by every execution of the plugin within a Maven session.
+ *
+ * <p>Reads are deduplicated by server URL, version of the key/value secrets engine, token, path and version.  When
+ * several executions ask for the same path at the same time, for example in a parallel reactor build, only the first
+ * reads it and the others wait for that read to finish.  Failed reads are not cached.  A read that waited for one
+ * that exceeded its deadline is retried once with its own deadline, so one execution's timeout does not fail another.
+ */
+public final class SessionCache {
+
+  private final ConcurrentMap<List<String>, CompletableFuture<Map<String, String>>> entries =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Initializes a new instance of the {@link SessionCache} class.
+   */
+  SessionCache() { }
+
+  /**
+   * Gets the cache of a Maven session, creating it on first use.
+   *
+   * @param session the session
+   * @return the cache
+   */
+  public static SessionCache of(MavenSession session) {
+    SessionData data = session.getRepositorySession().getData();
+    while (true) {
+      Object existing = data.get(SessionCache.class);
+      if (existing instanceof SessionCache) {
+        return (SessionCache) existing;
+      }
+      SessionCache created = new SessionCache();
+      if (data.set(SessionCache.class, existing, created)) {
+        return created;
+      }
+    }
+  }
+
+  /**
+   * Returns a view of this cache that loads missing secrets through another cache.
+   *
+   * @param delegate the cache used to load secrets that are not in this cache
+   * @param log the log
+   * @return the view
+   */
+  public SecretCache backedBy(SecretCache delegate, Log log) {
+    return new SecretCache() {
+
+      @Override
+      public CompletableFuture<Map<String, String>> getAsync(Server server, String path, int version,
+                                                             AsyncSecretLoader loader) {
+        return SessionCache.this.getAsync(server, path, version,
+            () -> delegate.getAsync(server, path, version, loader), log, true);
+      }
+
+      @Override
+      public void invalidate(Server server, String path) {
+        SessionCache.this.entries.remove(key(server, path, 0));
+        delegate.invalidate(server, path);
+      }
+
+    };
+  }
+
+  /**
+   * Gets the secrets at a path asynchronously, sharing an in-flight read of the same path if there is one.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @param loader the loader
+   * @param log the log
+   * @param retry whether to retry with this read's own loader if the shared read exceeds its deadline
+   * @return the secrets, or an exception if one is thrown connecting to vault or the path does not exist
+   */
+  private CompletableFuture<Map<String, String>> getAsync(Server server, String path, int version,
+                                                          Supplier<CompletableFuture<Map<String, String>>> loader,
+                                                          Log log, boolean retry) {
+    List<String> key = key(server, path, version);
+    CompletableFuture<Map<String, String>> created = new CompletableFuture<>();
+    CompletableFuture<Map<String, String>> existing = this.entries.putIfAbsent(key, created);
+    if (existing != null) {
+      log.debug(String.format("Vault session cache hit for %s on %s", path, server.getUrl()));
+      if (!retry) {
+        return existing.thenApply(secrets -> secrets);
+      }
+      return existing.handle((secrets, exception) -> {
+        if (exception == null || !(Futures.unwrap(exception) instanceof DeadlineExceededException)) {
+          return existing.thenApply(shared -> shared);
+        }
+        log.debug(String.format("Retrying %s on %s after a shared read exceeded its deadline", path, server.getUrl()));
+        return getAsync(server, path, version, loader, log, false);
+      }).thenCompose(future -> future);
+    }
+    CompletableFuture<Map<String, String>> loaded;
+    try {
+      loaded = loader.get();
+    } catch (RuntimeException exception) {
+      loaded = Futures.failed(exception);
+    }
+    loaded.whenComplete((secrets, exception) -> {
+      if (exception == null) {
+        created.complete(Collections.unmodifiableMap(secrets));
+      } else {
+        this.entries.remove(key, created);
+        created.completeExceptionally(Futures.unwrap(exception));
+      }
+    });
+    return created.thenApply(secrets -> secrets);
+  }
+
+  /**
+   * Gets the key of a version of a path on a server.
+   *
+   * @param server the server
+   * @param path the path
+   * @param version the pinned version of the secrets or zero for the latest version
+   * @return the key
+   */
+  private static List<String> key(Server server, String path, int version) {
+    return Arrays.asList(server.getUrl(), String.valueOf(server.getKvVersion()), server.getToken(), path,
+        String.valueOf(version));
+  }
+
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Represents an encrypted snapshot of pulled secrets that can be read without contacting Vault.
+ *
+ * <p>A snapshot holds one value for each server URL, path, version and key.  The file starts with a header and a sorted
+ * index of fixed size entries, followed by the values.  Each index entry holds a keyed digest of the server URL, path,
+ * version and key together with the location of the value, so the index reveals only the number of values.  Each value
+ * is encrypted separately with AES-GCM and authenticated together with its index entry.  The keys are derived from a
+ * passphrase with PBKDF2.
+ *
+ * <p>Snapshots are opened by mapping the file into memory, so opening one costs the same regardless of its size and
+ * each lookup is a binary search of the index followed by the decryption of a single value.  A single mapping is
+ * limited to 2 GB, so a snapshot can be no larger; larger snapshots are refused when written and when opened.
+ */
+public final class Snapshot implements Closeable {
+
+  private static final byte[] MAGIC = "VMPS".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int FORMAT = 1;
+
+  private static final String CIPHER = "AES/GCM/NoPadding";
+
+  private static final String DERIVATION = "PBKDF2WithHmacSHA256";
+
+  private static final String DIGEST = "HmacSHA256";
+
+  private static final int ITERATIONS = 100000;
+
+  private static final int SALT_LENGTH = 16;
+
+  private static final int IV_LENGTH = 12;
+
+  private static final int TAG_LENGTH = 16;
+
+  private static final int ID_LENGTH = 16;
+
+  private static final int PREAMBLE_LENGTH = MAGIC.length + 1 + SALT_LENGTH + 4 + 4;
+
+  private static final int HEADER_LENGTH = PREAMBLE_LENGTH + IV_LENGTH + TAG_LENGTH;
+
+  private static final int ENTRY_LENGTH = ID_LENGTH + 8 + 4;
+
+  /**
+   * Defines the largest number of bytes a snapshot can hold, which is the largest file that can be mapped at once.
+   */
+  static final long MAX_LENGTH = Integer.MAX_VALUE;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer;
+
+  private final int count;
+
+  private final SecretKey encryptionKey;
+
+  private final SecretKey indexKey;
+
+  /**
+   * Initializes a new instance of the {@link Snapshot} class.
+   *
+   * @param channel the channel of the file
+   * @param buffer the mapped content of the file
+   * @param count the number of values
+   * @param keys the encryption and index keys
+   */
+  private Snapshot(FileChannel channel, ByteBuffer buffer, int count, SecretKey[] keys) {
+    this.channel = channel;
+    this.buffer = buffer;
+    this.count = count;
+    this.encryptionKey = keys[0];
+    this.indexKey = keys[1];
+  }
+
+  /**
+   * Gets the key of a value in a snapshot.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   * @param version the pinned version of the path or zero for the latest version
+   * @param key the key within the path
+   * @return the key of the value
+   */
+  public static List<String> key(String url, String path, int version, String key) {
+    return Arrays.asList(url, path, String.valueOf(version), key);
+  }
+
+  /**
+   * Gets the key of the list of keys stored for a path whose keys are mapped by a prefix.
+   *
+   * @param url the URL of the server
+   * @param path the path
+   * @param version the pinned version of the path or zero for the latest version
+   * @return the key of the list, whose value is a JSON array of keys
+   */
+  public static List<String> key(String url, String path, int version) {
+    return Arrays.asList(url, path, String.valueOf(version));
+  }
+
+  /**
+   * Writes a snapshot, replacing any existing file atomically.
+   *
+   * <p>The size of the snapshot is counted before anything is written, and the values are then encrypted and streamed
+   * to a temporary file one at a time, so writing a snapshot holds only the index and a single value in memory.
+   *
+   * @param file the file
+   * @param passphrase the passphrase used to derive the keys of the snapshot
+   * @param values the values by their keys
+   * @throws IOException if an exception is thrown writing the file or the snapshot would exceed 2 GB
+   * @throws GeneralSecurityException if an exception is thrown encrypting the values
+   */
+  public static void write(File file, String passphrase, Map<List<String>, String> values)
+      throws IOException, GeneralSecurityException {
+    byte[] salt = new byte[SALT_LENGTH];
+    RANDOM.nextBytes(salt);
+    SecretKey[] keys = keys(passphrase, salt, ITERATIONS);
+    long length = HEADER_LENGTH + (long) ENTRY_LENGTH * values.size();
+    List<Record> records = new ArrayList<>(values.size());
+    for (Map.Entry<List<String>, String> value : values.entrySet()) {
+      Record record = new Record(id(keys[1], value.getKey()), value.getValue());
+      length += record.length;
+      if (length > MAX_LENGTH) {
+        throw new IOException(String.format("Vault snapshot %s would be larger than the %d bytes a snapshot can hold",
+            file, MAX_LENGTH));
+      }
+      records.add(record);
+    }
+    records.sort((left, right) -> compare(left.id, right.id));
+    ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_LENGTH);
+    preamble.put(MAGIC).put((byte) FORMAT).put(salt).putInt(ITERATIONS).putInt(values.size());
+    Storage.write(file.getAbsoluteFile().getParentFile(), file.getName(), stream -> {
+      DataOutputStream output = new DataOutputStream(stream);
+      output.write(preamble.array());
+      output.write(seal(keys[0], preamble.array(), new byte[0]));
+      long offset = HEADER_LENGTH + (long) ENTRY_LENGTH * records.size();
+      for (Record record : records) {
+        output.write(record.id);
+        output.writeLong(offset);
+        output.writeInt(record.length);
+        offset += record.length;
+      }
+      for (Record record : records) {
+        output.write(seal(keys[0], record.id, record.value.getBytes(StandardCharsets.UTF_8)));
+      }
+      output.flush();
+    });
+  }
+
+  /**
+   * Opens a snapshot by mapping it into memory.
+   *
+   * @param file the file
+   * @param passphrase the passphrase used to derive the keys of the snapshot
+   * @return the snapshot
+   * @throws IOException if the file cannot be read, is not a snapshot, exceeds 2 GB or was not written with the
+   *     passphrase
+   */
+  public static Snapshot open(File file, String passphrase) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      if (channel.size() > MAX_LENGTH) {
+        throw new IOException(String.format("Vault snapshot %s is larger than the %d bytes a snapshot can hold", file,
+            MAX_LENGTH));
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      byte[] preamble = new byte[PREAMBLE_LENGTH];
+      if (buffer.limit() < HEADER_LENGTH) {
+        throw new IOException(String.format("%s is not a Vault snapshot", file));
+      }
+      buffer.get(preamble);
+      ByteBuffer header = ByteBuffer.wrap(preamble);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(MAGIC, magic) || header.get() != FORMAT) {
+        throw new IOException(String.format("%s is not a Vault snapshot", file));
+      }
+      byte[] salt = new byte[SALT_LENGTH];
+      header.get(salt);
+      int iterations = header.getInt();
+      int count = header.getInt();
+      if (iterations <= 0 || iterations > ITERATIONS * 100 || count < 0
+          || buffer.limit() < HEADER_LENGTH + (long) ENTRY_LENGTH * count) {
+        throw new IOException(String.format("%s is not a Vault snapshot", file));
+      }
+      SecretKey[] keys = keys(passphrase, salt, iterations);
+      byte[] check = new byte[IV_LENGTH + TAG_LENGTH];
+      buffer.get(check);
+      if (unseal(keys[0], preamble, check) == null) {
+        throw new IOException(String.format("Vault snapshot %s cannot be decrypted with the snapshot key", file));
+      }
+      return new Snapshot(channel, buffer, count, keys);
+    } catch (GeneralSecurityException exception) {
+      channel.close();
+      throw new IOException(exception);
+    } catch (IOException | RuntimeException exception) {
+      channel.close();
+      throw exception;
+    }
+  }
+
+  /**
+   * Gets the number of values in this snapshot.
+   *
+   * @return the number of values
+   */
+  public int size() {
+    return this.count;
+  }
+
+  /**
+   * Gets a value from this snapshot.
+   *
+   * @param key the key of the value
+   * @return the value or {@code null} if this snapshot does not hold the value
+   * @throws IOException if the value cannot be decrypted
+   */
+  public String get(List<String> key) throws IOException {
+    byte[] id;
+    try {
+      id = id(this.indexKey, key);
+    } catch (GeneralSecurityException exception) {
+      throw new IOException(exception);
+    }
+    ByteBuffer view = this.buffer.duplicate();
+    byte[] candidate = new byte[ID_LENGTH];
+    int low = 0;
+    int high = this.count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int entry = HEADER_LENGTH + middle * ENTRY_LENGTH;
+      view.position(entry);
+      view.get(candidate);
+      int comparison = compare(candidate, id);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        long offset = view.getLong();
+        int length = view.getInt();
+        if (offset < 0 || length < 0 || offset + length > view.limit()) {
+          throw new IOException("Vault snapshot is corrupt");
+        }
+        byte[] sealed = new byte[length];
+        view.position((int) offset);
+        view.get(sealed);
+        byte[] plaintext = unseal(this.encryptionKey, id, sealed);
+        if (plaintext == null) {
+          throw new IOException("Vault snapshot is corrupt");
+        }
+        return new String(plaintext, StandardCharsets.UTF_8);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Closes the file of this snapshot.
+   *
+   * @throws IOException if an exception is thrown closing the file
+   */
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Derives the encryption and index keys of a snapshot from a passphrase.
+   *
+   * @param passphrase the passphrase
+   * @param salt the salt
+   * @param iterations the number of iterations
+   * @return the encryption key followed by the index key
+   * @throws GeneralSecurityException if the derivation algorithm is unavailable
+   */
+  private static SecretKey[] keys(String passphrase, byte[] salt, int iterations) throws GeneralSecurityException {
+    PBEKeySpec spec = new PBEKeySpec(passphrase.toCharArray(), salt, iterations, 384);
+    try {
+      byte[] derived = SecretKeyFactory.getInstance(DERIVATION).generateSecret(spec).getEncoded();
+      return new SecretKey[] {new SecretKeySpec(Arrays.copyOfRange(derived, 0, 16), "AES"),
+          new SecretKeySpec(Arrays.copyOfRange(derived, 16, 48), DIGEST)};
+    } finally {
+      spec.clearPassword();
+    }
+  }
+
+  /**
+   * Computes the identifier of a value in the index.
+   *
+   * @param indexKey the index key
+   * @param key the key of the value
+   * @return the identifier
+   * @throws GeneralSecurityException if the digest algorithm is unavailable
+   */
+  private static byte[] id(SecretKey indexKey, List<String> key) throws GeneralSecurityException {
+    Mac mac = Mac.getInstance(DIGEST);
+    mac.init(indexKey);
+    for (String part : key) {
+      byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+      mac.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+      mac.update(bytes);
+    }
+    return Arrays.copyOf(mac.doFinal(), ID_LENGTH);
+  }
+
+  /**
+   * Encrypts a value.
+   *
+   * @param key the encryption key
+   * @param associated the data authenticated with the value
+   * @param plaintext the value
+   * @return the initialization vector followed by the ciphertext
+   * @throws GeneralSecurityException if an exception is thrown encrypting the value
+   */
+  private static byte[] seal(SecretKey key, byte[] associated, byte[] plaintext) throws GeneralSecurityException {
+    byte[] iv = new byte[IV_LENGTH];
+    RANDOM.nextBytes(iv);
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+    cipher.updateAAD(associated);
+    byte[] ciphertext = cipher.doFinal(plaintext);
+    byte[] sealed = Arrays.copyOf(iv, IV_LENGTH + ciphertext.length);
+    System.arraycopy(ciphertext, 0, sealed, IV_LENGTH, ciphertext.length);
+    return sealed;
+  }
+
+  /**
+   * Decrypts a value.
+   *
+   * @param key the encryption key
+   * @param associated the data authenticated with the value
+   * @param sealed the initialization vector followed by the ciphertext
+   * @return the value or {@code null} if the value cannot be decrypted
+   */
+  private static byte[] unseal(SecretKey key, byte[] associated, byte[] sealed) {
+    if (sealed.length < IV_LENGTH + TAG_LENGTH) {
+      return null;
+    }
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, sealed, 0, IV_LENGTH));
+      cipher.updateAAD(associated);
+      return cipher.doFinal(sealed, IV_LENGTH, sealed.length - IV_LENGTH);
+    } catch (GeneralSecurityException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * Compares two identifiers as unsigned bytes.
+   *
+   * @param left the first identifier
+   * @param right the second identifier
+   * @return a negative number, zero or a positive number as the first identifier is less than, equal to or greater
+   *     than the second
+   */
+  private static int compare(byte[] left, byte[] right) {
+    for (int index = 0; index < ID_LENGTH; index++) {
+      int comparison = Integer.compare(left[index] & 0xff, right[index] & 0xff);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Represents a value waiting to be written to a snapshot.
+   */
+  private static final class Record {
+
+    private final byte[] id;
+
+    private final String value;
+
+    private final int length;
+
+    /**
+     * Initializes a new instance of the {@link Record} class.
+     *
+     * @param id the identifier of the value in the index
+     * @param value the value
+     */
+    private Record(byte[] id, String value) {
+      this.id = id;
+      this.value = value;
+      this.length = IV_LENGTH + value.getBytes(StandardCharsets.UTF_8).length + TAG_LENGTH;
+    }
+
+  }
+
+}
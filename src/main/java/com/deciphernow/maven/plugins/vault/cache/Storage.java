@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Provides static methods for the files kept by the plugin between builds.
+ *
+ * <p>Files are written atomically to directories readable only by their owner.  Sealed files are encrypted with
+ * AES-GCM and authenticated together with their name, so that a file cannot be read without the key nor moved to
+ * another name without detection.
+ */
+final class Storage {
+
+  private static final int FORMAT = 1;
+
+  private static final String CIPHER = "AES/GCM/NoPadding";
+
+  private static final String DERIVATION = "HmacSHA256";
+
+  private static final int IV_LENGTH = 12;
+
+  private static final int KEY_LENGTH = 16;
+
+  private static final int TAG_LENGTH = 128;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Initializes a new instance of the {@link Storage} class.
+   */
+  private Storage() {}
+
+  /**
+   * Creates a directory, readable only by its owner where the file system supports it.
+   *
+   * @param directory the directory
+   * @throws IOException if an exception is thrown creating the directory
+   */
+  static void createDirectory(File directory) throws IOException {
+    if (directory.isDirectory()) {
+      return;
+    }
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      Files.createDirectories(directory.toPath(),
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    } else {
+      Files.createDirectories(directory.toPath());
+    }
+  }
+
+  /**
+   * Writes a file, replacing any existing file atomically.
+   *
+   * @param directory the directory
+   * @param name the name of the file
+   * @param bytes the content of the file
+   * @throws IOException if an exception is thrown writing the file
+   */
+  static void write(File directory, String name, byte[] bytes) throws IOException {
+    createDirectory(directory);
+    Path temporary = Files.createTempFile(directory.toPath(), name, ".tmp");
+    try {
+      Files.write(temporary, bytes);
+      replace(temporary, new File(directory, name).toPath());
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Writes a file by streaming its content, replacing any existing file atomically once all of it has been written.
+   *
+   * @param directory the directory
+   * @param name the name of the file
+   * @param content the content of the file
+   * @throws IOException if an exception is thrown writing the file
+   * @throws GeneralSecurityException if an exception is thrown producing the content
+   */
+  static void write(File directory, String name, Content content) throws IOException, GeneralSecurityException {
+    createDirectory(directory);
+    Path temporary = Files.createTempFile(directory.toPath(), name, ".tmp");
+    try {
+      try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE)) {
+        content.write(output);
+      }
+      replace(temporary, new File(directory, name).toPath());
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Moves a temporary file over a file, atomically where the file system allows.
+   *
+   * @param temporary the temporary file
+   * @param file the file
+   * @throws IOException if an exception is thrown moving the file
+   */
+  private static void replace(Path temporary, Path file) throws IOException {
+    try {
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException exception) {
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Returns the hexadecimal SHA-256 digest of a value.
+   *
+   * @param value the value or {@code null}
+   * @return the digest
+   * @throws GeneralSecurityException if the digest algorithm is unavailable
+   */
+  static String digest(String value) throws GeneralSecurityException {
+    byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+    return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(bytes)));
+  }
+
+  /**
+   * Derives an encryption key from a secret.
+   *
+   * @param secret the secret or {@code null}
+   * @param context the purpose of the key, so that one secret yields different keys for different purposes
+   * @return the key
+   * @throws GeneralSecurityException if the derivation algorithm is unavailable
+   */
+  static SecretKey key(String secret, String context) throws GeneralSecurityException {
+    byte[] bytes = secret == null || secret.isEmpty() ? new byte[1] : secret.getBytes(StandardCharsets.UTF_8);
+    Mac mac = Mac.getInstance(DERIVATION);
+    mac.init(new SecretKeySpec(bytes, DERIVATION));
+    byte[] derived = mac.doFinal(context.getBytes(StandardCharsets.UTF_8));
+    return new SecretKeySpec(Arrays.copyOf(derived, KEY_LENGTH), "AES");
+  }
+
+  /**
+   * Encrypts the content of a file.
+   *
+   * @param key the key
+   * @param name the name of the file
+   * @param plaintext the content
+   * @return the sealed content
+   * @throws GeneralSecurityException if an exception is thrown encrypting the content
+   */
+  static byte[] seal(SecretKey key, String name, byte[] plaintext) throws GeneralSecurityException {
+    byte[] iv = new byte[IV_LENGTH];
+    RANDOM.nextBytes(iv);
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+    cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+    byte[] ciphertext = cipher.doFinal(plaintext);
+    byte[] sealed = new byte[1 + IV_LENGTH + ciphertext.length];
+    sealed[0] = FORMAT;
+    System.arraycopy(iv, 0, sealed, 1, IV_LENGTH);
+    System.arraycopy(ciphertext, 0, sealed, 1 + IV_LENGTH, ciphertext.length);
+    return sealed;
+  }
+
+  /**
+   * Decrypts the content of a file.
+   *
+   * @param key the key
+   * @param name the name of the file
+   * @param sealed the sealed content
+   * @return the content or {@code null} if the content cannot be decrypted with the key and name
+   */
+  static byte[] open(SecretKey key, String name, byte[] sealed) {
+    if (sealed.length <= IV_LENGTH + 1 || sealed[0] != FORMAT) {
+      return null;
+    }
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, sealed, 1, IV_LENGTH));
+      cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+      return cipher.doFinal(sealed, IV_LENGTH + 1, sealed.length - IV_LENGTH - 1);
+    } catch (GeneralSecurityException exception) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the content of a file.
+   */
+  @FunctionalInterface
+  interface Content {
+
+    /**
+     * Writes the content to a stream.
+     *
+     * @param output the stream, which is closed by the caller
+     * @throws IOException if an exception is thrown writing the content
+     * @throws GeneralSecurityException if an exception is thrown producing the content
+     */
+    void write(OutputStream output) throws IOException, GeneralSecurityException;
+
+  }
+
+}
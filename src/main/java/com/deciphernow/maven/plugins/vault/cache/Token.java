@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+/**
+ * Represents a client token returned by logging in to Vault.
+ */
+public final class Token {
+
+  private final String value;
+
+  private final long leaseDuration;
+
+  private final boolean renewable;
+
+  /**
+   * Initializes a new instance of the {@link Token} class.
+   *
+   * @param value the value of the token
+   * @param leaseDuration the number of seconds the token remains valid or zero if it does not expire
+   * @param renewable a value indicating whether the token can be renewed
+   */
+  public Token(String value, long leaseDuration, boolean renewable) {
+    this.value = value;
+    this.leaseDuration = leaseDuration;
+    this.renewable = renewable;
+  }
+
+  /**
+   * Gets the value of this token.
+   *
+   * @return the value
+   */
+  public String getValue() {
+    return this.value;
+  }
+
+  /**
+   * Gets the lease duration of this token.
+   *
+   * @return the number of seconds the token remains valid or zero if it does not expire
+   */
+  public long getLeaseDuration() {
+    return this.leaseDuration;
+  }
+
+  /**
+   * Gets a value indicating whether this token can be renewed.
+   *
+   * @return {@code true} if the token can be renewed; otherwise, {@code false}
+   */
+  public boolean isRenewable() {
+    return this.renewable;
+  }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import javax.crypto.SecretKey;
+
+/**
+ * Provides a cache of the client tokens obtained by logging in to Vault, so that builds share logins.
+ *
+ * <p>Tokens are kept in memory for the lifetime of the JVM and, when a directory is given, in encrypted files so that
+ * later builds reuse them.  Each token is stored in a file named by a digest of the server URL, the auth method and
+ * its credentials, and is encrypted with AES-GCM under a key derived from the credentials, so a token can only be read
+ * by a build that could have logged in itself.  A token is reused until a margin before it expires: a tenth of its
+ * lease, but at least five minutes or half of the lease for short leases.  Concurrent logins with the same credentials
+ * are combined into one.  A token that Vault denies before then, because it was revoked or lost its policies, can be
+ * discarded with {@link #invalidate(Server, String)}.
+ */
+public final class TokenCache {
+
+  private static final String DERIVATION_CONTEXT = "vault-maven-plugin-token";
+
+  private static final long MINIMUM_MARGIN = 300;
+
+  private static final ConcurrentMap<String, CompletableFuture<Entry>> TOKENS = new ConcurrentHashMap<>();
+
+  private final File directory;
+
+  private final Log log;
+
+  private final Clock clock;
+
+  /**
+   * Initializes a new instance of the {@link TokenCache} class.
+   *
+   * @param directory the directory holding the cached tokens or {@code null} to keep tokens in memory only
+   * @param log the log
+   */
+  public TokenCache(File directory, Log log) {
+    this(directory, log, Clock.systemUTC());
+  }
+
+  /**
+   * Initializes a new instance of the {@link TokenCache} class.
+   *
+   * @param directory the directory holding the cached tokens or {@code null} to keep tokens in memory only
+   * @param log the log
+   * @param clock the clock used to expire tokens
+   */
+  TokenCache(File directory, Log log, Clock clock) {
+    this.directory = directory;
+    this.log = log;
+    this.clock = clock;
+  }
+
+  /**
+   * Gets a token for the auth method of a server, logging in only if no cached token is fresh.
+   *
+   * @param server the server
+   * @param loader the loader used to log in
+   * @return the token with its remaining lease duration
+   * @throws VaultException if an exception is thrown logging in to vault
+   */
+  public Token get(Server server, TokenLoader loader) throws VaultException {
+    String identity = identity(server);
+    String name = name(server, identity);
+    SecretKey key;
+    try {
+      key = Storage.key(identity, DERIVATION_CONTEXT);
+    } catch (GeneralSecurityException exception) {
+      throw new VaultException(exception);
+    }
+    while (true) {
+      CompletableFuture<Entry> existing = TOKENS.get(name);
+      if (existing != null) {
+        Entry entry = await(existing);
+        if (entry.refreshAt > this.clock.millis()) {
+          this.log.debug(String.format("Reusing Vault token for %s", server.getUrl()));
+          return entry.token(this.clock.millis());
+        }
+        TOKENS.remove(name, existing);
+        continue;
+      }
+      CompletableFuture<Entry> created = new CompletableFuture<>();
+      if (TOKENS.putIfAbsent(name, created) != null) {
+        continue;
+      }
+      try {
+        Entry entry = lookup(server, key, name);
+        if (entry == null) {
+          this.log.debug(String.format("Logging in to Vault on %s", server.getUrl()));
+          Token token = loader.login();
+          entry = new Entry(token, this.clock.millis());
+          store(server, key, name, entry);
+        }
+        created.complete(entry);
+        return entry.token(this.clock.millis());
+      } catch (VaultException | RuntimeException exception) {
+        TOKENS.remove(name, created);
+        created.completeExceptionally(exception);
+        throw exception;
+      }
+    }
+  }
+
+  /**
+   * Discards a cached token for the auth method of a server, so that the next request for a token logs in again.
+   *
+   * <p>Nothing is discarded if the cache already holds a different token, which another build may have obtained after
+   * the discarded token was handed out.
+   *
+   * @param server the server
+   * @param token the token
+   * @throws VaultException if the server has no auth method or its credentials cannot be read
+   */
+  public void invalidate(Server server, String token) throws VaultException {
+    String identity = identity(server);
+    String name = name(server, identity);
+    CompletableFuture<Entry> existing = TOKENS.get(name);
+    if (existing != null && existing.isDone() && !existing.isCompletedExceptionally()
+        && existing.join().value.equals(token)) {
+      TOKENS.remove(name, existing);
+    }
+    if (this.directory == null) {
+      return;
+    }
+    File file = new File(this.directory, name);
+    try {
+      if (file.isFile()) {
+        Entry entry = read(Storage.key(identity, DERIVATION_CONTEXT), name, Files.readAllBytes(file.toPath()));
+        if (entry == null || entry.value.equals(token)) {
+          Files.deleteIfExists(file.toPath());
+        }
+      }
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to delete cached Vault token for %s: %s", server.getUrl(), exception));
+    }
+    this.log.debug(String.format("Discarded Vault token for %s", server.getUrl()));
+  }
+
+  /**
+   * Forgets the tokens held in memory, leaving those on disk.
+   */
+  static void clear() {
+    TOKENS.clear();
+  }
+
+  /**
+   * Looks up a fresh token on disk, deleting the file if the token is due to be refreshed.
+   *
+   * @param server the server
+   * @param key the key used to decrypt the token
+   * @param name the name of the file
+   * @return the entry or {@code null} if there is no fresh token
+   */
+  private Entry lookup(Server server, SecretKey key, String name) {
+    if (this.directory == null) {
+      return null;
+    }
+    File file = new File(this.directory, name);
+    try {
+      if (file.isFile()) {
+        Entry entry = read(key, name, Files.readAllBytes(file.toPath()));
+        if (entry != null && entry.refreshAt > this.clock.millis()) {
+          this.log.debug(String.format("Reusing cached Vault token for %s", server.getUrl()));
+          return entry;
+        }
+        Files.deleteIfExists(file.toPath());
+      }
+    } catch (IOException exception) {
+      this.log.warn(String.format("Unable to read cached Vault token for %s: %s", server.getUrl(), exception));
+    }
+    return null;
+  }
+
+  /**
+   * Stores a token on disk.
+   *
+   * @param server the server
+   * @param key the key used to encrypt the token
+   * @param name the name of the file
+   * @param entry the entry
+   */
+  private void store(Server server, SecretKey key, String name, Entry entry) {
+    if (this.directory == null || entry.refreshAt <= this.clock.millis()) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(buffer)) {
+        output.writeLong(entry.expiresAt);
+        output.writeLong(entry.refreshAt);
+        output.writeBoolean(entry.renewable);
+        output.writeUTF(entry.value);
+      }
+      Storage.write(this.directory, name, Storage.seal(key, name, buffer.toByteArray()));
+    } catch (IOException | GeneralSecurityException exception) {
+      this.log.warn(String.format("Unable to cache Vault token for %s: %s", server.getUrl(), exception));
+    }
+  }
+
+  /**
+   * Decrypts and reads an entry.
+   *
+   * @param key the key used to decrypt the entry
+   * @param name the name of the entry which is authenticated with the entry
+   * @param sealed the sealed entry
+   * @return the entry or {@code null} if the entry cannot be decrypted
+   * @throws IOException if the entry is malformed
+   */
+  private static Entry read(SecretKey key, String name, byte[] sealed) throws IOException {
+    byte[] plaintext = Storage.open(key, name, sealed);
+    if (plaintext == null) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(plaintext))) {
+      long expiresAt = input.readLong();
+      long refreshAt = input.readLong();
+      boolean renewable = input.readBoolean();
+      return new Entry(input.readUTF(), expiresAt, refreshAt, renewable);
+    }
+  }
+
+  /**
+   * Gets the name of the entry for the auth method of a server.
+   *
+   * @param server the server
+   * @param identity the identity of the auth method
+   * @return the name
+   * @throws VaultException if the digest algorithm is unavailable
+   */
+  private static String name(Server server, String identity) throws VaultException {
+    try {
+      return Storage.digest(String.join("\n", server.getUrl(), Storage.digest(identity)));
+    } catch (GeneralSecurityException exception) {
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Gets the identity of the auth method of a server, which includes its credentials.
+   *
+   * @param server the server
+   * @return the identity
+   * @throws VaultException if the server has no auth method or its credentials cannot be read
+   */
+  private static String identity(Server server) throws VaultException {
+    Authentication authentication = server.getAuthentication();
+    if (authentication == null) {
+      throw new VaultException(String.format("No Vault auth method is configured for %s", server.getUrl()));
+    }
+    String jwt = null;
+    if (Authentication.KUBERNETES.equals(authentication.getMethod())) {
+      try {
+        jwt = new String(Files.readAllBytes(authentication.getJwtFile().toPath()), StandardCharsets.UTF_8).trim();
+      } catch (IOException exception) {
+        throw new VaultException(exception);
+      }
+    }
+    StringBuilder identity = new StringBuilder();
+    for (String value : new String[] {authentication.getMethod(), authentication.getMount(),
+        authentication.getRoleId(), authentication.getSecretId(), authentication.getRole(), jwt,
+        authentication.getUsername(), authentication.getPassword()}) {
+      String text = value == null ? "" : value;
+      identity.append(text.length()).append(':').append(text);
+    }
+    return identity.toString();
+  }
+
+  /**
+   * Waits for a login performed by another thread.
+   *
+   * @param future the login
+   * @return the entry
+   * @throws VaultException if the login failed or the thread is interrupted
+   */
+  private static Entry await(CompletableFuture<Entry> future) throws VaultException {
+    try {
+      return future.get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new VaultException(exception);
+    } catch (ExecutionException exception) {
+      if (exception.getCause() instanceof VaultException) {
+        throw (VaultException) exception.getCause();
+      }
+      if (exception.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exception.getCause();
+      }
+      throw new VaultException(exception.getCause());
+    }
+  }
+
+  /**
+   * Logs in to Vault when no cached token is fresh.
+   */
+  @FunctionalInterface
+  public interface TokenLoader {
+
+    /**
+     * Logs in.
+     *
+     * @return the token
+     * @throws VaultException if an exception is thrown logging in to vault
+     */
+    Token login() throws VaultException;
+
+  }
+
+  /**
+   * Represents a cached token.
+   */
+  private static final class Entry {
+
+    private final String value;
+
+    private final long expiresAt;
+
+    private final long refreshAt;
+
+    private final boolean renewable;
+
+    private Entry(String value, long expiresAt, long refreshAt, boolean renewable) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.refreshAt = refreshAt;
+      this.renewable = renewable;
+    }
+
+    private Entry(Token token, long now) {
+      this(token.getValue(), expiresAt(token, now), refreshAt(token, now), token.isRenewable());
+    }
+
+    private Token token(long now) {
+      long leaseDuration = this.expiresAt == Long.MAX_VALUE ? 0 : Math.max(1, (this.expiresAt - now) / 1000);
+      return new Token(this.value, leaseDuration, this.renewable);
+    }
+
+    private static long expiresAt(Token token, long now) {
+      return token.getLeaseDuration() > 0 ? now + token.getLeaseDuration() * 1000 : Long.MAX_VALUE;
+    }
+
+    private static long refreshAt(Token token, long now) {
+      long lease = token.getLeaseDuration();
+      if (lease <= 0) {
+        return Long.MAX_VALUE;
+      }
+      long margin = Math.max(lease / 10, Math.min(MINIMUM_MARGIN, lease / 2));
+      return now + (lease - margin) * 1000;
+    }
+
+  }
+
+}
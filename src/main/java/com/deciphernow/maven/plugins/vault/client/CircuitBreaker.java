@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Fails requests to a server immediately once a number of consecutive attempts to reach it have failed.
+ *
+ * <p>The breaker opens when the threshold is reached and stays open for a delay, after which a single probe attempt
+ * is admitted while every other request still fails immediately.  A successful probe closes the breaker; a failed
+ * probe opens it for a further delay.  Attempts that are throttled by the server neither open nor close the breaker,
+ * since the server is evidently reachable.
+ */
+final class CircuitBreaker {
+
+  private final String address;
+
+  private final int threshold;
+
+  private final long delay;
+
+  private final LongSupplier clock;
+
+  private int failures;
+
+  private long openUntil;
+
+  private boolean probing;
+
+  /**
+   * Initializes a new instance of the {@link CircuitBreaker} class.
+   *
+   * @param address the address of the server
+   * @param threshold the number of consecutive failed attempts that opens the breaker or zero to never open it
+   * @param delay the number of seconds the breaker stays open
+   * @param clock the clock returning the current time in milliseconds
+   */
+  CircuitBreaker(String address, int threshold, int delay, LongSupplier clock) {
+    this.address = address;
+    this.threshold = threshold;
+    this.delay = TimeUnit.SECONDS.toMillis(delay);
+    this.clock = clock;
+  }
+
+  /**
+   * Checks that an attempt may be made, admitting it as the probe if the delay of an open breaker has passed.
+   *
+   * <p>Every attempt that is admitted must be followed by exactly one call to {@link #success()}, {@link #failure()}
+   * or {@link #release()}.
+   *
+   * @throws VaultException if the breaker is open or another attempt is already probing the server
+   */
+  synchronized void acquire() throws VaultException {
+    if (this.threshold <= 0 || this.failures < this.threshold) {
+      return;
+    }
+    long remaining = this.openUntil - this.clock.getAsLong();
+    if (remaining > 0) {
+      throw new VaultException(String.format(
+          "Vault server %s is unavailable after %d consecutive failed attempts; not retrying for %d seconds",
+          this.address, this.failures, TimeUnit.MILLISECONDS.toSeconds(remaining + 999)));
+    }
+    if (this.probing) {
+      throw new VaultException(String.format(
+          "Vault server %s is unavailable after %d consecutive failed attempts; waiting for a probe to complete",
+          this.address, this.failures));
+    }
+    this.probing = true;
+  }
+
+  /**
+   * Records an attempt that reached the server, closing the breaker.
+   */
+  synchronized void success() {
+    this.failures = 0;
+    this.probing = false;
+  }
+
+  /**
+   * Records an attempt that failed, opening the breaker if the threshold has been reached.
+   */
+  synchronized void failure() {
+    this.failures++;
+    this.probing = false;
+    if (this.threshold > 0 && this.failures >= this.threshold) {
+      this.openUntil = this.clock.getAsLong() + this.delay;
+    }
+  }
+
+  /**
+   * Records an attempt that neither succeeded nor failed, such as one throttled by the server or abandoned when its
+   * deadline expired, leaving the breaker as it was but admitting another probe.
+   */
+  synchronized void release() {
+    this.probing = false;
+  }
+
+}
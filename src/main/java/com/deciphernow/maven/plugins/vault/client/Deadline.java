@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the time by which all of the requests of an execution must complete.
+ */
+public final class Deadline {
+
+  /**
+   * Defines a deadline that never expires.
+   */
+  public static final Deadline NONE = new Deadline(0, 0);
+
+  private final long seconds;
+
+  private final long expiresAt;
+
+  /**
+   * Initializes a new instance of the {@link Deadline} class.
+   *
+   * @param seconds the number of seconds allowed
+   * @param expiresAt the value of {@link System#nanoTime()} at which the deadline expires
+   */
+  private Deadline(long seconds, long expiresAt) {
+    this.seconds = seconds;
+    this.expiresAt = expiresAt;
+  }
+
+  /**
+   * Returns a deadline that expires a number of seconds from now.
+   *
+   * @param seconds the number of seconds or zero for a deadline that never expires
+   * @return the deadline
+   */
+  public static Deadline after(long seconds) {
+    return seconds <= 0 ? NONE : new Deadline(seconds, System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+  }
+
+  /**
+   * Gets a value indicating whether this deadline can expire.
+   *
+   * @return {@code true} if this deadline can expire; otherwise, {@code false}
+   */
+  public boolean isLimited() {
+    return this.seconds > 0;
+  }
+
+  /**
+   * Gets the number of milliseconds remaining before this deadline expires.
+   *
+   * @return the number of milliseconds, zero if the deadline has expired or {@link Long#MAX_VALUE} if it never expires
+   */
+  public long remaining() {
+    if (!isLimited()) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(this.expiresAt - System.nanoTime()));
+  }
+
+  /**
+   * Checks that this deadline has not expired.
+   *
+   * @throws DeadlineExceededException if the deadline has expired
+   */
+  public void check() throws DeadlineExceededException {
+    if (remaining() <= 0) {
+      throw exceeded();
+    }
+  }
+
+  /**
+   * Creates the exception thrown when this deadline expires.
+   *
+   * @return the exception
+   */
+  public DeadlineExceededException exceeded() {
+    return new DeadlineExceededException(String.format("Vault deadline of %d seconds exceeded", this.seconds));
+  }
+
+}
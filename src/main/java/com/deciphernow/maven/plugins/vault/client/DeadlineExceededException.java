@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+
+/**
+ * Signals that the requests of an execution did not complete before its {@link Deadline}.
+ */
+public class DeadlineExceededException extends VaultException {
+
+  /**
+   * Initializes a new instance of the {@link DeadlineExceededException} class.
+   *
+   * @param message the message
+   */
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Provides static methods for composing the futures returned by asynchronous requests.
+ */
+public final class Futures {
+
+  /**
+   * Prevents instantiation of the {@link Futures} class.
+   */
+  private Futures() { }
+
+  /**
+   * Returns a future that has already failed.
+   *
+   * @param exception the exception
+   * @param <T> the type of the result
+   * @return the future
+   */
+  public static <T> CompletableFuture<T> failed(Throwable exception) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(exception);
+    return future;
+  }
+
+  /**
+   * Returns a future that applies a step to the result of another future, failing with any exception the step throws.
+   *
+   * @param future the future
+   * @param step the step
+   * @param <T> the type of the result of the future
+   * @param <R> the type of the result of the step
+   * @return the future result of the step
+   */
+  public static <T, R> CompletableFuture<R> then(CompletableFuture<T> future, Step<T, R> step) {
+    return future.thenApply(input -> {
+      try {
+        return step.apply(input);
+      } catch (VaultException exception) {
+        throw new CompletionException(exception);
+      }
+    });
+  }
+
+  /**
+   * Gets the exception a future failed with, removing the wrappers added as the failure passed through dependent
+   * futures.
+   *
+   * @param exception the exception
+   * @return the exception the future failed with
+   */
+  public static Throwable unwrap(Throwable exception) {
+    Throwable cause = exception;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  /**
+   * Waits for a future to complete and returns its result, rethrowing the exception it failed with.
+   *
+   * @param future the future
+   * @param <T> the type of the result
+   * @return the result
+   * @throws VaultException if the future failed with a {@link VaultException} or the wait was interrupted
+   */
+  public static <T> T join(CompletableFuture<T> future) throws VaultException {
+    try {
+      return future.get();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new VaultException(exception);
+    } catch (ExecutionException exception) {
+      throw rethrow(exception);
+    }
+  }
+
+  /**
+   * Converts the exception a future failed with to an exception that can be rethrown as it was originally thrown.
+   *
+   * @param exception the exception
+   * @return the {@link VaultException} the future failed with or one wrapping any other checked exception
+   * @throws RuntimeException if the future failed with an unchecked exception
+   * @throws Error if the future failed with an error
+   */
+  public static VaultException rethrow(Throwable exception) {
+    Throwable cause = unwrap(exception);
+    if (cause instanceof VaultException) {
+      return (VaultException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new VaultException(cause);
+  }
+
+  /**
+   * Represents a step applied to the result of a future.
+   *
+   * @param <T> the type of the input
+   * @param <R> the type of the result
+   */
+  @FunctionalInterface
+  public interface Step<T, R> {
+
+    /**
+     * Applies the step.
+     *
+     * @param input the input
+     * @return the result
+     * @throws VaultException if the step fails
+     */
+    R apply(T input) throws VaultException;
+
+  }
+
+}
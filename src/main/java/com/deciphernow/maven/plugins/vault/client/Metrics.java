@@ -0,0 +1,404 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.json.JsonArray;
+import com.bettercloud.vault.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency, response size, status and retries of every request made during an execution.
+ *
+ * <p>Requests are summarized by server and by path on each server.  A request that failed without a response is
+ * recorded with a status of zero.
+ */
+public final class Metrics {
+
+  /**
+   * Defines metrics that record nothing.
+   */
+  public static final Metrics NONE = new Metrics(false);
+
+  private final boolean enabled;
+
+  private final Map<List<String>, Series> paths = new LinkedHashMap<>();
+
+  /**
+   * Initializes a new instance of the {@link Metrics} class.
+   */
+  public Metrics() {
+    this(true);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Metrics} class.
+   *
+   * @param enabled whether requests are recorded
+   */
+  private Metrics(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Records a request.
+   *
+   * @param server the address of the server
+   * @param operation the operation, such as {@code read} or {@code list}
+   * @param path the path
+   * @param status the HTTP status code of the last response or zero if there was none
+   * @param bytes the size of the body of the last response
+   * @param retries the number of times the request was retried
+   * @param nanos the time taken by the request, including retries, in nanoseconds
+   */
+  void record(String server, String operation, String path, int status, long bytes, int retries, long nanos) {
+    if (!this.enabled) {
+      return;
+    }
+    synchronized (this.paths) {
+      this.paths.computeIfAbsent(Arrays.asList(server, path), key -> new Series())
+          .add(operation, status, bytes, retries, nanos);
+    }
+  }
+
+  /**
+   * Gets a value indicating whether no request has been recorded.
+   *
+   * @return {@code true} if no request has been recorded; otherwise, {@code false}
+   */
+  public boolean isEmpty() {
+    synchronized (this.paths) {
+      return this.paths.isEmpty();
+    }
+  }
+
+  /**
+   * Summarizes the requests made to each server, in the order the servers were first contacted.
+   *
+   * @return the summaries
+   */
+  public List<Summary> getServers() {
+    Map<String, Series> servers = new LinkedHashMap<>();
+    synchronized (this.paths) {
+      this.paths.forEach((key, series) -> servers.computeIfAbsent(key.get(0), server -> new Series()).add(series));
+    }
+    List<Summary> summaries = new ArrayList<>();
+    servers.forEach((server, series) -> summaries.add(series.summarize(server)));
+    return summaries;
+  }
+
+  /**
+   * Summarizes the requests made for each path on a server, in the order the paths were first requested.
+   *
+   * @param server the address of the server
+   * @return the summaries
+   */
+  public List<Summary> getPaths(String server) {
+    List<Summary> summaries = new ArrayList<>();
+    synchronized (this.paths) {
+      this.paths.forEach((key, series) -> {
+        if (key.get(0).equals(server)) {
+          summaries.add(series.summarize(key.get(1)));
+        }
+      });
+    }
+    return summaries;
+  }
+
+  /**
+   * Returns the summaries of every server and of the paths on each server as JSON.
+   *
+   * @return the JSON
+   */
+  public JsonObject toJson() {
+    JsonArray servers = new JsonArray();
+    for (Summary server : getServers()) {
+      JsonArray paths = new JsonArray();
+      getPaths(server.getName()).forEach(path -> paths.add(path.toJson("path")));
+      servers.add(server.toJson("server").add("paths", paths));
+    }
+    return new JsonObject().add("servers", servers);
+  }
+
+  /**
+   * Summarizes a series of requests.
+   */
+  public static final class Summary {
+
+    private final String name;
+
+    private final int count;
+
+    private final long bytes;
+
+    private final int retries;
+
+    private final SortedMap<Integer, Integer> statuses;
+
+    private final SortedMap<String, Integer> operations;
+
+    private final long p50;
+
+    private final long p95;
+
+    private final long max;
+
+    /**
+     * Initializes a new instance of the {@link Summary} class.
+     *
+     * @param name the name of the server or path
+     * @param count the number of requests
+     * @param bytes the total size of the response bodies
+     * @param retries the total number of retries
+     * @param statuses the number of requests by status
+     * @param operations the number of requests by operation
+     * @param latencies the sorted latencies of the requests in nanoseconds
+     */
+    private Summary(String name, int count, long bytes, int retries, SortedMap<Integer, Integer> statuses,
+                    SortedMap<String, Integer> operations, long[] latencies) {
+      this.name = name;
+      this.count = count;
+      this.bytes = bytes;
+      this.retries = retries;
+      this.statuses = Collections.unmodifiableSortedMap(statuses);
+      this.operations = Collections.unmodifiableSortedMap(operations);
+      this.p50 = percentile(latencies, 50);
+      this.p95 = percentile(latencies, 95);
+      this.max = latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+    }
+
+    /**
+     * Gets the name of the server or path.
+     *
+     * @return the name
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Gets the number of requests.
+     *
+     * @return the count
+     */
+    public int getCount() {
+      return this.count;
+    }
+
+    /**
+     * Gets the total size of the response bodies.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+      return this.bytes;
+    }
+
+    /**
+     * Gets the total number of retries.
+     *
+     * @return the retries
+     */
+    public int getRetries() {
+      return this.retries;
+    }
+
+    /**
+     * Gets the number of requests by the status of their last response, where zero counts requests with no response.
+     *
+     * @return the counts by status
+     */
+    public SortedMap<Integer, Integer> getStatuses() {
+      return this.statuses;
+    }
+
+    /**
+     * Gets the number of requests by operation.
+     *
+     * @return the counts by operation
+     */
+    public SortedMap<String, Integer> getOperations() {
+      return this.operations;
+    }
+
+    /**
+     * Gets the median latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getP50() {
+      return this.p50;
+    }
+
+    /**
+     * Gets the 95th percentile latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getP95() {
+      return this.p95;
+    }
+
+    /**
+     * Gets the maximum latency.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getMax() {
+      return this.max;
+    }
+
+    /**
+     * Returns this summary as JSON, with latencies in milliseconds.
+     *
+     * @param field the name of the field holding the name of the server or path
+     * @return the JSON
+     */
+    public JsonObject toJson(String field) {
+      JsonObject statusCounts = new JsonObject();
+      this.statuses.forEach((status, number) -> statusCounts.add(String.valueOf(status), number));
+      JsonObject operationCounts = new JsonObject();
+      this.operations.forEach(operationCounts::add);
+      return new JsonObject()
+          .add(field, this.name)
+          .add("count", this.count)
+          .add("bytes", this.bytes)
+          .add("retries", this.retries)
+          .add("statuses", statusCounts)
+          .add("operations", operationCounts)
+          .add("p50", millis(this.p50))
+          .add("p95", millis(this.p95))
+          .add("max", millis(this.max));
+    }
+
+    /**
+     * Returns a one line description of this summary.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString() {
+      return String.format("%s: %d requests %s, %d bytes, %d retries, p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+          this.name, this.count, this.statuses, this.bytes, this.retries, millis(this.p50), millis(this.p95),
+          millis(this.max));
+    }
+
+    /**
+     * Gets a percentile of sorted latencies by the nearest rank method.
+     *
+     * @param latencies the sorted latencies
+     * @param percentile the percentile
+     * @return the latency or zero if there are none
+     */
+    private static long percentile(long[] latencies, int percentile) {
+      if (latencies.length == 0) {
+        return 0;
+      }
+      int rank = (int) Math.ceil(percentile / 100.0 * latencies.length);
+      return latencies[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos the nanoseconds
+     * @return the milliseconds
+     */
+    private static double millis(long nanos) {
+      return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+  }
+
+  /**
+   * Accumulates the requests made for a path or server.
+   */
+  private static final class Series {
+
+    private long[] latencies = new long[8];
+
+    private int count;
+
+    private long bytes;
+
+    private int retries;
+
+    private final SortedMap<Integer, Integer> statuses = new TreeMap<>();
+
+    private final SortedMap<String, Integer> operations = new TreeMap<>();
+
+    /**
+     * Adds a request.
+     *
+     * @param operation the operation
+     * @param status the status
+     * @param size the size of the response body
+     * @param retried the number of retries
+     * @param nanos the latency in nanoseconds
+     */
+    void add(String operation, int status, long size, int retried, long nanos) {
+      if (this.count == this.latencies.length) {
+        this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+      }
+      this.latencies[this.count++] = nanos;
+      this.bytes += size;
+      this.retries += retried;
+      this.statuses.merge(status, 1, Integer::sum);
+      this.operations.merge(operation, 1, Integer::sum);
+    }
+
+    /**
+     * Adds every request of another series.
+     *
+     * @param series the other series
+     */
+    void add(Series series) {
+      if (this.count + series.count > this.latencies.length) {
+        this.latencies = Arrays.copyOf(this.latencies, Math.max(this.latencies.length * 2, this.count + series.count));
+      }
+      System.arraycopy(series.latencies, 0, this.latencies, this.count, series.count);
+      this.count += series.count;
+      this.bytes += series.bytes;
+      this.retries += series.retries;
+      series.statuses.forEach((status, number) -> this.statuses.merge(status, number, Integer::sum));
+      series.operations.forEach((operation, number) -> this.operations.merge(operation, number, Integer::sum));
+    }
+
+    /**
+     * Summarizes this series.
+     *
+     * @param name the name of the server or path
+     * @return the summary
+     */
+    Summary summarize(String name) {
+      long[] sorted = Arrays.copyOf(this.latencies, this.count);
+      Arrays.sort(sorted);
+      return new Summary(name, this.count, this.bytes, this.retries, new TreeMap<>(this.statuses),
+          new TreeMap<>(this.operations), sorted);
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of attempts in flight to a server that throttles requests.
+ *
+ * <p>The limit starts at the size of the connection pool.  Each attempt throttled by the server lowers it to one less
+ * than the number of attempts then in flight, and each run of as many unthrottled attempts as the limit raises it by
+ * one again, so requests settle just under the concurrency the server admits rather than spending their attempts on
+ * being throttled.
+ */
+final class Throttle {
+
+  private final int maximum;
+
+  private int limit;
+
+  private int active;
+
+  private int successes;
+
+  private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+  /**
+   * Initializes a new instance of the {@link Throttle} class.
+   *
+   * @param maximum the largest number of attempts allowed in flight
+   */
+  Throttle(int maximum) {
+    this.maximum = Math.max(1, maximum);
+    this.limit = this.maximum;
+  }
+
+  /**
+   * Waits until an attempt may be made and counts it as in flight.
+   *
+   * <p>Every attempt that is admitted must be followed by exactly one call to {@link #success()},
+   * {@link #throttled()} or {@link #release()}.
+   *
+   * @param timeout the number of milliseconds to wait
+   * @return {@code true} if the attempt may be made; {@code false} if the timeout expired first
+   * @throws InterruptedException if the wait is interrupted
+   */
+  synchronized boolean acquire(long timeout) throws InterruptedException {
+    long start = System.nanoTime();
+    while (this.active >= this.limit || !this.waiting.isEmpty()) {
+      long remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
+    }
+    this.active++;
+    return true;
+  }
+
+  /**
+   * Counts an attempt as in flight if one may be made now, or else queues it without waiting.
+   *
+   * <p>A queued attempt is counted as in flight and its action run as soon as an attempt in flight completes and the
+   * limit allows another, before any attempt waiting in {@link #acquire(long)}.  The action is run while the throttle
+   * is locked, so it must hand the attempt off rather than make it.  Every attempt that is admitted must be followed by
+   * exactly one call to {@link #success()}, {@link #throttled()} or {@link #release()}.
+   *
+   * @param admitted the action to run once a queued attempt is admitted
+   * @return {@code true} if the attempt may be made now; {@code false} if it was queued
+   */
+  synchronized boolean acquire(Runnable admitted) {
+    if (this.active < this.limit && this.waiting.isEmpty()) {
+      this.active++;
+      return true;
+    }
+    this.waiting.add(admitted);
+    return false;
+  }
+
+  /**
+   * Records an attempt that was not throttled, raising the limit after a run of such attempts.
+   */
+  synchronized void success() {
+    if (++this.successes >= this.limit && this.limit < this.maximum) {
+      this.limit++;
+      this.successes = 0;
+    }
+    release();
+  }
+
+  /**
+   * Records an attempt that was throttled, lowering the limit below the number of attempts in flight.
+   */
+  synchronized void throttled() {
+    this.limit = Math.max(1, Math.min(this.limit, this.active) - 1);
+    this.successes = 0;
+    release();
+  }
+
+  /**
+   * Records an attempt that got no response, leaving the limit as it was.
+   */
+  synchronized void release() {
+    this.active--;
+    while (this.active < this.limit && !this.waiting.isEmpty()) {
+      this.active++;
+      this.waiting.remove().run();
+    }
+    notifyAll();
+  }
+
+  /**
+   * Gets the number of attempts currently allowed in flight.
+   *
+   * @return the limit
+   */
+  synchronized int getLimit() {
+    return this.limit;
+  }
+
+}
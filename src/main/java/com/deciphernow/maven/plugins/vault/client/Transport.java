@@ -0,0 +1,1062 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Provides a pooled, keep-alive HTTP transport to a Vault server.
+ *
+ * <p>Transports are shared by every execution of the plugin in the build, one for each distinct combination of URL,
+ * SSL settings and connection settings, so that connections and TLS sessions are reused across paths, modules and
+ * goals.  SSL contexts are shared more widely still, one for each PEM file, so that certificates are parsed once and
+ * TLS sessions are resumed across transports to the same host.  Idle connections are closed in the background after
+ * the idle timeout of the server, and a transport that has made no request for that long closes its connection pools
+ * and threads, opening them again on its next request.  A transport replaced because its PEM file was modified is
+ * closed in the same way, so the transports held open never outnumber the configured servers.
+ *
+ * <p>Requests that fail to reach the server, or that are throttled or rejected by an unavailable server, are retried
+ * with exponential backoff and jitter according to the retry settings of the server, waiting at least as long as any
+ * {@code Retry-After} header asks.  A circuit breaker shared by every request to the server fails requests immediately
+ * once the server appears to be down.  These settings are the only retries made: the HTTP clients never retry a request
+ * on their own, save that a request without a body whose pooled connection turns out to have been closed by the server
+ * is sent again on a new connection without counting as an attempt, though never twice in a row.
+ *
+ * <p>Requests can also be executed asynchronously, in which case they are multiplexed over a small fixed number of
+ * non-blocking I/O threads per transport and retries are scheduled rather than slept, so an outstanding request holds
+ * no thread of its own.  The I/O threads are started by the first asynchronous request.  The futures returned for
+ * asynchronous requests are completed by a small pool of callback threads shared by every transport, never by the I/O
+ * threads, so work chained to them such as writing a cache entry cannot stall requests in flight.
+ *
+ * <p>An attempt still in flight when its deadline expires is abandoned and its connection closed, whether it was
+ * executed synchronously or asynchronously, so a stalled server holds neither a connection nor a thread past it.
+ *
+ * <p>Once the server throttles a request, the attempts in flight to it are limited to fewer than were in flight at the
+ * time, and the limit is raised again gradually while attempts go unthrottled.  Asynchronous attempts over the limit
+ * are queued rather than waited for.
+ */
+public final class Transport {
+
+  /**
+   * Defines the HTTP status codes of responses that are retried.
+   */
+  private static final Set<Integer> RETRYABLE = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList(429, 500, 502, 503, 504)));
+
+  /**
+   * Defines the transports shared by the servers of every execution in the JVM, keyed by the URL, SSL, connection and
+   * retry settings of the server.  A transport is removed once it has been idle for the idle timeout of its server.
+   */
+  private static final Map<List<Object>, Transport> TRANSPORTS = new ConcurrentHashMap<>();
+
+  /**
+   * Defines the SSL contexts shared by the transports, keyed by whether certificates are verified and the identity of
+   * the PEM file trusted.  A context is removed once no shared transport uses it, when the last transport using it is
+   * removed or replaced.
+   */
+  private static final Map<List<Object>, SSLContext> SSL_CONTEXTS = new ConcurrentHashMap<>();
+
+  /**
+   * Defines the number of I/O threads serving the asynchronous requests of each transport.
+   */
+  private static final int IO_THREADS = 2;
+
+  /**
+   * Defines the number of threads completing the futures returned for asynchronous requests.
+   */
+  private static final int CALLBACK_THREADS = 4;
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+      daemon("vault-scheduler"));
+
+  private static final ExecutorService CALLBACKS = Executors.newFixedThreadPool(CALLBACK_THREADS,
+      daemon("vault-callback"));
+
+  private final String address;
+
+  private final List<Object> key;
+
+  private final List<Object> stamp;
+
+  private final List<Object> sslKey;
+
+  private final SSLContext sslContext;
+
+  private final boolean sslVerify;
+
+  private final Connection connection;
+
+  private final long idleTimeout;
+
+  private final RequestConfig config;
+
+  private final Retry retry;
+
+  private final CircuitBreaker breaker;
+
+  private final Throttle throttle;
+
+  private Clients clients;
+
+  private int active;
+
+  private long lastUsed;
+
+  /**
+   * Initializes a new instance of the {@link Transport} class.
+   *
+   * @param server the server
+   * @param sslContext the SSL context
+   * @param config the default configuration of requests
+   */
+  private Transport(Server server, SSLContext sslContext, RequestConfig config) {
+    this.address = server.getUrl();
+    this.key = key(server);
+    this.stamp = stamp(server.getSslCertificate());
+    this.sslKey = sslKey(server.getSslCertificate(), server.getSslVerify());
+    this.sslContext = sslContext;
+    this.sslVerify = server.getSslVerify();
+    this.connection = server.getConnection();
+    this.idleTimeout = Math.max(1, this.connection.getIdleTimeout());
+    this.config = config;
+    this.retry = server.getRetry();
+    this.breaker = new CircuitBreaker(this.address, this.retry.getBreakerThreshold(), this.retry.getBreakerDelay(),
+        System::currentTimeMillis);
+    this.throttle = new Throttle(this.connection.getMaxConnections());
+  }
+
+  /**
+   * Gets the shared transport for a server, creating it on first use.
+   *
+   * <p>A PEM file that has been modified since a transport was created for it gets a new transport, so that an updated
+   * certificate is trusted by the next request rather than by the next build.  The new transport replaces the old one,
+   * which closes once its requests have completed and it has been idle for the idle timeout of the server, and the SSL
+   * context of the old one is dropped unless another shared transport uses it.
+   *
+   * @param server the server
+   * @return the transport
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  public static Transport of(Server server) throws VaultException {
+    List<Object> key = key(server);
+    List<Object> stamp = stamp(server.getSslCertificate());
+    Transport transport = TRANSPORTS.get(key);
+    if (transport == null || !transport.stamp.equals(stamp)) {
+      synchronized (TRANSPORTS) {
+        transport = TRANSPORTS.get(key);
+        if (transport == null || !transport.stamp.equals(stamp)) {
+          Transport replaced = transport;
+          transport = create(server);
+          TRANSPORTS.put(key, transport);
+          if (replaced != null) {
+            retire(replaced);
+          }
+        }
+      }
+    }
+    return transport;
+  }
+
+  /**
+   * Identifies the transport of a server by the settings that affect it, which excludes the token.
+   *
+   * @param server the server
+   * @return the key of the transport
+   */
+  private static List<Object> key(Server server) {
+    File certificate = server.getSslCertificate();
+    return Arrays.asList(server.getUrl(), server.getSslVerify(),
+        certificate == null ? null : certificate.getAbsolutePath(), server.getConnection(), server.getRetry());
+  }
+
+  /**
+   * Drops the SSL context of a transport that is no longer shared unless another shared transport uses it.
+   *
+   * <p>Must be called while holding the lock of {@link #TRANSPORTS}.
+   *
+   * @param transport the transport
+   */
+  private static void retire(Transport transport) {
+    if (TRANSPORTS.values().stream().noneMatch(shared -> shared.sslContext == transport.sslContext)) {
+      SSL_CONTEXTS.remove(transport.sslKey, transport.sslContext);
+    }
+  }
+
+  /**
+   * Gets the URI of a path on the server.
+   *
+   * @param path the path
+   * @return the URI
+   */
+  public String uri(String path) {
+    return String.format("%s/v1/%s", this.address, path);
+  }
+
+  /**
+   * Executes a request that must complete before a deadline, reads the complete response and records the request.
+   *
+   * @param request the request
+   * @param deadline the deadline
+   * @param metrics the metrics
+   * @param operation the operation recorded for the request
+   * @param path the path recorded for the request
+   * @return the response
+   * @throws VaultException if the server cannot be reached, the circuit breaker is open, the wait is interrupted or the
+   *     deadline expires
+   */
+  public Response execute(HttpRequestBase request, Deadline deadline, Metrics metrics, String operation, String path)
+      throws VaultException {
+    long start = System.nanoTime();
+    AtomicInteger attempts = new AtomicInteger();
+    Response response = null;
+    Clients clients = acquire();
+    try {
+      response = attempt(clients, request, deadline, attempts);
+      return response;
+    } finally {
+      release();
+      metrics.record(this.address, operation, path, response == null ? 0 : response.getStatus(),
+          response == null ? 0 : response.getBody().length, Math.max(attempts.get() - 1, 0),
+          System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Executes a request asynchronously, reading the complete response and recording the request.
+   *
+   * <p>The request is retried as by {@link #execute(HttpRequestBase, Deadline, Metrics, String, String)}, but without
+   * blocking the calling thread.  The returned future completes on one of the callback threads shared by every
+   * transport, so anything chained to it may do brief local work such as reading or writing a file, but must not wait
+   * for another request.
+   *
+   * @param request the request
+   * @param deadline the deadline
+   * @param metrics the metrics
+   * @param operation the operation recorded for the request
+   * @param path the path recorded for the request
+   * @return the response, or an exception if the server cannot be reached, the circuit breaker is open or the deadline
+   *     expires
+   */
+  public CompletableFuture<Response> executeAsync(HttpRequestBase request, Deadline deadline, Metrics metrics,
+                                                  String operation, String path) {
+    long start = System.nanoTime();
+    Clients clients;
+    try {
+      clients = acquire();
+    } catch (VaultException exception) {
+      return Futures.failed(exception);
+    }
+    Attempt attempt = new Attempt(clients, request, deadline);
+    attempt.start();
+    return attempt.result.whenCompleteAsync((response, exception) -> {
+      release();
+      metrics.record(this.address, operation, path, response == null ? 0 : response.getStatus(),
+          response == null ? 0 : response.getBody().length, Math.max(attempt.number - 1, 0), System.nanoTime() - start);
+    }, CALLBACKS);
+  }
+
+  /**
+   * Makes the attempts to execute a request.
+   *
+   * @param clients the HTTP clients
+   * @param request the request
+   * @param deadline the deadline
+   * @param attempts the number of attempts made, updated as each attempt starts
+   * @return the response
+   * @throws VaultException if the server cannot be reached, the circuit breaker is open, the wait is interrupted or the
+   *     deadline expires
+   */
+  private Response attempt(Clients clients, HttpRequestBase request, Deadline deadline, AtomicInteger attempts)
+      throws VaultException {
+    boolean resent = false;
+    for (int attempt = 1; ; attempt++) {
+      attempts.set(attempt);
+      admit(deadline);
+      configure(request, deadline);
+      long retryAfter = 0;
+      ScheduledFuture<?> expiry = expire(deadline, request::abort);
+      try (CloseableHttpResponse response = clients.client.execute(request)) {
+        resent = false;
+        int status = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
+        byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+        if (!RETRYABLE.contains(status)) {
+          this.breaker.success();
+          this.throttle.success();
+          return new Response(status, body);
+        }
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        retryable(status, header);
+        if (attempt >= this.retry.getAttempts()) {
+          return new Response(status, body);
+        }
+        retryAfter = retryAfter(header);
+      } catch (IOException exception) {
+        this.throttle.release();
+        if (deadline.remaining() <= 0) {
+          this.breaker.release();
+          throw deadline.exceeded();
+        }
+        if (!resent && stale(exception) && !(request instanceof HttpEntityEnclosingRequest)) {
+          resent = true;
+          attempt--;
+          this.breaker.release();
+          continue;
+        }
+        this.breaker.failure();
+        if (attempt >= this.retry.getAttempts()) {
+          throw new VaultException(exception);
+        }
+      } finally {
+        if (expiry != null) {
+          expiry.cancel(false);
+        }
+      }
+      long delay = delay(this.retry, attempt, retryAfter);
+      if (delay >= deadline.remaining()) {
+        throw deadline.exceeded();
+      }
+      pause(delay);
+    }
+  }
+
+  /**
+   * Waits until an attempt may be made to the server, counting it in the throttle and the circuit breaker.
+   *
+   * @param deadline the deadline
+   * @throws VaultException if the circuit breaker is open, the wait is interrupted or the deadline expires
+   */
+  private void admit(Deadline deadline) throws VaultException {
+    deadline.check();
+    try {
+      if (!this.throttle.acquire(deadline.remaining())) {
+        throw deadline.exceeded();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new VaultException(exception);
+    }
+    try {
+      this.breaker.acquire();
+    } catch (VaultException exception) {
+      this.throttle.release();
+      throw exception;
+    }
+  }
+
+  /**
+   * Gets a value indicating whether a request failed because its pooled connection had been closed by the server.
+   *
+   * @param exception the exception thrown by the request
+   * @return {@code true} if the connection was closed; otherwise, {@code false}
+   */
+  private static boolean stale(IOException exception) {
+    return exception instanceof NoHttpResponseException
+        || exception instanceof SocketException
+        && !(exception instanceof ConnectException)
+        && !(exception instanceof NoRouteToHostException);
+  }
+
+  /**
+   * Records an attempt answered with a retryable status in the circuit breaker and the throttle.
+   *
+   * <p>A server that throttles requests, or asks for them to be retried later, is reachable and answering, so only
+   * other retryable statuses count towards opening the breaker.
+   *
+   * @param status the status
+   * @param retryAfter the {@code Retry-After} header of the response or {@code null}
+   */
+  private void retryable(int status, Header retryAfter) {
+    if (status == 429 || retryAfter != null) {
+      this.breaker.release();
+    } else {
+      this.breaker.failure();
+    }
+    if (status == 429) {
+      this.throttle.throttled();
+    } else {
+      this.throttle.success();
+    }
+  }
+
+  /**
+   * Shortens the timeouts of an attempt to the time remaining before a deadline.
+   *
+   * @param request the request
+   * @param deadline the deadline
+   */
+  private void configure(HttpRequestBase request, Deadline deadline) {
+    if (deadline.isLimited()) {
+      int remaining = (int) Math.min(deadline.remaining(), Integer.MAX_VALUE);
+      request.setConfig(RequestConfig.copy(this.config)
+          .setConnectionRequestTimeout(remaining)
+          .setConnectTimeout(Math.min(this.config.getConnectTimeout(), remaining))
+          .setSocketTimeout(Math.min(this.config.getSocketTimeout(), remaining))
+          .build());
+    }
+  }
+
+  /**
+   * Schedules an attempt to be abandoned when a deadline expires.
+   *
+   * <p>The timeouts set by {@link #configure(HttpRequestBase, Deadline)} only bound each wait for the server, so a
+   * server that keeps trickling out a response would otherwise hold the attempt, its connection and its thread past
+   * the deadline.  Abandoning the attempt closes its connection.
+   *
+   * @param deadline the deadline
+   * @param abort abandons the attempt
+   * @return the scheduled abort, which is cancelled once the attempt completes, or {@code null} if the deadline never
+   *     expires
+   */
+  private static ScheduledFuture<?> expire(Deadline deadline, Runnable abort) {
+    return deadline.isLimited() ? SCHEDULER.schedule(abort, deadline.remaining(), TimeUnit.MILLISECONDS) : null;
+  }
+
+  /**
+   * Gets the HTTP clients for a request, opening them if they were closed, and counts the request as active until it is
+   * released.
+   *
+   * @return the clients
+   * @throws VaultException if the clients cannot be opened
+   */
+  private synchronized Clients acquire() throws VaultException {
+    if (this.clients == null) {
+      this.clients = open();
+      this.clients.maintenance = SCHEDULER.scheduleWithFixedDelay(this::maintain, this.idleTimeout, this.idleTimeout,
+          TimeUnit.SECONDS);
+    }
+    this.active++;
+    return this.clients;
+  }
+
+  /**
+   * Releases the HTTP clients at the end of a request.
+   */
+  private synchronized void release() {
+    this.active--;
+    this.lastUsed = System.currentTimeMillis();
+  }
+
+  /**
+   * Closes idle connections and, once no request has been made for the idle timeout, the HTTP clients themselves.
+   *
+   * <p>A transport whose clients close is no longer shared, and its SSL context is dropped with it unless another
+   * shared transport uses it, so that a long-lived JVM does not keep the transports and contexts of servers it no
+   * longer contacts.  A caller still holding the transport can go on using it, which opens the clients again.
+   */
+  private void maintain() {
+    Clients idle;
+    synchronized (this) {
+      if (this.clients == null) {
+        return;
+      }
+      if (this.active > 0 || System.currentTimeMillis() - this.lastUsed < TimeUnit.SECONDS.toMillis(this.idleTimeout)) {
+        this.clients.closeIdleConnections(this.idleTimeout);
+        return;
+      }
+      idle = this.clients;
+      this.clients = null;
+    }
+    idle.maintenance.cancel(false);
+    CALLBACKS.execute(idle::close);
+    synchronized (TRANSPORTS) {
+      if (TRANSPORTS.remove(this.key, this)) {
+        retire(this);
+      }
+    }
+  }
+
+  /**
+   * Gets a value indicating whether the HTTP clients of this transport are open.
+   *
+   * @return {@code true} if the clients are open; otherwise, {@code false}
+   */
+  synchronized boolean isOpen() {
+    return this.clients != null;
+  }
+
+  /**
+   * Gets the SSL context of this transport.
+   *
+   * @return the SSL context
+   */
+  SSLContext getSslContext() {
+    return this.sslContext;
+  }
+
+  /**
+   * Creates a transport for a server.
+   *
+   * @param server the server
+   * @return the transport
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  private static Transport create(Server server) throws VaultException {
+    SSLContext sslContext = server.getSslVerify()
+        ? sslContext(server.getSslCertificate(), true)
+        : sslContext(null, false);
+    Connection connection = server.getConnection();
+    RequestConfig config = RequestConfig.custom()
+        .setConnectTimeout((int) TimeUnit.SECONDS.toMillis(connection.getOpenTimeout()))
+        .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(connection.getReadTimeout()))
+        .build();
+    return new Transport(server, sslContext, config);
+  }
+
+  /**
+   * Opens the HTTP clients of this transport.
+   *
+   * @return the clients
+   * @throws VaultException if the I/O reactor of the asynchronous client cannot be created
+   */
+  private Clients open() throws VaultException {
+    SSLConnectionSocketFactory sslSocketFactory = this.sslVerify
+        ? new SSLConnectionSocketFactory(this.sslContext)
+        : new SSLConnectionSocketFactory(this.sslContext, NoopHostnameVerifier.INSTANCE);
+    Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", sslSocketFactory)
+        .build();
+    PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry);
+    manager.setMaxTotal(this.connection.getMaxConnections());
+    manager.setDefaultMaxPerRoute(this.connection.getMaxConnections());
+    Registry<SchemeIOSessionStrategy> strategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+        .register("http", NoopIOSessionStrategy.INSTANCE)
+        .register("https", this.sslVerify
+            ? new SSLIOSessionStrategy(this.sslContext, SSLIOSessionStrategy.getDefaultHostnameVerifier())
+            : new SSLIOSessionStrategy(this.sslContext, NoopHostnameVerifier.INSTANCE))
+        .build();
+    PoolingNHttpClientConnectionManager asyncManager;
+    try {
+      asyncManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.custom()
+          .setIoThreadCount(IO_THREADS)
+          .build(), daemon("vault-io")), strategies);
+    } catch (IOReactorException exception) {
+      throw new VaultException(exception);
+    }
+    asyncManager.setMaxTotal(this.connection.getMaxConnections());
+    asyncManager.setDefaultMaxPerRoute(this.connection.getMaxConnections());
+    CloseableHttpAsyncClient asyncClient = HttpAsyncClients.custom()
+        .setConnectionManager(asyncManager)
+        .setDefaultRequestConfig(this.config)
+        .setThreadFactory(daemon("vault-reactor"))
+        .disableCookieManagement()
+        .setUserAgent("vault-maven-plugin")
+        .build();
+    CloseableHttpClient client = HttpClients.custom()
+        .setConnectionManager(manager)
+        .setDefaultRequestConfig(this.config)
+        .disableAutomaticRetries()
+        .disableCookieManagement()
+        .setUserAgent("vault-maven-plugin")
+        .build();
+    return new Clients(client, manager, asyncClient, asyncManager);
+  }
+
+  /**
+   * Creates a factory of daemon threads, which never keep the build running.
+   *
+   * @param name the prefix of the names of the threads
+   * @return the factory
+   */
+  private static ThreadFactory daemon(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, String.format("%s-%d", name, count.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Gets the number of milliseconds to wait before retrying a request.
+   *
+   * <p>The delay grows exponentially from the initial delay with each attempt and is randomized between half and all
+   * of that value so that clients retrying together spread out.  It is never less than the delay requested by the
+   * server nor more than the maximum delay.
+   *
+   * @param retry the retry settings
+   * @param attempt the number of the attempt that failed, starting at one
+   * @param retryAfter the number of milliseconds the server asked clients to wait or zero
+   * @return the delay
+   */
+  static long delay(Retry retry, int attempt, long retryAfter) {
+    long ceiling = Math.min(retry.getMaximumDelay(), retry.getInitialDelay() << Math.min(attempt - 1, 30));
+    long delay = ceiling <= 1 ? ceiling : ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    return Math.min(retry.getMaximumDelay(), Math.max(delay, retryAfter));
+  }
+
+  /**
+   * Parses a {@code Retry-After} header given either as a number of seconds or as a date.
+   *
+   * @param header the header or {@code null}
+   * @return the number of milliseconds to wait or zero if there is no valid header
+   */
+  static long retryAfter(Header header) {
+    if (header == null) {
+      return 0;
+    }
+    String value = header.getValue().trim();
+    try {
+      return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+    } catch (NumberFormatException exception) {
+      Date date = DateUtils.parseDate(value);
+      return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Waits before retrying a request.
+   *
+   * @param millis the number of milliseconds to wait
+   * @throws VaultException if the wait is interrupted
+   */
+  private static void pause(long millis) throws VaultException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Gets the shared SSL context for a PEM file, creating it on first use.
+   *
+   * <p>Contexts are shared by every transport in the JVM so that each PEM file is read once and TLS sessions cached by
+   * a context can be resumed by every connection to the same host.  A PEM file that is modified is read again, and a
+   * context is dropped once no shared transport uses it.
+   *
+   * @param certificate the PEM file or {@code null} to trust the default trust store
+   * @param verify {@code false} to trust every certificate instead
+   * @return the SSL context
+   * @throws VaultException if the certificates cannot be loaded
+   */
+  static SSLContext sslContext(File certificate, boolean verify) throws VaultException {
+    List<Object> key = sslKey(certificate, verify);
+    SSLContext context = SSL_CONTEXTS.get(key);
+    if (context == null) {
+      synchronized (SSL_CONTEXTS) {
+        context = SSL_CONTEXTS.get(key);
+        if (context == null) {
+          context = verify ? load(certificate) : trustAll();
+          SSL_CONTEXTS.put(key, context);
+        }
+      }
+    }
+    return context;
+  }
+
+  /**
+   * Identifies the SSL context for a PEM file.
+   *
+   * @param certificate the PEM file or {@code null}
+   * @param verify {@code false} if every certificate is trusted
+   * @return the key of the SSL context
+   */
+  private static List<Object> sslKey(File certificate, boolean verify) {
+    return Arrays.asList(verify, verify ? stamp(certificate) : stamp(null));
+  }
+
+  /**
+   * Identifies the content of a PEM file by its path, modification time and length.
+   *
+   * @param certificate the PEM file or {@code null}
+   * @return the identity, which is empty if there is no file
+   */
+  private static List<Object> stamp(File certificate) {
+    return certificate == null
+        ? Collections.emptyList()
+        : Arrays.asList(certificate.getAbsolutePath(), certificate.lastModified(), certificate.length());
+  }
+
+  /**
+   * Creates an SSL context that trusts the certificates in a PEM file or, if there is no file, the default trust store.
+   *
+   * @param certificate the PEM file or {@code null}
+   * @return the SSL context
+   * @throws VaultException if the certificates cannot be loaded
+   */
+  private static SSLContext load(File certificate) throws VaultException {
+    if (certificate == null) {
+      return SSLContexts.createSystemDefault();
+    }
+    try (InputStream input = new FileInputStream(certificate)) {
+      KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+      keyStore.load(null, null);
+      int index = 0;
+      for (Certificate entry : CertificateFactory.getInstance("X.509").generateCertificates(input)) {
+        keyStore.setCertificateEntry(String.format("vault-%d", index++), entry);
+      }
+      return SSLContexts.custom().loadTrustMaterial(keyStore, null).build();
+    } catch (IOException | GeneralSecurityException exception) {
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Creates an SSL context that trusts every certificate.
+   *
+   * @return the SSL context
+   * @throws VaultException if the SSL context cannot be created
+   */
+  private static SSLContext trustAll() throws VaultException {
+    try {
+      return SSLContexts.custom().loadTrustMaterial(TrustAllStrategy.INSTANCE).build();
+    } catch (GeneralSecurityException exception) {
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Makes the attempts to execute a request asynchronously.
+   */
+  private final class Attempt implements FutureCallback<HttpResponse> {
+
+    private final Clients clients;
+
+    private final HttpRequestBase request;
+
+    private final Deadline deadline;
+
+    private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+    private volatile int number;
+
+    private volatile boolean resent;
+
+    private volatile ScheduledFuture<?> expiry;
+
+    /**
+     * Initializes a new instance of the {@link Attempt} class.
+     *
+     * @param clients the HTTP clients
+     * @param request the request
+     * @param deadline the deadline
+     */
+    private Attempt(Clients clients, HttpRequestBase request, Deadline deadline) {
+      this.clients = clients;
+      this.request = request;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Starts the next attempt, or queues it in the throttle until another attempt completes.
+     */
+    private void start() {
+      this.number++;
+      if (Transport.this.throttle.acquire(() -> SCHEDULER.execute(this::send))) {
+        send();
+      }
+    }
+
+    /**
+     * Sends an attempt admitted by the throttle.
+     */
+    private void send() {
+      try {
+        this.deadline.check();
+        Transport.this.breaker.acquire();
+      } catch (VaultException exception) {
+        Transport.this.throttle.release();
+        this.result.completeExceptionally(exception);
+        return;
+      }
+      try {
+        configure(this.request, this.deadline);
+        Future<HttpResponse> exchange = this.clients.async().execute(this.request, this);
+        this.expiry = expire(this.deadline, () -> exchange.cancel(true));
+        if (exchange.isDone()) {
+          settled();
+        }
+      } catch (RuntimeException exception) {
+        Transport.this.breaker.release();
+        Transport.this.throttle.release();
+        this.result.completeExceptionally(exception);
+      }
+    }
+
+    @Override
+    public void completed(HttpResponse response) {
+      settled();
+      this.resent = false;
+      int status = response.getStatusLine().getStatusCode();
+      byte[] body;
+      try {
+        HttpEntity entity = response.getEntity();
+        body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+      } catch (IOException exception) {
+        failed(exception);
+        return;
+      }
+      if (!RETRYABLE.contains(status)) {
+        Transport.this.breaker.success();
+        Transport.this.throttle.success();
+        this.result.complete(new Response(status, body));
+        return;
+      }
+      Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+      retryable(status, header);
+      if (this.number >= Transport.this.retry.getAttempts()) {
+        this.result.complete(new Response(status, body));
+        return;
+      }
+      retry(retryAfter(header));
+    }
+
+    @Override
+    public void failed(Exception exception) {
+      settled();
+      Transport.this.throttle.release();
+      if (exception instanceof ConnectionClosedException && !this.resent
+          && !(this.request instanceof HttpEntityEnclosingRequest)) {
+        this.resent = true;
+        this.number--;
+        Transport.this.breaker.release();
+        SCHEDULER.execute(this::start);
+        return;
+      }
+      if (this.deadline.remaining() <= 0) {
+        Transport.this.breaker.release();
+        this.result.completeExceptionally(this.deadline.exceeded());
+        return;
+      }
+      Transport.this.breaker.failure();
+      if (this.number >= Transport.this.retry.getAttempts()) {
+        this.result.completeExceptionally(new VaultException(exception));
+        return;
+      }
+      retry(0);
+    }
+
+    @Override
+    public void cancelled() {
+      settled();
+      Transport.this.breaker.release();
+      Transport.this.throttle.release();
+      this.result.completeExceptionally(this.deadline.remaining() <= 0
+          ? this.deadline.exceeded()
+          : new VaultException("Request to Vault was cancelled"));
+    }
+
+    /**
+     * Cancels the abort scheduled for the deadline once the exchange of the current attempt has ended.
+     */
+    private void settled() {
+      ScheduledFuture<?> expiry = this.expiry;
+      if (expiry != null) {
+        expiry.cancel(false);
+      }
+    }
+
+    /**
+     * Schedules the next attempt after the backoff delay.
+     *
+     * @param retryAfter the number of milliseconds the server asked clients to wait or zero
+     */
+    private void retry(long retryAfter) {
+      long delay = delay(Transport.this.retry, this.number, retryAfter);
+      if (delay >= this.deadline.remaining()) {
+        this.result.completeExceptionally(this.deadline.exceeded());
+        return;
+      }
+      SCHEDULER.schedule(this::start, delay, TimeUnit.MILLISECONDS);
+    }
+
+  }
+
+  /**
+   * Holds the HTTP clients of a transport and their connection pools while they are open.
+   */
+  private static final class Clients {
+
+    private final CloseableHttpClient client;
+
+    private final PoolingHttpClientConnectionManager manager;
+
+    private final CloseableHttpAsyncClient asyncClient;
+
+    private final PoolingNHttpClientConnectionManager asyncManager;
+
+    private ScheduledFuture<?> maintenance;
+
+    /**
+     * Initializes a new instance of the {@link Clients} class.
+     *
+     * @param client the HTTP client
+     * @param manager the connection manager of the HTTP client
+     * @param asyncClient the asynchronous HTTP client, which is not yet started
+     * @param asyncManager the connection manager of the asynchronous HTTP client
+     */
+    private Clients(CloseableHttpClient client, PoolingHttpClientConnectionManager manager,
+                    CloseableHttpAsyncClient asyncClient, PoolingNHttpClientConnectionManager asyncManager) {
+      this.client = client;
+      this.manager = manager;
+      this.asyncClient = asyncClient;
+      this.asyncManager = asyncManager;
+    }
+
+    /**
+     * Gets the asynchronous HTTP client, starting its I/O threads on first use.
+     *
+     * @return the client
+     */
+    private synchronized CloseableHttpAsyncClient async() {
+      if (!this.asyncClient.isRunning()) {
+        this.asyncClient.start();
+      }
+      return this.asyncClient;
+    }
+
+    /**
+     * Closes pooled connections that have expired or have not been used for a number of seconds.
+     *
+     * @param idleTimeout the number of seconds
+     */
+    private synchronized void closeIdleConnections(long idleTimeout) {
+      this.manager.closeExpiredConnections();
+      this.manager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+      if (this.asyncClient.isRunning()) {
+        this.asyncManager.closeExpiredConnections();
+        this.asyncManager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+      }
+    }
+
+    /**
+     * Closes the clients, their connection pools and their threads.
+     */
+    private synchronized void close() {
+      for (Closeable closeable : new Closeable[] { this.client, this.asyncClient }) {
+        try {
+          closeable.close();
+        } catch (IOException exception) {
+          continue;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Represents a complete response from a Vault server.
+   */
+  public static final class Response {
+
+    private final int status;
+
+    private final byte[] body;
+
+    /**
+     * Initializes a new instance of the {@link Response} class.
+     *
+     * @param status the HTTP status code
+     * @param body the body
+     */
+    public Response(int status, byte[] body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    /**
+     * Gets the HTTP status code of this response.
+     *
+     * @return the status code
+     */
+    public int getStatus() {
+      return this.status;
+    }
+
+    /**
+     * Gets the body of this response.
+     *
+     * @return the body
+     */
+    public byte[] getBody() {
+      return this.body;
+    }
+
+  }
+
+}
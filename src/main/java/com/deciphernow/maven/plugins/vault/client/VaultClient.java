@@ -0,0 +1,614 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+import com.bettercloud.vault.json.Json;
+import com.bettercloud.vault.json.JsonObject;
+import com.bettercloud.vault.json.JsonValue;
+import com.bettercloud.vault.json.ParseException;
+import com.deciphernow.maven.plugins.vault.cache.Secret;
+import com.deciphernow.maven.plugins.vault.cache.Token;
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provides the logical operations used by the plugin against a single Vault server.
+ *
+ * <p>Paths are always given as they appear in the plugin configuration, for example {@code secret/user}.  When the
+ * server uses version 2 of the key/value secrets engine the client translates them to the {@code data} and
+ * {@code metadata} endpoints of the engine mounted at the first segment of the path.
+ */
+public final class VaultClient {
+
+  private static final String TOKEN_HEADER = "X-Vault-Token";
+
+  private static final ContentType MERGE_PATCH = ContentType.create("application/merge-patch+json",
+      StandardCharsets.UTF_8);
+
+  private static final String CAS_MISMATCH = "check-and-set parameter did not match";
+
+  private final Transport transport;
+
+  private final String token;
+
+  private final int kvVersion;
+
+  private final Deadline deadline;
+
+  private final Metrics metrics;
+
+  /**
+   * Initializes a new instance of the {@link VaultClient} class.
+   *
+   * @param transport the transport
+   * @param token the token
+   * @param kvVersion the version of the key/value secrets engine
+   * @param deadline the deadline for every request made by the client
+   */
+  public VaultClient(Transport transport, String token, int kvVersion, Deadline deadline) {
+    this(transport, token, kvVersion, deadline, Metrics.NONE);
+  }
+
+  /**
+   * Initializes a new instance of the {@link VaultClient} class.
+   *
+   * @param transport the transport
+   * @param token the token
+   * @param kvVersion the version of the key/value secrets engine
+   * @param deadline the deadline for every request made by the client
+   * @param metrics the metrics recording every request made by the client
+   */
+  public VaultClient(Transport transport, String token, int kvVersion, Deadline deadline, Metrics metrics) {
+    this.transport = transport;
+    this.token = token;
+    this.kvVersion = kvVersion;
+    this.deadline = deadline;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Returns a client for a server that uses the shared transport of the server.
+   *
+   * @param server the server
+   * @return the client
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  public static VaultClient of(Server server) throws VaultException {
+    return of(server, Deadline.NONE);
+  }
+
+  /**
+   * Returns a client for a server that uses the shared transport of the server and completes requests by a deadline.
+   *
+   * @param server the server
+   * @param deadline the deadline
+   * @return the client
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  public static VaultClient of(Server server, Deadline deadline) throws VaultException {
+    return of(server, deadline, Metrics.NONE);
+  }
+
+  /**
+   * Returns a client for a server that uses the shared transport of the server, completes requests by a deadline and
+   * records them in metrics.
+   *
+   * @param server the server
+   * @param deadline the deadline
+   * @param metrics the metrics
+   * @return the client
+   * @throws VaultException if the SSL configuration of the server cannot be loaded
+   */
+  public static VaultClient of(Server server, Deadline deadline, Metrics metrics) throws VaultException {
+    return new VaultClient(Transport.of(server), server.getToken(), server.getKvVersion(), deadline, metrics);
+  }
+
+  /**
+   * Reads the secrets and lease of a version of a path asynchronously.
+   *
+   * @param path the path
+   * @param version the version or zero to read the latest version
+   * @return the secret, or an exception if one is thrown connecting to vault or the version does not exist
+   */
+  public CompletableFuture<Secret> readAsync(String path, int version) {
+    return Futures.then(findAsync(path, version), VaultClient::found);
+  }
+
+  /**
+   * Reads the secrets and lease of a version of a path asynchronously if the version exists.
+   *
+   * <p>A version deleted with version 2 of the key/value engine is returned as a deleted secret without data, so that
+   * a new version can be written with check-and-set.
+   *
+   * @param path the path
+   * @param version the version or zero to read the latest version
+   * @return the secret, which may be deleted, or {@code null} if the version does not exist, or an exception if one is
+   *     thrown connecting to vault or the path is not versioned
+   */
+  public CompletableFuture<Secret> findAsync(String path, int version) {
+    try {
+      return Futures.then(executeAsync("read", path, new HttpGet(dataUri(path, version))), this::secret);
+    } catch (VaultException exception) {
+      return Futures.failed(exception);
+    }
+  }
+
+  /**
+   * Interprets the response to a read.
+   *
+   * @param response the response
+   * @return the secret, which is deleted if the version was deleted, or {@code null} if the path does not exist
+   * @throws VaultException if the server responded with an error
+   */
+  private Secret secret(Transport.Response response) throws VaultException {
+    if (response.getStatus() == 404) {
+      return deleted(response);
+    }
+    if (response.getStatus() != 200) {
+      throw status(response);
+    }
+    JsonObject json = parse(response);
+    long leaseDuration = json.getLong("lease_duration", 0);
+    if (this.kvVersion < 2) {
+      return new Secret(strings(json.get("data")), leaseDuration);
+    }
+    JsonObject data = object(json.get("data"));
+    return new Secret(strings(data.get("data")), leaseDuration, object(data.get("metadata")).getLong("version", 0));
+  }
+
+  /**
+   * Interprets a response to a read that found no secrets, which carries the metadata of the version if it was deleted
+   * with version 2 of the key/value engine.
+   *
+   * @param response the response
+   * @return the deleted secret or {@code null} if the version does not exist
+   */
+  private Secret deleted(Transport.Response response) {
+    if (this.kvVersion < 2) {
+      return null;
+    }
+    JsonObject json;
+    try {
+      json = parse(response);
+    } catch (VaultException exception) {
+      return null;
+    }
+    long version = object(object(json.get("data")).get("metadata")).getLong("version", 0);
+    return version > 0 ? new Secret(null, 0, version, true) : null;
+  }
+
+  /**
+   * Lists the keys beneath a path asynchronously.
+   *
+   * @param path the path
+   * @return the keys or an empty list if the path does not exist, or an exception if one is thrown connecting to vault
+   */
+  public CompletableFuture<List<String>> listAsync(String path) {
+    return Futures.then(executeAsync("list", path, new HttpGet(listUri(path))), VaultClient::keys);
+  }
+
+  /**
+   * Interprets the response to a listing.
+   *
+   * @param response the response
+   * @return the keys or an empty list if the path does not exist
+   * @throws VaultException if the server responded with an error
+   */
+  private static List<String> keys(Transport.Response response) throws VaultException {
+    if (response.getStatus() == 404) {
+      return Collections.emptyList();
+    }
+    if (response.getStatus() != 200) {
+      throw status(response);
+    }
+    JsonValue keys = object(parse(response).get("data")).get("keys");
+    List<String> result = new ArrayList<>();
+    if (keys != null && keys.isArray()) {
+      keys.asArray().forEach(key -> result.add(key.asString()));
+    }
+    return result;
+  }
+
+  /**
+   * Applies changed secrets to a path that was previously read asynchronously.
+   *
+   * <p>With version 1 of the key/value engine the changes are merged with the existing secrets and the whole secret is
+   * written.  With version 2 only the changed keys are sent, as a patch of the existing secret or as a new secret,
+   * using check-and-set against the version that was read so that concurrent writers cannot silently overwrite each
+   * other.  Servers that do not support patching, and tokens whose policies do not grant the {@code patch} capability,
+   * receive a check-and-set write of the merged secrets instead, as does a path whose latest version was deleted.
+   *
+   * @param path the path
+   * @param existing the secret previously read from the path, which may be deleted, or {@code null} if the path did not
+   *     exist
+   * @param changes the keys and values to change
+   * @return {@code true} if the changes were applied or {@code false} if the path was modified since it was read, or
+   *     an exception if one is thrown connecting to vault
+   */
+  public CompletableFuture<Boolean> updateAsync(String path, Secret existing, Map<String, String> changes) {
+    Map<String, String> merged = merge(existing, changes);
+    if (this.kvVersion < 2) {
+      JsonObject body = json(merged);
+      return Futures.then(executeAsync("write", path, entity(new HttpPost(), path, body,
+          ContentType.APPLICATION_JSON)), response -> {
+            written(response);
+            return true;
+          });
+    }
+    CompletableFuture<Transport.Response> patched = existing == null || existing.isDeleted()
+        ? CompletableFuture.completedFuture(null)
+        : executeAsync("patch", path, patch(path, existing, changes));
+    return Futures.then(patched.thenCompose(response ->
+        response == null || response.getStatus() == 403 || response.getStatus() == 404
+            || response.getStatus() == 405
+            ? executeAsync("write", path, checkAndSet(path, existing, merged))
+            : CompletableFuture.completedFuture(response)), VaultClient::updated);
+  }
+
+  /**
+   * Logs in to Vault with an auth method.
+   *
+   * @param authentication the auth method and its credentials
+   * @return the client token
+   * @throws VaultException if an exception is thrown connecting to vault or the credentials are rejected
+   */
+  public Token login(Authentication authentication) throws VaultException {
+    String path = String.format("auth/%s/login", authentication.getMount());
+    JsonObject body = new JsonObject();
+    if (Authentication.APPROLE.equals(authentication.getMethod())) {
+      body.add("role_id", authentication.getRoleId());
+      if (authentication.getSecretId() != null) {
+        body.add("secret_id", authentication.getSecretId());
+      }
+    } else if (Authentication.KUBERNETES.equals(authentication.getMethod())) {
+      body.add("role", authentication.getRole()).add("jwt", jwt(authentication));
+    } else if (Authentication.USERPASS.equals(authentication.getMethod())) {
+      path = String.format("%s/%s", path, authentication.getUsername());
+      body.add("password", authentication.getPassword());
+    } else {
+      throw new VaultException(String.format("Unsupported Vault auth method: %s", authentication.getMethod()));
+    }
+    HttpPost request = new HttpPost(this.transport.uri(path));
+    request.setEntity(new ByteArrayEntity(body.toString().getBytes(StandardCharsets.UTF_8),
+        ContentType.APPLICATION_JSON));
+    Transport.Response response = execute("login", path, request);
+    if (response.getStatus() != 200) {
+      throw status(response);
+    }
+    JsonObject auth = object(parse(response).get("auth"));
+    JsonValue token = auth.get("client_token");
+    if (token == null || !token.isString()) {
+      throw new VaultException(String.format("Vault login to %s did not return a client token", path));
+    }
+    return new Token(token.asString(), auth.getLong("lease_duration", 0), auth.getBoolean("renewable", false));
+  }
+
+  /**
+   * Looks up the token of this client.
+   *
+   * @return the token with its remaining time to live
+   * @throws VaultException if an exception is thrown connecting to vault or the token is not valid
+   */
+  public Token lookupSelf() throws VaultException {
+    Transport.Response response = execute("lookup", "auth/token/lookup-self",
+        new HttpGet(this.transport.uri("auth/token/lookup-self")));
+    if (response.getStatus() != 200) {
+      throw status(response);
+    }
+    JsonObject data = object(parse(response).get("data"));
+    return new Token(this.token, data.getLong("ttl", 0), data.getBoolean("renewable", false));
+  }
+
+  /**
+   * Renews the token of this client.
+   *
+   * @return the token with its new lease duration
+   * @throws VaultException if an exception is thrown connecting to vault or the token cannot be renewed
+   */
+  public Token renewSelf() throws VaultException {
+    HttpPost request = new HttpPost(this.transport.uri("auth/token/renew-self"));
+    request.setEntity(new ByteArrayEntity("{}".getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+    Transport.Response response = execute("renew", "auth/token/renew-self", request);
+    if (response.getStatus() != 200) {
+      throw status(response);
+    }
+    JsonObject auth = object(parse(response).get("auth"));
+    return new Token(this.token, auth.getLong("lease_duration", 0), auth.getBoolean("renewable", false));
+  }
+
+  /**
+   * Merges changed secrets into the secrets previously read from a path.
+   *
+   * @param existing the secret previously read from the path, which may be deleted, or {@code null} if the path did not
+   *     exist
+   * @param changes the keys and values to change
+   * @return the merged secrets
+   */
+  private static Map<String, String> merge(Secret existing, Map<String, String> changes) {
+    Map<String, String> merged = new HashMap<>();
+    if (existing != null) {
+      merged.putAll(existing.getData());
+    }
+    merged.putAll(changes);
+    return merged;
+  }
+
+  /**
+   * Prepares a patch of the changed keys of a secret, checked against the version that was read.
+   *
+   * @param path the path
+   * @param existing the secret previously read from the path
+   * @param changes the keys and values to change
+   * @return the request
+   */
+  private HttpRequestBase patch(String path, Secret existing, Map<String, String> changes) {
+    JsonObject patch = new JsonObject().add("data", json(changes))
+        .add("options", new JsonObject().add("cas", existing.getVersion()));
+    return entity(new HttpPatch(), path, patch, MERGE_PATCH);
+  }
+
+  /**
+   * Prepares a write of a whole secret, checked against the version that was read.
+   *
+   * @param path the path
+   * @param existing the secret previously read from the path, which may be deleted, or {@code null} if the path did not
+   *     exist
+   * @param merged the secrets to write
+   * @return the request
+   */
+  private HttpRequestBase checkAndSet(String path, Secret existing, Map<String, String> merged) {
+    JsonObject body = new JsonObject().add("data", json(merged))
+        .add("options", new JsonObject().add("cas", existing == null ? 0 : existing.getVersion()));
+    return entity(new HttpPost(), path, body, ContentType.APPLICATION_JSON);
+  }
+
+  /**
+   * Interprets the response to a check-and-set update.
+   *
+   * @param response the response
+   * @return {@code true} if the changes were applied; {@code false} if the path was modified since it was read
+   * @throws VaultException if the server responded with any other error
+   */
+  private static boolean updated(Transport.Response response) throws VaultException {
+    if (response.getStatus() == 400
+        && new String(response.getBody(), StandardCharsets.UTF_8).contains(CAS_MISMATCH)) {
+      return false;
+    }
+    written(response);
+    return true;
+  }
+
+  /**
+   * Checks the response to a write.
+   *
+   * @param response the response
+   * @throws VaultException if the server responded with an error
+   */
+  private static void written(Transport.Response response) throws VaultException {
+    if (response.getStatus() != 200 && response.getStatus() != 204) {
+      throw status(response);
+    }
+  }
+
+  /**
+   * Throws unless a secret was found.
+   *
+   * @param secret the secret or {@code null}
+   * @return the secret
+   * @throws VaultException if the secret is {@code null} or deleted
+   */
+  private static Secret found(Secret secret) throws VaultException {
+    if (secret == null || secret.isDeleted()) {
+      throw new VaultException("Vault responded with HTTP status code: 404", 404);
+    }
+    return secret;
+  }
+
+  /**
+   * Gets the URI of a version of the secrets at a path.
+   *
+   * @param path the path
+   * @param version the version or zero for the latest version
+   * @return the URI
+   * @throws VaultException if a version is given and the key/value engine is not versioned
+   */
+  private String dataUri(String path, int version) throws VaultException {
+    String uri = this.transport.uri(endpoint(path, "data"));
+    if (version <= 0) {
+      return uri;
+    }
+    if (this.kvVersion < 2) {
+      throw new VaultException(String.format(
+          "Version %d of path %s cannot be read because version 1 of the key/value engine is not versioned",
+          version, path));
+    }
+    return String.format("%s?version=%d", uri, version);
+  }
+
+  /**
+   * Gets the URI listing the keys beneath a path.
+   *
+   * @param path the path
+   * @return the URI
+   */
+  private String listUri(String path) {
+    return String.format("%s?list=true", this.transport.uri(endpoint(path, "metadata")));
+  }
+
+  /**
+   * Gets the API path of a configured path, translating it to an endpoint of version 2 of the key/value engine.
+   *
+   * @param path the configured path
+   * @param endpoint the version 2 endpoint, either {@code data} or {@code metadata}
+   * @return the API path
+   */
+  private String endpoint(String path, String endpoint) {
+    if (this.kvVersion < 2) {
+      return path;
+    }
+    int separator = path.indexOf('/');
+    return separator < 0
+        ? String.format("%s/%s", path, endpoint)
+        : String.format("%s/%s%s", path.substring(0, separator), endpoint, path.substring(separator));
+  }
+
+  /**
+   * Prepares a request carrying a JSON body to the data endpoint of a path.
+   *
+   * @param request the request
+   * @param path the path
+   * @param body the body
+   * @param contentType the content type of the body
+   * @return the request
+   */
+  private HttpEntityEnclosingRequestBase entity(HttpEntityEnclosingRequestBase request, String path, JsonObject body,
+                                                ContentType contentType) {
+    request.setURI(URI.create(this.transport.uri(endpoint(path, "data"))));
+    request.setEntity(new ByteArrayEntity(body.toString().getBytes(StandardCharsets.UTF_8), contentType));
+    return request;
+  }
+
+  /**
+   * Executes a request authenticated with the token of this client and records it in the metrics of this client.
+   *
+   * @param operation the operation
+   * @param path the configured path the request is made for
+   * @param request the request
+   * @return the response
+   * @throws VaultException if an exception is thrown communicating with the server
+   */
+  private Transport.Response execute(String operation, String path, HttpRequestBase request) throws VaultException {
+    if (this.token != null) {
+      request.setHeader(TOKEN_HEADER, this.token);
+    }
+    return this.transport.execute(request, this.deadline, this.metrics, operation, path);
+  }
+
+  /**
+   * Executes a request asynchronously, authenticated with the token of this client and recorded in the metrics of this
+   * client.
+   *
+   * @param operation the operation
+   * @param path the configured path the request is made for
+   * @param request the request
+   * @return the response
+   */
+  private CompletableFuture<Transport.Response> executeAsync(String operation, String path, HttpRequestBase request) {
+    if (this.token != null) {
+      request.setHeader(TOKEN_HEADER, this.token);
+    }
+    return this.transport.executeAsync(request, this.deadline, this.metrics, operation, path);
+  }
+
+  /**
+   * Reads the service account token used by the Kubernetes auth method.
+   *
+   * @param authentication the auth method
+   * @return the service account token
+   * @throws VaultException if the token cannot be read
+   */
+  private static String jwt(Authentication authentication) throws VaultException {
+    try {
+      return new String(Files.readAllBytes(authentication.getJwtFile().toPath()), StandardCharsets.UTF_8).trim();
+    } catch (IOException exception) {
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Parses the body of a response as a JSON object.
+   *
+   * @param response the response
+   * @return the object
+   * @throws VaultException if the body is not a JSON object
+   */
+  private static JsonObject parse(Transport.Response response) throws VaultException {
+    try {
+      return Json.parse(new String(response.getBody(), StandardCharsets.UTF_8)).asObject();
+    } catch (ParseException | UnsupportedOperationException exception) {
+      throw new VaultException(exception);
+    }
+  }
+
+  /**
+   * Returns a JSON value as an object.
+   *
+   * @param value the value
+   * @return the object or an empty object if the value is not an object
+   */
+  private static JsonObject object(JsonValue value) {
+    return value != null && value.isObject() ? value.asObject() : new JsonObject();
+  }
+
+  /**
+   * Converts a map of strings to a JSON object.
+   *
+   * @param secrets the map
+   * @return the object
+   */
+  private static JsonObject json(Map<String, String> secrets) {
+    JsonObject json = new JsonObject();
+    secrets.forEach(json::add);
+    return json;
+  }
+
+  /**
+   * Converts a JSON object to a map of strings, rendering values that are not strings as JSON.
+   *
+   * @param value the object
+   * @return the map or an empty map if the value is not an object
+   */
+  private static Map<String, String> strings(JsonValue value) {
+    Map<String, String> result = new HashMap<>();
+    for (JsonObject.Member member : object(value)) {
+      JsonValue memberValue = member.getValue();
+      result.put(member.getName(), memberValue.isString() ? memberValue.asString() : memberValue.toString());
+    }
+    return result;
+  }
+
+  /**
+   * Creates an exception describing an unexpected response status.
+   *
+   * @param response the response
+   * @return the exception
+   */
+  private static VaultException status(Transport.Response response) {
+    return new VaultException(String.format("Vault responded with HTTP status code: %d", response.getStatus()),
+        response.getStatus());
+  }
+
+}
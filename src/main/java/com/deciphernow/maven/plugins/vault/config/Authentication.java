@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Represents the auth method used to log in to a Vault server instead of a static token.
+ *
+ * <p>The {@code approle} method uses the role ID and secret ID, the {@code kubernetes} method uses the role and the
+ * service account token in the JWT file, and the {@code userpass} method uses the username and password.
+ */
+public class Authentication implements Serializable {
+
+  /**
+   * Defines the AppRole auth method.
+   */
+  public static final String APPROLE = "approle";
+
+  /**
+   * Defines the Kubernetes auth method.
+   */
+  public static final String KUBERNETES = "kubernetes";
+
+  /**
+   * Defines the username and password auth method.
+   */
+  public static final String USERPASS = "userpass";
+
+  /**
+   * Defines the default file holding the service account token used by the Kubernetes auth method.
+   */
+  public static final File DEFAULT_JWT_FILE = new File("/var/run/secrets/kubernetes.io/serviceaccount/token");
+
+  private String method;
+
+  private String mount;
+
+  private String roleId;
+
+  private String secretId;
+
+  private String role;
+
+  private File jwtFile = DEFAULT_JWT_FILE;
+
+  private String username;
+
+  private String password;
+
+  /**
+   * Initializes a new instance of the {@link Authentication} class.
+   */
+  public Authentication() { }
+
+  /**
+   * Initializes a new instance of the {@link Authentication} class.
+   *
+   * @param method the auth method, one of {@code approle}, {@code kubernetes} or {@code userpass}
+   * @param mount the path the auth method is mounted at or {@code null} to use the name of the method
+   * @param roleId the role ID for the AppRole method
+   * @param secretId the secret ID for the AppRole method
+   * @param role the role for the Kubernetes method
+   * @param jwtFile the service account token file for the Kubernetes method
+   * @param username the username for the userpass method
+   * @param password the password for the userpass method
+   */
+  public Authentication(String method, String mount, String roleId, String secretId, String role, File jwtFile,
+                        String username, String password) {
+    this.method = method;
+    this.mount = mount;
+    this.roleId = roleId;
+    this.secretId = secretId;
+    this.role = role;
+    this.jwtFile = jwtFile;
+    this.username = username;
+    this.password = password;
+  }
+
+  /**
+   * Gets the auth method.
+   *
+   * @return the method
+   */
+  public String getMethod() {
+    return this.method;
+  }
+
+  /**
+   * Gets the path the auth method is mounted at.
+   *
+   * @return the mount or the name of the method if no mount is configured
+   */
+  public String getMount() {
+    return this.mount == null || this.mount.isEmpty() ? this.method : this.mount;
+  }
+
+  /**
+   * Gets the role ID for the AppRole method.
+   *
+   * @return the role ID
+   */
+  public String getRoleId() {
+    return this.roleId;
+  }
+
+  /**
+   * Gets the secret ID for the AppRole method.
+   *
+   * @return the secret ID
+   */
+  public String getSecretId() {
+    return this.secretId;
+  }
+
+  /**
+   * Gets the role for the Kubernetes method.
+   *
+   * @return the role
+   */
+  public String getRole() {
+    return this.role;
+  }
+
+  /**
+   * Gets the service account token file for the Kubernetes method.
+   *
+   * @return the file
+   */
+  public File getJwtFile() {
+    return this.jwtFile;
+  }
+
+  /**
+   * Gets the username for the userpass method.
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return this.username;
+  }
+
+  /**
+   * Gets the password for the userpass method.
+   *
+   * @return the password
+   */
+  public String getPassword() {
+    return this.password;
+  }
+
+  /**
+   * Returns a hash code value for this authentication.
+   *
+   * @return the hash code
+   */
+  public int hashCode() {
+    return Objects.hash(this.method, this.mount, this.roleId, this.secretId, this.role, this.jwtFile, this.username,
+        this.password);
+  }
+
+  /**
+   * Returns a value indicating whether this authentication is equal to another object.
+   *
+   * @return {@code true} if the this authentication is equal to the object; otherwise, {@code false}
+   */
+  public boolean equals(Object object) {
+    if (object instanceof Authentication) {
+      Authentication that = (Authentication) object;
+      return Objects.equals(this.method, that.method)
+          && Objects.equals(this.mount, that.mount)
+          && Objects.equals(this.roleId, that.roleId)
+          && Objects.equals(this.secretId, that.secretId)
+          && Objects.equals(this.role, that.role)
+          && Objects.equals(this.jwtFile, that.jwtFile)
+          && Objects.equals(this.username, that.username)
+          && Objects.equals(this.password, that.password);
+    }
+    return false;
+  }
+
+}
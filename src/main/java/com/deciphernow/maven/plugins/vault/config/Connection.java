@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Represents the HTTP connection settings used to communicate with a Vault server.
+ */
+public class Connection implements Serializable {
+
+  /**
+   * Defines the default maximum number of pooled connections to a server.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+  /**
+   * Defines the default number of seconds an unused pooled connection is kept open.
+   */
+  public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+  /**
+   * Defines the default number of seconds allowed to open a connection.
+   */
+  public static final int DEFAULT_OPEN_TIMEOUT = 5;
+
+  /**
+   * Defines the default number of seconds allowed between packets when reading a response.
+   */
+  public static final int DEFAULT_READ_TIMEOUT = 30;
+
+  private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+  private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+  private int openTimeout = DEFAULT_OPEN_TIMEOUT;
+
+  private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+  /**
+   * Initializes a new instance of the {@link Connection} class.
+   */
+  public Connection() { }
+
+  /**
+   * Initializes a new instance of the {@link Connection} class.
+   *
+   * @param maxConnections the maximum number of pooled connections
+   * @param idleTimeout the number of seconds an unused pooled connection is kept open
+   */
+  public Connection(int maxConnections, int idleTimeout) {
+    this(maxConnections, idleTimeout, DEFAULT_OPEN_TIMEOUT, DEFAULT_READ_TIMEOUT);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Connection} class.
+   *
+   * @param maxConnections the maximum number of pooled connections
+   * @param idleTimeout the number of seconds an unused pooled connection is kept open
+   * @param openTimeout the number of seconds allowed to open a connection
+   * @param readTimeout the number of seconds allowed between packets when reading a response
+   */
+  public Connection(int maxConnections, int idleTimeout, int openTimeout, int readTimeout) {
+    this.maxConnections = maxConnections;
+    this.idleTimeout = idleTimeout;
+    this.openTimeout = openTimeout;
+    this.readTimeout = readTimeout;
+  }
+
+  /**
+   * Gets the maximum number of pooled connections.
+   *
+   * @return the maximum number of connections
+   */
+  public int getMaxConnections() {
+    return this.maxConnections;
+  }
+
+  /**
+   * Gets the number of seconds an unused pooled connection is kept open.
+   *
+   * @return the idle timeout
+   */
+  public int getIdleTimeout() {
+    return this.idleTimeout;
+  }
+
+  /**
+   * Gets the number of seconds allowed to open a connection.
+   *
+   * @return the open timeout
+   */
+  public int getOpenTimeout() {
+    return this.openTimeout;
+  }
+
+  /**
+   * Gets the number of seconds allowed between packets when reading a response.
+   *
+   * @return the read timeout
+   */
+  public int getReadTimeout() {
+    return this.readTimeout;
+  }
+
+  /**
+   * Returns a hash code value for these connection settings.
+   *
+   * @return the hash code
+   */
+  public int hashCode() {
+    return Objects.hash(this.maxConnections, this.idleTimeout, this.openTimeout, this.readTimeout);
+  }
+
+  /**
+   * Returns a value indicating whether these connection settings are equal to another object.
+   *
+   * @return {@code true} if the these settings are equal to the object; otherwise, {@code false}
+   */
+  public boolean equals(Object object) {
+    if (object instanceof Connection) {
+      Connection that = (Connection) object;
+      return Objects.equals(this.maxConnections, that.maxConnections)
+          && Objects.equals(this.idleTimeout, that.idleTimeout)
+          && Objects.equals(this.openTimeout, that.openTimeout)
+          && Objects.equals(this.readTimeout, that.readTimeout);
+    }
+    return false;
+  }
+
+}
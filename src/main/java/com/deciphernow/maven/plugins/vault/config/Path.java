@@ -17,18 +17,56 @@
 package com.deciphernow.maven.plugins.vault.config;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Represents a path on a Vault server.
+ *
+ * <p>Keys are mapped to properties one at a time by mappings or, when the path has a prefix, all at once by prefixing
+ * every key of the path.  The keys mapped by the prefix can be limited with include and exclude patterns, in which
+ * {@code *} matches any sequence of characters and {@code ?} matches any single character.
+ *
+ * <p>A recursive path reads every secret in the subtree beneath it.  Each key of a secret in the subtree is known by
+ * the path of the secret relative to this path followed by the key, such as {@code team/service/password}, and is
+ * mapped by the prefix to a property whose name separates the parts with dots, such as {@code team.service.password}.
  */
 public class Path implements Serializable {
 
+  /**
+   * Defines the default number of levels of folders walked beneath a recursive path.
+   */
+  public static final int DEFAULT_DEPTH = 8;
+
+  /**
+   * Defines the default number of secrets that may be read beneath a recursive path.
+   */
+  public static final int DEFAULT_LEAVES = 1000;
+
   private String name;
 
   private List<Mapping> mappings;
 
+  private int version;
+
+  private String prefix;
+
+  private List<String> includes;
+
+  private List<String> excludes;
+
+  private boolean recursive;
+
+  private int depth = DEFAULT_DEPTH;
+
+  private int leaves = DEFAULT_LEAVES;
+
+  private transient volatile List<List<Pattern>> patterns;
+
   /**
    * Initializes a new instance of the {@link Path} class.
    */
@@ -41,8 +79,59 @@ public class Path implements Serializable {
    * @param mappings the mappings of the path
    */
   public Path(String name, List<Mapping> mappings) {
+    this(name, mappings, 0);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Path} class.
+   *
+   * @param name the name of the path
+   * @param mappings the mappings of the path
+   * @param version the version of the secrets to read or zero to read the latest version
+   */
+  public Path(String name, List<Mapping> mappings, int version) {
+    this(name, mappings, version, null, null, null);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Path} class.
+   *
+   * @param name the name of the path
+   * @param mappings the mappings of the path
+   * @param version the version of the secrets to read or zero to read the latest version
+   * @param prefix the prefix of the properties every key is mapped to or {@code null} to use only the mappings
+   * @param includes the patterns of the keys mapped by the prefix or {@code null} to map every key
+   * @param excludes the patterns of the keys not mapped by the prefix or {@code null} to exclude no keys
+   */
+  public Path(String name, List<Mapping> mappings, int version, String prefix, List<String> includes,
+              List<String> excludes) {
+    this(name, mappings, version, prefix, includes, excludes, false, DEFAULT_DEPTH, DEFAULT_LEAVES);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Path} class.
+   *
+   * @param name the name of the path
+   * @param mappings the mappings of the path
+   * @param version the version of the secrets to read or zero to read the latest version
+   * @param prefix the prefix of the properties every key is mapped to or {@code null} to use only the mappings
+   * @param includes the patterns of the keys mapped by the prefix or {@code null} to map every key
+   * @param excludes the patterns of the keys not mapped by the prefix or {@code null} to exclude no keys
+   * @param recursive whether every secret in the subtree beneath the path is read
+   * @param depth the number of levels of folders walked beneath a recursive path
+   * @param leaves the number of secrets that may be read beneath a recursive path
+   */
+  public Path(String name, List<Mapping> mappings, int version, String prefix, List<String> includes,
+              List<String> excludes, boolean recursive, int depth, int leaves) {
     this.name = name;
     this.mappings = mappings;
+    this.version = version;
+    this.prefix = prefix;
+    this.includes = includes;
+    this.excludes = excludes;
+    this.recursive = recursive;
+    this.depth = depth;
+    this.leaves = leaves;
   }
 
   /**
@@ -60,7 +149,147 @@ public class Path implements Serializable {
    * @return the mappings
    */
   public List<Mapping> getMappings() {
-    return this.mappings;
+    return this.mappings == null ? Collections.emptyList() : this.mappings;
+  }
+
+  /**
+   * Gets the version of the secrets read from this path.
+   *
+   * <p>Only paths held by version 2 of the key/value secrets engine are versioned.
+   *
+   * @return the version or zero to read the latest version
+   */
+  public int getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the prefix of the properties every key of this path is mapped to.
+   *
+   * @return the prefix or {@code null} if only the mappings are used
+   */
+  public String getPrefix() {
+    return this.prefix;
+  }
+
+  /**
+   * Gets the patterns of the keys mapped by the prefix.
+   *
+   * @return the patterns or an empty list to map every key
+   */
+  public List<String> getIncludes() {
+    return this.includes == null ? Collections.emptyList() : this.includes;
+  }
+
+  /**
+   * Gets the patterns of the keys not mapped by the prefix.
+   *
+   * @return the patterns or an empty list to exclude no keys
+   */
+  public List<String> getExcludes() {
+    return this.excludes == null ? Collections.emptyList() : this.excludes;
+  }
+
+  /**
+   * Returns a value indicating whether every secret in the subtree beneath this path is read.
+   *
+   * @return {@code true} if the subtree is read; otherwise, {@code false}
+   */
+  public boolean isRecursive() {
+    return this.recursive;
+  }
+
+  /**
+   * Gets the number of levels of folders walked beneath this path when it is recursive.
+   *
+   * <p>Secrets held directly beneath the path are at the first level; folders below the last level are not listed.
+   *
+   * @return the depth
+   */
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Gets the number of secrets that may be read beneath this path when it is recursive.
+   *
+   * @return the limit
+   */
+  public int getLeaves() {
+    return this.leaves;
+  }
+
+  /**
+   * Gets the prefix of the properties the keys of this path are mapped to, which is empty for a recursive path without
+   * a prefix.
+   *
+   * @return the prefix or {@code null} if only the mappings are used
+   */
+  public String getPropertyPrefix() {
+    return this.prefix == null && this.recursive ? "" : this.prefix;
+  }
+
+  /**
+   * Gets the name of the property a key of this path is mapped to by its prefix.
+   *
+   * @param key the key
+   * @return the name of the property or {@code null} if only the mappings are used
+   */
+  public String getProperty(String key) {
+    String propertyPrefix = getPropertyPrefix();
+    if (propertyPrefix == null) {
+      return null;
+    }
+    return propertyPrefix + (this.recursive ? key.replace('/', '.') : key);
+  }
+
+  /**
+   * Returns a value indicating whether a key is mapped by the prefix of this path.
+   *
+   * @param key the key
+   * @return {@code true} if the path has a prefix, or is recursive, and the key matches an include pattern, or there
+   *     are none, and no exclude pattern; otherwise, {@code false}
+   */
+  public boolean isIncluded(String key) {
+    if (getPropertyPrefix() == null) {
+      return false;
+    }
+    List<List<Pattern>> compiled = this.patterns;
+    if (compiled == null) {
+      compiled = Arrays.asList(patterns(getIncludes()), patterns(getExcludes()));
+      this.patterns = compiled;
+    }
+    List<Pattern> included = compiled.get(0);
+    return (included.isEmpty() || included.stream().anyMatch(pattern -> pattern.matcher(key).matches()))
+        && compiled.get(1).stream().noneMatch(pattern -> pattern.matcher(key).matches());
+  }
+
+  /**
+   * Compiles wildcard patterns.
+   *
+   * @param globs the patterns
+   * @return the compiled patterns
+   */
+  private static List<Pattern> patterns(List<String> globs) {
+    return globs.stream().map(glob -> {
+      StringBuilder regex = new StringBuilder();
+      StringBuilder literal = new StringBuilder();
+      for (char character : glob.toCharArray()) {
+        if (character == '*' || character == '?') {
+          if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+          }
+          regex.append(character == '*' ? ".*" : ".");
+        } else {
+          literal.append(character);
+        }
+      }
+      if (literal.length() > 0) {
+        regex.append(Pattern.quote(literal.toString()));
+      }
+      return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }).collect(Collectors.toList());
   }
 
   /**
@@ -69,7 +298,8 @@ public class Path implements Serializable {
    * @return the hash code
    */
   public int hashCode() {
-    return Objects.hash(this.name, this.mappings);
+    return Objects.hash(this.name, getMappings(), this.version, this.prefix, getIncludes(), getExcludes(),
+        this.recursive, this.depth, this.leaves);
   }
 
   /**
@@ -81,7 +311,14 @@ public class Path implements Serializable {
     if (object instanceof Path) {
       Path that = (Path) object;
       return Objects.equals(this.name, that.name)
-          && Objects.equals(this.mappings, that.mappings);
+          && Objects.equals(getMappings(), that.getMappings())
+          && Objects.equals(this.version, that.version)
+          && Objects.equals(this.prefix, that.prefix)
+          && Objects.equals(getIncludes(), that.getIncludes())
+          && Objects.equals(getExcludes(), that.getExcludes())
+          && this.recursive == that.recursive
+          && this.depth == that.depth
+          && this.leaves == that.leaves;
     }
     return false;
   }
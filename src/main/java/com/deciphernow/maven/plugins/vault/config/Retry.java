@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Represents how requests to a Vault server are retried and when the server is considered unavailable.
+ */
+public class Retry implements Serializable {
+
+  /**
+   * Defines the default number of attempts made for each request.
+   */
+  public static final int DEFAULT_ATTEMPTS = 3;
+
+  /**
+   * Defines the default number of milliseconds before the first retry of a request.
+   */
+  public static final long DEFAULT_INITIAL_DELAY = 250;
+
+  /**
+   * Defines the default maximum number of milliseconds between attempts.
+   */
+  public static final long DEFAULT_MAXIMUM_DELAY = 10000;
+
+  /**
+   * Defines the default number of consecutive failed attempts after which requests to a server fail immediately.
+   */
+  public static final int DEFAULT_BREAKER_THRESHOLD = 5;
+
+  /**
+   * Defines the default number of seconds requests to a server fail immediately once the threshold is reached.
+   */
+  public static final int DEFAULT_BREAKER_DELAY = 30;
+
+  private int attempts = DEFAULT_ATTEMPTS;
+
+  private long initialDelay = DEFAULT_INITIAL_DELAY;
+
+  private long maximumDelay = DEFAULT_MAXIMUM_DELAY;
+
+  private int breakerThreshold = DEFAULT_BREAKER_THRESHOLD;
+
+  private int breakerDelay = DEFAULT_BREAKER_DELAY;
+
+  /**
+   * Initializes a new instance of the {@link Retry} class.
+   */
+  public Retry() { }
+
+  /**
+   * Initializes a new instance of the {@link Retry} class.
+   *
+   * @param attempts the number of attempts made for each request
+   * @param initialDelay the number of milliseconds before the first retry
+   * @param maximumDelay the maximum number of milliseconds between attempts
+   * @param breakerThreshold the number of consecutive failed attempts after which requests fail immediately
+   * @param breakerDelay the number of seconds requests fail immediately once the threshold is reached
+   */
+  public Retry(int attempts, long initialDelay, long maximumDelay, int breakerThreshold, int breakerDelay) {
+    this.attempts = attempts;
+    this.initialDelay = initialDelay;
+    this.maximumDelay = maximumDelay;
+    this.breakerThreshold = breakerThreshold;
+    this.breakerDelay = breakerDelay;
+  }
+
+  /**
+   * Gets the number of attempts made for each request.
+   *
+   * @return the number of attempts
+   */
+  public int getAttempts() {
+    return this.attempts;
+  }
+
+  /**
+   * Gets the number of milliseconds before the first retry of a request.
+   *
+   * @return the initial delay
+   */
+  public long getInitialDelay() {
+    return this.initialDelay;
+  }
+
+  /**
+   * Gets the maximum number of milliseconds between attempts.
+   *
+   * @return the maximum delay
+   */
+  public long getMaximumDelay() {
+    return this.maximumDelay;
+  }
+
+  /**
+   * Gets the number of consecutive failed attempts after which requests to a server fail immediately.
+   *
+   * @return the threshold or zero if requests never fail immediately
+   */
+  public int getBreakerThreshold() {
+    return this.breakerThreshold;
+  }
+
+  /**
+   * Gets the number of seconds requests to a server fail immediately once the threshold is reached.
+   *
+   * @return the delay
+   */
+  public int getBreakerDelay() {
+    return this.breakerDelay;
+  }
+
+  /**
+   * Returns a hash code value for these retry settings.
+   *
+   * @return the hash code
+   */
+  public int hashCode() {
+    return Objects.hash(this.attempts, this.initialDelay, this.maximumDelay, this.breakerThreshold, this.breakerDelay);
+  }
+
+  /**
+   * Returns a value indicating whether these retry settings are equal to another object.
+   *
+   * @return {@code true} if the these settings are equal to the object; otherwise, {@code false}
+   */
+  public boolean equals(Object object) {
+    if (object instanceof Retry) {
+      Retry that = (Retry) object;
+      return Objects.equals(this.attempts, that.attempts)
+          && Objects.equals(this.initialDelay, that.initialDelay)
+          && Objects.equals(this.maximumDelay, that.maximumDelay)
+          && Objects.equals(this.breakerThreshold, that.breakerThreshold)
+          && Objects.equals(this.breakerDelay, that.breakerDelay);
+    }
+    return false;
+  }
+
+}
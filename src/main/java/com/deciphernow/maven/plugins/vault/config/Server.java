@@ -26,6 +26,16 @@ import java.util.Objects;
  */
 public class Server implements Serializable {
 
+  /**
+   * Defines the default number of paths read concurrently from a server.
+   */
+  public static final int DEFAULT_PARALLELISM = 4;
+
+  /**
+   * Defines the default version of the key/value secrets engine used by a server.
+   */
+  public static final int DEFAULT_KV_VERSION = 1;
+
   private File sslCertificate;
 
   private boolean sslVerify;
@@ -38,6 +48,16 @@ public class Server implements Serializable {
 
   private boolean skipExecution;
 
+  private int parallelism = DEFAULT_PARALLELISM;
+
+  private Connection connection = new Connection();
+
+  private int kvVersion = DEFAULT_KV_VERSION;
+
+  private Retry retry = new Retry();
+
+  private Authentication authentication;
+
   /**
    * Initializes a new instance of the {@link Server} class.
    */
@@ -54,12 +74,39 @@ public class Server implements Serializable {
    */
   public Server(String url, String token, boolean sslVerify, File sslCertificate, List<Path> paths,
                 boolean skipExecution) {
+    this(url, token, sslVerify, sslCertificate, paths, skipExecution, DEFAULT_PARALLELISM, new Connection(),
+        DEFAULT_KV_VERSION, new Retry(), null);
+  }
+
+  /**
+   * Initializes a new instance of the {@link Server} class.
+   *
+   * @param url the URL of the server
+   * @param token the token for the server
+   * @param sslVerify {@code true} if the SSL connection should be verified; otherwise, {@code false}
+   * @param sslCertificate the SSL certificate file or null
+   * @param paths the paths for the server
+   * @param skipExecution {@code true} if execution should be skipped for the server; otherwise, {@code false}
+   * @param parallelism the maximum number of paths read concurrently from the server
+   * @param connection the HTTP connection settings for the server
+   * @param kvVersion the version of the key/value secrets engine holding the paths of the server
+   * @param retry the retry settings for the server
+   * @param authentication the auth method used to obtain a token or {@code null} to use the token
+   */
+  public Server(String url, String token, boolean sslVerify, File sslCertificate, List<Path> paths,
+                boolean skipExecution, int parallelism, Connection connection, int kvVersion, Retry retry,
+                Authentication authentication) {
     this.paths = paths;
     this.sslCertificate = sslCertificate;
     this.sslVerify = sslVerify;
     this.token = token;
     this.url = url;
     this.skipExecution = skipExecution;
+    this.parallelism = parallelism;
+    this.connection = connection;
+    this.kvVersion = kvVersion;
+    this.retry = retry;
+    this.authentication = authentication;
   }
 
   /**
@@ -116,13 +163,81 @@ public class Server implements Serializable {
     return skipExecution;
   }
 
+  /**
+   * Gets the maximum number of paths read concurrently from this server.
+   *
+   * @return the parallelism
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Gets the HTTP connection settings for this server.
+   *
+   * @return the connection settings
+   */
+  public Connection getConnection() {
+    return this.connection;
+  }
+
+  /**
+   * Gets the version of the key/value secrets engine holding the paths of this server.
+   *
+   * @return the version, either {@code 1} or {@code 2}
+   */
+  public int getKvVersion() {
+    return this.kvVersion;
+  }
+
+  /**
+   * Gets the retry settings for this server.
+   *
+   * @return the retry settings
+   */
+  public Retry getRetry() {
+    return this.retry;
+  }
+
+  /**
+   * Gets the auth method used to obtain a token for this server.
+   *
+   * @return the authentication or {@code null} if the configured token is used
+   */
+  public Authentication getAuthentication() {
+    return this.authentication;
+  }
+
+  /**
+   * Returns a copy of this server with different paths.
+   *
+   * @param paths the paths for the copy
+   * @return the copy
+   */
+  public Server withPaths(List<Path> paths) {
+    return new Server(this.url, this.token, this.sslVerify, this.sslCertificate, paths, this.skipExecution,
+        this.parallelism, this.connection, this.kvVersion, this.retry, this.authentication);
+  }
+
+  /**
+   * Returns a copy of this server that uses a token obtained by logging in.
+   *
+   * @param token the token for the copy
+   * @return the copy, which has no authentication
+   */
+  public Server withToken(String token) {
+    return new Server(this.url, token, this.sslVerify, this.sslCertificate, this.paths, this.skipExecution,
+        this.parallelism, this.connection, this.kvVersion, this.retry, null);
+  }
+
   /**
    * Returns a hash code value for this server.
    *
    * @return the hash code
    */
   public int hashCode() {
-    return Objects.hash(this.sslCertificate, this.sslVerify, this.token, this.url, this.paths, this.skipExecution);
+    return Objects.hash(this.sslCertificate, this.sslVerify, this.token, this.url, this.paths, this.skipExecution,
+        this.parallelism, this.connection, this.kvVersion, this.retry, this.authentication);
   }
 
   /**
@@ -136,6 +251,11 @@ public class Server implements Serializable {
       return Objects.equals(this.paths, that.paths)
           && Objects.equals(this.sslVerify, that.sslVerify)
           && Objects.equals(this.skipExecution, that.skipExecution)
+          && Objects.equals(this.parallelism, that.parallelism)
+          && Objects.equals(this.connection, that.connection)
+          && Objects.equals(this.kvVersion, that.kvVersion)
+          && Objects.equals(this.retry, that.retry)
+          && Objects.equals(this.authentication, that.authentication)
           && Objects.equals(this.sslCertificate, that.sslCertificate)
           && Objects.equals(this.token, that.token)
           && Objects.equals(this.url, that.url);
@@ -0,0 +1,947 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.json.Json;
+import com.bettercloud.vault.json.JsonArray;
+import com.bettercloud.vault.json.JsonObject;
+import com.bettercloud.vault.json.JsonValue;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides an embeddable fake of the parts of the Vault HTTP API used by the plugin.
+ *
+ * <p>The fake serves a single key/value secrets engine of either version, the {@code approle}, {@code kubernetes} and
+ * {@code userpass} login endpoints and the token {@code lookup-self} and {@code renew-self} endpoints.  Version 2 of
+ * the engine keeps every version of each secret, honours check-and-set and answers reads of a deleted version with its
+ * metadata, as Vault does.  Requests other than logins must carry a token issued by the fake or added to it.
+ *
+ * <p>Latency, errors and throttling can be injected.  A request is rejected at once with status 429 if more requests
+ * than the throttle limit are being served.  Otherwise it is delayed by the latency and then fails with status 500 at
+ * the error rate.  The requests served for each operation are counted, and every request received is logged in order,
+ * so that tests can assert how many requests the plugin made and what they held.
+ *
+ * <p>Behaviour the fake does not model is injected with an {@link Interceptor}, which sees each request that survives
+ * the injected latency and errors.  It may pass the request on to the fake, answer it itself, close the connection
+ * without answering or stall the response until the client gives up.
+ */
+public final class FakeVault implements Closeable {
+
+  private static final long DEFAULT_TTL = 3600;
+
+  private static final long STALL_INTERVAL = 50;
+
+  private static final Interceptor PASS = (request, next) -> next.handle(request);
+
+  private final int kvVersion;
+
+  private final String token;
+
+  private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+
+  private final Map<String, String> credentials = new ConcurrentHashMap<>();
+
+  private final Map<String, List<Map<String, String>>> secrets = new HashMap<>();
+
+  private final Map<String, Set<Integer>> deletions = new HashMap<>();
+
+  private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+  private final List<Request> log = Collections.synchronizedList(new ArrayList<>());
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  private final AtomicInteger faults = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private final AtomicInteger maximum = new AtomicInteger();
+
+  private final AtomicInteger disconnects = new AtomicInteger();
+
+  private final Random random = new Random(0);
+
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "fake-vault");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final HttpServer server;
+
+  private volatile long latency;
+
+  private volatile double errorRate;
+
+  private volatile int throttle = Integer.MAX_VALUE;
+
+  private volatile long tokenTtl = DEFAULT_TTL;
+
+  private volatile boolean renewable = true;
+
+  private volatile Interceptor interceptor = PASS;
+
+  private volatile boolean closed;
+
+  /**
+   * Initializes a new instance of the {@link FakeVault} class and starts it on an ephemeral loopback port.
+   *
+   * @param kvVersion the version of the key/value secrets engine
+   * @param token the token accepted without logging in
+   * @throws IOException if the server cannot be started
+   */
+  public FakeVault(int kvVersion, String token) throws IOException {
+    this.kvVersion = kvVersion;
+    this.token = token;
+    this.tokens.add(token);
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/v1/", this::handle);
+    this.server.start();
+  }
+
+  /**
+   * Gets the URL of this fake.
+   *
+   * @return the URL
+   */
+  public String getUrl() {
+    return String.format("http://127.0.0.1:%d", this.server.getAddress().getPort());
+  }
+
+  /**
+   * Sets the number of milliseconds every request is delayed.
+   *
+   * @param latency the latency
+   */
+  public void setLatency(long latency) {
+    this.latency = latency;
+  }
+
+  /**
+   * Sets the fraction of requests that fail with status 500.
+   *
+   * @param errorRate the error rate between zero and one
+   */
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  /**
+   * Sets the number of requests served at once beyond which requests are rejected with status 429.
+   *
+   * @param throttle the throttle limit
+   */
+  public void setThrottle(int throttle) {
+    this.throttle = throttle;
+  }
+
+  /**
+   * Sets the lease, in seconds, of the tokens issued and renewed and reported by token lookups.
+   *
+   * @param tokenTtl the lease
+   */
+  public void setTokenTtl(long tokenTtl) {
+    this.tokenTtl = tokenTtl;
+  }
+
+  /**
+   * Sets whether token lookups report tokens as renewable.
+   *
+   * @param renewable {@code true} if tokens are renewable; otherwise, {@code false}
+   */
+  public void setRenewable(boolean renewable) {
+    this.renewable = renewable;
+  }
+
+  /**
+   * Installs the interceptor that sees every request before the fake serves it, replacing any installed before.
+   *
+   * @param interceptor the interceptor
+   */
+  public void intercept(Interceptor interceptor) {
+    this.interceptor = interceptor;
+  }
+
+  /**
+   * Accepts a token without logging in.
+   *
+   * @param token the token
+   */
+  public void addToken(String token) {
+    this.tokens.add(token);
+  }
+
+  /**
+   * Accepts logins with a set of credentials.
+   *
+   * @param mount the path the auth method is mounted at
+   * @param name the role ID for the {@code approle} method, the role for the {@code kubernetes} method or the username
+   *     for the {@code userpass} method
+   * @param secret the secret ID, service account token or password
+   */
+  public void addLogin(String mount, String name, String secret) {
+    this.credentials.put(String.format("%s/%s", mount, name), secret);
+  }
+
+  /**
+   * Revokes every token issued by a login, leaving the token accepted without logging in.
+   */
+  public void revokeLogins() {
+    this.tokens.removeIf(token -> !token.equals(this.token));
+  }
+
+  /**
+   * Writes a new version of the secrets at a path without counting a request.
+   *
+   * @param path the path
+   * @param values the secrets
+   */
+  public synchronized void put(String path, Map<String, String> values) {
+    this.secrets.computeIfAbsent(path, key -> new ArrayList<>()).add(new HashMap<>(values));
+  }
+
+  /**
+   * Deletes the latest version of the secrets at a path, keeping its metadata as a soft delete does.
+   *
+   * @param path the path
+   */
+  public synchronized void delete(String path) {
+    this.deletions.computeIfAbsent(path, key -> new HashSet<>()).add(this.secrets.get(path).size());
+  }
+
+  /**
+   * Gets the latest version of the secrets at a path.
+   *
+   * @param path the path
+   * @return the secrets or {@code null} if the path does not exist
+   */
+  public synchronized Map<String, String> get(String path) {
+    List<Map<String, String>> versions = this.secrets.get(path);
+    return versions == null ? null : Collections.unmodifiableMap(versions.get(versions.size() - 1));
+  }
+
+  /**
+   * Gets the number of requests received, including those that failed by injection.
+   *
+   * @return the number of requests
+   */
+  public int getRequests() {
+    return this.requests.get();
+  }
+
+  /**
+   * Gets the number of requests served for an operation.
+   *
+   * @param operation the operation, one of {@code read}, {@code list}, {@code write}, {@code patch}, {@code login},
+   *     {@code lookup} or {@code renew}
+   * @return the number of requests
+   */
+  public int getRequests(String operation) {
+    AtomicInteger count = this.counts.get(operation);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Waits until a number of requests have been served for an operation.
+   *
+   * @param operation the operation, as for {@link #getRequests(String)}
+   * @param count the number of requests
+   * @param timeout the number of milliseconds to wait at most
+   * @return {@code true} if the requests were served in time; otherwise, {@code false}
+   * @throws InterruptedException if the wait is interrupted
+   */
+  public boolean await(String operation, int count, long timeout) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeout;
+    while (getRequests(operation) < count) {
+      if (System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  /**
+   * Waits until the client has closed the connections of a number of stalled responses.
+   *
+   * @param count the number of responses
+   * @param timeout the number of milliseconds to wait at most
+   * @return {@code true} if the connections were closed in time; otherwise, {@code false}
+   * @throws InterruptedException if the wait is interrupted
+   */
+  public boolean awaitDisconnects(int count, long timeout) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeout;
+    while (getDisconnects() < count) {
+      if (System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  /**
+   * Gets every request received, in the order received.
+   *
+   * @return the requests
+   */
+  public List<Request> getLog() {
+    synchronized (this.log) {
+      return new ArrayList<>(this.log);
+    }
+  }
+
+  /**
+   * Forgets every request received so far, so that a long run does not retain them all.
+   */
+  public void clearLog() {
+    this.log.clear();
+  }
+
+  /**
+   * Gets the number of requests that failed by injection.
+   *
+   * @return the number of requests
+   */
+  public int getFaults() {
+    return this.faults.get();
+  }
+
+  /**
+   * Gets the largest number of requests served at once.
+   *
+   * @return the number of requests
+   */
+  public int getMaximumConcurrency() {
+    return this.maximum.get();
+  }
+
+  /**
+   * Gets the number of stalled responses whose connection the client closed.
+   *
+   * @return the number of responses
+   */
+  public int getDisconnects() {
+    return this.disconnects.get();
+  }
+
+  /**
+   * Stops this fake, ending every stalled response.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Handles a request.
+   *
+   * @param exchange the exchange
+   * @throws IOException if an exception is thrown reading the request or writing the response
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    this.requests.incrementAndGet();
+    try {
+      String query = exchange.getRequestURI().getQuery();
+      Request request = new Request(exchange.getRequestMethod(),
+          exchange.getRequestURI().getPath().substring("/v1/".length()), query == null ? "" : query,
+          exchange.getRequestHeaders().getFirst("X-Vault-Token"),
+          new String(read(exchange.getRequestBody()), StandardCharsets.UTF_8));
+      this.log.add(request);
+      int serving = this.active.incrementAndGet();
+      Reply reply;
+      try {
+        reply = serve(request, serving);
+      } finally {
+        this.active.decrementAndGet();
+      }
+      send(exchange, reply);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Serves a request, injecting throttling, latency and errors before passing it to the interceptor.
+   *
+   * @param request the request
+   * @param serving the number of requests being served, including this one
+   * @return the reply
+   * @throws InterruptedException if the request is interrupted while delayed
+   */
+  private Reply serve(Request request, int serving) throws InterruptedException {
+    if (serving > this.throttle) {
+      this.faults.incrementAndGet();
+      return Reply.of(429, errors("rate limit quota exceeded")).withHeader("Retry-After", "0");
+    }
+    this.maximum.accumulateAndGet(serving, Math::max);
+    if (this.latency > 0) {
+      Thread.sleep(this.latency);
+    }
+    if (fails()) {
+      this.faults.incrementAndGet();
+      return Reply.of(500, errors("injected error"));
+    }
+    return this.interceptor.intercept(request, this::dispatch);
+  }
+
+  /**
+   * Serves a request as Vault would.
+   *
+   * @param request the request
+   * @return the reply
+   */
+  private Reply dispatch(Request request) {
+    if (request.getPath().startsWith("auth/")) {
+      return auth(request);
+    }
+    if (!this.tokens.contains(String.valueOf(request.getToken()))) {
+      return Reply.of(403, errors("permission denied"));
+    }
+    return engine(request);
+  }
+
+  /**
+   * Serves a request to an auth endpoint.
+   *
+   * @param request the request
+   * @return the reply
+   */
+  private Reply auth(Request request) {
+    String path = request.getPath();
+    if (path.equals("auth/token/lookup-self") || path.equals("auth/token/renew-self")) {
+      boolean lookup = path.endsWith("lookup-self");
+      count(lookup ? "lookup" : "renew");
+      if (!this.tokens.contains(String.valueOf(request.getToken()))) {
+        return Reply.of(403, errors("permission denied"));
+      }
+      return lookup
+          ? Reply.of(200, new JsonObject().add("data", new JsonObject().add("ttl", this.tokenTtl)
+              .add("renewable", this.renewable)))
+          : Reply.of(200, grant(request.getToken()));
+    }
+    String[] segments = path.split("/");
+    int login = Arrays.asList(segments).indexOf("login");
+    if (login < 2) {
+      return Reply.of(404, errors("unsupported path"));
+    }
+    count("login");
+    String mount = String.join("/", Arrays.copyOfRange(segments, 1, login));
+    JsonObject body = Json.parse(request.getBody()).asObject();
+    String name;
+    String secret;
+    if (segments.length > login + 1) {
+      name = segments[login + 1];
+      secret = body.getString("password", null);
+    } else if (body.get("role_id") != null) {
+      name = body.getString("role_id", null);
+      secret = body.getString("secret_id", null);
+    } else {
+      name = body.getString("role", null);
+      secret = body.getString("jwt", null);
+    }
+    String expected = this.credentials.get(String.format("%s/%s", mount, name));
+    if (expected == null || !expected.equals(secret)) {
+      return Reply.of(400, errors("invalid credentials"));
+    }
+    String issued = UUID.randomUUID().toString();
+    this.tokens.add(issued);
+    return Reply.of(200, grant(issued));
+  }
+
+  /**
+   * Serves a request to the key/value secrets engine.
+   *
+   * @param request the request
+   * @return the reply
+   */
+  private Reply engine(Request request) {
+    String method = request.getMethod();
+    String endpoint = "data";
+    String secret = request.getPath();
+    if (this.kvVersion > 1) {
+      String[] segments = secret.split("/", 3);
+      if (segments.length < 3) {
+        return Reply.of(404, errors("unsupported path"));
+      }
+      endpoint = segments[1];
+      secret = String.format("%s/%s", segments[0], segments[2]);
+    }
+    if ("LIST".equals(method) || ("GET".equals(method) && request.getQuery().contains("list=true"))) {
+      count("list");
+      return list(secret);
+    } else if ("GET".equals(method) && "data".equals(endpoint)) {
+      count("read");
+      return read(secret, request.getQuery());
+    } else if (("POST".equals(method) || "PUT".equals(method)) && "data".equals(endpoint)) {
+      count("write");
+      return write(secret, Json.parse(request.getBody()).asObject(), false);
+    } else if ("PATCH".equals(method) && "data".equals(endpoint) && this.kvVersion > 1) {
+      count("patch");
+      return write(secret, Json.parse(request.getBody()).asObject(), true);
+    }
+    return Reply.of(405, errors("unsupported operation"));
+  }
+
+  /**
+   * Reads the secrets at a path.
+   *
+   * @param path the path
+   * @param query the query string
+   * @return the reply
+   */
+  private Reply read(String path, String query) {
+    int requested = query.startsWith("version=") ? Integer.parseInt(query.substring("version=".length())) : 0;
+    Map<String, String> values;
+    int version;
+    boolean deleted;
+    synchronized (this) {
+      List<Map<String, String>> versions = this.secrets.get(path);
+      version = requested > 0 ? requested : versions == null ? 0 : versions.size();
+      values = versions == null || version > versions.size() ? null : versions.get(version - 1);
+      deleted = values != null && this.deletions.getOrDefault(path, Collections.emptySet()).contains(version);
+    }
+    if (deleted) {
+      return Reply.of(404, errors().add("data", new JsonObject().add("data", Json.NULL)
+          .add("metadata", new JsonObject().add("version", version).add("destroyed", false))));
+    }
+    if (values == null) {
+      return Reply.of(404, errors());
+    }
+    JsonObject data = json(values);
+    if (this.kvVersion > 1) {
+      data = new JsonObject().add("data", data).add("metadata", new JsonObject().add("version", version));
+    }
+    return Reply.of(200, new JsonObject().add("data", data).add("lease_duration", 0));
+  }
+
+  /**
+   * Lists the keys beneath a path, marking keys that have keys beneath them with a trailing slash.
+   *
+   * @param path the path
+   * @return the reply
+   */
+  private Reply list(String path) {
+    String folder = path.endsWith("/") ? path : String.format("%s/", path);
+    Set<String> keys = new TreeSet<>();
+    synchronized (this) {
+      for (String candidate : this.secrets.keySet()) {
+        if (candidate.startsWith(folder)) {
+          String rest = candidate.substring(folder.length());
+          int separator = rest.indexOf('/');
+          keys.add(separator < 0 ? rest : rest.substring(0, separator + 1));
+        }
+      }
+    }
+    if (keys.isEmpty()) {
+      return Reply.of(404, errors());
+    }
+    JsonArray array = new JsonArray();
+    keys.forEach(array::add);
+    return Reply.of(200, new JsonObject().add("data", new JsonObject().add("keys", array)));
+  }
+
+  /**
+   * Writes or patches the secrets at a path, checking the version given by the {@code cas} option if there is one.
+   *
+   * @param path the path
+   * @param request the request body
+   * @param patch {@code true} to merge the secrets into the existing secrets; otherwise, {@code false}
+   * @return the reply
+   */
+  private Reply write(String path, JsonObject request, boolean patch) {
+    JsonValue data = this.kvVersion > 1 ? request.get("data") : request;
+    JsonValue options = request.get("options");
+    int version;
+    synchronized (this) {
+      List<Map<String, String>> versions = this.secrets.get(path);
+      int current = versions == null ? 0 : versions.size();
+      if (this.kvVersion > 1 && options != null && options.isObject()
+          && options.asObject().getInt("cas", current) != current) {
+        return Reply.of(400, errors("check-and-set parameter did not match the current version"));
+      }
+      if (patch && (versions == null || this.deletions.getOrDefault(path, Collections.emptySet()).contains(current))) {
+        return Reply.of(404, errors());
+      }
+      Map<String, String> values = patch ? new HashMap<>(versions.get(current - 1)) : new HashMap<>();
+      for (JsonObject.Member member : data.asObject()) {
+        if (member.getValue().isNull()) {
+          values.remove(member.getName());
+        } else {
+          values.put(member.getName(), member.getValue().asString());
+        }
+      }
+      if (this.kvVersion < 2) {
+        this.secrets.put(path, new ArrayList<>(Collections.singletonList(values)));
+        version = 1;
+      } else {
+        this.secrets.computeIfAbsent(path, key -> new ArrayList<>()).add(values);
+        version = current + 1;
+      }
+    }
+    if (this.kvVersion < 2) {
+      return Reply.of(204);
+    }
+    return Reply.of(200, new JsonObject().add("data", new JsonObject().add("version", version)));
+  }
+
+  /**
+   * Decides whether a request fails by injection.
+   *
+   * @return {@code true} if the request fails; otherwise, {@code false}
+   */
+  private boolean fails() {
+    synchronized (this.random) {
+      return this.random.nextDouble() < this.errorRate;
+    }
+  }
+
+  /**
+   * Counts a request served for an operation.
+   *
+   * @param operation the operation
+   */
+  private void count(String operation) {
+    this.counts.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+  }
+
+  /**
+   * Builds the response to a login or renewal granting a token.
+   *
+   * @param token the token
+   * @return the response
+   */
+  private JsonObject grant(String token) {
+    return new JsonObject().add("auth", new JsonObject().add("client_token", token).add("lease_duration",
+        this.tokenTtl).add("renewable", true));
+  }
+
+  /**
+   * Builds an error response.
+   *
+   * @param messages the error messages
+   * @return the response
+   */
+  private static JsonObject errors(String... messages) {
+    JsonArray array = new JsonArray();
+    for (String message : messages) {
+      array.add(message);
+    }
+    return new JsonObject().add("errors", array);
+  }
+
+  /**
+   * Converts secrets to a JSON object.
+   *
+   * @param values the secrets
+   * @return the object
+   */
+  private static JsonObject json(Map<String, String> values) {
+    JsonObject object = new JsonObject();
+    values.forEach(object::add);
+    return object;
+  }
+
+  /**
+   * Reads a request body.
+   *
+   * @param body the request body
+   * @return the bytes of the body
+   * @throws IOException if an exception is thrown reading the body
+   */
+  private static byte[] read(InputStream body) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int length;
+    while ((length = body.read(buffer)) >= 0) {
+      output.write(buffer, 0, length);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Writes a reply.  A dropped reply writes nothing, so that closing the exchange closes the connection.
+   *
+   * @param exchange the exchange
+   * @param reply the reply
+   * @throws IOException if an exception is thrown writing the reply
+   * @throws InterruptedException if a stalled reply is interrupted
+   */
+  private void send(HttpExchange exchange, Reply reply) throws IOException, InterruptedException {
+    if (reply == Reply.DROP) {
+      return;
+    }
+    if (reply == Reply.STALL) {
+      stall(exchange);
+      return;
+    }
+    reply.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+    if (reply.body == null) {
+      exchange.sendResponseHeaders(reply.status, -1);
+      return;
+    }
+    byte[] bytes = reply.body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(reply.status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  /**
+   * Writes a response that never completes, sending a byte at a time so that the client sees a live connection, until
+   * the client closes the connection or this fake is closed.
+   *
+   * @param exchange the exchange
+   * @throws InterruptedException if the response is interrupted
+   */
+  private void stall(HttpExchange exchange) throws InterruptedException {
+    try {
+      exchange.sendResponseHeaders(200, 0);
+      OutputStream output = exchange.getResponseBody();
+      while (!this.closed) {
+        output.write(' ');
+        output.flush();
+        Thread.sleep(STALL_INTERVAL);
+      }
+    } catch (IOException exception) {
+      this.disconnects.incrementAndGet();
+    }
+  }
+
+  /**
+   * Represents a request received by the fake.
+   */
+  public static final class Request {
+
+    private final String method;
+
+    private final String path;
+
+    private final String query;
+
+    private final String token;
+
+    private final String body;
+
+    /**
+     * Initializes a new instance of the {@link Request} class.
+     *
+     * @param method the method
+     * @param path the API path, without the {@code /v1/} prefix
+     * @param query the query string, which is empty if there is none
+     * @param token the token or {@code null}
+     * @param body the body
+     */
+    private Request(String method, String path, String query, String token, String body) {
+      this.method = method;
+      this.path = path;
+      this.query = query;
+      this.token = token;
+      this.body = body;
+    }
+
+    /**
+     * Gets the method of this request.
+     *
+     * @return the method
+     */
+    public String getMethod() {
+      return this.method;
+    }
+
+    /**
+     * Gets the API path of this request, without the {@code /v1/} prefix.
+     *
+     * @return the path
+     */
+    public String getPath() {
+      return this.path;
+    }
+
+    /**
+     * Gets the query string of this request.
+     *
+     * @return the query string, which is empty if there is none
+     */
+    public String getQuery() {
+      return this.query;
+    }
+
+    /**
+     * Gets the token of this request.
+     *
+     * @return the token or {@code null}
+     */
+    public String getToken() {
+      return this.token;
+    }
+
+    /**
+     * Gets the body of this request.
+     *
+     * @return the body, which is empty if there is none
+     */
+    public String getBody() {
+      return this.body;
+    }
+
+  }
+
+  /**
+   * Represents the reply to a request.
+   */
+  public static final class Reply {
+
+    private static final Reply DROP = new Reply(0, null);
+
+    private static final Reply STALL = new Reply(0, null);
+
+    private final int status;
+
+    private final JsonObject body;
+
+    private final Map<String, String> headers = new HashMap<>();
+
+    /**
+     * Initializes a new instance of the {@link Reply} class.
+     *
+     * @param status the status
+     * @param body the body or {@code null} for an empty body
+     */
+    private Reply(int status, JsonObject body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    /**
+     * Returns a reply with an empty body.
+     *
+     * @param status the status
+     * @return the reply
+     */
+    public static Reply of(int status) {
+      return new Reply(status, null);
+    }
+
+    /**
+     * Returns a reply with a JSON body.
+     *
+     * @param status the status
+     * @param body the body
+     * @return the reply
+     */
+    public static Reply of(int status, JsonObject body) {
+      return new Reply(status, body);
+    }
+
+    /**
+     * Returns the reply that closes the connection without a response.
+     *
+     * @return the reply
+     */
+    public static Reply drop() {
+      return DROP;
+    }
+
+    /**
+     * Returns the reply that starts a response and never finishes it.
+     *
+     * @return the reply
+     * @see FakeVault#getDisconnects()
+     */
+    public static Reply stall() {
+      return STALL;
+    }
+
+    /**
+     * Adds a header to this reply.
+     *
+     * @param name the name of the header
+     * @param value the value of the header
+     * @return this reply
+     */
+    public Reply withHeader(String name, String value) {
+      this.headers.put(name, value);
+      return this;
+    }
+
+  }
+
+  /**
+   * Serves a request as Vault would.
+   */
+  @FunctionalInterface
+  public interface Handler {
+
+    /**
+     * Serves a request.
+     *
+     * @param request the request
+     * @return the reply
+     */
+    Reply handle(Request request);
+
+  }
+
+  /**
+   * Intercepts the requests served by the fake.
+   */
+  @FunctionalInterface
+  public interface Interceptor {
+
+    /**
+     * Intercepts a request.
+     *
+     * @param request the request
+     * @param next the handler serving the request as Vault would
+     * @return the reply
+     * @throws InterruptedException if the interceptor is interrupted while delaying the request
+     */
+    Reply intercept(Request request, Handler next) throws InterruptedException;
+
+  }
+
+}
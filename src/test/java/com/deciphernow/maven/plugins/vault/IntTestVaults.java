@@ -34,6 +34,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -114,4 +115,51 @@ public class IntTestVaults {
     });
   }
 
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} gives precedence to later servers when they map the same property.
+   *
+   * @throws URISyntaxException if an exception is raised parsing the certificate
+   * @throws VaultException if an exception is raised communicating with Vault
+   */
+  @Test
+  public void testPullPrecedence() throws URISyntaxException, VaultException {
+    File certificate = new File(VAULT_CERTIFICATE.toURI());
+    List<Mapping> mappings = randomMappings(10);
+    List<Server> servers = IntStream.range(0, 3)
+        .mapToObj(i -> new Path(String.format("secret/%s", UUID.randomUUID().toString()), mappings))
+        .map(path -> new Server(VAULT_SERVER, VAULT_TOKEN, true, certificate, ImmutableList.of(path), false))
+        .collect(Collectors.toList());
+    Properties expected = new Properties();
+    for (Server server : servers) {
+      expected = new Properties();
+      for (Mapping mapping : mappings) {
+        expected.setProperty(mapping.getProperty(), UUID.randomUUID().toString());
+      }
+      Vaults.push(ImmutableList.of(server), expected);
+    }
+    Properties properties = new Properties();
+    Vaults.pull(servers, properties);
+    assertTrue(Maps.difference(expected, properties).areEqual());
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} does not rewrite paths whose values are unchanged.
+   *
+   * @throws URISyntaxException if an exception is raised parsing the certificate
+   */
+  @Test
+  public void testPushUnchanged() throws URISyntaxException {
+    Fixture.with(fixture -> {
+      try {
+        int pathCount = fixture.servers.get(0).getPaths().size();
+        assertEquals(pathCount, Vaults.push(fixture.servers, fixture.properties).getWritten().size());
+        PushResult result = Vaults.push(fixture.servers, fixture.properties);
+        assertEquals(0, result.getWritten().size());
+        assertEquals(pathCount, result.getUnchanged().size());
+      } catch (VaultException exception) {
+        fail(String.format("Unexpected exception while pushing to Vault: %s", exception.getMessage()));
+      }
+    });
+  }
+
 }
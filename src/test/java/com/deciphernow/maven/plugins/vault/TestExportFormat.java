@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link ExportFormat} enumeration.
+ */
+public class TestExportFormat {
+
+  private static final String PEM = "-----BEGIN CERTIFICATE-----\nMIIBszCCAVmgAwIBAgIUY2VydGlmaWNhdGU=\n"
+      + "-----END CERTIFICATE-----\n";
+
+  private static String write(ExportFormat format, String name, String value) throws IOException {
+    StringWriter writer = new StringWriter();
+    format.write(writer, name, value);
+    return writer.toString();
+  }
+
+  /**
+   * Tests that values written in the properties format are read back unchanged.
+   */
+  @Test
+  public void testProperties() throws IOException {
+    String name = " key with = and : ";
+    String value = " -----BEGIN CERTIFICATE-----\nMII=\\#!\t\u00e9\u2603\n-----END CERTIFICATE-----\r\n";
+    String written = write(ExportFormat.PROPERTIES, name, value);
+    assertEquals(written, new String(written.getBytes(ExportFormat.PROPERTIES.getCharset()),
+        ExportFormat.PROPERTIES.getCharset()));
+    Properties properties = new Properties();
+    properties.load(new StringReader(written));
+    assertEquals(value, properties.getProperty(name));
+  }
+
+  /**
+   * Tests that values written in the environment format are written unquoted, including values containing spaces,
+   * quotes and backslashes, which Docker and Docker Compose read literally.
+   */
+  @Test
+  public void testEnv() throws IOException {
+    assertEquals("DB_URL=jdbc:postgresql://db/app\n", write(ExportFormat.ENV, "DB_URL", "jdbc:postgresql://db/app"));
+    assertEquals("GREETING=hello world\n", write(ExportFormat.ENV, "GREETING", "hello world"));
+    assertEquals("PASSWORD=p'a\"s\\s#word\n", write(ExportFormat.ENV, "PASSWORD", "p'a\"s\\s#word"));
+    assertEquals("EMPTY=\n", write(ExportFormat.ENV, "EMPTY", ""));
+    try {
+      write(ExportFormat.ENV, "NOT VALID", "value");
+      fail("Expected the name to be rejected");
+    } catch (IOException exception) {
+      assertEquals("NOT VALID is not a valid environment variable name", exception.getMessage());
+    }
+  }
+
+  /**
+   * Tests that values Docker and Docker Compose would read differently are rejected from the environment format.
+   */
+  @Test
+  public void testEnvRejected() {
+    for (String value : ImmutableList.of("line\nbreak", "$HOME", "'quoted'", "\"quoted\"", "#comment", " padded",
+        "padded\t", "value #comment")) {
+      try {
+        write(ExportFormat.ENV, "SECRET", value);
+        fail(String.format("Expected %s to be rejected", value));
+      } catch (IOException exception) {
+        assertTrue(exception.getMessage().startsWith("The value of SECRET "));
+        assertFalse(exception.getMessage().contains(value));
+      }
+    }
+  }
+
+  /**
+   * Tests that a PEM certificate is rejected from the environment format with a message naming the formats that can
+   * hold it.
+   */
+  @Test
+  public void testEnvRejectsPem() {
+    try {
+      write(ExportFormat.ENV, "CERTIFICATE", PEM);
+      fail("Expected the certificate to be rejected");
+    } catch (IOException exception) {
+      assertTrue(exception.getMessage().endsWith("export it in the dotenv or properties format instead"));
+    }
+  }
+
+  /**
+   * Tests that values written in the dotenv format are double quoted with line breaks, backslashes, double quotes and
+   * {@code $} escaped, so a PEM certificate is written on a single line.
+   */
+  @Test
+  public void testDotenv() throws IOException {
+    assertEquals("CERTIFICATE=\"-----BEGIN CERTIFICATE-----\\nMIIBszCCAVmgAwIBAgIUY2VydGlmaWNhdGU=\\n"
+        + "-----END CERTIFICATE-----\\n\"\n", write(ExportFormat.DOTENV, "CERTIFICATE", PEM));
+    assertEquals("PASSWORD=\" p'a\\\"s\\\\s #word\\r\\n\\$HOME\t\"\n",
+        write(ExportFormat.DOTENV, "PASSWORD", " p'a\"s\\s #word\r\n$HOME\t"));
+    assertEquals("EMPTY=\"\"\n", write(ExportFormat.DOTENV, "EMPTY", ""));
+    for (String name : ImmutableList.of("", "NOT VALID")) {
+      try {
+        write(ExportFormat.DOTENV, name, "value");
+        fail(String.format("Expected %s to be rejected", name));
+      } catch (IOException exception) {
+        assertEquals(String.format("%s is not a valid environment variable name", name), exception.getMessage());
+      }
+    }
+    try {
+      write(ExportFormat.DOTENV, "SECRET", "null\0character");
+      fail("Expected the null character to be rejected");
+    } catch (IOException exception) {
+      assertTrue(exception.getMessage().startsWith("The value of SECRET "));
+    }
+  }
+
+  /**
+   * Tests the {@link ExportFormat#of(String)} method.
+   */
+  @Test
+  public void testOf() {
+    assertEquals(ExportFormat.ENV, ExportFormat.of("env"));
+    assertEquals(ExportFormat.PROPERTIES, ExportFormat.of("Properties"));
+    assertEquals(ExportFormat.DOTENV, ExportFormat.of("dotenv"));
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Pipeline} class.
+ */
+public class TestPipeline {
+
+  /**
+   * Tests that stages completed later by another thread keep no more than the limit in flight and return their
+   * results in the order of the inputs.
+   */
+  @Test
+  public void testMapLimit() throws VaultException {
+    List<CompletableFuture<Integer>> started = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    List<Integer> inputs = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+    CompletableFuture<List<Integer>> results = Pipeline.map(inputs, 4, input -> {
+      maximum.accumulateAndGet(active.incrementAndGet(), Math::max);
+      CompletableFuture<Integer> future = new CompletableFuture<>();
+      started.add(future);
+      return future.thenApply(value -> value * input);
+    });
+    for (int index = 0; index < inputs.size(); index++) {
+      assertEquals(Math.min(inputs.size(), index + 4), started.size());
+      active.decrementAndGet();
+      started.get(index).complete(2);
+    }
+    assertEquals(inputs.stream().map(input -> input * 2).collect(Collectors.toList()), Futures.join(results));
+    assertEquals(4, maximum.get());
+  }
+
+  /**
+   * Tests that stages that complete at once are chained without deepening the stack.
+   */
+  @Test
+  public void testMapCompleted() throws VaultException {
+    List<Integer> inputs = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+    List<Integer> results = Futures.join(Pipeline.map(inputs, 2, CompletableFuture::completedFuture));
+    assertEquals(inputs, results);
+    assertTrue(Futures.join(Pipeline.map(ImmutableList.of(), 2, CompletableFuture::completedFuture)).isEmpty());
+  }
+
+  /**
+   * Tests that no stage is started once one has failed and that the exception of the earliest failed input is
+   * returned.
+   */
+  @Test
+  public void testMapFailure() {
+    AtomicInteger started = new AtomicInteger();
+    List<Integer> inputs = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+    CompletableFuture<List<Integer>> results = Pipeline.map(inputs, 1, input -> {
+      started.incrementAndGet();
+      if (input >= 3) {
+        throw new VaultException(String.format("failed %d", input));
+      }
+      return CompletableFuture.completedFuture(input);
+    });
+    try {
+      Futures.join(results);
+      fail("Expected the failure to be returned");
+    } catch (VaultException exception) {
+      assertEquals("failed 3", exception.getMessage());
+    }
+    assertEquals(4, started.get());
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link Plan} class.
+ */
+public class TestPlan {
+
+  private static final Mapping USERNAME = new Mapping("username", "project.username");
+  private static final Mapping PASSWORD = new Mapping("password", "project.password");
+  private static final Mapping OTHER_PASSWORD = new Mapping("password", "other.password");
+
+  private static Server server(String url, boolean skipExecution, Path... paths) {
+    return new Server(url, "token", true, null, ImmutableList.copyOf(paths), skipExecution);
+  }
+
+  /**
+   * Tests that servers and paths declared more than once are combined and skipped servers are left out.
+   */
+  @Test
+  public void testPull() {
+    List<Server> servers = ImmutableList.of(
+        server("https://a.example.com", false, new Path("secret/a", ImmutableList.of(USERNAME))),
+        server("https://b.example.com", false, new Path("secret/a", ImmutableList.of(USERNAME))),
+        server("https://a.example.com", false, new Path("secret/a", ImmutableList.of(USERNAME, PASSWORD)),
+            new Path("secret/a", ImmutableList.of(USERNAME), 3)),
+        server("https://c.example.com", true, new Path("secret/c", ImmutableList.of(USERNAME))));
+    Plan plan = Plan.pull(servers);
+    assertEquals(3, plan.getDeclared().size());
+    assertEquals(ImmutableList.of(
+        server("https://a.example.com", false, new Path("secret/a", ImmutableList.of(USERNAME, PASSWORD)),
+            new Path("secret/a", ImmutableList.of(USERNAME), 3)),
+        server("https://b.example.com", false, new Path("secret/a", ImmutableList.of(USERNAME)))),
+        plan.getServers());
+    assertEquals(3, plan.getRequests());
+  }
+
+  /**
+   * Tests that declarations of a path are combined into one read whatever prefixes and patterns they map keys with.
+   */
+  @Test
+  public void testPullPrefix() {
+    Path first = new Path("secret/a", ImmutableList.of(USERNAME), 0, "a.", null, null);
+    Path second = new Path("secret/a", ImmutableList.of(PASSWORD), 0, "a.", null, null);
+    Path other = new Path("secret/a", null, 0, "b.", null, null);
+    Plan plan = Plan.pull(ImmutableList.of(server("https://a.example.com", false, first, second, other)));
+    assertEquals(ImmutableList.of(server("https://a.example.com", false,
+        new Path("secret/a", ImmutableList.of(USERNAME, PASSWORD), 0, "a.", null, null))), plan.getServers());
+    assertEquals(1, plan.getRequests());
+    assertEquals(ImmutableList.of(first, second, other), plan.getDeclared().get(0).getPaths());
+  }
+
+  /**
+   * Tests that pushed paths are combined regardless of version and the last mapping of a key wins.
+   */
+  @Test
+  public void testPush() {
+    List<Server> servers = ImmutableList.of(
+        server("https://a.example.com", false, new Path("secret/a", ImmutableList.of(PASSWORD, USERNAME))),
+        server("https://a.example.com", false, new Path("secret/a", ImmutableList.of(OTHER_PASSWORD), 3)));
+    Plan plan = Plan.push(servers);
+    assertEquals(ImmutableList.of(server("https://a.example.com", false,
+        new Path("secret/a", ImmutableList.of(OTHER_PASSWORD, USERNAME)))), plan.getServers());
+    assertEquals(1, plan.getRequests());
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link PullMojo} class against a {@link FakeVault}.
+ */
+public class TestPullMojo {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private FakeVault vault;
+
+  /**
+   * Starts the fake with a secret that can be read after logging in.
+   *
+   * @throws IOException if the fake cannot be started
+   */
+  @Before
+  public void start() throws IOException {
+    this.vault = new FakeVault(2, "root");
+    this.vault.addLogin("approle", "role", "secret");
+    this.vault.put("secret/app", ImmutableMap.of("password", "value"));
+  }
+
+  /**
+   * Stops the fake.
+   */
+  @After
+  public void stop() {
+    this.vault.close();
+  }
+
+  private PullMojo mojo() {
+    Authentication approle = new Authentication(Authentication.APPROLE, null, "role", "secret", null, null, null,
+        null);
+    Path path = new Path("secret/app", ImmutableList.of(new Mapping("password", "app.password")));
+    PullMojo mojo = new PullMojo();
+    mojo.project = new MavenProject();
+    mojo.servers = ImmutableList.of(new Server(this.vault.getUrl(), null, true, null, ImmutableList.of(path), false,
+        Server.DEFAULT_PARALLELISM, new Connection(), 2, new Retry(), approle));
+    mojo.tokenCache = true;
+    mojo.tokenCacheDirectory = this.folder.getRoot();
+    return mojo;
+  }
+
+  /**
+   * Tests that {@link PullMojo#execute()} logs in again when Vault denies a cached token.
+   *
+   * @throws MojoExecutionException if the pull fails
+   */
+  @Test
+  public void testExecuteReplacesDeniedToken() throws MojoExecutionException {
+    mojo().execute();
+    assertEquals(1, this.vault.getRequests("login"));
+    this.vault.revokeLogins();
+    PullMojo mojo = mojo();
+    mojo.execute();
+    assertEquals("value", mojo.project.getProperties().getProperty("app.password"));
+    assertEquals(2, this.vault.getRequests("login"));
+    mojo().execute();
+    assertEquals(2, this.vault.getRequests("login"));
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link PushResult} class.
+ */
+public class TestPushResult {
+
+  /**
+   * Tests that outcomes are recorded and merged in order and failures are summarized only when there are some.
+   */
+  @Test
+  public void testAdd() {
+    PushResult first = new PushResult();
+    first.written("https://a.example.com", "secret/a");
+    first.unchanged("https://a.example.com", "secret/b");
+    PushResult second = new PushResult();
+    second.written("https://b.example.com", "secret/c");
+    second.skipped("https://b.example.com", "secret/d");
+    second.failed("https://b.example.com", "secret/e", new IllegalStateException("denied"));
+    PushResult result = new PushResult();
+    result.add(first);
+    result.add(second);
+    assertEquals(ImmutableList.of("secret/a on https://a.example.com", "secret/c on https://b.example.com"),
+        result.getWritten());
+    assertEquals(ImmutableList.of("secret/b on https://a.example.com"), result.getUnchanged());
+    assertEquals(ImmutableList.of("secret/d on https://b.example.com"), result.getSkipped());
+    assertEquals(ImmutableMap.of("secret/e on https://b.example.com", "denied"), result.getFailed());
+    assertEquals("2 paths written, 1 paths unchanged, 1 paths skipped, 1 paths failed", result.toString());
+    assertEquals("1 paths written, 1 paths unchanged, 0 paths skipped", first.toString());
+  }
+
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.FingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.Token;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides scaling tests that pull and push large configurations against a {@link FakeVault}, asserting the number of
+ * requests made and bounding the time taken.
+ *
+ * <p>The time bounds are an order of magnitude above the time the tests take so that they only catch regressions that
+ * change how requests scale, such as reading paths one at a time or reading a path more than once.
+ */
+public class TestScaling {
+
+  private static final String TOKEN = "token";
+
+  private static final int PATHS = 1000;
+
+  private static final int MAPPINGS = 50;
+
+  private static final Retry RETRY = new Retry(10, 1, 20, Integer.MAX_VALUE, 1);
+
+  private FakeVault vault;
+
+  /**
+   * Stops the fake.
+   */
+  @After
+  public void stop() {
+    if (this.vault != null) {
+      this.vault.close();
+    }
+  }
+
+  /**
+   * Tests that pulling a thousand paths of fifty mappings reads each path exactly once, no more paths at once than the
+   * parallelism of the server, and finishes within the bound set by the latency and parallelism.
+   */
+  @Test
+  public void testPullLargePlan() throws IOException, VaultException {
+    this.vault = new FakeVault(2, TOKEN);
+    this.vault.setLatency(2);
+    List<Path> paths = paths(PATHS, MAPPINGS, this.vault, 0);
+    Server server = server(paths, 16, 2, null, null);
+    Properties properties = new Properties();
+    Metrics metrics = new Metrics();
+    long started = System.nanoTime();
+    Vaults.pull(Plan.pull(ImmutableList.of(server)), properties, SecretCache.NONE, Deadline.NONE, metrics);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    assertEquals(PATHS * MAPPINGS, properties.size());
+    assertEquals("value-999-49-0", properties.getProperty("property.999.49"));
+    assertEquals(PATHS, this.vault.getRequests());
+    assertEquals(PATHS, this.vault.getRequests("read"));
+    assertEquals(PATHS, metrics.getServers().get(0).getCount());
+    assertTrue(this.vault.getMaximumConcurrency() <= 16);
+    assertTrue(String.format("Pull took %d ms", elapsed), elapsed < 20000);
+  }
+
+  /**
+   * Tests that pushing a thousand paths of fifty mappings reads and writes each path once, patches only the paths
+   * whose values changed when pushed again and makes no writes when nothing changed.
+   */
+  @Test
+  public void testPushLargePlan() throws IOException, VaultException {
+    this.vault = new FakeVault(2, TOKEN);
+    Server server = server(paths(PATHS, MAPPINGS, null, 0), 16, 2, null, null);
+    Plan plan = Plan.push(ImmutableList.of(server));
+    Properties properties = properties(PATHS, MAPPINGS, 0);
+    long started = System.nanoTime();
+    PushResult first = Vaults.push(plan, properties, SecretCache.NONE, FingerprintStore.NONE, Deadline.NONE,
+        Metrics.NONE);
+    assertEquals(PATHS, first.getWritten().size());
+    assertEquals(PATHS, this.vault.getRequests("read"));
+    assertEquals(PATHS, this.vault.getRequests("write"));
+    for (int index = 0; index < PATHS; index += 2) {
+      properties.setProperty(String.format("property.%d.0", index), "changed");
+    }
+    PushResult second = Vaults.push(plan, properties, SecretCache.NONE, FingerprintStore.NONE, Deadline.NONE,
+        Metrics.NONE);
+    assertEquals(PATHS / 2, second.getWritten().size());
+    assertEquals(PATHS / 2, second.getUnchanged().size());
+    assertEquals(PATHS / 2, this.vault.getRequests("patch"));
+    PushResult third = Vaults.push(plan, properties, SecretCache.NONE, FingerprintStore.NONE, Deadline.NONE,
+        Metrics.NONE);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    assertEquals(PATHS, third.getUnchanged().size());
+    assertEquals(3 * PATHS, this.vault.getRequests("read"));
+    assertEquals(PATHS, this.vault.getRequests("write"));
+    assertEquals(PATHS / 2, this.vault.getRequests("patch"));
+    assertEquals("changed", this.vault.get("secret/0").get("key0"));
+    assertEquals("value-1-0-0", this.vault.get("secret/1").get("key0"));
+    assertTrue(String.format("Push took %d ms", elapsed), elapsed < 30000);
+  }
+
+  /**
+   * Tests that a pull completes when a tenth of the requests fail, retrying each failed request once per failure.
+   */
+  @Test
+  public void testPullWithErrors() throws IOException, VaultException {
+    this.vault = new FakeVault(1, TOKEN);
+    this.vault.setErrorRate(0.1);
+    Server server = server(paths(200, 10, this.vault, 0), 8, 1, null, null);
+    Properties properties = new Properties();
+    Metrics metrics = new Metrics();
+    Vaults.pull(Plan.pull(ImmutableList.of(server)), properties, SecretCache.NONE, Deadline.NONE, metrics);
+    assertEquals(2000, properties.size());
+    assertEquals(200, this.vault.getRequests("read"));
+    assertTrue(this.vault.getFaults() > 0);
+    assertEquals(200 + this.vault.getFaults(), this.vault.getRequests());
+    assertEquals(this.vault.getFaults(), metrics.getServers().get(0).getRetries());
+  }
+
+  /**
+   * Tests that a pull completes when the server throttles it to fewer concurrent requests than its parallelism.
+   */
+  @Test
+  public void testPullThrottled() throws IOException, VaultException {
+    this.vault = new FakeVault(2, TOKEN);
+    this.vault.setLatency(2);
+    this.vault.setThrottle(4);
+    Server server = server(paths(200, 10, this.vault, 0), 8, 2, null, null);
+    Properties properties = new Properties();
+    Vaults.pull(Plan.pull(ImmutableList.of(server)), properties, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+    assertEquals(2000, properties.size());
+    assertEquals(200, this.vault.getRequests("read"));
+    assertTrue(this.vault.getFaults() > 0);
+    assertTrue(this.vault.getMaximumConcurrency() <= 4);
+  }
+
+  /**
+   * Tests that a token obtained by logging in reads secrets, can be looked up and renewed, and that other tokens and
+   * credentials are rejected.
+   */
+  @Test
+  public void testLogin() throws IOException, VaultException {
+    this.vault = new FakeVault(2, TOKEN);
+    this.vault.addLogin("approle", "role", "secret");
+    List<Path> paths = paths(10, 5, this.vault, 0);
+    Authentication approle = new Authentication(Authentication.APPROLE, null, "role", "secret", null, null, null,
+        null);
+    Token token = VaultClient.of(server(paths, 4, 2, null, approle)).login(approle);
+    Server server = server(paths, 4, 2, token.getValue(), null);
+    Properties properties = new Properties();
+    Vaults.pull(Plan.pull(ImmutableList.of(server)), properties, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+    assertEquals(50, properties.size());
+    assertEquals(token.getValue(), VaultClient.of(server).lookupSelf().getValue());
+    assertTrue(VaultClient.of(server).renewSelf().isRenewable());
+    assertEquals(1, this.vault.getRequests("login"));
+    try {
+      VaultClient.of(server(paths, 4, 2, null, approle)).login(new Authentication(Authentication.APPROLE, null, "role",
+          "wrong", null, null, null, null));
+      fail("Expected the credentials to be rejected");
+    } catch (VaultException exception) {
+      assertTrue(exception.getMessage().contains("400"));
+    }
+    try {
+      Vaults.pull(Plan.pull(ImmutableList.of(server(paths, 4, 2, "other", null))), new Properties(),
+          SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+      fail("Expected the token to be rejected");
+    } catch (VaultException exception) {
+      assertTrue(exception.getMessage().contains("403"));
+    }
+  }
+
+  /**
+   * Tests that a recursive path lists and reads a tree of a hundred secrets in version 1 of the key/value engine.
+   */
+  @Test
+  public void testPullRecursive() throws IOException, VaultException {
+    this.vault = new FakeVault(1, TOKEN);
+    for (int folder = 0; folder < 10; folder++) {
+      for (int leaf = 0; leaf < 10; leaf++) {
+        this.vault.put(String.format("secret/apps/%d/%d", folder, leaf), ImmutableMap.of("password",
+            String.format("%d.%d", folder, leaf)));
+      }
+    }
+    Path path = new Path("secret/apps", null, 0, "apps.", null, null, true, Path.DEFAULT_DEPTH,
+        Path.DEFAULT_LEAVES);
+    Properties properties = new Properties();
+    Vaults.pull(Plan.pull(ImmutableList.of(server(ImmutableList.of(path), 8, 1, null, null))), properties,
+        SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+    assertEquals(100, properties.size());
+    assertEquals("3.7", properties.getProperty("apps.3.7.password"));
+    assertEquals(11, this.vault.getRequests("list"));
+    assertEquals(100, this.vault.getRequests("read"));
+  }
+
+  /**
+   * Tests that five hundred slow reads are all outstanding at once without a thread for each, so that the pull takes
+   * about as long as one read rather than five hundred.
+   */
+  @Test
+  public void testPullOutstanding() throws IOException, VaultException, InterruptedException {
+    this.vault = new FakeVault(2, TOKEN);
+    this.vault.setLatency(100);
+    Server server = new Server(this.vault.getUrl(), TOKEN, true, null, paths(500, 1, this.vault, 0), false, 500,
+        new Connection(500, Connection.DEFAULT_IDLE_TIMEOUT), 2, RETRY, null);
+    int before = threads();
+    AtomicInteger threads = new AtomicInteger(before);
+    AtomicBoolean pulling = new AtomicBoolean(true);
+    Thread sampler = new Thread(() -> {
+      while (pulling.get()) {
+        threads.accumulateAndGet(threads(), Math::max);
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException exception) {
+          return;
+        }
+      }
+    });
+    sampler.start();
+    Properties properties = new Properties();
+    long started = System.nanoTime();
+    try {
+      Vaults.pull(Plan.pull(ImmutableList.of(server)), properties, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+    } finally {
+      pulling.set(false);
+      sampler.join();
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    assertEquals(500, properties.size());
+    assertEquals(500, this.vault.getRequests("read"));
+    assertTrue(String.format("%d reads outstanding at most", this.vault.getMaximumConcurrency()),
+        this.vault.getMaximumConcurrency() > 100);
+    assertTrue(String.format("%d threads started", threads.get() - before), threads.get() - before <= 8);
+    assertTrue(String.format("Pull took %d ms", elapsed), elapsed < 10000);
+  }
+
+  /**
+   * Counts the live threads started by the plugin to make requests.
+   *
+   * @return the number of threads
+   */
+  private static int threads() {
+    return (int) Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().startsWith("vault-"))
+        .count();
+  }
+
+  /**
+   * Builds paths, each mapping its keys to properties, and puts their secrets in the fake.
+   *
+   * @param count the number of paths
+   * @param mappings the number of mappings of each path
+   * @param vault the fake holding the secrets or {@code null} to put no secrets
+   * @param generation the generation of the values
+   * @return the paths
+   */
+  private static List<Path> paths(int count, int mappings, FakeVault vault, int generation) {
+    List<Path> paths = new ArrayList<>(count);
+    for (int index = 0; index < count; index++) {
+      List<Mapping> pathMappings = new ArrayList<>(mappings);
+      Map<String, String> secrets = new HashMap<>();
+      for (int key = 0; key < mappings; key++) {
+        pathMappings.add(new Mapping(String.format("key%d", key), String.format("property.%d.%d", index, key)));
+        secrets.put(String.format("key%d", key), String.format("value-%d-%d-%d", index, key, generation));
+      }
+      if (vault != null) {
+        vault.put(String.format("secret/%d", index), secrets);
+      }
+      paths.add(new Path(String.format("secret/%d", index), pathMappings));
+    }
+    return paths;
+  }
+
+  /**
+   * Builds the properties pushed to the paths built by {@link #paths(int, int, FakeVault, int)}.
+   *
+   * @param count the number of paths
+   * @param mappings the number of mappings of each path
+   * @param generation the generation of the values
+   * @return the properties
+   */
+  private static Properties properties(int count, int mappings, int generation) {
+    Properties properties = new Properties();
+    for (int index = 0; index < count; index++) {
+      for (int key = 0; key < mappings; key++) {
+        properties.setProperty(String.format("property.%d.%d", index, key),
+            String.format("value-%d-%d-%d", index, key, generation));
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Builds a server for the fake.
+   *
+   * @param paths the paths
+   * @param parallelism the parallelism
+   * @param kvVersion the version of the key/value secrets engine
+   * @param token the token or {@code null} to use the token accepted by the fake
+   * @param authentication the auth method or {@code null}
+   * @return the server
+   */
+  private Server server(List<Path> paths, int parallelism, int kvVersion, String token,
+                        Authentication authentication) {
+    return new Server(this.vault.getUrl(), token == null ? TOKEN : token, true, null, paths, false, parallelism,
+        new Connection(), kvVersion, RETRY, authentication);
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.client.VaultClient;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Subtree} class against a {@link FakeVault} holding a small tree of secrets.
+ */
+public class TestSubtree {
+
+  private FakeVault vault;
+
+  private Server server;
+
+  /**
+   * Starts the fake, which holds each secret with its own path as the value of {@code password}.
+   */
+  @Before
+  public void start() throws IOException {
+    this.vault = new FakeVault(1, "token");
+    for (String path : ImmutableList.of("secret/apps/a/svc/prod", "secret/apps/b/x", "secret/apps/shared")) {
+      this.vault.put(path, ImmutableMap.of("password", path));
+    }
+    this.server = server(ImmutableList.of());
+  }
+
+  /**
+   * Stops the fake.
+   */
+  @After
+  public void stop() {
+    this.vault.close();
+  }
+
+  private Server server(ImmutableList<Path> paths) {
+    return new Server(this.vault.getUrl(), "token", true, null, paths, false, 2, new Connection(),
+        Server.DEFAULT_KV_VERSION, new Retry(), null);
+  }
+
+  private Map<String, String> read(Path path) throws VaultException {
+    return Futures.join(Subtree.read(this.server, path, VaultClient.of(this.server), SecretCache.NONE));
+  }
+
+  private static Path path(String name, int version, int depth, int leaves) {
+    return new Path(name, null, version, null, null, null, true, depth, leaves);
+  }
+
+  /**
+   * Tests that every secret in the subtree is read and keyed by its relative path.
+   */
+  @Test
+  public void testRead() throws VaultException {
+    assertEquals(ImmutableMap.of(
+        "shared/password", "secret/apps/shared",
+        "b/x/password", "secret/apps/b/x",
+        "a/svc/prod/password", "secret/apps/a/svc/prod"),
+        read(path("secret/apps/", 0, Path.DEFAULT_DEPTH, Path.DEFAULT_LEAVES)));
+    assertTrue(this.vault.getMaximumConcurrency() <= 2);
+  }
+
+  /**
+   * Tests that folders below the depth of the path are not walked.
+   */
+  @Test
+  public void testDepth() throws VaultException {
+    assertEquals(ImmutableMap.of("shared/password", "secret/apps/shared", "b/x/password", "secret/apps/b/x"),
+        read(path("secret/apps", 0, 2, Path.DEFAULT_LEAVES)));
+  }
+
+  /**
+   * Tests that the walk fails when the subtree holds more secrets than the path allows.
+   */
+  @Test
+  public void testLeaves() {
+    try {
+      read(path("secret/apps", 0, Path.DEFAULT_DEPTH, 2));
+      fail("Expected the leaf limit to be enforced");
+    } catch (VaultException exception) {
+      assertEquals("More than 2 secrets found beneath path secret/apps", exception.getMessage());
+    }
+  }
+
+  /**
+   * Tests that the walk fails when the subtree is empty or the path is pinned to a version.
+   */
+  @Test
+  public void testInvalid() {
+    try {
+      read(path("secret/missing", 0, Path.DEFAULT_DEPTH, Path.DEFAULT_LEAVES));
+      fail("Expected the empty subtree to be reported");
+    } catch (VaultException exception) {
+      assertEquals("No secrets found beneath path secret/missing", exception.getMessage());
+    }
+    try {
+      read(path("secret/apps", 3, Path.DEFAULT_DEPTH, Path.DEFAULT_LEAVES));
+      fail("Expected the pinned version to be rejected");
+    } catch (VaultException exception) {
+      assertEquals("Recursive path secret/apps cannot be pinned to a version", exception.getMessage());
+    }
+  }
+
+  /**
+   * Tests that pulling a recursive path maps each secret to a property named by its relative path.
+   */
+  @Test
+  public void testPull() throws VaultException {
+    Path path = new Path("secret/apps", ImmutableList.of(new Mapping("a/svc/prod/password", "prod.password")), 0,
+        "apps.", null, ImmutableList.of("b/*"), true, Path.DEFAULT_DEPTH, Path.DEFAULT_LEAVES);
+    Properties properties = new Properties();
+    Vaults.pull(Plan.pull(ImmutableList.of(server(ImmutableList.of(path)))), properties, SecretCache.NONE,
+        Deadline.NONE, Metrics.NONE);
+    assertEquals(ImmutableMap.of(
+        "apps.shared.password", "secret/apps/shared",
+        "apps.a.svc.prod.password", "secret/apps/a/svc/prod",
+        "prod.password", "secret/apps/a/svc/prod"), properties);
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import org.apache.maven.execution.BuildFailure;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Provides unit tests for the {@link TokenRenewer} class.
+ */
+public class TestTokenRenewer {
+
+  private FakeVault vault;
+
+  /**
+   * Starts a fake that answers token lookups and renewals with a one second lease.
+   */
+  @Before
+  public void start() throws IOException {
+    this.vault = new FakeVault(1, UUID.randomUUID().toString());
+    this.vault.setTokenTtl(1);
+  }
+
+  /**
+   * Stops the fake.
+   */
+  @After
+  public void stop() {
+    this.vault.close();
+  }
+
+  private Server server(String token) {
+    if (token != null) {
+      this.vault.addToken(token);
+    }
+    return new Server(this.vault.getUrl(), token, true, null, ImmutableList.of(), false, Server.DEFAULT_PARALLELISM,
+        new Connection(), Server.DEFAULT_KV_VERSION, new Retry(), null);
+  }
+
+  private List<String> requests() {
+    return this.vault.getLog().stream().map(FakeVault.Request::getPath).collect(Collectors.toList());
+  }
+
+  /**
+   * Tests that {@link TokenRenewer#renew(Server)} renews a token repeatedly and only once per token.
+   */
+  @Test
+  public void testRenew() throws InterruptedException {
+    TokenRenewer renewer = new TokenRenewer(() -> false, new SystemStreamLog(), 100);
+    try {
+      String token = UUID.randomUUID().toString();
+      renewer.renew(server(token));
+      renewer.renew(server(token));
+      assertTrue(this.vault.await("renew", 2, 10000));
+      assertEquals(ImmutableList.of("auth/token/lookup-self", "auth/token/renew-self", "auth/token/renew-self"),
+          requests().subList(0, 3));
+    } finally {
+      renewer.close();
+    }
+  }
+
+  /**
+   * Tests that {@link TokenRenewer#renew(Server)} does not renew a token that is not renewable.
+   */
+  @Test
+  public void testRenewNotRenewable() throws InterruptedException {
+    this.vault.setRenewable(false);
+    TokenRenewer renewer = new TokenRenewer(() -> false, new SystemStreamLog(), 100);
+    try {
+      renewer.renew(server(UUID.randomUUID().toString()));
+      renewer.renew(server(null));
+      assertFalse(this.vault.await("renew", 1, 1000));
+      assertEquals(ImmutableList.of("auth/token/lookup-self"), requests());
+    } finally {
+      renewer.close();
+    }
+  }
+
+  /**
+   * Tests that a {@link TokenRenewer} stops renewing once its session has ended.
+   */
+  @Test
+  public void testStopsWhenSessionEnds() throws InterruptedException {
+    AtomicBoolean ended = new AtomicBoolean();
+    TokenRenewer renewer = new TokenRenewer(ended::get, new SystemStreamLog(), 100);
+    try {
+      renewer.renew(server(UUID.randomUUID().toString()));
+      assertTrue(this.vault.await("renew", 2, 10000));
+      ended.set(true);
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!renewer.isClosed() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertTrue(renewer.isClosed());
+      int requests = this.vault.getRequests();
+      Thread.sleep(1000);
+      assertEquals(requests, this.vault.getRequests());
+    } finally {
+      renewer.close();
+    }
+  }
+
+  /**
+   * Tests that {@link TokenRenewer#isFinished(MavenSession)} waits for every project of a session to be built and
+   * treats a discarded session as finished.
+   */
+  @Test
+  public void testIsFinished() {
+    MavenProject first = new MavenProject();
+    MavenProject second = new MavenProject();
+    MavenExecutionResult result = new DefaultMavenExecutionResult();
+    MavenSession session = new MavenSession(null, new DefaultMavenExecutionRequest(), result,
+        ImmutableList.of(first, second));
+    assertFalse(TokenRenewer.isFinished(session));
+    result.addBuildSummary(new BuildSuccess(first, 0));
+    assertFalse(TokenRenewer.isFinished(session));
+    result.addBuildSummary(new BuildSuccess(second, 0));
+    assertTrue(TokenRenewer.isFinished(session));
+    assertTrue(TokenRenewer.isFinished(null));
+  }
+
+  /**
+   * Tests that {@link TokenRenewer#isFinished(MavenSession)} treats a fail-fast build as finished once a project has
+   * failed, although a project skipped after the failure never gets a build summary, and keeps waiting for the other
+   * projects of a build that fails at the end.
+   */
+  @Test
+  public void testIsFinishedAfterFailure() {
+    MavenProject first = new MavenProject();
+    MavenProject second = new MavenProject();
+    MavenExecutionResult result = new DefaultMavenExecutionResult();
+    DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    MavenSession session = new MavenSession(null, request, result, ImmutableList.of(first, second));
+    result.addBuildSummary(new BuildFailure(first, 0, new IllegalStateException("failed")));
+    assertFalse(TokenRenewer.isFinished(session));
+    result.addException(new IllegalStateException("failed"));
+    request.setReactorFailureBehavior(MavenExecutionRequest.REACTOR_FAIL_AT_END);
+    assertFalse(TokenRenewer.isFinished(session));
+    request.setReactorFailureBehavior(MavenExecutionRequest.REACTOR_FAIL_FAST);
+    assertTrue(TokenRenewer.isFinished(session));
+  }
+
+}
@@ -0,0 +1,748 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.cache.DiskCache;
+import com.deciphernow.maven.plugins.vault.cache.FingerprintStore;
+import com.deciphernow.maven.plugins.vault.cache.SecretCache;
+import com.deciphernow.maven.plugins.vault.cache.Snapshot;
+import com.deciphernow.maven.plugins.vault.client.Deadline;
+import com.deciphernow.maven.plugins.vault.client.DeadlineExceededException;
+import com.deciphernow.maven.plugins.vault.client.Metrics;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Mapping;
+import com.deciphernow.maven.plugins.vault.config.Path;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Vaults} class against a {@link FakeVault}.
+ */
+public class TestVaults {
+
+  private static final String URL = "https://vault.example.com";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Server server(String url, String token, List<Path> paths, int parallelism, int kvVersion) {
+    return new Server(url, token, true, null, paths, false, parallelism, new Connection(), kvVersion,
+        new Retry(3, 1, 10, 0, 0), null);
+  }
+
+  private static Plan plan(Path... paths) {
+    return Plan.pull(ImmutableList.of(new Server(URL, null, true, null, ImmutableList.copyOf(paths), false)));
+  }
+
+  private Snapshot snapshot() throws IOException, GeneralSecurityException {
+    File file = new File(this.folder.getRoot(), "vault.snapshot");
+    Snapshot.write(file, "passphrase", ImmutableMap.of(
+        Snapshot.key(URL, "secret/user", 0, "username"), "latest",
+        Snapshot.key(URL, "secret/user", 2, "username"), "pinned"));
+    return Snapshot.open(file, "passphrase");
+  }
+
+  private static List<String> requests(FakeVault vault) {
+    return vault.getLog().stream().map(request -> String.format("%s %s", request.getMethod(), request.getBody()).trim())
+        .collect(Collectors.toList());
+  }
+
+  private static FakeVault.Interceptor meet(CountDownLatch latch, FakeVault.Reply failure) {
+    return (request, next) -> {
+      latch.countDown();
+      if (!latch.await(5, TimeUnit.SECONDS)) {
+        return FakeVault.Reply.of(503);
+      }
+      return failure == null ? next.handle(request) : failure;
+    };
+  }
+
+  private static Map<String, List<String>> methods(List<FakeVault.Request> requests) {
+    Map<String, List<String>> methods = new LinkedHashMap<>();
+    requests.forEach(request -> methods.computeIfAbsent(request.getPath(), key -> new ArrayList<>())
+        .add(request.getMethod()));
+    return methods;
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} resolves mappings in the order the servers and paths are declared,
+   * so the last declared mapping of a property wins, however the concurrent reads complete.
+   */
+  @Test
+  public void testPullOrderIsDeterministic() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "slow")) {
+      vault.addToken("fast");
+      vault.intercept((request, next) -> {
+        String path = request.getPath();
+        Thread.sleep(2L * (20 - Integer.parseInt(path.substring(path.lastIndexOf('/') + 1))));
+        return next.handle(request);
+      });
+      List<Server> servers = new ArrayList<>();
+      for (String engine : ImmutableList.of("slow", "fast")) {
+        List<Path> paths = new ArrayList<>();
+        for (int index = engine.equals("slow") ? 0 : 10; index < 20; index++) {
+          String name = String.format("%s/%d", engine, index);
+          vault.put(name, ImmutableMap.of("value", name));
+          paths.add(new Path(name, ImmutableList.of(new Mapping("value", "shared"),
+              new Mapping("value", String.format("%s.%d", engine, index)))));
+        }
+        servers.add(server(vault.getUrl(), engine, paths, 8, Server.DEFAULT_KV_VERSION));
+      }
+      for (int attempt = 0; attempt < 3; attempt++) {
+        Properties properties = new Properties();
+        Vaults.pull(servers, properties);
+        assertEquals("fast/19", properties.getProperty("shared"));
+        assertEquals("slow/0", properties.getProperty("slow.0"));
+        assertEquals(31, properties.size());
+      }
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} reports the failure of the earliest declared path even when a
+   * later path fails first, starts no further reads once a read has failed, and leaves the properties untouched.
+   */
+  @Test
+  public void testPullReportsFirstFailure() throws IOException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.intercept((request, next) -> {
+        if (request.getPath().equals("secret/3")) {
+          return FakeVault.Reply.of(403);
+        }
+        Thread.sleep(50);
+        return next.handle(request);
+      });
+      List<Path> paths = new ArrayList<>();
+      for (int index = 0; index < 20; index++) {
+        if (index != 1) {
+          vault.put(String.format("secret/%d", index), ImmutableMap.of("value", "value"));
+        }
+        paths.add(new Path(String.format("secret/%d", index), ImmutableList.of(new Mapping("value",
+            String.format("property.%d", index)))));
+      }
+      Server server = server(vault.getUrl(), "token", paths, 4, Server.DEFAULT_KV_VERSION);
+      Properties properties = new Properties();
+      try {
+        Vaults.pull(ImmutableList.of(server), properties);
+        fail("Expected the failed read to be reported");
+      } catch (VaultException exception) {
+        assertEquals(404, exception.getHttpStatusCode());
+      }
+      assertEquals(4, vault.getRequests());
+      assertTrue(properties.isEmpty());
+    }
+  }
+
+  /**
+   * Tests that when two paths fail, {@link Vaults#pull(List, Properties)} reports the failure of the path declared first,
+   * whether it is a missing key or a denied read, even though the other failure completes first.
+   */
+  @Test
+  public void testPullReportsFailuresInDeclaredOrder() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/missing", ImmutableMap.of("username", "value"));
+      vault.put("secret/denied", ImmutableMap.of("username", "value"));
+      vault.intercept((request, next) -> {
+        if (request.getPath().equals("secret/denied")) {
+          return FakeVault.Reply.of(403);
+        }
+        Thread.sleep(200);
+        return next.handle(request);
+      });
+      Path missing = new Path("secret/missing", ImmutableList.of(new Mapping("password", "password")));
+      Path denied = new Path("secret/denied", ImmutableList.of(new Mapping("username", "username")));
+      try {
+        Vaults.pull(ImmutableList.of(server(vault.getUrl(), "token", ImmutableList.of(missing, denied), 2,
+            Server.DEFAULT_KV_VERSION)), new Properties());
+        fail("Expected the missing key to be reported");
+      } catch (NoSuchElementException exception) {
+        assertTrue(exception.getMessage().contains("secret/missing"));
+      }
+      vault.intercept((request, next) -> {
+        if (request.getPath().equals("secret/denied")) {
+          Thread.sleep(200);
+          return FakeVault.Reply.of(403);
+        }
+        return next.handle(request);
+      });
+      try {
+        Vaults.pull(ImmutableList.of(server(vault.getUrl(), "token", ImmutableList.of(denied, missing), 2,
+            Server.DEFAULT_KV_VERSION)), new Properties());
+        fail("Expected the denied read to be reported");
+      } catch (VaultException exception) {
+        assertEquals(403, exception.getHttpStatusCode());
+      }
+    }
+  }
+
+  /**
+   * Tests that a pull from a stalled server fails at the deadline and closes the connections of its reads rather than
+   * leaving them open behind the cancelled pipeline.
+   */
+  @Test
+  public void testPullDeadlineClosesConnections() throws InterruptedException, IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.intercept((request, next) -> FakeVault.Reply.stall());
+      Path path = new Path("secret/user", ImmutableList.of(new Mapping("username", "username")));
+      Plan plan = Plan.pull(ImmutableList.of(server(vault.getUrl(), "token", ImmutableList.of(path), 1,
+          Server.DEFAULT_KV_VERSION)));
+      Properties properties = new Properties();
+      try {
+        Vaults.pull(plan, properties, SecretCache.NONE, Deadline.after(1), Metrics.NONE);
+        fail("Expected the deadline to expire");
+      } catch (DeadlineExceededException exception) {
+        assertTrue(vault.awaitDisconnects(1, 5000));
+      }
+      assertTrue(properties.isEmpty());
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} leaves the properties untouched when a mapped key is missing, even
+   * though every path was read and the earlier mappings were resolved.
+   */
+  @Test
+  public void testPullFailureLeavesProperties() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/first", ImmutableMap.of("username", "first"));
+      vault.put("secret/second", ImmutableMap.of("username", "second"));
+      Server server = server(vault.getUrl(), "token", ImmutableList.of(
+          new Path("secret/first", ImmutableList.of(new Mapping("username", "username"))),
+          new Path("secret/second", ImmutableList.of(new Mapping("password", "password")))), 1,
+          Server.DEFAULT_KV_VERSION);
+      Properties properties = new Properties();
+      properties.setProperty("username", "unchanged");
+      try {
+        Vaults.pull(ImmutableList.of(server), properties);
+        fail("Expected the missing key to be reported");
+      } catch (NoSuchElementException exception) {
+        assertEquals(2, vault.getRequests());
+      }
+      assertEquals(ImmutableMap.of("username", "unchanged"), properties);
+    }
+  }
+
+  /**
+   * Tests that concurrent calls to {@link Vaults#pull(List, Properties)} into the same properties publish whole batches,
+   * so a copy taken under the lock of the properties never holds part of a batch or a mix of two.
+   */
+  @Test
+  public void testConcurrentPullsPublishWholeBatches() throws Exception {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      List<List<Server>> plans = new ArrayList<>();
+      for (int batch = 0; batch < 4; batch++) {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        List<Mapping> mappings = new ArrayList<>();
+        for (int key = 0; key < 50; key++) {
+          secrets.put(String.format("key.%d", key), String.format("batch.%d", batch));
+          mappings.add(new Mapping(String.format("key.%d", key), String.format("property.%d", key)));
+        }
+        String name = String.format("secret/%d", batch);
+        vault.put(name, secrets);
+        plans.add(ImmutableList.of(server(vault.getUrl(), "token", ImmutableList.of(new Path(name, mappings)), 1,
+            Server.DEFAULT_KV_VERSION)));
+      }
+      Properties properties = new Properties();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> pulls = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+          for (List<Server> servers : plans) {
+            pulls.add(executor.submit(() -> {
+              Vaults.pull(servers, properties);
+              return null;
+            }));
+          }
+        }
+        while (!pulls.stream().allMatch(Future::isDone)) {
+          Properties copy = (Properties) properties.clone();
+          assertTrue(copy.isEmpty() || (copy.size() == 50 && new HashSet<>(copy.values()).size() == 1));
+        }
+        for (Future<?> pull : pulls) {
+          pull.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      assertEquals(50, properties.size());
+      assertEquals(1, new HashSet<>(properties.values()).size());
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} reads from every server at the same time and still lets a later
+   * server overwrite the values of an earlier one.
+   */
+  @Test
+  public void testPullServersConcurrently() throws IOException, VaultException {
+    try (FakeVault first = new FakeVault(1, "token"); FakeVault second = new FakeVault(1, "token")) {
+      CountDownLatch latch = new CountDownLatch(2);
+      List<Server> servers = new ArrayList<>();
+      for (FakeVault vault : ImmutableList.of(first, second)) {
+        vault.put("secret/user", ImmutableMap.of("username", vault.getUrl()));
+        vault.intercept(meet(latch, null));
+        servers.add(server(vault.getUrl(), "token", ImmutableList.of(new Path("secret/user",
+            ImmutableList.of(new Mapping("username", "username")))), 1, Server.DEFAULT_KV_VERSION));
+      }
+      Properties properties = new Properties();
+      Vaults.pull(servers, properties);
+      assertEquals(second.getUrl(), properties.getProperty("username"));
+      assertEquals(1, first.getRequests());
+      assertEquals(1, second.getRequests());
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(List, Properties)} reports the failure of the earliest declared server with the
+   * failures of later servers suppressed, lets every server finish and leaves the properties untouched.
+   */
+  @Test
+  public void testPullServersFailure() throws IOException {
+    try (FakeVault healthy = new FakeVault(1, "token"); FakeVault denied = new FakeVault(1, "token");
+         FakeVault empty = new FakeVault(1, "token")) {
+      CountDownLatch latch = new CountDownLatch(3);
+      healthy.intercept(meet(latch, null));
+      denied.intercept(meet(latch, FakeVault.Reply.of(403)));
+      empty.intercept(meet(latch, null));
+      List<Server> servers = new ArrayList<>();
+      for (FakeVault vault : ImmutableList.of(healthy, denied, empty)) {
+        if (vault != empty) {
+          vault.put("secret/user", ImmutableMap.of("username", vault.getUrl()));
+        }
+        servers.add(server(vault.getUrl(), "token", ImmutableList.of(new Path("secret/user",
+            ImmutableList.of(new Mapping("username", "username")))), 1, Server.DEFAULT_KV_VERSION));
+      }
+      Properties properties = new Properties();
+      properties.setProperty("username", "unchanged");
+      try {
+        Vaults.pull(servers, properties);
+        fail("Expected the denied server to be reported");
+      } catch (VaultException exception) {
+        assertEquals(403, exception.getHttpStatusCode());
+        assertEquals(1, exception.getSuppressed().length);
+        assertEquals(404, ((VaultException) exception.getSuppressed()[0]).getHttpStatusCode());
+      }
+      assertEquals(ImmutableMap.of("username", "unchanged"), properties);
+      for (FakeVault vault : ImmutableList.of(healthy, denied, empty)) {
+        assertEquals(1, vault.getRequests());
+      }
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} writes to every server at the same time and that a server that
+   * denies the token does not keep the values from the other servers.
+   */
+  @Test
+  public void testPushServersConcurrently() throws IOException, VaultException {
+    try (FakeVault denied = new FakeVault(1, "token"); FakeVault healthy = new FakeVault(1, "token")) {
+      CountDownLatch latch = new CountDownLatch(2);
+      denied.intercept(meet(latch, FakeVault.Reply.of(403)));
+      healthy.intercept(meet(latch, null));
+      List<Server> servers = new ArrayList<>();
+      for (FakeVault vault : ImmutableList.of(denied, healthy)) {
+        servers.add(server(vault.getUrl(), "token", ImmutableList.of(new Path("secret/user",
+            ImmutableList.of(new Mapping("username", "username")))), 1, Server.DEFAULT_KV_VERSION));
+      }
+      Properties properties = new Properties();
+      properties.setProperty("username", "value");
+      try {
+        Vaults.push(servers, properties);
+        fail("Expected the denied server to be reported");
+      } catch (PushException exception) {
+        assertEquals(ImmutableList.of(String.format("secret/user on %s", denied.getUrl())),
+            ImmutableList.copyOf(exception.getResult().getFailed().keySet()));
+        assertEquals(ImmutableList.of(String.format("secret/user on %s", healthy.getUrl())),
+            exception.getResult().getWritten());
+      }
+      assertEquals(ImmutableMap.of("username", "value"), healthy.get("secret/user"));
+      assertNull(denied.get("secret/user"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} rejects a path mapped only by a prefix, as it rejects recursive
+   * paths, before writing any path of the server rather than skipping it silently.
+   */
+  @Test
+  public void testPushPrefixOnlyRejected() throws IOException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      Properties properties = new Properties();
+      properties.setProperty("username", "value");
+      properties.setProperty("app.password", "value");
+      Server server = server(vault.getUrl(), "token", ImmutableList.of(
+          new Path("secret/user", ImmutableList.of(new Mapping("username", "username"))),
+          new Path("secret/app", ImmutableList.of(), 0, "app.", null, null)), 1, Server.DEFAULT_KV_VERSION);
+      try {
+        Vaults.push(ImmutableList.of(server), properties);
+        fail("Expected the prefix-only path to be rejected");
+      } catch (VaultException exception) {
+        assertEquals("Path secret/app maps its keys only by prefix and cannot be pushed; add mappings for the keys to "
+            + "push", exception.getMessage());
+      }
+      assertEquals(0, vault.getRequests());
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} writes a path whose latest version was deleted with check-and-set
+   * against the deleted version rather than patching it.
+   */
+  @Test
+  public void testPushDeleted() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      for (String value : ImmutableList.of("first", "second", "third")) {
+        vault.put("secret/app", ImmutableMap.of("username", value));
+      }
+      vault.delete("secret/app");
+      Properties properties = new Properties();
+      properties.setProperty("app.username", "value");
+      Server server = server(vault.getUrl(), "token",
+          ImmutableList.of(new Path("secret/app", ImmutableList.of(new Mapping("username", "app.username")))), 1, 2);
+      assertEquals(1, Vaults.push(ImmutableList.of(server), properties).getWritten().size());
+      assertEquals(ImmutableList.of("GET", "POST {\"data\":{\"username\":\"value\"},\"options\":{\"cas\":3}}"),
+          requests(vault));
+      assertEquals(ImmutableMap.of("username", "value"), vault.get("secret/app"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} writes the merged secrets with check-and-set when the token may
+   * update a path but not patch it.
+   */
+  @Test
+  public void testPushPatchDenied() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      vault.put("secret/app", ImmutableMap.of("username", "older", "password", "kept"));
+      vault.put("secret/app", ImmutableMap.of("username", "old", "password", "kept"));
+      vault.intercept((request, next) -> request.getMethod().equals("PATCH")
+          ? FakeVault.Reply.of(403)
+          : next.handle(request));
+      Properties properties = new Properties();
+      properties.setProperty("app.username", "value");
+      Server server = server(vault.getUrl(), "token",
+          ImmutableList.of(new Path("secret/app", ImmutableList.of(new Mapping("username", "app.username")))), 1, 2);
+      assertEquals(1, Vaults.push(ImmutableList.of(server), properties).getWritten().size());
+      List<String> requests = requests(vault);
+      assertEquals(3, requests.size());
+      assertEquals("PATCH {\"data\":{\"username\":\"value\"},\"options\":{\"cas\":2}}", requests.get(1));
+      assertTrue(requests.get(2).startsWith("POST "));
+      assertTrue(requests.get(2).contains("\"password\":\"kept\""));
+      assertTrue(requests.get(2).contains("\"username\":\"value\""));
+      assertTrue(requests.get(2).endsWith("\"options\":{\"cas\":2}}"));
+      assertEquals(ImmutableMap.of("username", "value", "password", "kept"), vault.get("secret/app"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(List, Properties)} reports a path as written when a write that failed with a server
+   * error was applied, so that the retried write fails check-and-set against a path already holding the values.
+   */
+  @Test
+  public void testPushRetriedWrite() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      vault.put("secret/app", ImmutableMap.of("username", "old"));
+      AtomicBoolean failed = new AtomicBoolean();
+      vault.intercept((request, next) -> {
+        FakeVault.Reply reply = next.handle(request);
+        return request.getMethod().equals("PATCH") && failed.compareAndSet(false, true)
+            ? FakeVault.Reply.of(500)
+            : reply;
+      });
+      Properties properties = new Properties();
+      properties.setProperty("app.username", "value");
+      Server server = server(vault.getUrl(), "token",
+          ImmutableList.of(new Path("secret/app", ImmutableList.of(new Mapping("username", "app.username")))), 1, 2);
+      assertEquals(1, Vaults.push(ImmutableList.of(server), properties).getWritten().size());
+      assertEquals(ImmutableList.of("GET", "PATCH", "PATCH", "GET"), vault.getLog().stream()
+          .map(FakeVault.Request::getMethod).collect(Collectors.toList()));
+      assertEquals(ImmutableMap.of("username", "value"), vault.get("secret/app"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(Plan, Properties, Snapshot)} resolves every mapping from a snapshot.
+   */
+  @Test
+  public void testPullSnapshot() throws GeneralSecurityException, IOException, VaultException {
+    Properties properties = new Properties();
+    try (Snapshot snapshot = snapshot()) {
+      Vaults.pull(plan(new Path("secret/user", ImmutableList.of(new Mapping("username", "latest"))),
+          new Path("secret/user", ImmutableList.of(new Mapping("username", "pinned")), 2)), properties, snapshot);
+    }
+    assertEquals("latest", properties.getProperty("latest"));
+    assertEquals("pinned", properties.getProperty("pinned"));
+  }
+
+  /**
+   * Tests that {@link Vaults#pull(Plan, Properties, Snapshot)} fails without updating the properties when a mapping is
+   * missing from a snapshot.
+   */
+  @Test
+  public void testPullSnapshotMissing() throws GeneralSecurityException, IOException, VaultException {
+    Properties properties = new Properties();
+    try (Snapshot snapshot = snapshot()) {
+      Vaults.pull(plan(new Path("secret/user", ImmutableList.of(new Mapping("username", "latest"),
+          new Mapping("password", "password")))), properties, snapshot);
+      fail("Expected the missing key to be reported");
+    } catch (NoSuchElementException exception) {
+      assertEquals("No value found in path secret/user for key password", exception.getMessage());
+    }
+    assertTrue(properties.isEmpty());
+  }
+
+  /**
+   * Tests that a path with a prefix maps every included key both when pulling from Vault and from a snapshot.
+   */
+  @Test
+  public void testPullPrefix() throws GeneralSecurityException, IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/app", ImmutableMap.of("db.url", "url", "db.internal", "internal", "api.key", "key",
+          "other", "other"));
+      Path path = new Path("secret/app", ImmutableList.of(new Mapping("other", "app.db.url")), 0, "app.",
+          ImmutableList.of("db.*", "api.?ey"), ImmutableList.of("*.internal"));
+      Server server = new Server(vault.getUrl(), "token", true, null, ImmutableList.of(path), false);
+      Plan plan = Plan.pull(ImmutableList.of(server));
+      Properties online = new Properties();
+      Vaults.pull(plan, online, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+      assertEquals(ImmutableMap.of("app.db.url", "other", "app.api.key", "key"), online);
+      File file = new File(this.folder.getRoot(), "vault.snapshot");
+      Snapshot.write(file, "passphrase", Vaults.snapshot(plan, SecretCache.NONE, Deadline.NONE, Metrics.NONE));
+      Properties offline = new Properties();
+      try (Snapshot snapshot = Snapshot.open(file, "passphrase")) {
+        Vaults.pull(plan, offline, snapshot);
+      }
+      assertEquals(online, offline);
+    }
+  }
+
+  /**
+   * Tests that a pinned version of a path is served from the disk cache without contacting Vault once it has been read
+   * with a token, that it is encrypted so its value is not written in the clear, and that a build holding another token
+   * does not find it.
+   */
+  @Test
+  public void testPullServesPinnedVersionsFromDisk() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "first")) {
+      vault.addToken("second");
+      vault.put("secret/user", ImmutableMap.of("username", "pinned"));
+      vault.put("secret/user", ImmutableMap.of("username", "latest"));
+      Path path = new Path("secret/user", ImmutableList.of(new Mapping("username", "username")), 1, null, null, null);
+      DiskCache cache = new DiskCache(this.folder.getRoot(), 300, new SystemStreamLog());
+      for (String token : ImmutableList.of("first", "first", "second", "second")) {
+        Properties properties = new Properties();
+        Vaults.pull(Plan.pull(ImmutableList.of(server(vault.getUrl(), token, ImmutableList.of(path), 1, 2))),
+            properties, cache, Deadline.NONE, Metrics.NONE);
+        assertEquals("pinned", properties.getProperty("username"));
+      }
+      assertEquals(2, vault.getRequests());
+      File[] files = this.folder.getRoot().listFiles();
+      assertEquals(2, files.length);
+      for (File file : files) {
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1).contains("pinned"));
+      }
+    }
+  }
+
+  /**
+   * Tests that declarations of a path that differ only in their prefix and patterns read the path once, and that each
+   * maps the keys it includes with its own prefix when pulling and exporting.
+   */
+  @Test
+  public void testPullPrefixesShareRead() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/app", ImmutableMap.of("db.url", "url", "api.key", "key"));
+      Path database = new Path("secret/app", null, 0, "database.", ImmutableList.of("db.*"), null);
+      Path api = new Path("secret/app", ImmutableList.of(new Mapping("db.url", "url")), 0, "api.", null,
+          ImmutableList.of("db.*"));
+      Server server = new Server(vault.getUrl(), "token", true, null, ImmutableList.of(database, api), false);
+      Plan plan = Plan.pull(ImmutableList.of(server));
+      Properties properties = new Properties();
+      Vaults.pull(plan, properties, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+      assertEquals(ImmutableMap.of("database.db.url", "url", "api.api.key", "key", "url", "url"), properties);
+      assertEquals(1, vault.getRequests("read"));
+      StringWriter writer = new StringWriter();
+      assertEquals(3, Vaults.export(plan, SecretCache.NONE, Deadline.NONE, Metrics.NONE, ExportFormat.PROPERTIES,
+          writer));
+      assertEquals(String.format("database.db.url=url%napi.api.key=key%nurl=url%n"), writer.toString());
+      assertEquals(2, vault.getRequests("read"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#export(Plan, SecretCache, Deadline, Metrics, ExportFormat, java.io.Writer)} writes the
+   * values of every path in order while reading no more paths at once than the parallelism of the server.
+   */
+  @Test
+  public void testExport() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.setLatency(5);
+      List<Path> paths = new ArrayList<>();
+      for (int index = 0; index < 40; index++) {
+        String name = String.format("secret/%d", index);
+        vault.put(name, ImmutableMap.of("value", name));
+        paths.add(new Path(name, ImmutableList.of(new Mapping("value", String.format("property.%d", index)))));
+      }
+      Server server = new Server(vault.getUrl(), "token", true, null, paths, false, 3, new Connection(),
+          Server.DEFAULT_KV_VERSION, new Retry(), null);
+      StringWriter writer = new StringWriter();
+      int count = Vaults.export(Plan.pull(ImmutableList.of(server)), SecretCache.NONE, Deadline.NONE,
+          Metrics.NONE, ExportFormat.PROPERTIES, writer);
+      assertEquals(40, count);
+      assertTrue(vault.getMaximumConcurrency() <= 3);
+      String[] lines = writer.toString().split("\n");
+      assertEquals(40, lines.length);
+      assertEquals("property.0=secret/0", lines[0]);
+      assertEquals("property.39=secret/39", lines[39]);
+      Properties properties = new Properties();
+      properties.load(new StringReader(writer.toString()));
+      assertEquals("secret/17", properties.getProperty("property.17"));
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#export(Plan, SecretCache, Deadline, Metrics, ExportFormat, java.io.Writer)} writes values
+   * in the order the servers were declared rather than the order of the combined servers, so that a property mapped by
+   * more than one server exports the value pull assigns.
+   */
+  @Test
+  public void testExportDeclaredOrder() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "first")) {
+      vault.addToken("second");
+      for (String name : ImmutableList.of("secret/one", "secret/two", "secret/three")) {
+        vault.put(name, ImmutableMap.of("value", name));
+      }
+      String url = vault.getUrl();
+      List<Mapping> mappings = ImmutableList.of(new Mapping("value", "property"));
+      Plan plan = Plan.pull(ImmutableList.of(
+          new Server(url, "first", true, null, ImmutableList.of(new Path("secret/one", mappings)), false),
+          new Server(url, "second", true, null, ImmutableList.of(new Path("secret/two", mappings)), false),
+          new Server(url, "first", true, null, ImmutableList.of(new Path("secret/three", mappings)), false)));
+      Properties pulled = new Properties();
+      Vaults.pull(plan, pulled, SecretCache.NONE, Deadline.NONE, Metrics.NONE);
+      StringWriter writer = new StringWriter();
+      assertEquals(3, Vaults.export(plan, SecretCache.NONE, Deadline.NONE, Metrics.NONE, ExportFormat.PROPERTIES,
+          writer));
+      assertEquals(String.format("property=secret/one%nproperty=secret/two%nproperty=secret/three%n"),
+          writer.toString());
+      Properties exported = new Properties();
+      exported.load(new StringReader(writer.toString()));
+      assertEquals("secret/three", pulled.getProperty("property"));
+      assertEquals(pulled, exported);
+    }
+  }
+
+  /**
+   * Tests that {@link Vaults#push(Plan, Properties, SecretCache, FingerprintStore, Deadline, Metrics)} pushes paths
+   * concurrently up to the parallelism of the server, reads each path before writing it, reports the paths that failed
+   * without stopping the others and, when pushed again, retries only the paths that failed.
+   */
+  @Test
+  public void testPushPartialFailure() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.setLatency(5);
+      vault.intercept((request, next) -> request.getPath().equals("secret/bad") && request.getMethod().equals("POST")
+          ? FakeVault.Reply.of(400)
+          : next.handle(request));
+      List<Path> paths = new ArrayList<>();
+      Properties properties = new Properties();
+      for (int index = 0; index < 20; index++) {
+        String name = index == 7 ? "secret/bad" : String.format("secret/%d", index);
+        paths.add(new Path(name, ImmutableList.of(new Mapping("value", String.format("property.%d", index)))));
+        properties.setProperty(String.format("property.%d", index), name);
+      }
+      Server server = new Server(vault.getUrl(), "token", true, null, paths, false, 3, new Connection(),
+          Server.DEFAULT_KV_VERSION, new Retry(), null);
+      Map<String, Map<String, String>> recorded = new ConcurrentHashMap<>();
+      FingerprintStore fingerprints = new FingerprintStore() {
+
+        @Override
+        public boolean matches(Server server, String path, Map<String, String> values) {
+          return values.equals(recorded.get(path));
+        }
+
+        @Override
+        public void record(Server server, String path, Map<String, String> values) {
+          recorded.put(path, values);
+        }
+
+      };
+      Plan plan = Plan.push(ImmutableList.of(server));
+      try {
+        Vaults.push(plan, properties, SecretCache.NONE, fingerprints, Deadline.NONE, Metrics.NONE);
+        fail("Expected the failed path to be reported");
+      } catch (PushException exception) {
+        PushResult result = exception.getResult();
+        assertEquals(19, result.getWritten().size());
+        assertEquals(String.format("secret/0 on %s", server.getUrl()), result.getWritten().get(0));
+        assertEquals(ImmutableList.of(String.format("secret/bad on %s", server.getUrl())),
+            ImmutableList.copyOf(result.getFailed().keySet()));
+        assertTrue(exception.getMessage().startsWith("Failed to push 1 paths: secret/bad on"));
+      }
+      assertTrue(vault.getMaximumConcurrency() <= 3);
+      Map<String, List<String>> methods = methods(vault.getLog());
+      assertEquals(20, methods.size());
+      methods.values().forEach(pathMethods -> assertEquals(ImmutableList.of("GET", "POST"), pathMethods));
+      int pushed = vault.getRequests();
+      try {
+        Vaults.push(plan, properties, SecretCache.NONE, fingerprints, Deadline.NONE, Metrics.NONE);
+        fail("Expected the failed path to be reported again");
+      } catch (PushException exception) {
+        assertEquals(19, exception.getResult().getSkipped().size());
+      }
+      assertEquals(ImmutableList.of("secret/bad"), ImmutableList.copyOf(methods(vault.getLog().subList(pushed,
+          vault.getRequests())).keySet()));
+    }
+  }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link DiskCache} class.
+ */
+public class TestDiskCache {
+
+  private static final Clock CLOCK = Clock.systemUTC();
+  private static final String PATH = String.format("secret/%s", UUID.randomUUID().toString());
+  private static final Map<String, String> DATA = ImmutableMap.of(UUID.randomUUID().toString(),
+      UUID.randomUUID().toString());
+  private static final Server SERVER = server(UUID.randomUUID().toString());
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private static Server server(String token) {
+    return new Server("https://vault.example.com", token, true, null, ImmutableList.of(), false);
+  }
+
+  private AsyncSecretLoader loader(long leaseDuration) {
+    return () -> {
+      this.loads.incrementAndGet();
+      return CompletableFuture.completedFuture(new Secret(DATA, leaseDuration));
+    };
+  }
+
+  private DiskCache cache(long maximumTtl, Duration elapsed) {
+    return new DiskCache(this.folder.getRoot(), maximumTtl, new SystemStreamLog(), Clock.offset(CLOCK, elapsed));
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} serves a second read from disk.
+   */
+  @Test
+  public void testGetCachesSecrets() throws VaultException {
+    assertEquals(DATA, Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0))));
+    assertEquals(DATA, Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0))));
+    assertEquals(1, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} expires entries after the lease
+   * duration.
+   */
+  @Test
+  public void testGetHonoursLease() throws VaultException {
+    Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(10)));
+    Futures.join(cache(300, Duration.ofSeconds(9)).getAsync(SERVER, PATH, 0, loader(10)));
+    assertEquals(1, this.loads.get());
+    Futures.join(cache(300, Duration.ofSeconds(11)).getAsync(SERVER, PATH, 0, loader(10)));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} caps the lease duration at the
+   * maximum TTL.
+   */
+  @Test
+  public void testGetCapsLease() throws VaultException {
+    Futures.join(cache(60, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(3600)));
+    Futures.join(cache(60, Duration.ofSeconds(61)).getAsync(SERVER, PATH, 0, loader(3600)));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} stores nothing when the maximum TTL
+   * is zero.
+   */
+  @Test
+  public void testGetWithoutTtl() throws VaultException {
+    Futures.join(cache(0, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(3600)));
+    Futures.join(cache(0, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(3600)));
+    assertEquals(2, this.loads.get());
+    assertEquals(0, this.folder.getRoot().list().length);
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} keeps pinned versions regardless of
+   * their lease, the maximum TTL and invalidation of the path.
+   */
+  @Test
+  public void testGetKeepsPinnedVersions() throws VaultException {
+    Futures.join(cache(0, Duration.ZERO).getAsync(SERVER, PATH, 42, loader(10)));
+    cache(0, Duration.ZERO).invalidate(SERVER, PATH);
+    assertEquals(DATA, Futures.join(cache(0, Duration.ofDays(3650)).getAsync(SERVER, PATH, 42, loader(10))));
+    assertEquals(1, this.loads.get());
+    Futures.join(cache(0, Duration.ZERO).getAsync(SERVER, PATH, 43, loader(10)));
+    Futures.join(cache(0, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(10)));
+    assertEquals(3, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} does not share entries between
+   * tokens.
+   */
+  @Test
+  public void testGetSeparatesTokens() throws VaultException {
+    Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0)));
+    Futures.join(cache(300, Duration.ZERO).getAsync(server(UUID.randomUUID().toString()), PATH, 0, loader(0)));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} does not share entries between
+   * versions of the key/value secrets engine.
+   */
+  @Test
+  public void testGetSeparatesKvVersions() throws VaultException {
+    Server kv2 = new Server(SERVER.getUrl(), SERVER.getToken(), true, null, ImmutableList.of(), false,
+        Server.DEFAULT_PARALLELISM, new Connection(), 2, new Retry(), null);
+    Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0)));
+    Futures.join(cache(300, Duration.ZERO).getAsync(kv2, PATH, 0, loader(0)));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} stores secrets once their load
+   * completes and serves the next read from disk without loading.
+   */
+  @Test
+  public void testGetAsyncStoresLoadedSecrets() throws VaultException {
+    CompletableFuture<Secret> loading = new CompletableFuture<>();
+    CompletableFuture<Map<String, String>> first = cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, () -> loading);
+    assertEquals(0, this.folder.getRoot().list().length);
+    loading.complete(new Secret(DATA, 0));
+    assertEquals(DATA, Futures.join(first));
+    assertEquals(1, this.folder.getRoot().list().length);
+    CompletableFuture<Map<String, String>> second = cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, () -> {
+      throw new IllegalStateException("Expected the secrets to be read from disk");
+    });
+    assertTrue(second.isDone());
+    assertEquals(DATA, Futures.join(second));
+  }
+
+  /**
+   * Tests that {@link DiskCache#getAsync(Server, String, int, AsyncSecretLoader)} stores nothing when the load fails.
+   */
+  @Test
+  public void testGetAsyncFailure() {
+    CompletableFuture<Map<String, String>> secrets = cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0,
+        () -> Futures.failed(new VaultException("failed")));
+    try {
+      Futures.join(secrets);
+      fail("Expected an exception");
+    } catch (VaultException exception) {
+      assertEquals("failed", exception.getMessage());
+    }
+    assertEquals(0, this.folder.getRoot().list().length);
+  }
+
+  /**
+   * Tests that {@link DiskCache} encrypts entries and discards entries that have been tampered with.
+   */
+  @Test
+  public void testEncryption() throws IOException, VaultException {
+    Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0)));
+    File[] files = this.folder.getRoot().listFiles();
+    assertEquals(1, files.length);
+    byte[] bytes = Files.readAllBytes(files[0].toPath());
+    String content = new String(bytes, StandardCharsets.ISO_8859_1);
+    DATA.forEach((key, value) -> {
+      assertFalse(content.contains(key));
+      assertFalse(content.contains(value));
+    });
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(files[0].toPath(), bytes);
+    assertEquals(DATA, Futures.join(cache(300, Duration.ZERO).getAsync(SERVER, PATH, 0, loader(0))));
+    assertEquals(2, this.loads.get());
+  }
+
+}
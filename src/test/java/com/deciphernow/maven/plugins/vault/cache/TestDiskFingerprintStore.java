@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Provides unit tests for the {@link DiskFingerprintStore} class.
+ */
+public class TestDiskFingerprintStore {
+
+  private static final String PATH = String.format("secret/%s", UUID.randomUUID().toString());
+  private static final Map<String, String> VALUES = ImmutableMap.of(UUID.randomUUID().toString(),
+      UUID.randomUUID().toString(), UUID.randomUUID().toString(), UUID.randomUUID().toString());
+  private static final Clock CLOCK = Clock.systemUTC();
+  private static final Server SERVER = server(UUID.randomUUID().toString());
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Server server(String token) {
+    return new Server("https://vault.example.com", token, true, null, ImmutableList.of(), false);
+  }
+
+  private DiskFingerprintStore store() {
+    return store(Duration.ZERO);
+  }
+
+  private DiskFingerprintStore store(Duration elapsed) {
+    return new DiskFingerprintStore(new File(this.folder.getRoot(), "fingerprints"), 3600, new SystemStreamLog(),
+        Clock.offset(CLOCK, elapsed));
+  }
+
+  /**
+   * Tests that recorded values match and that changed values do not.
+   */
+  @Test
+  public void testMatches() {
+    assertFalse(store().matches(SERVER, PATH, VALUES));
+    store().record(SERVER, PATH, VALUES);
+    assertTrue(store().matches(SERVER, PATH, VALUES));
+    Map<String, String> changed = ImmutableMap.of(VALUES.keySet().iterator().next(), UUID.randomUUID().toString());
+    assertFalse(store().matches(SERVER, PATH, changed));
+    assertFalse(store().matches(SERVER, UUID.randomUUID().toString(), VALUES));
+    assertFalse(store().matches(server(UUID.randomUUID().toString()), PATH, VALUES));
+  }
+
+  /**
+   * Tests that fingerprints stop matching once their time to live has passed, so that the path is pushed again.
+   */
+  @Test
+  public void testExpires() {
+    store().record(SERVER, PATH, VALUES);
+    assertTrue(store(Duration.ofSeconds(3500)).matches(SERVER, PATH, VALUES));
+    assertFalse(store(Duration.ofSeconds(3700)).matches(SERVER, PATH, VALUES));
+  }
+
+  /**
+   * Tests that different sets of keys pushed to the same path keep separate fingerprints.
+   */
+  @Test
+  public void testSeparatesKeys() {
+    Map<String, String> other = ImmutableMap.of(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    store().record(SERVER, PATH, VALUES);
+    store().record(SERVER, PATH, other);
+    assertTrue(store().matches(SERVER, PATH, VALUES));
+    assertTrue(store().matches(SERVER, PATH, other));
+  }
+
+  /**
+   * Tests that fingerprints do not contain the pushed values.
+   */
+  @Test
+  public void testConcealsValues() throws IOException {
+    store().record(SERVER, PATH, VALUES);
+    File[] files = new File(this.folder.getRoot(), "fingerprints").listFiles();
+    assertEquals(1, files.length);
+    String content = new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.ISO_8859_1);
+    VALUES.forEach((key, value) -> {
+      assertFalse(content.contains(key));
+      assertFalse(content.contains(value));
+    });
+  }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.client.DeadlineExceededException;
+import com.deciphernow.maven.plugins.vault.client.Futures;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link SessionCache} class.
+ */
+public class TestSessionCache {
+
+  private static final String PATH = String.format("secret/%s", UUID.randomUUID().toString());
+  private static final Map<String, String> DATA = ImmutableMap.of(UUID.randomUUID().toString(),
+      UUID.randomUUID().toString());
+  private static final Server SERVER = new Server("https://vault.example.com", UUID.randomUUID().toString(), true,
+      null, ImmutableList.of(), false);
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final SecretCache cache = new SessionCache().backedBy(SecretCache.NONE, new SystemStreamLog());
+
+  private AsyncSecretLoader loader() {
+    return () -> {
+      this.loads.incrementAndGet();
+      return CompletableFuture.completedFuture(new Secret(DATA, 0));
+    };
+  }
+
+  /**
+   * Tests that concurrent reads of the same path share a single load.
+   */
+  @Test
+  public void testSingleFlight() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CompletableFuture<Void> release = new CompletableFuture<>();
+    AsyncSecretLoader blocking = () -> {
+      started.countDown();
+      return release.thenCompose(ignored -> loader().load());
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Map<String, String>>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> Futures.join(this.cache.getAsync(SERVER, PATH, 0, blocking))));
+      started.await();
+      for (int index = 0; index < 7; index++) {
+        futures.add(executor.submit(() -> Futures.join(this.cache.getAsync(SERVER, PATH, 0, blocking))));
+      }
+      release.complete(null);
+      for (Future<Map<String, String>> future : futures) {
+        assertEquals(DATA, future.get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, this.loads.get());
+  }
+
+  /**
+   * Tests that asynchronous reads of the same path share a single load that is still in flight, and that later reads
+   * are served from the cache.
+   */
+  @Test
+  public void testSingleFlightAsync() throws VaultException {
+    CompletableFuture<Secret> loading = new CompletableFuture<>();
+    AsyncSecretLoader loader = () -> {
+      this.loads.incrementAndGet();
+      return loading;
+    };
+    List<CompletableFuture<Map<String, String>>> futures = new ArrayList<>();
+    for (int index = 0; index < 8; index++) {
+      futures.add(this.cache.getAsync(SERVER, PATH, 0, loader));
+    }
+    futures.forEach(future -> assertFalse(future.isDone()));
+    loading.complete(new Secret(DATA, 0));
+    for (CompletableFuture<Map<String, String>> future : futures) {
+      assertEquals(DATA, Futures.join(future));
+    }
+    assertEquals(DATA, Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader)));
+    assertEquals(1, this.loads.get());
+  }
+
+  /**
+   * Tests that a read sharing one that exceeds its deadline retries once with its own loader.
+   */
+  @Test
+  public void testDeadlineNotShared() throws VaultException {
+    CompletableFuture<Secret> loading = new CompletableFuture<>();
+    CompletableFuture<Map<String, String>> first = this.cache.getAsync(SERVER, PATH, 0, () -> {
+      this.loads.incrementAndGet();
+      return loading;
+    });
+    CompletableFuture<Map<String, String>> second = this.cache.getAsync(SERVER, PATH, 0, loader());
+    loading.completeExceptionally(new DeadlineExceededException("expired"));
+    try {
+      Futures.join(first);
+      fail("Expected an exception");
+    } catch (DeadlineExceededException exception) {
+      assertEquals("expired", exception.getMessage());
+    }
+    assertEquals(DATA, Futures.join(second));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that a read sharing one that exceeds its deadline retries only once.
+   */
+  @Test
+  public void testDeadlineRetriedOnce() {
+    CompletableFuture<Secret> loading = new CompletableFuture<>();
+    CompletableFuture<Secret> retrying = new CompletableFuture<>();
+    AsyncSecretLoader retry = () -> {
+      this.loads.incrementAndGet();
+      return retrying;
+    };
+    this.cache.getAsync(SERVER, PATH, 0, () -> loading);
+    CompletableFuture<Map<String, String>> second = this.cache.getAsync(SERVER, PATH, 0, retry);
+    CompletableFuture<Map<String, String>> third = this.cache.getAsync(SERVER, PATH, 0, retry);
+    loading.completeExceptionally(new DeadlineExceededException("expired"));
+    retrying.completeExceptionally(new DeadlineExceededException("expired again"));
+    for (CompletableFuture<Map<String, String>> future : ImmutableList.of(second, third)) {
+      try {
+        Futures.join(future);
+        fail("Expected an exception");
+      } catch (VaultException exception) {
+        assertEquals("expired again", exception.getMessage());
+      }
+    }
+    assertEquals(1, this.loads.get());
+  }
+
+  /**
+   * Tests that an asynchronous read that fails is reported to every read sharing it and is not cached.
+   */
+  @Test
+  public void testFailureNotCachedAsync() throws VaultException {
+    CompletableFuture<Secret> loading = new CompletableFuture<>();
+    CompletableFuture<Map<String, String>> first = this.cache.getAsync(SERVER, PATH, 0, () -> loading);
+    CompletableFuture<Map<String, String>> second = this.cache.getAsync(SERVER, PATH, 0, () -> loading);
+    loading.completeExceptionally(new VaultException("failed"));
+    for (CompletableFuture<Map<String, String>> future : ImmutableList.of(first, second)) {
+      try {
+        Futures.join(future);
+        fail("Expected an exception");
+      } catch (VaultException exception) {
+        assertEquals("failed", exception.getMessage());
+      }
+    }
+    assertEquals(DATA, Futures.join(this.cache.getAsync(SERVER, PATH, 0,
+        () -> CompletableFuture.completedFuture(new Secret(DATA, 0)))));
+  }
+
+  /**
+   * Tests that failed reads are not cached.
+   */
+  @Test
+  public void testFailureNotCached() throws VaultException {
+    try {
+      Futures.join(this.cache.getAsync(SERVER, PATH, 0, () -> Futures.failed(new VaultException("failed"))));
+      fail("Expected an exception");
+    } catch (VaultException exception) {
+      assertEquals("failed", exception.getMessage());
+    }
+    assertEquals(DATA, Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader())));
+    assertEquals(1, this.loads.get());
+  }
+
+  /**
+   * Tests that {@link SecretCache#invalidate(Server, String)} forces the next read to load the path.
+   */
+  @Test
+  public void testInvalidate() throws VaultException {
+    Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader()));
+    Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader()));
+    assertEquals(1, this.loads.get());
+    this.cache.invalidate(SERVER, PATH);
+    Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader()));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that pinned versions are cached separately from the latest version and survive invalidation.
+   */
+  @Test
+  public void testPinnedVersions() throws VaultException {
+    Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader()));
+    Futures.join(this.cache.getAsync(SERVER, PATH, 7, loader()));
+    Futures.join(this.cache.getAsync(SERVER, PATH, 7, loader()));
+    assertEquals(2, this.loads.get());
+    this.cache.invalidate(SERVER, PATH);
+    Futures.join(this.cache.getAsync(SERVER, PATH, 7, loader()));
+    assertEquals(2, this.loads.get());
+  }
+
+  /**
+   * Tests that the same path is cached separately for each version of the key/value secrets engine and for each token,
+   * whether or not its version is pinned.
+   */
+  @Test
+  public void testKeys() throws VaultException {
+    Server other = new Server(SERVER.getUrl(), UUID.randomUUID().toString(), true, null, ImmutableList.of(), false);
+    Server kv2 = new Server(SERVER.getUrl(), SERVER.getToken(), true, null, ImmutableList.of(), false,
+        Server.DEFAULT_PARALLELISM, new Connection(), 2, new Retry(), null);
+    Futures.join(this.cache.getAsync(SERVER, PATH, 0, loader()));
+    Futures.join(this.cache.getAsync(kv2, PATH, 0, loader()));
+    Futures.join(this.cache.getAsync(other, PATH, 0, loader()));
+    assertEquals(3, this.loads.get());
+    Futures.join(this.cache.getAsync(SERVER, PATH, 3, loader()));
+    Futures.join(this.cache.getAsync(other, PATH, 3, loader()));
+    assertEquals(5, this.loads.get());
+  }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Snapshot} class.
+ */
+public class TestSnapshot {
+
+  private static final String PASSPHRASE = "correct horse battery staple";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(Map<List<String>, String> values) throws IOException, GeneralSecurityException {
+    File file = new File(this.folder.getRoot(), "vault.snapshot");
+    Snapshot.write(file, PASSPHRASE, values);
+    return file;
+  }
+
+  private static Map<List<String>, String> values(int count) {
+    Map<List<String>, String> values = new HashMap<>();
+    for (int index = 0; index < count; index++) {
+      values.put(Snapshot.key("https://vault.example.com", String.format("secret/%d", index), index % 3, "password"),
+          String.format("value-%d", index));
+    }
+    return values;
+  }
+
+  /**
+   * Tests that every value written to a snapshot can be looked up and no other.
+   */
+  @Test
+  public void testGet() throws IOException, GeneralSecurityException {
+    Map<List<String>, String> values = values(500);
+    try (Snapshot snapshot = Snapshot.open(write(values), PASSPHRASE)) {
+      assertEquals(500, snapshot.size());
+      for (Map.Entry<List<String>, String> value : values.entrySet()) {
+        assertEquals(value.getValue(), snapshot.get(value.getKey()));
+      }
+      assertNull(snapshot.get(Snapshot.key("https://vault.example.com", "secret/1", 0, "password")));
+      assertNull(snapshot.get(Snapshot.key("https://other.example.com", "secret/0", 0, "password")));
+    }
+  }
+
+  /**
+   * Tests that an empty snapshot can be written and opened.
+   */
+  @Test
+  public void testEmpty() throws IOException, GeneralSecurityException {
+    try (Snapshot snapshot = Snapshot.open(write(new HashMap<>()), PASSPHRASE)) {
+      assertEquals(0, snapshot.size());
+      assertNull(snapshot.get(Snapshot.key("https://vault.example.com", "secret/0", 0, "password")));
+    }
+  }
+
+  /**
+   * Tests that a snapshot reveals neither its values nor its keys.
+   */
+  @Test
+  public void testEncrypted() throws IOException, GeneralSecurityException {
+    String content = new String(Files.readAllBytes(write(values(10)).toPath()), StandardCharsets.ISO_8859_1);
+    assertFalse(content.contains("value-"));
+    assertFalse(content.contains("secret/"));
+    assertFalse(content.contains("vault.example.com"));
+  }
+
+  /**
+   * Tests that {@link Snapshot#open(File, String)} rejects the wrong passphrase and files that are not snapshots.
+   */
+  @Test
+  public void testOpenRejected() throws IOException, GeneralSecurityException {
+    File file = write(values(10));
+    try {
+      Snapshot.open(file, "wrong").close();
+      fail("Expected the wrong passphrase to be rejected");
+    } catch (IOException exception) {
+      assertEquals(String.format("Vault snapshot %s cannot be decrypted with the snapshot key", file),
+          exception.getMessage());
+    }
+    File other = this.folder.newFile();
+    Files.write(other.toPath(), "not a snapshot".getBytes(StandardCharsets.UTF_8));
+    try {
+      Snapshot.open(other, PASSPHRASE).close();
+      fail("Expected the file to be rejected");
+    } catch (IOException exception) {
+      assertEquals(String.format("%s is not a Vault snapshot", other), exception.getMessage());
+    }
+  }
+
+  /**
+   * Tests that {@link Snapshot#write(File, String, Map)} refuses a snapshot larger than 2 GB before encrypting any value
+   * and leaves an existing snapshot in place without a temporary file beside it.
+   */
+  @Test
+  public void testWriteTooLarge() throws IOException, GeneralSecurityException {
+    File file = write(values(1));
+    char[] characters = new char[16 * 1024 * 1024];
+    Arrays.fill(characters, 'x');
+    String value = new String(characters);
+    Map<List<String>, String> values = new HashMap<>();
+    for (int index = 0; index < 129; index++) {
+      values.put(Snapshot.key("https://vault.example.com", String.format("secret/%d", index), 0, "value"), value);
+    }
+    try {
+      Snapshot.write(file, PASSPHRASE, values);
+      fail("Expected the snapshot to be refused");
+    } catch (IOException exception) {
+      assertEquals(String.format("Vault snapshot %s would be larger than the %d bytes a snapshot can hold", file,
+          Snapshot.MAX_LENGTH), exception.getMessage());
+    }
+    assertArrayEquals(new String[] {file.getName()}, this.folder.getRoot().list());
+    try (Snapshot snapshot = Snapshot.open(file, PASSPHRASE)) {
+      assertEquals(1, snapshot.size());
+    }
+  }
+
+  /**
+   * Tests that {@link Snapshot#open(File, String)} refuses a file larger than 2 GB with a message naming the limit.
+   */
+  @Test
+  public void testOpenTooLarge() throws IOException {
+    File file = this.folder.newFile();
+    try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+      access.setLength(Snapshot.MAX_LENGTH + 1);
+    }
+    try {
+      Snapshot.open(file, PASSPHRASE).close();
+      fail("Expected the file to be refused");
+    } catch (IOException exception) {
+      assertEquals(String.format("Vault snapshot %s is larger than the %d bytes a snapshot can hold", file,
+          Snapshot.MAX_LENGTH), exception.getMessage());
+    }
+  }
+
+  /**
+   * Tests that {@link Snapshot#get(List)} detects a modified value.
+   */
+  @Test
+  public void testGetTampered() throws IOException, GeneralSecurityException {
+    Map<List<String>, String> values = values(1);
+    File file = write(values);
+    try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+      access.seek(access.length() - 1);
+      int last = access.read();
+      access.seek(access.length() - 1);
+      access.write(last ^ 1);
+    }
+    try (Snapshot snapshot = Snapshot.open(file, PASSPHRASE)) {
+      snapshot.get(values.keySet().iterator().next());
+      fail("Expected the modified value to be detected");
+    } catch (IOException exception) {
+      assertEquals("Vault snapshot is corrupt", exception.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.cache;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link TokenCache} class.
+ */
+public class TestTokenCache {
+
+  private static final Clock CLOCK = Clock.systemUTC();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicInteger logins = new AtomicInteger();
+
+  private final String url = String.format("https://%s.example.com", UUID.randomUUID().toString());
+
+  private Server server(String secretId) {
+    Authentication authentication = new Authentication(Authentication.APPROLE, null, "role", secretId, null, null,
+        null, null);
+    return new Server(this.url, null, true, null, ImmutableList.of(), false, Server.DEFAULT_PARALLELISM,
+        new Connection(), Server.DEFAULT_KV_VERSION, new Retry(), authentication);
+  }
+
+  private TokenCache.TokenLoader loader(long leaseDuration) {
+    return () -> new Token(String.format("token-%d", this.logins.incrementAndGet()), leaseDuration, true);
+  }
+
+  private TokenCache cache(File directory, Duration elapsed) {
+    return new TokenCache(directory, new SystemStreamLog(), Clock.offset(CLOCK, elapsed));
+  }
+
+  /**
+   * Forgets the tokens held in memory by other tests.
+   */
+  @Before
+  public void clear() {
+    TokenCache.clear();
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} reuses a token held in memory.
+   */
+  @Test
+  public void testGetReusesToken() throws VaultException {
+    assertEquals("token-1", cache(null, Duration.ZERO).get(server("secret"), loader(3600)).getValue());
+    assertEquals("token-1", cache(null, Duration.ZERO).get(server("secret"), loader(3600)).getValue());
+    assertEquals(1, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} reuses an encrypted token stored on disk.
+   */
+  @Test
+  public void testGetReusesTokenFromDisk() throws IOException, VaultException {
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600));
+    TokenCache.clear();
+    Token token = cache(this.folder.getRoot(), Duration.ofSeconds(600)).get(server("secret"), loader(3600));
+    assertEquals("token-1", token.getValue());
+    assertEquals(3000, token.getLeaseDuration(), 1);
+    assertEquals(1, this.logins.get());
+    File[] files = this.folder.getRoot().listFiles();
+    assertEquals(1, files.length);
+    assertFalse(new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.ISO_8859_1).contains("token-1"));
+  }
+
+  /**
+   * Tests that {@link TokenCache#invalidate(Server, String)} discards a token held in memory and on disk.
+   */
+  @Test
+  public void testInvalidate() throws VaultException {
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600));
+    cache(this.folder.getRoot(), Duration.ZERO).invalidate(server("secret"), "token-1");
+    assertEquals(0, this.folder.getRoot().listFiles().length);
+    assertEquals("token-2", cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600))
+        .getValue());
+    assertEquals(2, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#invalidate(Server, String)} keeps a token other than the one that was denied.
+   */
+  @Test
+  public void testInvalidateKeepsNewerToken() throws VaultException {
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600));
+    cache(this.folder.getRoot(), Duration.ZERO).invalidate(server("secret"), "token-0");
+    TokenCache.clear();
+    assertEquals("token-1", cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600))
+        .getValue());
+    assertEquals(1, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} logs in again shortly before a token expires.
+   */
+  @Test
+  public void testGetRefreshesToken() throws VaultException {
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600));
+    cache(this.folder.getRoot(), Duration.ofSeconds(3230)).get(server("secret"), loader(3600));
+    assertEquals(1, this.logins.get());
+    assertEquals("token-2", cache(this.folder.getRoot(), Duration.ofSeconds(3250)).get(server("secret"),
+        loader(3600)).getValue());
+    TokenCache.clear();
+    cache(this.folder.getRoot(), Duration.ofSeconds(3260)).get(server("secret"), loader(3600));
+    assertEquals(2, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} separates tokens obtained with different
+   * credentials.
+   */
+  @Test
+  public void testGetSeparatesCredentials() throws VaultException {
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("secret"), loader(3600));
+    cache(this.folder.getRoot(), Duration.ZERO).get(server("other"), loader(3600));
+    assertEquals(2, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} keeps tokens in memory only without a directory.
+   */
+  @Test
+  public void testGetWithoutDirectory() throws VaultException {
+    cache(null, Duration.ZERO).get(server("secret"), loader(3600));
+    TokenCache.clear();
+    cache(null, Duration.ZERO).get(server("secret"), loader(3600));
+    assertEquals(2, this.logins.get());
+  }
+
+  /**
+   * Tests that {@link TokenCache#get(Server, TokenCache.TokenLoader)} does not cache a failed login.
+   */
+  @Test
+  public void testGetRetriesFailedLogin() throws VaultException {
+    try {
+      cache(null, Duration.ZERO).get(server("secret"), () -> {
+        throw new VaultException("Vault responded with HTTP status code: 400", 400);
+      });
+      fail("Expected the login to fail");
+    } catch (VaultException exception) {
+      assertEquals(400, exception.getHttpStatusCode());
+    }
+    assertEquals("token-1", cache(null, Duration.ZERO).get(server("secret"), loader(0)).getValue());
+    assertEquals(0, cache(null, Duration.ofDays(365)).get(server("secret"), loader(0)).getLeaseDuration());
+    assertEquals(1, this.logins.get());
+  }
+
+}
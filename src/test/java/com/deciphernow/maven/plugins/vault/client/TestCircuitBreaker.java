@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link CircuitBreaker} class.
+ */
+public class TestCircuitBreaker {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private final CircuitBreaker breaker = new CircuitBreaker("https://vault.example.com", 2, 10, this.now::get);
+
+  private void assertOpen() {
+    try {
+      this.breaker.acquire();
+      fail("Expected the circuit breaker to be open");
+    } catch (VaultException exception) {
+      // expected
+    }
+  }
+
+  /**
+   * Tests that the breaker opens at the threshold and allows an attempt once the delay has passed.
+   */
+  @Test
+  public void testOpens() throws VaultException {
+    this.breaker.failure();
+    this.breaker.acquire();
+    this.breaker.failure();
+    assertOpen();
+    this.now.addAndGet(10000);
+    this.breaker.acquire();
+    this.breaker.failure();
+    assertOpen();
+    this.now.addAndGet(10000);
+    this.breaker.success();
+    this.breaker.failure();
+    this.breaker.acquire();
+  }
+
+  /**
+   * Tests that a success resets the count of consecutive failures.
+   */
+  @Test
+  public void testSuccessResets() throws VaultException {
+    this.breaker.failure();
+    this.breaker.success();
+    this.breaker.failure();
+    this.breaker.acquire();
+  }
+
+  /**
+   * Tests that once the delay has passed only one probe is admitted until it completes.
+   */
+  @Test
+  public void testSingleProbe() throws VaultException {
+    this.breaker.failure();
+    this.breaker.failure();
+    this.now.addAndGet(10000);
+    this.breaker.acquire();
+    assertOpen();
+    this.breaker.release();
+    this.breaker.acquire();
+    assertOpen();
+    this.breaker.success();
+    this.breaker.acquire();
+    this.breaker.acquire();
+  }
+
+  /**
+   * Tests that throttled attempts released without an outcome never open the breaker.
+   */
+  @Test
+  public void testReleaseDoesNotCount() throws VaultException {
+    for (int index = 0; index < 10; index++) {
+      this.breaker.acquire();
+      this.breaker.release();
+    }
+    this.breaker.acquire();
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Deadline} class.
+ */
+public class TestDeadline {
+
+  /**
+   * Tests that a deadline without a timeout never expires.
+   */
+  @Test
+  public void testNone() throws DeadlineExceededException {
+    assertFalse(Deadline.NONE.isLimited());
+    assertEquals(Long.MAX_VALUE, Deadline.NONE.remaining());
+    assertEquals(Deadline.NONE, Deadline.after(0));
+    Deadline.NONE.check();
+  }
+
+  /**
+   * Tests that a deadline counts down from its timeout.
+   */
+  @Test
+  public void testAfter() throws DeadlineExceededException {
+    Deadline deadline = Deadline.after(60);
+    assertTrue(deadline.isLimited());
+    assertTrue(deadline.remaining() > 50000 && deadline.remaining() <= 60000);
+    deadline.check();
+  }
+
+  /**
+   * Tests that an expired deadline fails its check.
+   */
+  @Test
+  public void testExpired() throws InterruptedException {
+    Deadline deadline = Deadline.after(1);
+    Thread.sleep(1100);
+    assertEquals(0, deadline.remaining());
+    try {
+      deadline.check();
+      fail("Expected the deadline to have expired");
+    } catch (DeadlineExceededException exception) {
+      assertEquals("Vault deadline of 1 seconds exceeded", exception.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.json.JsonObject;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Provides unit tests for the {@link Metrics} class.
+ */
+public class TestMetrics {
+
+  private static final String FIRST = "https://a.example.com";
+
+  private static final String SECOND = "https://b.example.com";
+
+  /**
+   * Tests that requests are summarized by server and by path with nearest rank percentiles.
+   */
+  @Test
+  public void testSummaries() {
+    Metrics metrics = new Metrics();
+    assertTrue(metrics.isEmpty());
+    for (int millis = 1; millis <= 20; millis++) {
+      metrics.record(FIRST, "read", millis % 2 == 0 ? "secret/even" : "secret/odd", 200, 10, 0,
+          TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    metrics.record(FIRST, "write", "secret/odd", 503, 5, 2, TimeUnit.MILLISECONDS.toNanos(100));
+    metrics.record(SECOND, "list", "secret/tree", 0, 0, 1, TimeUnit.MILLISECONDS.toNanos(3));
+    assertFalse(metrics.isEmpty());
+    assertEquals(ImmutableList.of(FIRST, SECOND),
+        metrics.getServers().stream().map(Metrics.Summary::getName).collect(Collectors.toList()));
+    Metrics.Summary server = metrics.getServers().get(0);
+    assertEquals(21, server.getCount());
+    assertEquals(205, server.getBytes());
+    assertEquals(2, server.getRetries());
+    assertEquals(ImmutableMap.of(200, 20, 503, 1), server.getStatuses());
+    assertEquals(ImmutableMap.of("read", 20, "write", 1), server.getOperations());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(11), server.getP50());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), server.getP95());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(100), server.getMax());
+    Metrics.Summary odd = metrics.getPaths(FIRST).get(0);
+    assertEquals("secret/odd", odd.getName());
+    assertEquals(11, odd.getCount());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(11), odd.getP50());
+    assertEquals(ImmutableList.of("secret/tree"),
+        metrics.getPaths(SECOND).stream().map(Metrics.Summary::getName).collect(Collectors.toList()));
+  }
+
+  /**
+   * Tests that the summaries are rendered as JSON with latencies in milliseconds.
+   */
+  @Test
+  public void testToJson() {
+    Metrics metrics = new Metrics();
+    metrics.record(FIRST, "read", "secret/user", 200, 42, 1, TimeUnit.MICROSECONDS.toNanos(2500));
+    JsonObject server = metrics.toJson().get("servers").asArray().get(0).asObject();
+    assertEquals(FIRST, server.getString("server", null));
+    assertEquals(1, server.getInt("count", 0));
+    assertEquals(42, server.getLong("bytes", 0));
+    assertEquals(1, server.getInt("retries", 0));
+    assertEquals(1, server.get("statuses").asObject().getInt("200", 0));
+    assertEquals(2.5, server.getDouble("p95", 0), 0);
+    JsonObject path = server.get("paths").asArray().get(0).asObject();
+    assertEquals("secret/user", path.getString("path", null));
+    assertEquals(1, path.get("operations").asObject().getInt("read", 0));
+  }
+
+  /**
+   * Tests that {@link Metrics#NONE} records nothing.
+   */
+  @Test
+  public void testNone() {
+    Metrics.NONE.record(FIRST, "read", "secret/user", 200, 42, 0, 1);
+    assertTrue(Metrics.NONE.isEmpty());
+    assertEquals("{\"servers\":[]}", Metrics.NONE.toJson().toString());
+  }
+
+}
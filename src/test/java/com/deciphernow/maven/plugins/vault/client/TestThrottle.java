@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Provides unit tests for the {@link Throttle} class.
+ */
+public class TestThrottle {
+
+  private final Throttle throttle = new Throttle(8);
+
+  /**
+   * Tests that a throttled attempt lowers the limit below the number of attempts in flight.
+   */
+  @Test
+  public void testThrottledLowersLimit() throws InterruptedException {
+    for (int index = 0; index < 6; index++) {
+      this.throttle.acquire(Long.MAX_VALUE);
+    }
+    this.throttle.throttled();
+    assertEquals(5, this.throttle.getLimit());
+    this.throttle.throttled();
+    assertEquals(4, this.throttle.getLimit());
+    for (int index = 0; index < 4; index++) {
+      this.throttle.throttled();
+    }
+    assertEquals(1, this.throttle.getLimit());
+  }
+
+  /**
+   * Tests that a run of as many unthrottled attempts as the limit raises it by one, up to the maximum.
+   */
+  @Test
+  public void testSuccessRaisesLimit() throws InterruptedException {
+    for (int index = 0; index < 3; index++) {
+      this.throttle.acquire(Long.MAX_VALUE);
+    }
+    this.throttle.throttled();
+    this.throttle.release();
+    this.throttle.release();
+    assertEquals(2, this.throttle.getLimit());
+    this.throttle.acquire(Long.MAX_VALUE);
+    this.throttle.success();
+    assertEquals(2, this.throttle.getLimit());
+    this.throttle.acquire(Long.MAX_VALUE);
+    this.throttle.success();
+    assertEquals(3, this.throttle.getLimit());
+    for (int index = 0; index < 100; index++) {
+      this.throttle.acquire(Long.MAX_VALUE);
+      this.throttle.success();
+    }
+    assertEquals(8, this.throttle.getLimit());
+  }
+
+  /**
+   * Tests that waiting for an attempt gives up once its timeout has expired.
+   */
+  @Test
+  public void testAcquireTimesOut() throws InterruptedException {
+    Throttle single = new Throttle(1);
+    assertTrue(single.acquire(0));
+    assertFalse(single.acquire(10));
+    single.release();
+    assertTrue(single.acquire(0));
+  }
+
+  /**
+   * Tests that an attempt queued without waiting is admitted once an attempt in flight completes.
+   */
+  @Test
+  public void testAcquireQueues() throws InterruptedException {
+    Throttle single = new Throttle(1);
+    AtomicInteger admitted = new AtomicInteger();
+    assertTrue(single.acquire(admitted::incrementAndGet));
+    assertFalse(single.acquire(admitted::incrementAndGet));
+    assertFalse(single.acquire(admitted::incrementAndGet));
+    assertEquals(0, admitted.get());
+    single.success();
+    assertEquals(1, admitted.get());
+    assertFalse(single.acquire(0));
+    single.release();
+    assertEquals(2, admitted.get());
+    single.release();
+    assertTrue(single.acquire(0));
+  }
+
+}
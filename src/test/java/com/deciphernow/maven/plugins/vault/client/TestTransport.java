@@ -0,0 +1,420 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+import com.deciphernow.maven.plugins.vault.FakeVault;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link Transport} class.
+ */
+public class TestTransport {
+
+  private static final String URL = String.format("https://%s.example.com", UUID.randomUUID().toString());
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static Server server(String url, String token, boolean sslVerify, Connection connection) {
+    return server(url, token, sslVerify, connection, new Retry());
+  }
+
+  private static Server server(String url, String token, boolean sslVerify, Connection connection, Retry retry) {
+    return new Server(url, token, sslVerify, null, ImmutableList.of(), false, Server.DEFAULT_PARALLELISM, connection,
+        Server.DEFAULT_KV_VERSION, retry, null);
+  }
+
+  private static FakeVault vault(int failures, int status) throws IOException {
+    FakeVault vault = new FakeVault(1, "token");
+    AtomicInteger requests = new AtomicInteger();
+    vault.intercept((request, next) -> {
+      if (requests.incrementAndGet() > failures) {
+        return FakeVault.Reply.of(204);
+      }
+      return status == 429 ? FakeVault.Reply.of(status).withHeader("Retry-After", "0") : FakeVault.Reply.of(status);
+    });
+    return vault;
+  }
+
+  private static FakeVault closingVault(int failures) throws IOException {
+    FakeVault vault = new FakeVault(1, "token");
+    AtomicInteger requests = new AtomicInteger();
+    vault.intercept((request, next) -> requests.incrementAndGet() > failures
+        ? FakeVault.Reply.of(204)
+        : FakeVault.Reply.drop());
+    return vault;
+  }
+
+  private static FakeVault stalledVault() throws IOException {
+    FakeVault vault = new FakeVault(1, "token");
+    vault.intercept((request, next) -> FakeVault.Reply.stall());
+    return vault;
+  }
+
+  private static Transport.Response execute(Transport transport) throws VaultException {
+    return transport.execute(new HttpGet(transport.uri("secret/user")), Deadline.NONE, Metrics.NONE, "read",
+        "secret/user");
+  }
+
+  /**
+   * Tests that {@link Transport#of(Server)} shares a transport between servers that differ only by token.
+   */
+  @Test
+  public void testOfShared() throws VaultException {
+    Transport transport = Transport.of(server(URL, UUID.randomUUID().toString(), true, new Connection()));
+    assertSame(transport, Transport.of(server(URL, UUID.randomUUID().toString(), true, new Connection())));
+  }
+
+  /**
+   * Tests that {@link Transport#of(Server)} separates servers with different URLs, SSL or connection settings.
+   */
+  @Test
+  public void testOfSeparated() throws VaultException {
+    Transport transport = Transport.of(server(URL, null, true, new Connection()));
+    assertNotSame(transport, Transport.of(server(URL + "/other", null, true, new Connection())));
+    assertNotSame(transport, Transport.of(server(URL, null, false, new Connection())));
+    assertNotSame(transport, Transport.of(server(URL, null, true, new Connection(1, 1))));
+  }
+
+  /**
+   * Tests that {@link Transport#of(Server)} shares a transport for a PEM file until the file is modified.
+   */
+  @Test
+  public void testOfCertificateModified() throws IOException, VaultException {
+    File certificate = this.folder.newFile();
+    Transport transport = Transport.of(new Server(URL, null, true, certificate, ImmutableList.of(), false));
+    assertSame(transport, Transport.of(new Server(URL, null, true, new File(certificate.getPath()), ImmutableList.of(),
+        false)));
+    assertTrue(certificate.setLastModified(certificate.lastModified() - 60000));
+    Transport modified = Transport.of(new Server(URL, null, true, certificate, ImmutableList.of(), false));
+    assertNotSame(transport, modified);
+    assertSame(modified, Transport.of(new Server(URL, null, true, certificate, ImmutableList.of(), false)));
+  }
+
+  /**
+   * Tests that a transport for a rotated PEM file gets a fresh SSL context and that the context of the replaced
+   * transport is dropped rather than kept for the previous content of the file.
+   */
+  @Test
+  public void testOfCertificateRotated() throws IOException, VaultException {
+    File certificate = this.folder.newFile();
+    long modified = certificate.lastModified();
+    Server server = new Server(URL, null, true, certificate, ImmutableList.of(), false);
+    SSLContext context = Transport.of(server).getSslContext();
+    assertSame(context, Transport.sslContext(certificate, true));
+    assertTrue(certificate.setLastModified(modified - 60000));
+    SSLContext rotated = Transport.of(server).getSslContext();
+    assertNotSame(context, rotated);
+    assertSame(rotated, Transport.sslContext(certificate, true));
+    assertTrue(certificate.setLastModified(modified));
+    assertNotSame(context, Transport.sslContext(certificate, true));
+  }
+
+  /**
+   * Tests that {@link Transport#sslContext(File, boolean)} shares a context per PEM file until the file is modified.
+   */
+  @Test
+  public void testSslContextShared() throws IOException, VaultException {
+    File certificate = this.folder.newFile();
+    SSLContext context = Transport.sslContext(certificate, true);
+    assertSame(context, Transport.sslContext(new File(certificate.getPath()), true));
+    assertNotSame(context, Transport.sslContext(this.folder.newFile(), true));
+    assertNotSame(context, Transport.sslContext(certificate, false));
+    assertSame(Transport.sslContext(null, true), Transport.sslContext(null, true));
+    assertSame(Transport.sslContext(null, false), Transport.sslContext(certificate, false));
+    assertTrue(certificate.setLastModified(certificate.lastModified() - 60000));
+    assertNotSame(context, Transport.sslContext(certificate, true));
+  }
+
+  /**
+   * Tests that {@link Transport#execute} retries responses from an unavailable server.
+   */
+  @Test
+  public void testExecuteRetries() throws IOException, VaultException {
+    try (FakeVault vault = vault(2, 503)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(3, 1, 10, 0,
+          0)));
+      assertEquals(204, execute(transport).getStatus());
+      assertEquals(3, vault.getRequests());
+    }
+  }
+
+  /**
+   * Tests that a request is recorded in metrics once with the status of its last response and the number of retries.
+   */
+  @Test
+  public void testExecuteMetrics() throws IOException, VaultException {
+    try (FakeVault vault = vault(2, 503)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(3, 1, 10, 0,
+          0)));
+      Metrics metrics = new Metrics();
+      transport.execute(new HttpGet(transport.uri("secret/user")), Deadline.NONE, metrics, "read", "secret/user");
+      Metrics.Summary summary = metrics.getPaths(vault.getUrl()).get(0);
+      assertEquals("secret/user", summary.getName());
+      assertEquals(1, summary.getCount());
+      assertEquals(2, summary.getRetries());
+      assertEquals(ImmutableMap.of(204, 1), summary.getStatuses());
+      assertEquals(ImmutableMap.of("read", 1), summary.getOperations());
+    }
+  }
+
+  /**
+   * Tests that {@link Transport#execute} makes only the attempts allowed by the retry settings of the server against a
+   * server that closes every connection without a response, besides sending the first request again once on a new
+   * connection.
+   */
+  @Test
+  public void testExecuteRetriesOnlyAsConfigured() throws IOException, VaultException {
+    try (FakeVault vault = closingVault(Integer.MAX_VALUE)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(2, 1, 10, 0,
+          0)));
+      try {
+        execute(transport);
+        fail("Expected the server to fail to respond");
+      } catch (VaultException exception) {
+        assertEquals(3, vault.getRequests());
+      }
+    }
+  }
+
+  /**
+   * Tests that {@link Transport#execute} fails immediately once the circuit breaker opens.
+   */
+  @Test
+  public void testExecuteBreaker() throws IOException, VaultException {
+    try (FakeVault vault = vault(Integer.MAX_VALUE, 503)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(2, 1, 10, 2,
+          60)));
+      assertEquals(503, execute(transport).getStatus());
+      assertEquals(2, vault.getRequests());
+      try {
+        execute(transport);
+        fail("Expected the circuit breaker to be open");
+      } catch (VaultException exception) {
+        assertEquals(2, vault.getRequests());
+      }
+    }
+  }
+
+  /**
+   * Tests that throttled attempts are retried but never open the circuit breaker.
+   */
+  @Test
+  public void testExecuteThrottled() throws IOException, VaultException {
+    try (FakeVault vault = vault(Integer.MAX_VALUE, 429)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(2, 1, 10, 2,
+          60)));
+      assertEquals(429, execute(transport).getStatus());
+      assertEquals(429, execute(transport).getStatus());
+      assertEquals(4, vault.getRequests());
+    }
+  }
+
+  /**
+   * Tests that {@link Transport#execute} gives up on a stalled server at the deadline and closes the connection
+   * even though the server keeps sending it bytes.
+   */
+  @Test
+  public void testExecuteDeadline() throws InterruptedException, IOException, VaultException {
+    try (FakeVault vault = stalledVault()) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection()));
+      long started = System.nanoTime();
+      try {
+        transport.execute(new HttpGet(transport.uri("secret/user")), Deadline.after(1), Metrics.NONE, "read",
+            "secret/user");
+        fail("Expected the deadline to expire");
+      } catch (DeadlineExceededException exception) {
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5000);
+      }
+      assertTrue(vault.awaitDisconnects(1, 5000));
+    }
+  }
+
+  /**
+   * Tests that an asynchronous request is retried without blocking the caller, recorded once in metrics and completed
+   * on a callback thread rather than an I/O thread.
+   */
+  @Test
+  public void testExecuteAsync() throws IOException, VaultException {
+    try (FakeVault vault = vault(2, 503)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(), new Retry(3, 1, 10, 0,
+          0)));
+      Metrics metrics = new Metrics();
+      CompletableFuture<String> thread = transport.executeAsync(new HttpGet(transport.uri("secret/user")),
+          Deadline.NONE, metrics, "read", "secret/user").thenApply(response -> {
+            assertEquals(204, response.getStatus());
+            return Thread.currentThread().getName();
+          });
+      assertTrue(Futures.join(thread).startsWith("vault-callback-"));
+      assertEquals(3, vault.getRequests());
+      Metrics.Summary summary = metrics.getPaths(vault.getUrl()).get(0);
+      assertEquals(1, summary.getCount());
+      assertEquals(2, summary.getRetries());
+    }
+  }
+
+  /**
+   * Tests that an asynchronous request whose connection is closed by the server without a response is sent again on a
+   * new connection without counting as a retry.
+   */
+  @Test
+  public void testExecuteAsyncResendsClosedConnection() throws IOException, VaultException {
+    try (FakeVault vault = closingVault(1)) {
+      String url = vault.getUrl();
+      Transport transport = Transport.of(server(url, null, true, new Connection(), new Retry(1, 1, 10, 0, 0)));
+      Metrics metrics = new Metrics();
+      assertEquals(204, Futures.join(transport.executeAsync(new HttpGet(transport.uri("secret/user")), Deadline.NONE,
+          metrics, "read", "secret/user")).getStatus());
+      assertEquals(2, vault.getRequests());
+      assertEquals(0, metrics.getPaths(url).get(0).getRetries());
+    }
+  }
+
+  /**
+   * Tests that a transport closes its clients once it has been idle for the idle timeout of the server, and opens them
+   * again for the next request.
+   */
+  @Test
+  public void testIdleTransportCloses() throws InterruptedException, IOException, VaultException {
+    try (FakeVault vault = vault(0, 503)) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection(1, 1)));
+      assertEquals(204, Futures.join(transport.executeAsync(new HttpGet(transport.uri("secret/user")), Deadline.NONE,
+          Metrics.NONE, "read", "secret/user")).getStatus());
+      assertTrue(transport.isOpen());
+      long deadline = System.currentTimeMillis() + 10000;
+      while (transport.isOpen() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertFalse(transport.isOpen());
+      assertEquals(204, execute(transport).getStatus());
+      assertEquals(2, vault.getRequests());
+    }
+  }
+
+  /**
+   * Tests that a transport that closes as idle is no longer shared and drops its SSL context with it, so the next
+   * transport for the server reads its PEM file again.
+   */
+  @Test
+  public void testIdleTransportDropsSslContext() throws InterruptedException, IOException, VaultException {
+    try (FakeVault vault = vault(0, 503)) {
+      File certificate = this.folder.newFile();
+      Server server = new Server(vault.getUrl(), null, true, certificate, ImmutableList.of(), false,
+          Server.DEFAULT_PARALLELISM, new Connection(1, 1), Server.DEFAULT_KV_VERSION, new Retry(), null);
+      Transport transport = Transport.of(server);
+      SSLContext context = transport.getSslContext();
+      assertEquals(204, execute(transport).getStatus());
+      long deadline = System.currentTimeMillis() + 10000;
+      while (transport.isOpen() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertFalse(transport.isOpen());
+      Transport next = Transport.of(server);
+      assertNotSame(transport, next);
+      assertNotSame(context, next.getSslContext());
+    }
+  }
+
+  /**
+   * Tests that an asynchronous request to a stalled server fails at the deadline and closes the connection
+   * even though the server keeps sending it bytes.
+   */
+  @Test
+  public void testExecuteAsyncDeadline() throws InterruptedException, IOException, VaultException {
+    try (FakeVault vault = stalledVault()) {
+      Transport transport = Transport.of(server(vault.getUrl(), null, true, new Connection()));
+      long started = System.nanoTime();
+      try {
+        Futures.join(transport.executeAsync(new HttpGet(transport.uri("secret/user")), Deadline.after(1),
+            Metrics.NONE, "read", "secret/user"));
+        fail("Expected the deadline to expire");
+      } catch (DeadlineExceededException exception) {
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5000);
+      }
+      assertTrue(vault.awaitDisconnects(1, 5000));
+    }
+  }
+
+  /**
+   * Tests that {@link Transport#delay(Retry, int, long)} grows exponentially within its bounds.
+   */
+  @Test
+  public void testDelay() {
+    Retry retry = new Retry(10, 100, 1000, 0, 0);
+    for (int index = 0; index < 100; index++) {
+      long first = Transport.delay(retry, 1, 0);
+      assertTrue(first >= 50 && first <= 100);
+      long third = Transport.delay(retry, 3, 0);
+      assertTrue(third >= 200 && third <= 400);
+      long tenth = Transport.delay(retry, 10, 0);
+      assertTrue(tenth >= 500 && tenth <= 1000);
+    }
+    assertEquals(800, Transport.delay(retry, 1, 800));
+    assertEquals(1000, Transport.delay(retry, 1, 5000));
+  }
+
+  /**
+   * Tests that {@link Transport#retryAfter(Header)} parses seconds and dates.
+   */
+  @Test
+  public void testRetryAfter() {
+    assertEquals(0, Transport.retryAfter(null));
+    assertEquals(3000, Transport.retryAfter(new BasicHeader("Retry-After", "3")));
+    assertEquals(0, Transport.retryAfter(new BasicHeader("Retry-After", "soon")));
+    long date = Transport.retryAfter(new BasicHeader("Retry-After",
+        DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000))));
+    assertTrue(date > 50000 && date <= 60000);
+  }
+
+  /**
+   * Tests the {@link Transport#uri(String)} method.
+   */
+  @Test
+  public void testUri() throws VaultException {
+    assertEquals(String.format("%s/v1/secret/user", URL),
+        Transport.of(server(URL, null, true, new Connection())).uri("secret/user"));
+  }
+
+}
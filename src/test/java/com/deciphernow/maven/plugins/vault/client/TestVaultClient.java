@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.client;
+
+import com.bettercloud.vault.VaultException;
+import com.bettercloud.vault.json.Json;
+import com.bettercloud.vault.json.JsonObject;
+import com.deciphernow.maven.plugins.vault.FakeVault;
+import com.deciphernow.maven.plugins.vault.cache.Secret;
+import com.deciphernow.maven.plugins.vault.cache.Token;
+import com.deciphernow.maven.plugins.vault.config.Authentication;
+import com.deciphernow.maven.plugins.vault.config.Connection;
+import com.deciphernow.maven.plugins.vault.config.Retry;
+import com.deciphernow.maven.plugins.vault.config.Server;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Provides unit tests for the {@link VaultClient} class.
+ */
+public class TestVaultClient {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private FakeVault vault;
+
+  /**
+   * Starts a fake that accepts a login with each auth method.
+   */
+  @Before
+  public void start() throws IOException {
+    this.vault = new FakeVault(1, "token");
+    this.vault.addLogin("approle", "role-id", "secret-id");
+    this.vault.addLogin("k8s/cluster", "builder", "header.payload.signature");
+    this.vault.addLogin("userpass", "builder", "right");
+  }
+
+  /**
+   * Stops the fake.
+   */
+  @After
+  public void stop() {
+    this.vault.close();
+  }
+
+  private VaultClient client() throws VaultException {
+    Server server = new Server(this.vault.getUrl(), null, true, null, ImmutableList.of(), false,
+        Server.DEFAULT_PARALLELISM, new Connection(), Server.DEFAULT_KV_VERSION, new Retry(), null);
+    return VaultClient.of(server);
+  }
+
+  private FakeVault.Request last() {
+    List<FakeVault.Request> log = this.vault.getLog();
+    return log.get(log.size() - 1);
+  }
+
+  private JsonObject body() {
+    return Json.parse(last().getBody()).asObject();
+  }
+
+  private static VaultClient client(FakeVault vault, int kvVersion) throws VaultException {
+    return VaultClient.of(new Server(vault.getUrl(), "token", true, null, ImmutableList.of(), false,
+        Server.DEFAULT_PARALLELISM, new Connection(), kvVersion, new Retry(), null));
+  }
+
+  /**
+   * Tests {@link VaultClient#login(Authentication)} with the AppRole method.
+   */
+  @Test
+  public void testLoginAppRole() throws VaultException {
+    Token token = client().login(new Authentication(Authentication.APPROLE, null, "role-id", "secret-id", null, null,
+        null, null));
+    assertNotNull(token.getValue());
+    assertEquals(3600, token.getLeaseDuration());
+    assertTrue(token.isRenewable());
+    assertEquals("auth/approle/login", last().getPath());
+    assertEquals("role-id", body().getString("role_id", null));
+    assertEquals("secret-id", body().getString("secret_id", null));
+  }
+
+  /**
+   * Tests {@link VaultClient#login(Authentication)} with the Kubernetes method mounted at another path.
+   */
+  @Test
+  public void testLoginKubernetes() throws IOException, VaultException {
+    File jwtFile = this.folder.newFile();
+    Files.write(jwtFile.toPath(), "header.payload.signature\n".getBytes(StandardCharsets.UTF_8));
+    client().login(new Authentication(Authentication.KUBERNETES, "k8s/cluster", null, null, "builder", jwtFile, null,
+        null));
+    assertEquals("auth/k8s/cluster/login", last().getPath());
+    assertEquals("builder", body().getString("role", null));
+    assertEquals("header.payload.signature", body().getString("jwt", null));
+  }
+
+  /**
+   * Tests {@link VaultClient#login(Authentication)} with the userpass method and a rejected password.
+   */
+  @Test
+  public void testLoginUserpass() throws VaultException {
+    client().login(new Authentication(Authentication.USERPASS, null, null, null, null, null, "builder", "right"));
+    assertEquals("auth/userpass/login/builder", last().getPath());
+    assertEquals("right", body().getString("password", null));
+    try {
+      client().login(new Authentication(Authentication.USERPASS, null, null, null, null, null, "builder", "wrong"));
+      fail("Expected the login to be rejected");
+    } catch (VaultException exception) {
+      assertEquals(400, exception.getHttpStatusCode());
+    }
+  }
+
+  /**
+   * Tests {@link VaultClient#readAsync(String, int)} and {@link VaultClient#findAsync(String, int)} against the latest
+   * and a pinned version of a path and a missing path.
+   */
+  @Test
+  public void testReadAsync() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      vault.put("secret/user", ImmutableMap.of("password", "first"));
+      vault.put("secret/user", ImmutableMap.of("password", "second"));
+      VaultClient client = client(vault, 2);
+      Secret latest = Futures.join(client.readAsync("secret/user", 0));
+      assertEquals(ImmutableMap.of("password", "second"), latest.getData());
+      assertEquals(2, latest.getVersion());
+      assertEquals(ImmutableMap.of("password", "first"), Futures.join(client.readAsync("secret/user", 1)).getData());
+      assertNull(Futures.join(client.findAsync("secret/missing", 0)));
+      try {
+        Futures.join(client.readAsync("secret/missing", 0));
+        fail("Expected the missing path to be reported");
+      } catch (VaultException exception) {
+        assertEquals(404, exception.getHttpStatusCode());
+      }
+    }
+  }
+
+  /**
+   * Tests {@link VaultClient#listAsync(String)} with version 1 of the key/value engine.
+   */
+  @Test
+  public void testListAsync() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/apps/one", ImmutableMap.of("key", "value"));
+      vault.put("secret/apps/two/three", ImmutableMap.of("key", "value"));
+      VaultClient client = client(vault, 1);
+      assertEquals(ImmutableList.of("one", "two/"), Futures.join(client.listAsync("secret/apps")));
+      assertTrue(Futures.join(client.listAsync("secret/missing")).isEmpty());
+    }
+  }
+
+  /**
+   * Tests that {@link VaultClient#updateAsync(String, Secret, Map)} patches the version that was read, reports a path
+   * modified since it was read and creates a missing path.
+   */
+  @Test
+  public void testUpdateAsync() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      vault.put("secret/user", ImmutableMap.of("username", "user", "password", "old"));
+      VaultClient client = client(vault, 2);
+      Secret existing = Futures.join(client.readAsync("secret/user", 0));
+      assertTrue(Futures.join(client.updateAsync("secret/user", existing, ImmutableMap.of("password", "new"))));
+      assertEquals(ImmutableMap.of("username", "user", "password", "new"), vault.get("secret/user"));
+      assertFalse(Futures.join(client.updateAsync("secret/user", existing, ImmutableMap.of("password", "stale"))));
+      assertEquals("new", vault.get("secret/user").get("password"));
+      assertTrue(Futures.join(client.updateAsync("secret/other", null, ImmutableMap.of("key", "value"))));
+      assertEquals(ImmutableMap.of("key", "value"), vault.get("secret/other"));
+      assertEquals(2, vault.getRequests("patch"));
+      assertEquals(1, vault.getRequests("write"));
+    }
+  }
+
+  /**
+   * Tests that a path whose latest version was deleted is found as a deleted secret, cannot be read and is written
+   * with check-and-set against the deleted version.
+   */
+  @Test
+  public void testUpdateAsyncDeleted() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(2, "token")) {
+      vault.put("secret/user", ImmutableMap.of("username", "user", "password", "old"));
+      vault.delete("secret/user");
+      VaultClient client = client(vault, 2);
+      Secret existing = Futures.join(client.findAsync("secret/user", 0));
+      assertTrue(existing.isDeleted());
+      assertEquals(1, existing.getVersion());
+      assertTrue(existing.getData().isEmpty());
+      try {
+        Futures.join(client.readAsync("secret/user", 0));
+        fail("Expected the deleted version to be reported missing");
+      } catch (VaultException exception) {
+        assertEquals(404, exception.getHttpStatusCode());
+      }
+      assertTrue(Futures.join(client.updateAsync("secret/user", existing, ImmutableMap.of("password", "new"))));
+      assertEquals(ImmutableMap.of("password", "new"), vault.get("secret/user"));
+      assertEquals(2, Futures.join(client.readAsync("secret/user", 0)).getVersion());
+      assertEquals(0, vault.getRequests("patch"));
+      assertEquals(1, vault.getRequests("write"));
+    }
+  }
+
+  /**
+   * Tests that {@link VaultClient#updateAsync(String, Secret, Map)} merges the changes into the secrets that were read
+   * with version 1 of the key/value engine.
+   */
+  @Test
+  public void testUpdateAsyncUnversioned() throws IOException, VaultException {
+    try (FakeVault vault = new FakeVault(1, "token")) {
+      vault.put("secret/user", ImmutableMap.of("username", "user", "password", "old"));
+      VaultClient client = client(vault, 1);
+      Secret existing = Futures.join(client.readAsync("secret/user", 0));
+      assertTrue(Futures.join(client.updateAsync("secret/user", existing, ImmutableMap.of("password", "new"))));
+      assertEquals(ImmutableMap.of("username", "user", "password", "new"), vault.get("secret/user"));
+    }
+  }
+
+}
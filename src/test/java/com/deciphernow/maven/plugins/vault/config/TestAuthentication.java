@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link Authentication} class.
+ */
+public class TestAuthentication {
+
+  private static final String METHOD = Authentication.KUBERNETES;
+  private static final String MOUNT = UUID.randomUUID().toString();
+  private static final String ROLE_ID = UUID.randomUUID().toString();
+  private static final String SECRET_ID = UUID.randomUUID().toString();
+  private static final String ROLE = UUID.randomUUID().toString();
+  private static final File JWT_FILE = new File(UUID.randomUUID().toString());
+  private static final String USERNAME = UUID.randomUUID().toString();
+  private static final String PASSWORD = UUID.randomUUID().toString();
+  private static final Authentication INSTANCE = new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, ROLE, JWT_FILE,
+      USERNAME, PASSWORD);
+
+  /**
+   * Tests the default values of the {@link Authentication} class.
+   */
+  @Test
+  public void testDefaults() {
+    assertEquals(Authentication.DEFAULT_JWT_FILE, new Authentication().getJwtFile());
+    assertEquals(Authentication.APPROLE, new Authentication(Authentication.APPROLE, null, ROLE_ID, SECRET_ID, null,
+        null, null, null).getMount());
+    assertEquals(Authentication.USERPASS, new Authentication(Authentication.USERPASS, "", null, null, null, null,
+        USERNAME, PASSWORD).getMount());
+  }
+
+  /**
+   * Tests the properties of the {@link Authentication} class.
+   */
+  @Test
+  public void testProperties() {
+    assertEquals(METHOD, INSTANCE.getMethod());
+    assertEquals(MOUNT, INSTANCE.getMount());
+    assertEquals(ROLE_ID, INSTANCE.getRoleId());
+    assertEquals(SECRET_ID, INSTANCE.getSecretId());
+    assertEquals(ROLE, INSTANCE.getRole());
+    assertEquals(JWT_FILE, INSTANCE.getJwtFile());
+    assertEquals(USERNAME, INSTANCE.getUsername());
+    assertEquals(PASSWORD, INSTANCE.getPassword());
+  }
+
+  /**
+   * Tests the {@link Authentication#equals(Object)} and {@link Authentication#hashCode()} methods.
+   */
+  @Test
+  public void testEquality() {
+    EqualsTester tester = new EqualsTester();
+    tester.addEqualityGroup(INSTANCE, INSTANCE, new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, ROLE, JWT_FILE,
+        USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(Authentication.APPROLE, MOUNT, ROLE_ID, SECRET_ID, ROLE, JWT_FILE,
+        USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, null, ROLE_ID, SECRET_ID, ROLE, JWT_FILE, USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, null, SECRET_ID, ROLE, JWT_FILE, USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, ROLE_ID, null, ROLE, JWT_FILE, USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, null, JWT_FILE, USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, ROLE, null, USERNAME, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, ROLE, JWT_FILE, null, PASSWORD));
+    tester.addEqualityGroup(new Authentication(METHOD, MOUNT, ROLE_ID, SECRET_ID, ROLE, JWT_FILE, USERNAME, null));
+    tester.testEquals();
+  }
+
+  /**
+   * Tests serialization of the {@link Authentication} class.
+   */
+  @Test
+  public void testSerialization() throws ClassNotFoundException, IOException {
+
+    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+         ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+
+      objectOutputStream.writeObject(INSTANCE);
+
+      try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+           ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream)) {
+
+        assertEquals(INSTANCE, objectInputStream.readObject());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link Connection} class.
+ */
+public class TestConnection {
+
+  private static final Random RANDOM = new Random();
+  private static final int MAX_CONNECTIONS = RANDOM.nextInt(64) + 1;
+  private static final int IDLE_TIMEOUT = RANDOM.nextInt(64) + 1;
+  private static final int OPEN_TIMEOUT = RANDOM.nextInt(64) + 1;
+  private static final int READ_TIMEOUT = RANDOM.nextInt(64) + 1;
+  private static final Connection INSTANCE = new Connection(MAX_CONNECTIONS, IDLE_TIMEOUT, OPEN_TIMEOUT, READ_TIMEOUT);
+
+  /**
+   * Tests the default values of the {@link Connection} class.
+   */
+  @Test
+  public void testDefaults() {
+    assertEquals(Connection.DEFAULT_MAX_CONNECTIONS, new Connection().getMaxConnections());
+    assertEquals(Connection.DEFAULT_IDLE_TIMEOUT, new Connection().getIdleTimeout());
+    assertEquals(Connection.DEFAULT_OPEN_TIMEOUT, new Connection().getOpenTimeout());
+    assertEquals(Connection.DEFAULT_READ_TIMEOUT, new Connection().getReadTimeout());
+    assertEquals(Connection.DEFAULT_READ_TIMEOUT, new Connection(1, 1).getReadTimeout());
+  }
+
+  /**
+   * Tests the {@link Connection#getMaxConnections()} property.
+   */
+  @Test
+  public void testGetMaxConnections() {
+    assertEquals(MAX_CONNECTIONS, INSTANCE.getMaxConnections());
+  }
+
+  /**
+   * Tests the {@link Connection#getIdleTimeout()} property.
+   */
+  @Test
+  public void testGetIdleTimeout() {
+    assertEquals(IDLE_TIMEOUT, INSTANCE.getIdleTimeout());
+  }
+
+  /**
+   * Tests the {@link Connection#getOpenTimeout()} property.
+   */
+  @Test
+  public void testGetOpenTimeout() {
+    assertEquals(OPEN_TIMEOUT, INSTANCE.getOpenTimeout());
+  }
+
+  /**
+   * Tests the {@link Connection#getReadTimeout()} property.
+   */
+  @Test
+  public void testGetReadTimeout() {
+    assertEquals(READ_TIMEOUT, INSTANCE.getReadTimeout());
+  }
+
+  /**
+   * Tests the {@link Connection#equals(Object)} and {@link Connection#hashCode()} methods.
+   */
+  @Test
+  public void testEquality() {
+    EqualsTester tester = new EqualsTester();
+    tester.addEqualityGroup(INSTANCE, INSTANCE, new Connection(MAX_CONNECTIONS, IDLE_TIMEOUT, OPEN_TIMEOUT,
+        READ_TIMEOUT));
+    tester.addEqualityGroup(new Connection(MAX_CONNECTIONS + 1, IDLE_TIMEOUT, OPEN_TIMEOUT, READ_TIMEOUT));
+    tester.addEqualityGroup(new Connection(MAX_CONNECTIONS, IDLE_TIMEOUT + 1, OPEN_TIMEOUT, READ_TIMEOUT));
+    tester.addEqualityGroup(new Connection(MAX_CONNECTIONS, IDLE_TIMEOUT, OPEN_TIMEOUT + 1, READ_TIMEOUT));
+    tester.addEqualityGroup(new Connection(MAX_CONNECTIONS, IDLE_TIMEOUT, OPEN_TIMEOUT, READ_TIMEOUT + 1));
+    tester.testEquals();
+  }
+
+  /**
+   * Tests serialization of the {@link Connection} class.
+   */
+  @Test
+  public void testSerialization() throws ClassNotFoundException, IOException {
+
+    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+         ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+
+      objectOutputStream.writeObject(INSTANCE);
+
+      try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+           ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream)) {
+
+        Connection deserialized = (Connection) objectInputStream.readObject();
+        assertEquals(MAX_CONNECTIONS, deserialized.getMaxConnections());
+        assertEquals(IDLE_TIMEOUT, deserialized.getIdleTimeout());
+        assertEquals(OPEN_TIMEOUT, deserialized.getOpenTimeout());
+        assertEquals(READ_TIMEOUT, deserialized.getReadTimeout());
+      }
+    }
+  }
+
+}
@@ -26,11 +26,14 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Provides unit tests for the {@link Path} class.
@@ -39,7 +42,14 @@ public class TestPath {
 
   private static final String NAME = UUID.randomUUID().toString();
   private static final List<Mapping> MAPPINGS = randomMappings(10);
-  private static final Path INSTANCE = new Path(NAME, MAPPINGS);
+  private static final int VERSION = new Random().nextInt(100) + 1;
+  private static final String PREFIX = UUID.randomUUID().toString();
+  private static final List<String> INCLUDES = ImmutableList.of("db.*", "api.?ey");
+  private static final List<String> EXCLUDES = ImmutableList.of("*.internal");
+  private static final int DEPTH = new Random().nextInt(10) + 1;
+  private static final int LEAVES = new Random().nextInt(1000) + 1;
+  private static final Path INSTANCE = new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES, true, DEPTH,
+      LEAVES);
 
   private static Mapping randomMapping() {
     return new Mapping(UUID.randomUUID().toString(), UUID.randomUUID().toString());
@@ -65,15 +75,82 @@ public class TestPath {
     assertEquals(MAPPINGS, INSTANCE.getMappings());
   }
 
+  /**
+   * Tests the {@link Path#getVersion()} property.
+   */
+  @Test
+  public void testGetVersion() {
+    assertEquals(VERSION, INSTANCE.getVersion());
+    assertEquals(0, new Path(NAME, MAPPINGS).getVersion());
+  }
+
+  /**
+   * Tests the {@link Path#getPrefix()}, {@link Path#getIncludes()} and {@link Path#getExcludes()} properties.
+   */
+  @Test
+  public void testGetPrefix() {
+    assertEquals(PREFIX, INSTANCE.getPrefix());
+    assertEquals(INCLUDES, INSTANCE.getIncludes());
+    assertEquals(EXCLUDES, INSTANCE.getExcludes());
+    assertEquals(null, new Path(NAME, MAPPINGS).getPrefix());
+    assertEquals(ImmutableList.of(), new Path(NAME, MAPPINGS).getIncludes());
+    assertEquals(ImmutableList.of(), new Path(NAME, null).getMappings());
+  }
+
+  /**
+   * Tests the {@link Path#isRecursive()}, {@link Path#getDepth()} and {@link Path#getLeaves()} properties and the
+   * {@link Path#getProperty(String)} method.
+   */
+  @Test
+  public void testRecursive() {
+    assertTrue(INSTANCE.isRecursive());
+    assertEquals(DEPTH, INSTANCE.getDepth());
+    assertEquals(LEAVES, INSTANCE.getLeaves());
+    assertFalse(new Path(NAME, MAPPINGS).isRecursive());
+    assertEquals(Path.DEFAULT_DEPTH, new Path(NAME, MAPPINGS).getDepth());
+    assertEquals(Path.DEFAULT_LEAVES, new Path().getLeaves());
+    assertEquals(PREFIX + "team.service.password", INSTANCE.getProperty("team/service/password"));
+    assertEquals("p.a/b", new Path(NAME, null, 0, "p.", null, null).getProperty("a/b"));
+    assertEquals("a.b", new Path(NAME, null, 0, null, null, null, true, 1, 1).getProperty("a/b"));
+    assertEquals(null, new Path(NAME, MAPPINGS).getProperty("a"));
+  }
+
+  /**
+   * Tests the {@link Path#isIncluded(String)} method.
+   */
+  @Test
+  public void testIsIncluded() {
+    assertTrue(INSTANCE.isIncluded("db.password"));
+    assertTrue(INSTANCE.isIncluded("api.key"));
+    assertFalse(INSTANCE.isIncluded("api.keys"));
+    assertFalse(INSTANCE.isIncluded("db.password.internal"));
+    assertFalse(INSTANCE.isIncluded("dbXpassword"));
+    assertFalse(INSTANCE.isIncluded("other"));
+    assertTrue(new Path(NAME, null, 0, "", null, null).isIncluded("anything"));
+    assertFalse(new Path(NAME, MAPPINGS).isIncluded("anything"));
+  }
+
   /**
    * Tests the {@link Path#equals(Object)} and {@link Path#hashCode()} methods.
    */
   @Test
   public void testEquality() {
     EqualsTester tester = new EqualsTester();
-    tester.addEqualityGroup(INSTANCE, INSTANCE, new Path(NAME, MAPPINGS));
-    tester.addEqualityGroup(new Path(NAME, ImmutableList.of()));
-    tester.addEqualityGroup(new Path(UUID.randomUUID().toString(), MAPPINGS));
+    tester.addEqualityGroup(INSTANCE, INSTANCE, new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES,
+        true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, ImmutableList.of(), VERSION, PREFIX, INCLUDES, EXCLUDES,
+        true, DEPTH, LEAVES),
+        new Path(NAME, null, VERSION, PREFIX, INCLUDES, EXCLUDES, true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(UUID.randomUUID().toString(), MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES,
+        true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, 0, PREFIX, INCLUDES, EXCLUDES, true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, null, INCLUDES, EXCLUDES, true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, PREFIX, null, EXCLUDES, true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, null, true, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES, false, DEPTH, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES, true, DEPTH + 1, LEAVES));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS, VERSION, PREFIX, INCLUDES, EXCLUDES, true, DEPTH, LEAVES + 1));
+    tester.addEqualityGroup(new Path(NAME, MAPPINGS));
     tester.testEquals();
   }
 
@@ -94,6 +171,14 @@ public class TestPath {
         Path deserailized = (Path) objectInputStream.readObject();
         assertEquals(NAME, deserailized.getName());
         assertEquals(MAPPINGS, deserailized.getMappings());
+        assertEquals(VERSION, deserailized.getVersion());
+        assertEquals(PREFIX, deserailized.getPrefix());
+        assertEquals(INCLUDES, deserailized.getIncludes());
+        assertEquals(EXCLUDES, deserailized.getExcludes());
+        assertTrue(deserailized.isRecursive());
+        assertEquals(DEPTH, deserailized.getDepth());
+        assertEquals(LEAVES, deserailized.getLeaves());
+        assertTrue(deserailized.isIncluded("db.user"));
       }
     }
   }
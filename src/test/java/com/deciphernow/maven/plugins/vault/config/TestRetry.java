@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Decipher Technology Studios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.deciphernow.maven.plugins.vault.config;
+
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides unit tests for the {@link Retry} class.
+ */
+public class TestRetry {
+
+  private static final Random RANDOM = new Random();
+  private static final int ATTEMPTS = RANDOM.nextInt(10) + 1;
+  private static final long INITIAL_DELAY = RANDOM.nextInt(1000) + 1;
+  private static final long MAXIMUM_DELAY = INITIAL_DELAY + RANDOM.nextInt(10000);
+  private static final int BREAKER_THRESHOLD = RANDOM.nextInt(10) + 1;
+  private static final int BREAKER_DELAY = RANDOM.nextInt(60) + 1;
+  private static final Retry INSTANCE = new Retry(ATTEMPTS, INITIAL_DELAY, MAXIMUM_DELAY, BREAKER_THRESHOLD,
+      BREAKER_DELAY);
+
+  /**
+   * Tests the default values of the {@link Retry} class.
+   */
+  @Test
+  public void testDefaults() {
+    Retry retry = new Retry();
+    assertEquals(Retry.DEFAULT_ATTEMPTS, retry.getAttempts());
+    assertEquals(Retry.DEFAULT_INITIAL_DELAY, retry.getInitialDelay());
+    assertEquals(Retry.DEFAULT_MAXIMUM_DELAY, retry.getMaximumDelay());
+    assertEquals(Retry.DEFAULT_BREAKER_THRESHOLD, retry.getBreakerThreshold());
+    assertEquals(Retry.DEFAULT_BREAKER_DELAY, retry.getBreakerDelay());
+  }
+
+  /**
+   * Tests the properties of the {@link Retry} class.
+   */
+  @Test
+  public void testProperties() {
+    assertEquals(ATTEMPTS, INSTANCE.getAttempts());
+    assertEquals(INITIAL_DELAY, INSTANCE.getInitialDelay());
+    assertEquals(MAXIMUM_DELAY, INSTANCE.getMaximumDelay());
+    assertEquals(BREAKER_THRESHOLD, INSTANCE.getBreakerThreshold());
+    assertEquals(BREAKER_DELAY, INSTANCE.getBreakerDelay());
+  }
+
+  /**
+   * Tests the {@link Retry#equals(Object)} and {@link Retry#hashCode()} methods.
+   */
+  @Test
+  public void testEquality() {
+    EqualsTester tester = new EqualsTester();
+    tester.addEqualityGroup(INSTANCE, INSTANCE, new Retry(ATTEMPTS, INITIAL_DELAY, MAXIMUM_DELAY, BREAKER_THRESHOLD,
+        BREAKER_DELAY));
+    tester.addEqualityGroup(new Retry(ATTEMPTS + 1, INITIAL_DELAY, MAXIMUM_DELAY, BREAKER_THRESHOLD, BREAKER_DELAY));
+    tester.addEqualityGroup(new Retry(ATTEMPTS, INITIAL_DELAY + 1, MAXIMUM_DELAY, BREAKER_THRESHOLD, BREAKER_DELAY));
+    tester.addEqualityGroup(new Retry(ATTEMPTS, INITIAL_DELAY, MAXIMUM_DELAY + 1, BREAKER_THRESHOLD, BREAKER_DELAY));
+    tester.addEqualityGroup(new Retry(ATTEMPTS, INITIAL_DELAY, MAXIMUM_DELAY, BREAKER_THRESHOLD + 1, BREAKER_DELAY));
+    tester.addEqualityGroup(new Retry(ATTEMPTS, INITIAL_DELAY, MAXIMUM_DELAY, BREAKER_THRESHOLD, BREAKER_DELAY + 1));
+    tester.testEquals();
+  }
+
+  /**
+   * Tests serialization of the {@link Retry} class.
+   */
+  @Test
+  public void testSerialization() throws ClassNotFoundException, IOException {
+
+    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+         ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+
+      objectOutputStream.writeObject(INSTANCE);
+
+      try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+           ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream)) {
+
+        Retry deserialized = (Retry) objectInputStream.readObject();
+        assertEquals(INSTANCE, deserialized);
+      }
+    }
+  }
+
+}
@@ -38,9 +38,17 @@ public class TestServer {
   private static final File SSL_CERTIFICATE = new File("/dev/null");
   private static final boolean SSL_VERIFY = RANDOM.nextBoolean();
   private static final boolean SKIP_EXECUTION = RANDOM.nextBoolean();
+  private static final int PARALLELISM = RANDOM.nextInt(16) + 1;
+  private static final Connection CONNECTION = new Connection(
+      Connection.DEFAULT_MAX_CONNECTIONS + RANDOM.nextInt(16) + 1, RANDOM.nextInt(60) + 1);
+  private static final int KV_VERSION = 2;
+  private static final Retry RETRY = new Retry(Retry.DEFAULT_ATTEMPTS + RANDOM.nextInt(5) + 1, 100, 1000, 3, 10);
+  private static final Authentication AUTHENTICATION = new Authentication(Authentication.APPROLE, null,
+      UUID.randomUUID().toString(), UUID.randomUUID().toString(), null, null, null, null);
   private static final String TOKEN = UUID.randomUUID().toString();
   private static final String URL = UUID.randomUUID().toString();
-  private static final Server INSTANCE = new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION);
+  private static final Server INSTANCE = new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION,
+      PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION);
 
   private static Path randomPath(int mappingCount) {
     return new Path(UUID.randomUUID().toString(), randomMappings(mappingCount));
@@ -90,6 +98,56 @@ public class TestServer {
     assertEquals(SKIP_EXECUTION, INSTANCE.isSkipExecution());
   }
 
+  /**
+   * Tests the {@link Server#getParallelism()} property.
+   */
+  @Test
+  public void testGetParallelism() {
+    assertEquals(PARALLELISM, INSTANCE.getParallelism());
+  }
+
+  /**
+   * Tests the {@link Server#getConnection()} property.
+   */
+  @Test
+  public void testGetConnection() {
+    assertEquals(CONNECTION, INSTANCE.getConnection());
+  }
+
+  /**
+   * Tests the {@link Server#getKvVersion()} property.
+   */
+  @Test
+  public void testGetKvVersion() {
+    assertEquals(KV_VERSION, INSTANCE.getKvVersion());
+  }
+
+  /**
+   * Tests the {@link Server#getRetry()} property.
+   */
+  @Test
+  public void testGetRetry() {
+    assertEquals(RETRY, INSTANCE.getRetry());
+  }
+
+  /**
+   * Tests the {@link Server#getAuthentication()} property.
+   */
+  @Test
+  public void testGetAuthentication() {
+    assertEquals(AUTHENTICATION, INSTANCE.getAuthentication());
+  }
+
+  /**
+   * Tests the {@link Server#withToken(String)} method.
+   */
+  @Test
+  public void testWithToken() {
+    String token = UUID.randomUUID().toString();
+    assertEquals(new Server(URL, token, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION, PARALLELISM, CONNECTION,
+        KV_VERSION, RETRY, null), INSTANCE.withToken(token));
+  }
+
   /**
    * Tests the {@link Server#getToken()} property.
    */
@@ -106,18 +164,44 @@ public class TestServer {
     assertEquals(URL, INSTANCE.getUrl());
   }
 
+  /**
+   * Tests the {@link Server#withPaths(List)} method.
+   */
+  @Test
+  public void testWithPaths() {
+    List<Path> paths = randomPaths(2, 2);
+    assertEquals(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, paths, SKIP_EXECUTION, PARALLELISM, CONNECTION,
+        KV_VERSION, RETRY, AUTHENTICATION), INSTANCE.withPaths(paths));
+  }
+
   /**
    * Tests the {@link Server#equals(Object)} and {@link Server#hashCode()} methods.
    */
   @Test
   public void testEquality() {
     EqualsTester tester = new EqualsTester();
-    tester.addEqualityGroup(INSTANCE, INSTANCE, new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION));
-    tester.addEqualityGroup(new Server(UUID.randomUUID().toString(), TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION));
-    tester.addEqualityGroup(new Server(URL, UUID.randomUUID().toString(), SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION));
-    tester.addEqualityGroup(new Server(URL, TOKEN, !SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION));
-    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, new File("/dev/random"), PATHS, SKIP_EXECUTION));
-    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, randomPaths(10, 10), SKIP_EXECUTION));
+    tester.addEqualityGroup(INSTANCE, INSTANCE, new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS,
+        SKIP_EXECUTION, PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(UUID.randomUUID().toString(), TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS,
+        SKIP_EXECUTION, PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, UUID.randomUUID().toString(), SSL_VERIFY, SSL_CERTIFICATE, PATHS,
+        SKIP_EXECUTION, PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, !SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION,
+        PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, new File("/dev/random"), PATHS, SKIP_EXECUTION,
+        PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, randomPaths(10, 10),
+        SKIP_EXECUTION, PARALLELISM, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION,
+        PARALLELISM + 1, CONNECTION, KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION, PARALLELISM,
+        CONNECTION, Server.DEFAULT_KV_VERSION, RETRY, AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION, PARALLELISM,
+        CONNECTION, KV_VERSION, new Retry(), AUTHENTICATION));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION, PARALLELISM,
+        CONNECTION, KV_VERSION, RETRY, null));
+    tester.addEqualityGroup(new Server(URL, TOKEN, SSL_VERIFY, SSL_CERTIFICATE, PATHS, SKIP_EXECUTION, PARALLELISM,
+        new Connection(), KV_VERSION, RETRY, AUTHENTICATION));
     tester.testEquals();
   }
 
@@ -142,6 +226,11 @@ public class TestServer {
         assertEquals(TOKEN, deserialized.getToken());
         assertEquals(URL, deserialized.getUrl());
         assertEquals(SKIP_EXECUTION, deserialized.isSkipExecution());
+        assertEquals(PARALLELISM, deserialized.getParallelism());
+        assertEquals(CONNECTION, deserialized.getConnection());
+        assertEquals(KV_VERSION, deserialized.getKvVersion());
+        assertEquals(RETRY, deserialized.getRetry());
+        assertEquals(AUTHENTICATION, deserialized.getAuthentication());
       }
     }
   }